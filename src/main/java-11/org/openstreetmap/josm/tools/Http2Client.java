@@ -0,0 +1,394 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.data.Version;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * Provides a uniform access for a HTTP/HTTPS 1.1/2 server, based on {@link java.net.http.HttpClient}.
+ * <p>
+ * The clients are shared by all requests with the same connect timeout, so that the connections are pooled, and the
+ * requests to the servers supporting HTTP/2 are multiplexed over a single connection. The read timeout applies to
+ * each read of the response body, as with {@link java.net.HttpURLConnection}.
+ * @since xxx
+ */
+public final class Http2Client extends HttpClient {
+
+    /** The headers which may not be set by {@link HttpRequest.Builder#setHeader} */
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private static final Map<Integer, java.net.http.HttpClient> CLIENTS = new ConcurrentHashMap<>();
+    /** Closes the response bodies whose reads exceed the read timeout */
+    private static final ScheduledThreadPoolExecutor READ_TIMEOUTS = newReadTimeoutExecutor();
+
+    static {
+        Collections.addAll(RESTRICTED_HEADERS, "Connection", "Content-Length", "Expect", "Host", "Upgrade");
+    }
+
+    private HttpRequest request;
+    private volatile CompletableFuture<HttpResponse<InputStream>> future;
+    private HttpResponse<InputStream> response;
+
+    /**
+     * Constructs a new {@code Http2Client}.
+     * @param url URL to access
+     * @param requestMethod HTTP request method (GET, POST, PUT, DELETE...)
+     */
+    public Http2Client(URL url, String requestMethod) {
+        super(url, requestMethod);
+    }
+
+    private static ScheduledThreadPoolExecutor newReadTimeoutExecutor() {
+        ThreadFactory factory = Utils.newThreadFactory("http2-read-timeout-%d", Thread.NORM_PRIORITY);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = factory.newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most reads finish in time, do not keep their canceled timers until they expire
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static java.net.http.HttpClient getClient(int connectTimeout) {
+        return CLIENTS.computeIfAbsent(connectTimeout, timeout -> {
+            java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                    .version(java.net.http.HttpClient.Version.HTTP_2)
+                    .followRedirects(Redirect.NEVER) // we do that ourselves
+                    .proxy(ProxySelector.getDefault());
+            if (timeout > 0) {
+                builder.connectTimeout(Duration.ofMillis(timeout));
+            }
+            if (CookieHandler.getDefault() != null) {
+                builder.cookieHandler(CookieHandler.getDefault());
+            }
+            if (Authenticator.getDefault() != null) {
+                builder.authenticator(Authenticator.getDefault());
+            }
+            return builder.build();
+        });
+    }
+
+    @Override
+    protected void setupConnection(ProgressMonitor progressMonitor) throws IOException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(getURL().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        builder.setHeader("User-Agent", Version.getInstance().getFullAgentString());
+        if (getReadTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(getReadTimeout()));
+        }
+        if (getIfModifiedSince() > 0) {
+            builder.setHeader("If-Modified-Since", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    ZonedDateTime.ofInstant(Instant.ofEpochMilli(getIfModifiedSince()), ZoneOffset.UTC)));
+        }
+        if (!isUseCache()) {
+            builder.setHeader("Cache-Control", "no-cache");
+        }
+        for (Map.Entry<String, String> header : getHeaders().entrySet()) {
+            if (header.getValue() != null && !RESTRICTED_HEADERS.contains(header.getKey())) {
+                builder.setHeader(header.getKey(), header.getValue());
+            }
+        }
+
+        notifyConnect(progressMonitor);
+
+        if (requiresBody()) {
+            logRequestBody();
+            builder.method(getRequestMethod(), BodyPublishers.ofByteArray(getRequestBody()));
+        } else {
+            builder.method(getRequestMethod(), BodyPublishers.noBody());
+        }
+        request = builder.build();
+    }
+
+    @Override
+    protected ConnectionResponse performConnection() throws IOException {
+        // the request timeout set in setupConnection() only bounds the wait for the headers
+        int readTimeout = getReadTimeout();
+        BodyHandler<InputStream> handler = readTimeout > 0
+                ? info -> BodySubscribers.mapping(BodySubscribers.ofInputStream(), in -> new TimeoutInputStream(in, readTimeout))
+                : BodyHandlers.ofInputStream();
+        // the request is sent asynchronously only so that disconnect() can abort it from another thread,
+        // the calling thread waits for the response headers as with HttpURLConnection
+        CompletableFuture<HttpResponse<InputStream>> sent = getClient(getConnectTimeout()).sendAsync(request, handler);
+        // canceling the sent future does not abort the exchange before Java 16, so disconnect() completes this one
+        // instead, and the response received afterwards is closed, which aborts the exchange
+        CompletableFuture<HttpResponse<InputStream>> received = new CompletableFuture<>();
+        sent.whenComplete((r, e) -> {
+            if (e != null) {
+                received.completeExceptionally(e);
+            } else if (!received.complete(r)) {
+                close(r);
+            }
+        });
+        future = received;
+        try {
+            response = received.get();
+        } catch (InterruptedException e) {
+            disconnect();
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof HttpTimeoutException) {
+                // as thrown by HttpURLConnection, on which the callers retrying the timed out requests rely
+                SocketTimeoutException timeout = new SocketTimeoutException(
+                        cause instanceof HttpConnectTimeoutException ? "Connect timed out" : "Read timed out");
+                timeout.initCause(cause);
+                throw timeout;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return new ConnectionResponse() {
+            @Override
+            public String getResponseVersion() {
+                return getVersion(response);
+            }
+
+            @Override
+            public int getResponseCode() {
+                return response.statusCode();
+            }
+
+            @Override
+            public String getHeaderField(String name) {
+                return response.headers().firstValue(name).orElse(null);
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            }
+
+            @Override
+            public Map<String, List<String>> getHeaderFields() {
+                return response.headers().map();
+            }
+        };
+    }
+
+    private static String getVersion(HttpResponse<?> response) {
+        return response.version() == java.net.http.HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+    }
+
+    @Override
+    protected void performDisconnection() throws IOException {
+        disconnect();
+    }
+
+    @Override
+    protected Response buildResponse(ProgressMonitor progressMonitor) throws IOException {
+        return new Http2Response(response, progressMonitor);
+    }
+
+    /**
+     * A wrapper for the HTTP 1.1/2 response.
+     */
+    public static final class Http2Response extends Response {
+        private final HttpResponse<InputStream> response;
+
+        private Http2Response(HttpResponse<InputStream> response, ProgressMonitor progressMonitor) throws IOException {
+            // HTTP/2 has no reason phrase
+            super(progressMonitor, response.statusCode(), "");
+            this.response = response;
+            debugRedirect();
+        }
+
+        @Override
+        public URL getURL() {
+            try {
+                return response.uri().toURL();
+            } catch (IOException e) {
+                throw new JosmRuntimeException(e);
+            }
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return response.request().method();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return response.body();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return getHeaderField("Content-Encoding");
+        }
+
+        @Override
+        public String getContentType() {
+            return getHeaderField("Content-Type");
+        }
+
+        @Override
+        public long getExpiration() {
+            return parseDate(getHeaderField("Expires"));
+        }
+
+        @Override
+        public long getLastModified() {
+            return parseDate(getHeaderField("Last-Modified"));
+        }
+
+        @Override
+        public long getContentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            Map<String, List<String>> ret = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            ret.putAll(response.headers().map());
+            return Collections.unmodifiableMap(ret);
+        }
+
+        @Override
+        public void disconnect() {
+            Http2Client.close(response);
+        }
+    }
+
+    /**
+     * A response body whose reads fail with a {@link SocketTimeoutException} once they waited longer than the read
+     * timeout. The body is closed on timeout, which wakes up the blocked read.
+     */
+    private static final class TimeoutInputStream extends FilterInputStream {
+        private final long timeout;
+        private volatile boolean timedOut;
+
+        TimeoutInputStream(InputStream in, long timeout) {
+            super(in);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return (int) read(in::read);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return (int) read(() -> in.read(b, off, len));
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return read(() -> in.skip(n));
+        }
+
+        private long read(BlockingRead read) throws IOException {
+            ScheduledFuture<?> timer = READ_TIMEOUTS.schedule(this::timeOut, timeout, TimeUnit.MILLISECONDS);
+            long result;
+            try {
+                result = read.read();
+            } catch (IOException e) {
+                if (!timedOut) {
+                    throw e;
+                }
+                // the body has been closed by the timer
+                result = -1;
+            } finally {
+                timer.cancel(false);
+            }
+            if (timedOut) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            return result;
+        }
+
+        private void timeOut() {
+            timedOut = true;
+            Utils.close(in);
+        }
+
+        @FunctionalInterface
+        private interface BlockingRead {
+            long read() throws IOException;
+        }
+    }
+
+    /**
+     * Parses a HTTP date, as {@link java.net.URLConnection#getHeaderFieldDate} does.
+     * @param date the date, can be {@code null}
+     * @return the date in milliseconds since the epoch, or {@code 0} if it cannot be parsed
+     */
+    static long parseDate(String date) {
+        if (date == null) {
+            return 0;
+        }
+        try {
+            return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            Logging.trace(e);
+            return 0;
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        CompletableFuture<HttpResponse<InputStream>> received = future;
+        if (received != null) {
+            // wakes up the thread waiting for the response, if it has not been received yet
+            received.completeExceptionally(new IOException("Request aborted"));
+            // otherwise closes its body
+            received.thenAccept(Http2Client::close);
+        }
+    }
+
+    private static void close(HttpResponse<InputStream> response) {
+        // closing the body aborts the exchange if it has not been read entirely, the connection stays in the pool
+        // otherwise (HTTP/1.1), or is still used by the other exchanges (HTTP/2)
+        Utils.close(response.body());
+    }
+}
@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
 import javax.swing.JOptionPane;
@@ -23,8 +24,11 @@ import org.openstreetmap.josm.actions.ActionParameter;
 import org.openstreetmap.josm.actions.ExpertToggleAction;
 import org.openstreetmap.josm.actions.JosmAction;
 import org.openstreetmap.josm.actions.ParameterizedAction;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.OsmData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
@@ -375,6 +379,9 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
             try {
                 foundMatches = 0;
                 SearchCompiler.Match matcher = SearchCompiler.compile(setting);
+                if (Logging.isDebugEnabled()) {
+                    Logging.debug("Search plan:\n" + SearchCompiler.explain(matcher));
+                }
 
                 if (setting.mode == SearchMode.replace) {
                     selection.clear();
@@ -382,8 +389,12 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                     foundMatches = selection.size();
                 }
 
-                Collection<? extends IPrimitive> all;
-                if (setting.allElements) {
+                Collection<? extends IPrimitive> all = findCandidates(matcher);
+                if (all != null) {
+                    if (!setting.allElements) {
+                        all.removeIf(p -> !p.isSelectable());
+                    }
+                } else if (setting.allElements) {
                     all = ds.allPrimitives();
                 } else {
                     all = ds.getPrimitives(p -> p.isSelectable()); // Do not use method reference before Java 11!
@@ -424,6 +435,20 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
             }
         }
 
+        /**
+         * Looks up the primitives which may match in the tag index of the dataset, if any.
+         * @param matcher the search criterion
+         * @return the candidates, or {@code null} if all primitives must be tested
+         */
+        private Set<OsmPrimitive> findCandidates(SearchCompiler.Match matcher) {
+            // the primitives which do not match must be found to search in the selection
+            if (setting.mode == SearchMode.in_selection || !(ds instanceof DataSet)) {
+                return null;
+            }
+            TagIndex index = ((DataSet) ds).getTagIndex();
+            return index != null ? matcher.findCandidates(index) : null;
+        }
+
         @Override
         protected void finish() {
             if (canceled) {
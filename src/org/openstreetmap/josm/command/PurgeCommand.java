@@ -87,6 +87,8 @@ public class PurgeCommand extends Command {
             purgedConflicts.get().clear();
             // unselect primitives in advance to not fire a selection change for every one of them
             getAffectedDataSet().clearSelection(toPurge);
+            // the styles of the neighbours can depend on the purged primitives, clear them while they are still linked
+            clearCachedStyles();
             // Loop from back to front to keep referential integrity.
             for (int i = toPurge.size()-1; i >= 0; --i) {
                 OsmPrimitive osm = toPurge.get(i);
@@ -113,7 +115,6 @@ public class PurgeCommand extends Command {
                     }
                 }
             }
-            getAffectedDataSet().clearMappaintCache();
         });
         return true;
     }
@@ -141,10 +142,26 @@ public class PurgeCommand extends Command {
             for (Conflict<?> conflict : purgedConflicts) {
                 getAffectedDataSet().getConflicts().add(conflict);
             }
-            getAffectedDataSet().clearMappaintCache();
+            clearCachedStyles();
         });
     }
 
+    /**
+     * Clears the cached styles of the purged primitives and of the primitives whose style may depend on them,
+     * so that the styles of the other primitives of the dataset are kept.
+     */
+    private void clearCachedStyles() {
+        for (OsmPrimitive osm : toPurge) {
+            osm.clearCachedStyle();
+            osm.getReferrers().forEach(OsmPrimitive::clearCachedStyle);
+            if (osm instanceof Way) {
+                ((Way) osm).clearCachedNodeStyles();
+            } else if (osm instanceof Relation) {
+                ((Relation) osm).getMemberPrimitivesList().forEach(OsmPrimitive::clearCachedStyle);
+            }
+        }
+    }
+
     /**
      * Sorts a collection of primitives such that for each object
      * its referrers come later in the sorted collection.
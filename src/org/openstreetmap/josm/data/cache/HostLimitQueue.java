@@ -2,42 +2,92 @@
 package org.openstreetmap.josm.data.cache;
 
 import java.io.IOException;
-import java.net.URL;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.openstreetmap.josm.tools.HttpClient;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
  * Queue for ThreadPoolExecutor that implements per-host limit. It will acquire a semaphore for each task
  * and it will set a runnable task with semaphore release, when job has finished.
  * <p>
- * This implementation doesn't guarantee to have at most hostLimit connections per host[1], and it doesn't
- * guarantee that all threads will be busy, when there is work for them[2]. <br>
- * [1] More connection per host may happen, when ThreadPoolExecutor is growing its pool, and thus
- *     tasks do not go through the Queue <br>
- * [2] If we have a queue, and for all hosts in queue we will fail to acquire semaphore, the thread
- *     take the first available job and wait for semaphore. It might be the case, that semaphore was released
- *     for some task further in queue, but this implementation doesn't try to detect such situation
+ * The queued jobs are run by increasing {@link JCSCachedTileLoaderJob#getPriority() priority}, and the
+ * {@link JCSCachedTileLoaderJob#isObsolete() obsolete} ones are canceled instead of being run. The priorities are
+ * computed when a job is queued, and again for all the queued jobs after {@link #invalidatePriorities()}.
+ * <p>
+ * A job leaves the queue only once a permit of its host has been acquired: when all the hosts of the queued jobs
+ * reached their limit, the threads wait until a permit is released or a new job is queued, and then look for the
+ * job with the lowest priority again.
+ * <p>
+ * The hosts which {@link HttpClient#isMultiplexed multiplex} the requests over a single HTTP/2 connection have their
+ * own limit, as the parallel requests do not open new connections.
+ * <p>
+ * This implementation doesn't guarantee to have at most hostLimit connections per host, as more connections per
+ * host may happen when ThreadPoolExecutor is growing its pool, and thus tasks do not go through the Queue.
  *
  * @author Wiktor Niesiobędzki
  */
-public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
-    private static final long serialVersionUID = 1L;
+public class HostLimitQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    /** Incremented each time the priorities of the jobs change, see {@link #invalidatePriorities()} */
+    private static final AtomicLong PRIORITIES_VERSION = new AtomicLong();
+
+    private static final Comparator<Entry> ORDER = Comparator.<Entry>comparingDouble(e -> e.priority).thenComparingLong(e -> e.sequence);
+
+    /** A queued job */
+    private static final class Entry {
+        private final Runnable job;
+        /** The host of the job, {@code null} for the jobs which are not limited */
+        private final String host;
+        private final long sequence;
+        private double priority;
+        private boolean removed;
+
+        Entry(Runnable job, String host, long sequence, double priority) {
+            this.job = job;
+            this.host = host;
+            this.sequence = sequence;
+            this.priority = priority;
+        }
+    }
 
     private final Map<String, Semaphore> hostSemaphores = new ConcurrentHashMap<>();
     private final int hostLimit;
+    private final int multiplexedHostLimit;
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Signaled when a job is queued or a permit is released */
+    private final Condition changed = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    /** The queued jobs of each host, by priority. The removed entries are skipped when they reach the head */
+    private final Map<String, PriorityQueue<Entry>> hostJobs = new LinkedHashMap<>();
+    private final Map<Runnable, Entry> entries = new IdentityHashMap<>();
+    private long sequence;
+    private long prioritiesVersion = PRIORITIES_VERSION.get();
 
     /**
      * Creates an unbounded queue
      * @param hostLimit how many parallel calls to host to allow
      */
     public HostLimitQueue(int hostLimit) {
-        super(); // create unbounded queue
-        this.hostLimit = hostLimit;
+        this(hostLimit, Integer.MAX_VALUE);
     }
 
     /**
@@ -46,134 +96,397 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
      * @param queueLimit how deep the queue should be
      */
     public HostLimitQueue(int hostLimit, int queueLimit) {
-        super(queueLimit); // create bounded queue
+        this(hostLimit, hostLimit, queueLimit);
+    }
+
+    /**
+     * Creates bounded queue, with a separate limit for the hosts multiplexing the requests
+     * @param hostLimit how many parallel calls to host to allow
+     * @param multiplexedHostLimit how many parallel calls to allow to a host answering with HTTP/2
+     * @param queueLimit how deep the queue should be, {@link Integer#MAX_VALUE} for an unbounded queue
+     * @since xxx
+     */
+    public HostLimitQueue(int hostLimit, int multiplexedHostLimit, int queueLimit) {
+        if (queueLimit <= 0) {
+            throw new IllegalArgumentException("queueLimit: " + queueLimit);
+        }
         this.hostLimit = hostLimit;
+        this.multiplexedHostLimit = multiplexedHostLimit;
+        this.capacity = queueLimit;
     }
 
-    private JCSCachedTileLoaderJob<?, ?> findJob() {
-        for (Runnable r : this) {
-            if (r instanceof JCSCachedTileLoaderJob) {
-                JCSCachedTileLoaderJob<?, ?> job = (JCSCachedTileLoaderJob<?, ?>) r;
-                if (tryAcquireSemaphore(job)) {
-                    if (remove(job)) {
-                        return job;
-                    } else {
-                        // we have acquired the semaphore, but we didn't manage to remove job, as someone else did
-                        // release the semaphore and look for another candidate
-                        releaseSemaphore(job);
-                    }
-                } else {
-                    URL url = null;
-                    try {
-                        url = job.getUrl();
-                    } catch (IOException e) {
-                        Logging.debug(e);
+    /**
+     * Notifies the queues that the priorities of the jobs changed, for instance when the visible tiles changed.
+     * The queued jobs are ranked again, and the obsolete ones are canceled, before the next job is run.
+     * @since xxx
+     */
+    public static void invalidatePriorities() {
+        PRIORITIES_VERSION.incrementAndGet();
+    }
+
+    private static String getHost(Runnable job) {
+        if (job instanceof JCSCachedTileLoaderJob) {
+            try {
+                return ((JCSCachedTileLoaderJob<?, ?>) job).getUrl().getHost();
+            } catch (IOException e) {
+                // do not pass me illegal URL's
+                throw new IllegalArgumentException(e);
+            }
+        }
+        return null;
+    }
+
+    private static double getPriority(Runnable job) {
+        return job instanceof JCSCachedTileLoaderJob ? ((JCSCachedTileLoaderJob<?, ?>) job).getPriority() : 0;
+    }
+
+    private static boolean isObsolete(Runnable job) {
+        return job instanceof JCSCachedTileLoaderJob && ((JCSCachedTileLoaderJob<?, ?>) job).isObsolete();
+    }
+
+    private void enqueue(Runnable job, String host, double priority) {
+        Entry entry = new Entry(job, host, sequence++, priority);
+        entries.put(job, entry);
+        hostJobs.computeIfAbsent(host, h -> new PriorityQueue<>(ORDER)).add(entry);
+        changed.signal();
+    }
+
+    private void dequeue(Entry entry) {
+        entry.removed = true;
+        entries.remove(entry.job);
+        notFull.signal();
+    }
+
+    /**
+     * Computes again the priorities of the queued jobs, if they changed since they were queued.
+     * @param canceled the obsolete jobs, removed from the queue, to be canceled once the lock is released
+     */
+    private void rank(List<Runnable> canceled) {
+        long version = PRIORITIES_VERSION.get();
+        if (version == prioritiesVersion) {
+            return;
+        }
+        prioritiesVersion = version;
+        hostJobs.clear();
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (isObsolete(entry.job)) {
+                dequeue(entry);
+                canceled.add(entry.job);
+            } else {
+                entry.priority = getPriority(entry.job);
+                hostJobs.computeIfAbsent(entry.host, h -> new PriorityQueue<>(ORDER)).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes the job with the lowest priority among the ones whose host did not reach its limit, and acquires the
+     * permit of its host.
+     * @param canceled the obsolete jobs, removed from the queue, to be canceled once the lock is released
+     * @return the job, or {@code null} if there is none
+     */
+    private Runnable findJob(List<Runnable> canceled) {
+        rank(canceled);
+        while (true) {
+            Entry best = null;
+            Semaphore bestLimit = null;
+            for (Iterator<PriorityQueue<Entry>> it = hostJobs.values().iterator(); it.hasNext();) {
+                PriorityQueue<Entry> jobs = it.next();
+                while (!jobs.isEmpty() && jobs.peek().removed) {
+                    jobs.poll();
+                }
+                Entry head = jobs.peek();
+                if (head == null) {
+                    it.remove();
+                } else if (best == null || ORDER.compare(head, best) < 0) {
+                    Semaphore limit = head.host == null ? null : getSemaphore(head.host);
+                    if (limit == null || limit.availablePermits() > 0) {
+                        best = head;
+                        bestLimit = limit;
                     }
-                    Logging.debug("TMS - Skipping job {0} because host limit reached", url);
                 }
             }
+            if (best == null) {
+                return null;
+            }
+            if (isObsolete(best.job)) {
+                hostJobs.get(best.host).poll();
+                dequeue(best);
+                canceled.add(best.job);
+            } else if (bestLimit == null || bestLimit.tryAcquire()) {
+                hostJobs.get(best.host).poll();
+                dequeue(best);
+                if (bestLimit != null) {
+                    Semaphore limit = bestLimit;
+                    ((JCSCachedTileLoaderJob<?, ?>) best.job).setFinishedTask(() -> releaseSemaphore(limit));
+                }
+                return best.job;
+            } else {
+                // the permits are only acquired with the lock held, so that this does not happen
+                return null;
+            }
+        }
+    }
+
+    private static void cancel(List<Runnable> canceled) {
+        for (Runnable job : canceled) {
+            ((JCSCachedTileLoaderJob<?, ?>) job).handleJobCancellation();
         }
-        return null;
     }
 
     @Override
     public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
-        Runnable job = findJob();
-        if (job != null) {
-            return job;
-        }
-        job = pollFirst(timeout, unit);
-        if (job != null) {
-            try {
-                boolean gotLock = tryAcquireSemaphore(job, timeout, unit);
-                return gotLock ? job : null;
-            } catch (InterruptedException e) {
-                // acquire my got interrupted, first offer back what was taken
-                if (!offer(job)) {
-                    Logging.warn("Unable to offer back " + job);
-                }
-                throw e;
+        long nanos = unit.toNanos(timeout);
+        List<Runnable> canceled = new ArrayList<>();
+        lock.lockInterruptibly();
+        try {
+            Runnable job = findJob(canceled);
+            while (job == null && nanos > 0) {
+                nanos = awaitChange(nanos);
+                job = findJob(canceled);
             }
+            return job;
+        } finally {
+            lock.unlock();
+            cancel(canceled);
         }
-        return job;
     }
 
     @Override
     public Runnable take() throws InterruptedException {
-        Runnable job = findJob();
-        if (job != null) {
+        List<Runnable> canceled = new ArrayList<>();
+        lock.lockInterruptibly();
+        try {
+            Runnable job = findJob(canceled);
+            while (job == null) {
+                awaitChange(Long.MAX_VALUE);
+                job = findJob(canceled);
+            }
             return job;
+        } finally {
+            lock.unlock();
+            cancel(canceled);
         }
-        job = takeFirst();
+    }
+
+    @Override
+    public Runnable poll() {
+        List<Runnable> canceled = new ArrayList<>();
+        lock.lock();
+        try {
+            return findJob(canceled);
+        } finally {
+            lock.unlock();
+            cancel(canceled);
+        }
+    }
+
+    private long awaitChange(long nanos) throws InterruptedException {
         try {
-            acquireSemaphore(job);
+            return nanos == Long.MAX_VALUE ? awaitForever() : changed.awaitNanos(nanos);
         } catch (InterruptedException e) {
-            // acquire my got interrupted, first offer back what was taken
-            if (!offer(job)) {
-                Logging.warn("Unable to offer back " + job);
-            }
+            // pass on the signal which may have been consumed
+            changed.signal();
             throw e;
         }
-        return job;
     }
 
-    private Semaphore getSemaphore(JCSCachedTileLoaderJob<?, ?> job) {
-        String host;
+    private long awaitForever() throws InterruptedException {
+        changed.await();
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean offer(Runnable job) {
+        String host = getHost(job);
+        double priority = getPriority(job);
+        lock.lock();
+        try {
+            if (entries.size() >= capacity) {
+                return false;
+            }
+            enqueue(job, host, priority);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable job, long timeout, TimeUnit unit) throws InterruptedException {
+        String host = getHost(job);
+        double priority = getPriority(job);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
         try {
-            host = job.getUrl().getHost();
-        } catch (IOException e) {
-            // do not pass me illegal URL's
-            throw new IllegalArgumentException(e);
+            while (entries.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(job, host, priority);
+            return true;
+        } finally {
+            lock.unlock();
         }
-        Semaphore limit = hostSemaphores.get(host);
-        if (limit == null) {
-            limit = hostSemaphores.computeIfAbsent(host, k -> new Semaphore(hostLimit));
+    }
+
+    @Override
+    public void put(Runnable job) throws InterruptedException {
+        offer(job, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return entries.values().stream().min(ORDER).map(e -> e.job).orElse(null);
+        } finally {
+            lock.unlock();
         }
-        return limit;
     }
 
-    private void acquireSemaphore(Runnable job) throws InterruptedException {
-        if (job instanceof JCSCachedTileLoaderJob) {
-            final JCSCachedTileLoaderJob<?, ?> jcsJob = (JCSCachedTileLoaderJob<?, ?>) job;
-            getSemaphore(jcsJob).acquire();
-            jcsJob.setFinishedTask(() -> releaseSemaphore(jcsJob));
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(o);
+            if (entry == null) {
+                return false;
+            }
+            dequeue(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        lock.lock();
+        try {
+            return entries.containsKey(o);
+        } finally {
+            lock.unlock();
         }
     }
 
-    private boolean tryAcquireSemaphore(final JCSCachedTileLoaderJob<?, ?> job) {
-        boolean ret = true;
-        Semaphore limit = getSemaphore(job);
-        if (limit != null) {
-            ret = limit.tryAcquire();
-            if (ret) {
-                job.setFinishedTask(() -> releaseSemaphore(job));
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        lock.lock();
+        try {
+            List<Entry> drained = new ArrayList<>(entries.values());
+            drained.sort(ORDER);
+            int n = Math.min(maxElements, drained.size());
+            for (Entry entry : drained.subList(0, n)) {
+                dequeue(entry);
+                c.add(entry.job);
             }
+            return n;
+        } finally {
+            lock.unlock();
         }
-        return ret;
     }
 
-    private boolean tryAcquireSemaphore(Runnable job, long timeout, TimeUnit unit) throws InterruptedException {
-        boolean ret = true;
-        if (job instanceof JCSCachedTileLoaderJob) {
-            final JCSCachedTileLoaderJob<?, ?> jcsJob = (JCSCachedTileLoaderJob<?, ?>) job;
-            Semaphore limit = getSemaphore(jcsJob);
-            if (limit != null) {
-                ret = limit.tryAcquire(timeout, unit);
-                if (ret) {
-                    jcsJob.setFinishedTask(() -> releaseSemaphore(jcsJob));
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            entries.values().forEach(e -> e.removed = true);
+            entries.clear();
+            hostJobs.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the queued jobs, in no particular order.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> jobs;
+        lock.lock();
+        try {
+            jobs = new ArrayList<>(entries.keySet());
+        } finally {
+            lock.unlock();
+        }
+        Iterator<Runnable> it = jobs.iterator();
+        return new Iterator<Runnable>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
                 }
+                HostLimitQueue.this.remove(last);
+                last = null;
             }
+        };
+    }
+
+    private Semaphore getSemaphore(String host) {
+        if (multiplexedHostLimit != hostLimit && HttpClient.isMultiplexed(host)) {
+            // the jobs started before the host was known to multiplex release the permits of the other semaphore
+            return hostSemaphores.computeIfAbsent(host + " (multiplexed)", k -> new Semaphore(multiplexedHostLimit));
         }
-        return ret;
+        Semaphore limit = hostSemaphores.get(host);
+        if (limit == null) {
+            limit = hostSemaphores.computeIfAbsent(host, k -> new Semaphore(hostLimit));
+        }
+        return limit;
     }
 
-    private void releaseSemaphore(JCSCachedTileLoaderJob<?, ?> job) {
-        Semaphore limit = getSemaphore(job);
-        if (limit != null) {
+    private void releaseSemaphore(Semaphore limit) {
+        lock.lock();
+        try {
             limit.release();
-            if (limit.availablePermits() > hostLimit) {
-                Logging.warn("More permits than it should be");
-            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (limit.availablePermits() > Math.max(hostLimit, multiplexedHostLimit)) {
+            Logging.warn("More permits than it should be");
         }
     }
 }
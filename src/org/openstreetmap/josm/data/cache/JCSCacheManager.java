@@ -50,6 +50,7 @@ public final class JCSCacheManager {
     public static final BooleanProperty USE_BLOCK_CACHE = new BooleanProperty(PREFERENCE_PREFIX + ".use_block_cache", true);
 
     private static final AuxiliaryCacheFactory DISK_CACHE_FACTORY = getDiskCacheFactory();
+    private static final AuxiliaryCacheFactory MAPPED_STORE_FACTORY = new MappedTileStoreFactory();
     private static FileLock cacheDirLock;
 
     /**
@@ -187,14 +188,35 @@ public final class JCSCacheManager {
      * @return cache access object
      */
     public static <K, V> CacheAccess<K, V> getCache(String cacheName, int maxMemoryObjects, int maxDiskObjects, String cachePath) {
+        return getCache(cacheName, maxMemoryObjects, maxDiskObjects, cachePath, false);
+    }
+
+    /**
+     * Returns configured cache object with defined limits of memory cache and disk cache
+     * @param <K> key type
+     * @param <V> value type
+     * @param cacheName         region name
+     * @param maxMemoryObjects  number of objects to keep in memory
+     * @param maxDiskObjects    maximum size of the objects stored on disk in kB
+     * @param cachePath         path to disk cache. if null, no disk cache will be created
+     * @param useMappedStore    if true, the disk cache is a {@link MappedTileStore} instead of the configured JCS disk cache.
+     *                          The disk cache of a region is chosen when the region is first used.
+     * @return cache access object
+     * @since xxx
+     */
+    public static <K, V> CacheAccess<K, V> getCache(String cacheName, int maxMemoryObjects, int maxDiskObjects, String cachePath,
+            boolean useMappedStore) {
         CacheAccess<K, V> cacheAccess = getCacheAccess(cacheName, getCacheAttributes(maxMemoryObjects));
+        AuxiliaryCacheFactory diskCacheFactory = useMappedStore ? MAPPED_STORE_FACTORY : DISK_CACHE_FACTORY;
 
-        if (cachePath != null && cacheDirLock != null && cacheAccess != null && DISK_CACHE_FACTORY != null) {
+        if (cachePath != null && cacheDirLock != null && cacheAccess != null && diskCacheFactory != null) {
             CompositeCache<K, V> cc = cacheAccess.getCacheControl();
             try {
-                IDiskCacheAttributes diskAttributes = getDiskCacheAttributes(maxDiskObjects, cachePath, cacheName);
+                IDiskCacheAttributes diskAttributes = useMappedStore
+                        ? getMappedStoreAttributes(maxDiskObjects, cachePath, cacheName)
+                        : getDiskCacheAttributes(maxDiskObjects, cachePath, cacheName);
                 if (cc.getAuxCacheList().isEmpty()) {
-                    cc.setAuxCaches(Collections.singletonList(DISK_CACHE_FACTORY.createCache(
+                    cc.setAuxCaches(Collections.singletonList(diskCacheFactory.createCache(
                             diskAttributes, null, null, new StandardSerializer())));
                 }
             } catch (Exception e) { // NOPMD
@@ -260,6 +282,18 @@ public final class JCSCacheManager {
         return ret;
     }
 
+    private static IDiskCacheAttributes getMappedStoreAttributes(int maxDiskObjects, String cachePath, String cacheName) {
+        MappedTileStoreAttributes ret = new MappedTileStoreAttributes();
+        ret.setMaxKeySize(maxDiskObjects);
+        // keep at least eight segments, so that compaction does not need to move too many elements at once
+        ret.setSegmentSize((int) Math.max(1024 * 1024, Math.min(MappedTileStoreAttributes.DEFAULT_SEGMENT_SIZE,
+                1024L * maxDiskObjects / 8)));
+        ret.setDiskLimitType(IDiskCacheAttributes.DiskLimitType.SIZE);
+        ret.setDiskPath(cachePath);
+        ret.setCacheName(cacheName + "_MMAP_v1");
+        return ret;
+    }
+
     private static void removeStaleFiles(String basePathPart, String suffix) {
         deleteCacheFiles(basePathPart + suffix);
     }
@@ -26,6 +26,7 @@ import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.HttpClient;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Metrics;
 import org.openstreetmap.josm.tools.Utils;
 
 import org.apache.commons.jcs3.access.behavior.ICacheAccess;
@@ -83,6 +84,10 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
     private static final ConcurrentMap<String, Set<ICachedLoaderListener>> inProgress = new ConcurrentHashMap<>();
     private static final ConcurrentMap<String, Boolean> useHead = new ConcurrentHashMap<>();
 
+    private static final Metrics.Counter CACHE_HITS = Metrics.counter("tile.cache.hit");
+    private static final Metrics.Counter CACHE_MISSES = Metrics.counter("tile.cache.miss");
+    private static final Metrics.Timer DOWNLOAD = Metrics.timer("tile.download");
+
     protected final long now; // when the job started
 
     private final ICacheAccess<K, V> cache;
@@ -225,12 +230,17 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
             if (!force && cacheElement != null && isCacheElementValid() && isObjectLoadable()) {
                 // we got something in cache, and it's valid, so lets return it
                 Logging.debug("JCS - Returning object from cache: {0}", getCacheKey());
+                CACHE_HITS.increment();
                 finishLoading(LoadResult.SUCCESS);
                 return;
             }
+            CACHE_MISSES.increment();
 
             // try to load object from remote resource
-            if (loadObject()) {
+            long start = System.nanoTime();
+            boolean loaded = loadObject();
+            DOWNLOAD.stop(start);
+            if (loaded) {
                 finishLoading(LoadResult.SUCCESS);
             } else {
                 // if loading failed - check if we can return stale entry
@@ -583,6 +593,24 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
 
     }
 
+    /**
+     * Returns the priority of this job in the download queue.
+     * @return the priority of this job, the jobs with the lowest value are run first. {@code 0} by default
+     * @since xxx
+     */
+    public double getPriority() {
+        return 0;
+    }
+
+    /**
+     * Determines if the result of this job is not needed anymore, so that it can be canceled before it is run.
+     * @return {@code true} if this job can be canceled. {@code false} by default
+     * @since xxx
+     */
+    public boolean isObsolete() {
+        return false;
+    }
+
     /**
      * Marks this job as canceled
      */
@@ -0,0 +1,221 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact off-heap index of {@link MappedTileStore}, mapping the 64-bit hash of a key to the location of its record.
+ * <p>
+ * The index is an open addressing hash table with linear probing, stored in a direct buffer. Each slot holds the hash,
+ * the segment, the offset and the length of the record, and the last access tick used for LRU eviction. A hash of
+ * {@code 0} marks an empty slot. This class is not thread safe.
+ * @since xxx
+ */
+final class MappedTileIndex {
+
+    private static final int SLOT_SIZE = 32;
+    private static final int HASH = 0;
+    private static final int SEGMENT = 8;
+    private static final int OFFSET = 12;
+    private static final int LENGTH = 16;
+    private static final int TICK = 24;
+
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs a new {@code MappedTileIndex}.
+     * @param expectedSize the expected number of entries
+     */
+    MappedTileIndex(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    /**
+     * Computes the hash of a key, never {@code 0}.
+     * @param key the serialized key
+     * @return the 64-bit hash of the key
+     */
+    static long hash(byte[] key) {
+        // FNV-1a followed by the finalizer of MurmurHash3, so that the low bits are well distributed
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return the number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots.
+     * @return the number of slots, used or not
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Finds the slot of a hash.
+     * @param hash the hash of the key
+     * @return the slot of the hash, or {@code -1} if the hash is not in the index
+     */
+    int find(long hash) {
+        for (int slot = home(hash);; slot = (slot + 1) & mask) {
+            long h = getHash(slot);
+            if (h == hash) {
+                return slot;
+            } else if (h == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces an entry.
+     * @param hash the hash of the key
+     * @param segment the segment of the record
+     * @param offset the offset of the record in the segment
+     * @param length the length of the record
+     * @param tick the access tick
+     * @return the slot of the entry
+     */
+    int put(long hash, int segment, int offset, int length, long tick) {
+        if (size + 1 > capacity() * 3 / 4) {
+            grow();
+        }
+        int slot = home(hash);
+        while (true) {
+            long h = getHash(slot);
+            if (h == 0) {
+                size++;
+                break;
+            } else if (h == hash) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int base = slot * SLOT_SIZE;
+        table.putLong(base + HASH, hash);
+        table.putLong(base + TICK, tick);
+        setLocation(slot, segment, offset, length);
+        return slot;
+    }
+
+    /**
+     * Removes an entry. The slots of other entries may change.
+     * @param hash the hash of the key
+     * @return {@code true} if the index contained the hash
+     */
+    boolean remove(long hash) {
+        int free = find(hash);
+        if (free < 0) {
+            return false;
+        }
+        // backward shift deletion: move the following entries of the cluster which may not be found anymore
+        for (int slot = (free + 1) & mask;; slot = (slot + 1) & mask) {
+            long h = getHash(slot);
+            if (h == 0) {
+                break;
+            }
+            int home = home(h);
+            boolean movable = free <= slot ? home <= free || home > slot : home <= free && home > slot;
+            if (movable) {
+                copySlot(slot, free);
+                free = slot;
+            }
+        }
+        table.putLong(free * SLOT_SIZE + HASH, 0);
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        allocate(16);
+    }
+
+    /**
+     * Determines if a slot holds an entry.
+     * @param slot the slot
+     * @return {@code true} if the slot holds an entry
+     */
+    boolean isUsed(int slot) {
+        return getHash(slot) != 0;
+    }
+
+    long getHash(int slot) {
+        return table.getLong(slot * SLOT_SIZE + HASH);
+    }
+
+    int getSegment(int slot) {
+        return table.getInt(slot * SLOT_SIZE + SEGMENT);
+    }
+
+    int getOffset(int slot) {
+        return table.getInt(slot * SLOT_SIZE + OFFSET);
+    }
+
+    int getLength(int slot) {
+        return table.getInt(slot * SLOT_SIZE + LENGTH);
+    }
+
+    long getTick(int slot) {
+        return table.getLong(slot * SLOT_SIZE + TICK);
+    }
+
+    void setTick(int slot, long tick) {
+        table.putLong(slot * SLOT_SIZE + TICK, tick);
+    }
+
+    void setLocation(int slot, int segment, int offset, int length) {
+        int base = slot * SLOT_SIZE;
+        table.putInt(base + SEGMENT, segment);
+        table.putInt(base + OFFSET, offset);
+        table.putInt(base + LENGTH, length);
+    }
+
+    private int home(long hash) {
+        return (int) hash & mask;
+    }
+
+    private void copySlot(int from, int to) {
+        for (int i = 0; i < SLOT_SIZE; i += 8) {
+            table.putLong(to * SLOT_SIZE + i, table.getLong(from * SLOT_SIZE + i));
+        }
+    }
+
+    private void grow() {
+        ByteBuffer old = table;
+        int oldCapacity = capacity();
+        allocate(oldCapacity * 2);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int base = slot * SLOT_SIZE;
+            long hash = old.getLong(base + HASH);
+            if (hash != 0) {
+                put(hash, old.getInt(base + SEGMENT), old.getInt(base + OFFSET), old.getInt(base + LENGTH), old.getLong(base + TICK));
+            }
+        }
+    }
+}
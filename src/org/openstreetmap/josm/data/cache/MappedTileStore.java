@@ -0,0 +1,690 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.apache.commons.jcs3.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCache;
+import org.apache.commons.jcs3.engine.behavior.ICache;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.apache.commons.jcs3.engine.stats.StatElement;
+import org.apache.commons.jcs3.engine.stats.Stats;
+import org.apache.commons.jcs3.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs3.engine.stats.behavior.IStats;
+import org.apache.commons.jcs3.io.ObjectInputStreamClassLoaderAware;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Disk cache storing the elements in memory-mapped, append-only segment files.
+ * <p>
+ * Each cache region (one per kind of imagery layer) has its own directory of segment files. An element is appended to
+ * the last segment as a record made of a header, the serialized key and the serialized element. The location of the
+ * records is kept in a compact off-heap {@link MappedTileIndex}, keyed by the hash of the serialized key, i.e. of the
+ * tile source name, zoom, x and y of a tile. Elements are read directly from the mapped segments, without reading the
+ * record into a heap array first.
+ * <p>
+ * When the store is full, the least recently used elements are removed and the oldest segments are compacted: their
+ * live records are copied to the last segment and the segment files are deleted. The first record of a removed
+ * segment is cleared before, so that its records are not restored if the file cannot be deleted: a mapped file cannot
+ * be deleted on Windows until the mapping is garbage collected, so the deletion is retried later.
+ * <p>
+ * The index is not persisted, it is rebuilt by scanning the segments when the store is opened. Records are protected
+ * by a checksum: the scan stops at the first invalid record of the last segment, which may have been written only
+ * partially when the application crashed, and the checksum of the other records is checked when they are read.
+ * Removals are recorded as records without element, so that removed elements are not restored by the scan.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @since xxx
+ */
+public class MappedTileStore<K, V> extends AbstractDiskCache<K, V> {
+
+    private static final int MAGIC = 0x4a4d5431; // JMT1
+    /** magic, key length, element length (-1 for removals), checksum of key and element */
+    private static final int HEADER_SIZE = 16;
+    private static final int END_MARKER_SIZE = 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{8})\\" + SEGMENT_SUFFIX);
+
+    private final MappedTileStoreAttributes attributes;
+    private final File directory;
+    private final int segmentSize;
+    private final long maxSize;
+
+    private final Object lock = new Object();
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+    /** Files of the removed segments which could not be deleted yet */
+    private final List<File> removedFiles = new ArrayList<>();
+    private int nextId = 1;
+    private final MappedTileIndex index = new MappedTileIndex(1024);
+    private long liveBytes;
+    private long tick;
+    private boolean compacting;
+
+    /**
+     * A memory-mapped segment file.
+     */
+    private static final class Segment {
+        private final int id;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private long liveBytes;
+
+        Segment(int id, File file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+    }
+
+    /**
+     * Opens the store described by the attributes, restoring the elements written by a previous session.
+     * @param attributes the store attributes
+     * @throws IOException if the store directory cannot be created
+     */
+    public MappedTileStore(MappedTileStoreAttributes attributes) throws IOException {
+        super(attributes);
+        this.attributes = attributes;
+        this.segmentSize = attributes.getSegmentSize();
+        this.maxSize = Math.max(1024L * attributes.getMaxKeySize(), 4L * segmentSize);
+        this.directory = new File(attributes.getDiskPath(), attributes.getCacheName());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        synchronized (lock) {
+            recover();
+        }
+        setAlive(true);
+    }
+
+    private void recover() {
+        File[] files = directory.listFiles((dir, name) -> SEGMENT_NAME.matcher(name).matches());
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (int i = 0; i < files.length; i++) {
+            Matcher m = SEGMENT_NAME.matcher(files[i].getName());
+            if (!m.matches()) {
+                continue;
+            }
+            Segment segment = null;
+            try {
+                segment = new Segment(Integer.parseInt(m.group(1)), files[i], map(files[i], files[i].length()));
+                nextId = Math.max(nextId, segment.id + 1);
+                // registered before the scan, which updates the live size of the segment for its replaced records
+                segments.put(segment.id, segment);
+                scan(segment, i == files.length - 1);
+                if (segment.writePosition == 0) {
+                    // cleared by the removal of the segment, whose file could not be deleted
+                    removeSegment(segment);
+                }
+            } catch (IOException | RuntimeException e) {
+                Logging.log(Logging.LEVEL_WARN, "Cannot read tile store segment " + files[i], e);
+                if (segment != null) {
+                    discard(segment);
+                }
+                Utils.deleteFileIfExists(files[i]);
+            }
+        }
+        Logging.debug("Tile store {0}: restored {1} elements from {2} segments", directory, index.size(), segments.size());
+    }
+
+    /**
+     * Forgets a segment which could not be read entirely, with its records already added to the index. The records of
+     * the previous segments which they replaced are not restored, the elements are lost as if they had been evicted.
+     * @param segment the segment
+     */
+    private void discard(Segment segment) {
+        List<Long> hashes = new ArrayList<>();
+        for (int slot = 0; slot < index.capacity(); slot++) {
+            if (index.isUsed(slot) && index.getSegment(slot) == segment.id) {
+                hashes.add(index.getHash(slot));
+            }
+        }
+        // the slots move when entries are removed
+        for (long hash : hashes) {
+            removeFromIndex(hash);
+        }
+        segments.remove(segment.id);
+    }
+
+    /**
+     * Adds the records of a segment to the index.
+     * @param segment the segment
+     * @param last {@code true} for the last segment, which may end with partially written records
+     */
+    private void scan(Segment segment, boolean last) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= segment.capacity() && buffer.getInt(position) == MAGIC) {
+            int keyLength = buffer.getInt(position + 4);
+            int valueLength = buffer.getInt(position + 8);
+            long end = (long) position + HEADER_SIZE + keyLength + Math.max(0, valueLength);
+            if (keyLength <= 0 || valueLength < -1 || end > segment.capacity()
+                    || (last && !isChecksumValid(buffer, position, keyLength, valueLength))) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            ByteBuffer keyBuffer = buffer.duplicate();
+            keyBuffer.position(position + HEADER_SIZE);
+            keyBuffer.get(key);
+            long hash = MappedTileIndex.hash(key);
+            removeFromIndex(hash);
+            if (valueLength >= 0) {
+                addToIndex(hash, segment, position, (int) end - position);
+            }
+            position = (int) end;
+        }
+        segment.writePosition = position;
+        if (last) {
+            // hide the partially written record, if any
+            writeEndMarker(segment);
+        }
+    }
+
+    private static boolean isChecksumValid(ByteBuffer buffer, int position, int keyLength, int valueLength) {
+        ByteBuffer record = buffer.duplicate();
+        record.limit(position + HEADER_SIZE + keyLength + Math.max(0, valueLength));
+        record.position(position + HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue() == buffer.getInt(position + 12);
+    }
+
+    private void addToIndex(long hash, Segment segment, int offset, int length) {
+        index.put(hash, segment.id, offset, length, ++tick);
+        segment.liveBytes += length;
+        liveBytes += length;
+    }
+
+    private boolean removeFromIndex(long hash) {
+        int slot = index.find(hash);
+        if (slot < 0) {
+            return false;
+        }
+        int length = index.getLength(slot);
+        Segment segment = segments.get(index.getSegment(slot));
+        if (segment != null) {
+            segment.liveBytes -= length;
+        }
+        liveBytes -= length;
+        return index.remove(hash);
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Returns the segment where a record can be appended, creating a new one if needed.
+     * @param length the record length
+     * @return the segment where the record can be appended
+     * @throws IOException if a new segment cannot be created
+     */
+    private Segment getWritableSegment(int length) throws IOException {
+        Map.Entry<Integer, Segment> last = segments.lastEntry();
+        if (last != null && last.getValue().writePosition + length <= last.getValue().capacity()) {
+            return last.getValue();
+        }
+        if (last != null) {
+            last.getValue().buffer.force();
+        }
+        if (!compacting && (segments.size() + removedFiles.size() + 1L) * segmentSize > maxSize) {
+            compact();
+        }
+        // the files of the removed segments may still exist, their names are not used again
+        int id = nextId++;
+        File file = new File(directory, String.format(Locale.ROOT, "%08d", id) + SEGMENT_SUFFIX);
+        Segment segment = new Segment(id, file, map(file, segmentSize));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Appends a record.
+     * @param key the serialized key
+     * @param value the serialized element, {@code null} for a removal
+     * @return the segment where the record has been written, {@code null} if the record is too large
+     * @throws IOException if a new segment cannot be created
+     */
+    private Segment append(byte[] key, byte[] value) throws IOException {
+        int length = HEADER_SIZE + key.length + (value != null ? value.length : 0);
+        if (length > segmentSize) {
+            Logging.debug("Tile store {0}: element of {1} bytes is too large", directory, length);
+            return null;
+        }
+        Segment segment = getWritableSegment(length);
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(segment.writePosition + HEADER_SIZE);
+        buffer.put(key);
+        if (value != null) {
+            crc.update(value);
+            buffer.put(value);
+        }
+        buffer.putInt(segment.writePosition + 4, key.length);
+        buffer.putInt(segment.writePosition + 8, value != null ? value.length : -1);
+        buffer.putInt(segment.writePosition + 12, (int) crc.getValue());
+        buffer.putInt(segment.writePosition, MAGIC);
+        segment.writePosition += length;
+        writeEndMarker(segment);
+        return segment;
+    }
+
+    private static void writeEndMarker(Segment segment) {
+        if (segment.writePosition + END_MARKER_SIZE <= segment.capacity()) {
+            segment.buffer.putInt(segment.writePosition, 0);
+        }
+    }
+
+    /**
+     * Removes the least recently used elements and compacts the oldest segments, until a new segment can be created.
+     * @throws IOException if a segment cannot be created
+     */
+    private void compact() throws IOException {
+        compacting = true;
+        try {
+            deleteRemovedFiles();
+            evict(maxSize * 3 / 4 - segmentSize);
+            // the files of the removed segments which cannot be deleted yet are not counted, as compacting more
+            // segments would not help until they can be deleted
+            while ((segments.size() + 1L) * segmentSize > maxSize && segments.size() > 1) {
+                Segment oldest = segments.firstEntry().getValue();
+                relocate(oldest);
+                removeSegment(oldest);
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    /**
+     * Removes a segment and deletes its file. Its first record is cleared before, so that its records are not restored
+     * if the file cannot be deleted yet. The mapping is released to the garbage collector: it cannot be released
+     * explicitly, as the records are read from duplicates of the buffer without lock.
+     * @param segment the segment to remove
+     */
+    private void removeSegment(Segment segment) {
+        segments.remove(segment.id);
+        if (segment.capacity() >= END_MARKER_SIZE) {
+            segment.buffer.putInt(0, 0);
+            segment.buffer.force();
+        }
+        removedFiles.add(segment.file);
+        deleteRemovedFiles();
+    }
+
+    /**
+     * Deletes the files of the removed segments. On Windows, the deletion of a file fails while it is mapped, it is
+     * retried on the next compaction.
+     */
+    private void deleteRemovedFiles() {
+        removedFiles.removeIf(this::deleteSegmentFile);
+    }
+
+    /**
+     * Deletes the file of a removed segment.
+     * @param file the file
+     * @return {@code true} if the file has been deleted or does not exist
+     */
+    boolean deleteSegmentFile(File file) {
+        return !file.exists() || file.delete();
+    }
+
+    /**
+     * Removes the least recently used elements until the live records fit in the given size.
+     * @param targetSize the size of the live records to reach
+     * @throws IOException if a segment cannot be created
+     */
+    private void evict(long targetSize) throws IOException {
+        if (liveBytes <= targetSize) {
+            return;
+        }
+        List<long[]> entries = new ArrayList<>(index.size());
+        for (int slot = 0; slot < index.capacity(); slot++) {
+            if (index.isUsed(slot)) {
+                entries.add(new long[] {index.getTick(slot), index.getHash(slot), index.getSegment(slot), index.getOffset(slot)});
+            }
+        }
+        entries.sort(Comparator.comparingLong(e -> e[0]));
+        int evicted = 0;
+        for (long[] e : entries) {
+            if (liveBytes <= targetSize) {
+                break;
+            }
+            ByteBuffer buffer = segments.get((int) e[2]).buffer;
+            byte[] key = new byte[buffer.getInt((int) e[3] + 4)];
+            ByteBuffer keyBuffer = buffer.duplicate();
+            keyBuffer.position((int) e[3] + HEADER_SIZE);
+            keyBuffer.get(key);
+            removeFromIndex(e[1]);
+            append(key, null);
+            evicted++;
+        }
+        Logging.debug("Tile store {0}: evicted {1} elements", directory, evicted);
+    }
+
+    /**
+     * Copies the live records of a segment to the last segment.
+     * @param segment the segment to empty
+     * @throws IOException if a segment cannot be created
+     */
+    private void relocate(Segment segment) throws IOException {
+        List<Long> hashes = new ArrayList<>();
+        for (int slot = 0; slot < index.capacity(); slot++) {
+            if (index.isUsed(slot) && index.getSegment(slot) == segment.id) {
+                hashes.add(index.getHash(slot));
+            }
+        }
+        for (long hash : hashes) {
+            int slot = index.find(hash);
+            int offset = index.getOffset(slot);
+            int length = index.getLength(slot);
+            Segment target = getWritableSegment(length);
+            ByteBuffer record = segment.buffer.duplicate();
+            record.limit(offset + length);
+            record.position(offset);
+            ByteBuffer buffer = target.buffer.duplicate();
+            buffer.position(target.writePosition);
+            buffer.put(record);
+            // the index may have been changed by the creation of a segment
+            slot = index.find(hash);
+            index.setLocation(slot, target.id, target.writePosition, length);
+            segment.liveBytes -= length;
+            target.liveBytes += length;
+            target.writePosition += length;
+            writeEndMarker(target);
+        }
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(object);
+        }
+        return out.toByteArray();
+    }
+
+    private static Object deserialize(ByteBuffer buffer) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStreamClassLoaderAware(new ByteBufferInputStream(buffer), null)) {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Reads a buffer, from its position to its limit.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Returns the record of a key, if the key is in the store.
+     * @param hash the hash of the key
+     * @param touch {@code true} to mark the record as recently used
+     * @return the record, from its position to its limit, or {@code null}
+     */
+    private ByteBuffer getRecord(long hash, boolean touch) {
+        synchronized (lock) {
+            int slot = index.find(hash);
+            if (slot < 0) {
+                return null;
+            }
+            if (touch) {
+                index.setTick(slot, ++tick);
+            }
+            // segments are never written again where records have been written, so the record can be read without lock
+            ByteBuffer record = segments.get(index.getSegment(slot)).buffer.duplicate();
+            record.limit(index.getOffset(slot) + index.getLength(slot));
+            record.position(index.getOffset(slot));
+            return record;
+        }
+    }
+
+    private static ByteBuffer getKey(ByteBuffer record) {
+        ByteBuffer key = record.duplicate();
+        key.limit(record.position() + HEADER_SIZE + record.getInt(record.position() + 4));
+        key.position(record.position() + HEADER_SIZE);
+        return key;
+    }
+
+    @Override
+    protected void processUpdate(ICacheElement<K, V> cacheElement) throws IOException {
+        byte[] key = serialize(cacheElement.getKey());
+        byte[] value = serialize(cacheElement);
+        long hash = MappedTileIndex.hash(key);
+        synchronized (lock) {
+            if (!isAlive()) {
+                return;
+            }
+            Segment segment = append(key, value);
+            removeFromIndex(hash);
+            if (segment != null) {
+                int length = HEADER_SIZE + key.length + value.length;
+                addToIndex(hash, segment, segment.writePosition - length, length);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected ICacheElement<K, V> processGet(K key) throws IOException {
+        if (!isAlive()) {
+            return null;
+        }
+        byte[] keyBytes = serialize(key);
+        long hash = MappedTileIndex.hash(keyBytes);
+        ByteBuffer record = getRecord(hash, true);
+        if (record == null) {
+            return null;
+        }
+        int position = record.position();
+        int keyLength = record.getInt(position + 4);
+        if (!isChecksumValid(record, position, keyLength, record.getInt(position + 8))) {
+            Logging.warn("Tile store {0}: invalid record for {1}", directory, key);
+            synchronized (lock) {
+                removeFromIndex(hash);
+            }
+            return null;
+        }
+        if (!getKey(record).equals(ByteBuffer.wrap(keyBytes))) {
+            // collision of hashes
+            return null;
+        }
+        record.position(position + HEADER_SIZE + keyLength);
+        return (ICacheElement<K, V>) deserialize(record);
+    }
+
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMatching(String pattern) throws IOException {
+        Map<K, ICacheElement<K, V>> result = new HashMap<>();
+        for (K key : getKeyMatcher().getMatchingKeysFromArray(pattern, getKeySet())) {
+            ICacheElement<K, V> element = processGet(key);
+            if (element != null) {
+                result.put(key, element);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean processRemove(K key) throws IOException {
+        if (key instanceof String && key.toString().endsWith(ICache.NAME_COMPONENT_DELIMITER)) {
+            boolean removed = false;
+            for (K k : getKeySet()) {
+                if (k instanceof String && k.toString().startsWith(key.toString())) {
+                    removed |= remove(serialize(k));
+                }
+            }
+            return removed;
+        }
+        return remove(serialize(key));
+    }
+
+    private boolean remove(byte[] key) throws IOException {
+        synchronized (lock) {
+            if (removeFromIndex(MappedTileIndex.hash(key))) {
+                append(key, null);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    protected void processRemoveAll() throws IOException {
+        synchronized (lock) {
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                removeSegment(segment);
+            }
+            index.clear();
+            liveBytes = 0;
+        }
+    }
+
+    @Override
+    protected void processDispose() throws IOException {
+        synchronized (lock) {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+            }
+            segments.clear();
+            index.clear();
+            liveBytes = 0;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<K> getKeySet() throws IOException {
+        List<ByteBuffer> records = new ArrayList<>();
+        synchronized (lock) {
+            for (int slot = 0; slot < index.capacity(); slot++) {
+                if (index.isUsed(slot)) {
+                    records.add(getRecord(index.getHash(slot), false));
+                }
+            }
+        }
+        Set<K> keys = new HashSet<>(records.size());
+        for (ByteBuffer record : records) {
+            keys.add((K) deserialize(getKey(record)));
+        }
+        return keys;
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (lock) {
+            return index.size();
+        }
+    }
+
+    /**
+     * Returns the size of the segment files, including the files of the removed segments which could not be deleted yet.
+     * @return the size of the segment files, in bytes
+     */
+    public long getDataSize() {
+        synchronized (lock) {
+            return segments.values().stream().mapToLong(Segment::capacity).sum()
+                    + removedFiles.stream().mapToLong(File::length).sum();
+        }
+    }
+
+    /**
+     * Returns the size of the live records.
+     * @return the size of the records of the elements in the store, in bytes
+     */
+    public long getLiveSize() {
+        synchronized (lock) {
+            return liveBytes;
+        }
+    }
+
+    @Override
+    protected String getDiskLocation() {
+        return directory.getAbsolutePath();
+    }
+
+    @Override
+    public AuxiliaryCacheAttributes getAuxiliaryCacheAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public IStats getStatistics() {
+        IStats stats = new Stats();
+        stats.setTypeName("Mapped Tile Store");
+        List<IStatElement<?>> elems = new ArrayList<>();
+        elems.add(new StatElement<>("Is Alive", isAlive()));
+        elems.add(new StatElement<>("Key Map Size", getSize()));
+        elems.add(new StatElement<>("Data File Length", getDataSize()));
+        elems.add(new StatElement<>("Live Data Length", getLiveSize()));
+        synchronized (lock) {
+            elems.add(new StatElement<>("Segments", segments.size()));
+        }
+        elems.addAll(super.getStatistics().getStatElements());
+        stats.setStatElements(elems);
+        return stats;
+    }
+}
@@ -0,0 +1,57 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import org.apache.commons.jcs3.auxiliary.disk.AbstractDiskCacheAttributes;
+
+/**
+ * Configuration of a {@link MappedTileStore}.
+ * @since xxx
+ */
+public class MappedTileStoreAttributes extends AbstractDiskCacheAttributes {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Default size of the segment files, in bytes */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private int maxKeySize = 512 * 1024;
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    /**
+     * Returns the maximum size of the store.
+     * @return the maximum size of the store, in kB
+     */
+    public int getMaxKeySize() {
+        return maxKeySize;
+    }
+
+    /**
+     * Sets the maximum size of the store. The store uses at least four segments.
+     * @param maxKeySize the maximum size of the store, in kB
+     */
+    public void setMaxKeySize(int maxKeySize) {
+        this.maxKeySize = maxKeySize;
+    }
+
+    /**
+     * Returns the size of the segment files.
+     * @return the size of the segment files, in bytes
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets the size of the segment files. Elements which do not fit in a segment are not stored.
+     * @param segmentSize the size of the segment files, in bytes
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedTileStoreAttributes [maxKeySize=" + maxKeySize + ", segmentSize=" + segmentSize
+                + ", " + super.toString() + ']';
+    }
+}
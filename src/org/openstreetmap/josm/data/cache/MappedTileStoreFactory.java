@@ -0,0 +1,23 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import org.apache.commons.jcs3.auxiliary.AbstractAuxiliaryCacheFactory;
+import org.apache.commons.jcs3.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs3.engine.behavior.ICompositeCacheManager;
+import org.apache.commons.jcs3.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs3.engine.logging.behavior.ICacheEventLogger;
+
+/**
+ * Creates {@link MappedTileStore}s from {@link MappedTileStoreAttributes}.
+ * @since xxx
+ */
+public class MappedTileStoreFactory extends AbstractAuxiliaryCacheFactory {
+
+    @Override
+    public <K, V> MappedTileStore<K, V> createCache(AuxiliaryCacheAttributes attr, ICompositeCacheManager cacheMgr,
+            ICacheEventLogger cacheEventLogger, IElementSerializer elementSerializer) throws Exception {
+        MappedTileStore<K, V> store = new MappedTileStore<>((MappedTileStoreAttributes) attr);
+        store.setCacheEventLogger(cacheEventLogger);
+        return store;
+    }
+}
@@ -80,7 +80,14 @@ public final class QuadTiling {
         return new LatLon(y, x);
     }
 
-    static long lon2x(double lon) {
+    /**
+     * Converts a longitude to its position at the deepest level of the quad tiling.
+     * The index of a tile at a given level is determined by the bits of this position, see {@link #index}.
+     * @param lon longitude
+     * @return the position, between 0 and {@link #WORLD_PARTS} (exclusive)
+     * @since xxx
+     */
+    public static long lon2x(double lon) {
         long ret = (long) ((lon + 180.0) * WORLD_PARTS / 360.0);
         if (Utils.equalsEpsilon(ret, WORLD_PARTS)) {
             ret--;
@@ -88,7 +95,14 @@ public final class QuadTiling {
         return ret;
     }
 
-    static long lat2y(double lat) {
+    /**
+     * Converts a latitude to its position at the deepest level of the quad tiling.
+     * The index of a tile at a given level is determined by the bits of this position, see {@link #index}.
+     * @param lat latitude
+     * @return the position, between 0 and {@link #WORLD_PARTS} (exclusive)
+     * @since xxx
+     */
+    public static long lat2y(double lat) {
         long ret = (long) ((lat + 90.0) * WORLD_PARTS / 180.0);
         if (Utils.equalsEpsilon(ret, WORLD_PARTS)) {
             ret--;
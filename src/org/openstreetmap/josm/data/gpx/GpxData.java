@@ -21,6 +21,8 @@ import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import org.openstreetmap.josm.data.Bounds;
@@ -661,7 +663,8 @@ public class GpxData extends WithAttributes implements Data, IGpxLayerPrefs {
      * @return {@code true} if this GPX data has track points, {@code false} otherwise
      */
     public synchronized boolean hasTrackPoints() {
-        return getTrackPoints().findAny().isPresent();
+        // without iterating over the way points, as they would be created for the segments read from files
+        return getTracks().stream().flatMap(trk -> trk.getSegments().stream()).anyMatch(seg -> !seg.getWayPoints().isEmpty());
     }
 
     /**
@@ -768,8 +771,7 @@ public class GpxData extends WithAttributes implements Data, IGpxLayerPrefs {
      */
     public static Optional<Interval> getMinMaxTimeForTrack(IGpxTrack trk) {
         final LongSummaryStatistics statistics = trk.getSegments().stream()
-                .flatMap(seg -> seg.getWayPoints().stream())
-                .mapToLong(WayPoint::getTimeInMillis)
+                .flatMapToLong(GpxData::getTimesInMillis)
                 .summaryStatistics();
         return statistics.getCount() == 0 || (statistics.getMin() == 0 && statistics.getMax() == 0)
                 ? Optional.empty()
@@ -787,8 +789,7 @@ public class GpxData extends WithAttributes implements Data, IGpxLayerPrefs {
         long now = System.currentTimeMillis();
         final LongSummaryStatistics statistics = tracks.stream()
                 .flatMap(trk -> trk.getSegments().stream())
-                .flatMap(seg -> seg.getWayPoints().stream())
-                .mapToLong(WayPoint::getTimeInMillis)
+                .flatMapToLong(GpxData::getTimesInMillis)
                 .filter(t -> t > 0 && t <= now)
                 .summaryStatistics();
         return statistics.getCount() == 0
@@ -796,6 +797,18 @@ public class GpxData extends WithAttributes implements Data, IGpxLayerPrefs {
                 : Optional.of(new Interval(Instant.ofEpochMilli(statistics.getMin()), Instant.ofEpochMilli(statistics.getMax())));
     }
 
+    /**
+     * Returns the times of the points of a track segment, without creating the way points of a segment read from a file.
+     * @param seg the track segment
+     * @return the times in milliseconds since the epoch, 0 for the points without time
+     */
+    private static LongStream getTimesInMillis(IGpxTrackSegment seg) {
+        GpxTrackPoints columns = seg instanceof GpxTrackSegment ? ((GpxTrackSegment) seg).getColumns() : null;
+        return columns != null
+                ? IntStream.range(0, columns.size()).mapToLong(columns::getTimeInMillis)
+                : seg.getWayPoints().stream().mapToLong(WayPoint::getTimeInMillis);
+    }
+
     /**
      * Makes a WayPoint at the projection of point p onto the track providing p is less than
      * tolerance away from the track
@@ -933,7 +946,16 @@ public class GpxData extends WithAttributes implements Data, IGpxLayerPrefs {
      */
     public synchronized void resetEastNorthCache() {
         privateWaypoints.forEach(WayPoint::invalidateEastNorthCache);
-        getTrackPoints().forEach(WayPoint::invalidateEastNorthCache);
+        for (IGpxTrack trk : getTracks()) {
+            for (IGpxTrackSegment seg : trk.getSegments()) {
+                GpxTrackPoints columns = seg instanceof GpxTrackSegment ? ((GpxTrackSegment) seg).getColumns() : null;
+                if (columns != null) {
+                    columns.invalidateEastNorthCache();
+                } else {
+                    seg.getWayPoints().forEach(WayPoint::invalidateEastNorthCache);
+                }
+            }
+        }
         for (GpxRoute route: getRoutes()) {
             if (route.routePoints == null) {
                 continue;
@@ -0,0 +1,467 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.awt.Color;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projecting;
+
+/**
+ * The points of a track segment, stored in columns of primitive arrays.
+ * <p>
+ * The coordinates, times and elevations are stored in arrays, the other attributes of the points only for the points
+ * having some. This needs much less memory than a list of {@link WayPoint}s, which can be created when needed with
+ * {@link #createWayPoint(int)}. The extensions of the points are not stored.
+ * <p>
+ * Like way points, the columns also hold the projected coordinates and the drawing state of the points (see
+ * {@link WayPoint#customColoring}, {@link WayPoint#drawLine} and {@link WayPoint#dir}), so that a track can be drawn
+ * without creating its way points. These columns are only allocated once used.
+ * @since xxx
+ */
+public final class GpxTrackPoints implements GpxConstants {
+
+    /** Time of the points without time */
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final int size;
+    private final double[] lats;
+    private final double[] lons;
+    private final long[] times;
+    private final double[] elevations;
+    /** The other attributes, by point index. Only contains the points with other attributes. */
+    private final Map<Integer, Map<String, Object>> attributes;
+
+    /** The cached projected coordinates, east and north interleaved, {@code NaN} if not computed yet */
+    private double[] eastNorths;
+    /** The cache key of the projection of {@link #eastNorths} */
+    private Object eastNorthCacheKey;
+    private Color[] customColorings;
+    private boolean[] drawLines;
+    private byte[] dirs;
+
+    private GpxTrackPoints(Builder builder) {
+        size = builder.size;
+        lats = Arrays.copyOf(builder.lats, size);
+        lons = Arrays.copyOf(builder.lons, size);
+        times = Arrays.copyOf(builder.times, size);
+        elevations = Arrays.copyOf(builder.elevations, size);
+        attributes = builder.attributes.isEmpty() ? Collections.emptyMap() : new HashMap<>(builder.attributes);
+    }
+
+    /**
+     * Stores the given way points in columns.
+     * @param wayPoints the way points
+     * @return the columns
+     */
+    public static GpxTrackPoints of(Collection<WayPoint> wayPoints) {
+        Builder builder = new Builder(wayPoints.size());
+        for (WayPoint wpt : wayPoints) {
+            builder.add(wpt.lat(), wpt.lon(), wpt.attr);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of points.
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latitude of a point.
+     * @param index the index of the point
+     * @return the latitude of the point
+     */
+    public double lat(int index) {
+        return lats[checkIndex(index)];
+    }
+
+    /**
+     * Returns the longitude of a point.
+     * @param index the index of the point
+     * @return the longitude of the point
+     */
+    public double lon(int index) {
+        return lons[checkIndex(index)];
+    }
+
+    /**
+     * Determines if a point has a time.
+     * @param index the index of the point
+     * @return {@code true} if the point has a time
+     * @see WayPoint#hasDate()
+     */
+    public boolean hasTime(int index) {
+        return times[checkIndex(index)] != NO_TIME || getAttributes(index).get(PT_TIME) instanceof Instant;
+    }
+
+    /**
+     * Returns the time of a point.
+     * @param index the index of the point
+     * @return the time of the point in milliseconds since the epoch, 0 if the point has no time
+     * @see WayPoint#getTimeInMillis()
+     */
+    public long getTimeInMillis(int index) {
+        long time = times[checkIndex(index)];
+        if (time != NO_TIME) {
+            return time;
+        }
+        Object instant = getAttributes(index).get(PT_TIME);
+        return instant instanceof Instant ? ((Instant) instant).toEpochMilli() : 0;
+    }
+
+    /**
+     * Returns the elevation of a point.
+     * @param index the index of the point
+     * @return the elevation of the point, {@code NaN} if the point has no valid elevation
+     */
+    public double getElevation(int index) {
+        double elevation = elevations[checkIndex(index)];
+        if (Double.isNaN(elevation)) {
+            Object value = getAttributes(index).get(PT_ELE);
+            if (value instanceof String) {
+                try {
+                    return Double.parseDouble((String) value);
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+        return elevation;
+    }
+
+    /**
+     * Returns the attributes of a point which are neither the time nor the elevation.
+     * @param index the index of the point
+     * @return the other attributes of the point, not modifiable
+     */
+    public Map<String, Object> getAttributes(int index) {
+        Map<String, Object> attr = attributes.get(index);
+        return attr == null ? Collections.emptyMap() : Collections.unmodifiableMap(attr);
+    }
+
+    /**
+     * Returns the projected coordinates of a point, which are cached like those of {@link WayPoint}s.
+     * @param index the index of the point
+     * @param projecting the projection to use
+     * @return the projected coordinates of the point
+     * @see WayPoint#getEastNorth(Projecting)
+     */
+    public EastNorth getEastNorth(int index, Projecting projecting) {
+        checkIndex(index);
+        Object cacheKey = projecting.getCacheKey();
+        double[] cache = eastNorths;
+        if (cache == null || !Objects.equals(cacheKey, eastNorthCacheKey)) {
+            cache = new double[2 * size];
+            Arrays.fill(cache, Double.NaN);
+            eastNorths = cache;
+            eastNorthCacheKey = cacheKey;
+        }
+        if (Double.isNaN(cache[2 * index]) || Double.isNaN(cache[2 * index + 1])) {
+            EastNorth en = projecting.latlon2eastNorth(new LatLon(lats[index], lons[index]));
+            cache[2 * index] = en.east();
+            cache[2 * index + 1] = en.north();
+            return en;
+        }
+        return new EastNorth(cache[2 * index], cache[2 * index + 1]);
+    }
+
+    /**
+     * Invalidates the cached projected coordinates of the points.
+     * @see WayPoint#invalidateEastNorthCache()
+     */
+    public void invalidateEastNorthCache() {
+        eastNorths = null;
+    }
+
+    /**
+     * Returns the color to draw the line before a point in.
+     * @param index the index of the point
+     * @return the color, can be {@code null}
+     * @see WayPoint#customColoring
+     */
+    public Color getCustomColoring(int index) {
+        checkIndex(index);
+        return customColorings == null ? null : customColorings[index];
+    }
+
+    /**
+     * Sets the color to draw the line before a point in.
+     * @param index the index of the point
+     * @param color the color, can be {@code null}
+     * @see WayPoint#customColoring
+     */
+    public void setCustomColoring(int index, Color color) {
+        checkIndex(index);
+        if (customColorings == null) {
+            if (color == null) {
+                return;
+            }
+            customColorings = new Color[size];
+        }
+        customColorings[index] = color;
+    }
+
+    /**
+     * Determines if the line before a point should be drawn.
+     * @param index the index of the point
+     * @return {@code true} if the line before the point should be drawn
+     * @see WayPoint#drawLine
+     */
+    public boolean isDrawLine(int index) {
+        checkIndex(index);
+        return drawLines != null && drawLines[index];
+    }
+
+    /**
+     * Sets if the line before a point should be drawn.
+     * @param index the index of the point
+     * @param drawLine {@code true} if the line before the point should be drawn
+     * @see WayPoint#drawLine
+     */
+    public void setDrawLine(int index, boolean drawLine) {
+        checkIndex(index);
+        if (drawLines == null) {
+            if (!drawLine) {
+                return;
+            }
+            drawLines = new boolean[size];
+        }
+        drawLines[index] = drawLine;
+    }
+
+    /**
+     * Returns the direction of the line before a point.
+     * @param index the index of the point
+     * @return the direction of the line before the point
+     * @see WayPoint#dir
+     */
+    public int getDir(int index) {
+        checkIndex(index);
+        return dirs == null ? 0 : dirs[index];
+    }
+
+    /**
+     * Sets the direction of the line before a point.
+     * @param index the index of the point
+     * @param dir the direction of the line before the point, from 0 to 7
+     * @see WayPoint#dir
+     */
+    public void setDir(int index, int dir) {
+        checkIndex(index);
+        if (dirs == null) {
+            if (dir == 0) {
+                return;
+            }
+            dirs = new byte[size];
+        }
+        dirs[index] = (byte) dir;
+    }
+
+    /**
+     * Creates a way point for a point. The attribute values are shared with the columns, the drawing state is copied.
+     * @param index the index of the point
+     * @return a new way point
+     */
+    public WayPoint createWayPoint(int index) {
+        WayPoint wpt = new WayPoint(new LatLon(lat(index), lon(index)));
+        wpt.attr.putAll(getAttributes(index));
+        if (times[index] != NO_TIME) {
+            wpt.setInstant(Instant.ofEpochMilli(times[index]));
+        }
+        if (!Double.isNaN(elevations[index])) {
+            wpt.put(PT_ELE, formatElevation(elevations[index]));
+        }
+        wpt.customColoring = getCustomColoring(index);
+        wpt.drawLine = isDrawLine(index);
+        wpt.dir = getDir(index);
+        return wpt;
+    }
+
+    /**
+     * Computes the bounds of the points.
+     * @return the bounds of the points, {@code null} if there is no point
+     */
+    public Bounds getBounds() {
+        Bounds result = null;
+        for (int i = 0; i < size; i++) {
+            if (result == null) {
+                result = new Bounds(lats[i], lons[i], true);
+            } else {
+                result.extend(lats[i], lons[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the length of the line through the points.
+     * @return the length in meters
+     */
+    public double length() {
+        double result = 0.0;
+        ILatLon last = null;
+        for (int i = 0; i < size; i++) {
+            ILatLon ll = new LatLon(lats[i], lons[i]);
+            if (last != null) {
+                double d = last.greatCircleDistance(ll);
+                if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                    result += d;
+                }
+            }
+            last = ll;
+        }
+        return result;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return index;
+    }
+
+    /**
+     * Formats an elevation the way it is usually written in GPX files, without decimals if it is an integer.
+     * @param elevation the elevation
+     * @return the formatted elevation
+     */
+    private static String formatElevation(double elevation) {
+        if (elevation == Math.rint(elevation) && Math.abs(elevation) < 1e15) {
+            return Long.toString((long) elevation);
+        }
+        return Double.toString(elevation);
+    }
+
+    /**
+     * Collects the points of a track segment, e.g. while reading a file.
+     */
+    public static final class Builder {
+        private int size;
+        private double[] lats;
+        private double[] lons;
+        private long[] times;
+        private double[] elevations;
+        private final Map<Integer, Map<String, Object>> attributes = new HashMap<>();
+
+        /**
+         * Constructs a new {@code Builder}.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Constructs a new {@code Builder}.
+         * @param capacity the expected number of points
+         */
+        public Builder(int capacity) {
+            int initialCapacity = Math.max(1, capacity);
+            lats = new double[initialCapacity];
+            lons = new double[initialCapacity];
+            times = new long[initialCapacity];
+            elevations = new double[initialCapacity];
+        }
+
+        /**
+         * Adds a point.
+         * <p>
+         * The time ({@link Instant} at millisecond precision) and the elevation (as written in GPX files) are stored
+         * in columns, the other attributes are kept as they are.
+         * @param lat the latitude of the point
+         * @param lon the longitude of the point
+         * @param attr the attributes of the point, may be {@code null}. The map is not modified.
+         * @return this builder
+         */
+        public Builder add(double lat, double lon, Map<String, Object> attr) {
+            if (size == lats.length) {
+                int capacity = size + (size >> 1) + 1;
+                lats = Arrays.copyOf(lats, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+                times = Arrays.copyOf(times, capacity);
+                elevations = Arrays.copyOf(elevations, capacity);
+            }
+            lats[size] = lat;
+            lons[size] = lon;
+            times[size] = NO_TIME;
+            elevations[size] = Double.NaN;
+            if (attr != null && !attr.isEmpty()) {
+                int others = attr.size();
+                Object time = attr.get(PT_TIME);
+                if (time instanceof Instant && ((Instant) time).getNano() % 1_000_000 == 0) {
+                    times[size] = ((Instant) time).toEpochMilli();
+                    others--;
+                } else {
+                    time = null;
+                }
+                Object ele = attr.get(PT_ELE);
+                double elevation = parseElevation(ele);
+                if (!Double.isNaN(elevation)) {
+                    elevations[size] = elevation;
+                    others--;
+                } else {
+                    ele = null;
+                }
+                if (others > 0) {
+                    Map<String, Object> other = new HashMap<>(attr);
+                    if (time != null) {
+                        other.remove(PT_TIME);
+                    }
+                    if (ele != null) {
+                        other.remove(PT_ELE);
+                    }
+                    attributes.put(size, other);
+                }
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Returns the elevation if it can be stored in the column and written back identically.
+         * @param ele the elevation attribute
+         * @return the elevation, or {@code NaN}
+         */
+        private static double parseElevation(Object ele) {
+            if (ele instanceof String) {
+                try {
+                    double elevation = Double.parseDouble((String) ele);
+                    if (formatElevation(elevation).equals(ele)) {
+                        return elevation;
+                    }
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+            return Double.NaN;
+        }
+
+        /**
+         * Returns the number of points added so far.
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Builds the columns.
+         * @return the columns
+         */
+        public GpxTrackPoints build() {
+            return new GpxTrackPoints(this);
+        }
+    }
+}
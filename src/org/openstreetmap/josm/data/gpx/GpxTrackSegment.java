@@ -1,16 +1,21 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.gpx;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 
 import org.openstreetmap.josm.data.Bounds;
 
 /**
  * A gpx track segment consisting of multiple waypoints.
+ * <p>
+ * The segment is either made of way points, or of {@link GpxTrackPoints columns} whose way points are only created
+ * when they are first asked for, e.g. to edit the segment. The columns are then released.
  * @since 15496
  */
 public class GpxTrackSegment extends WithAttributes implements IGpxTrackSegment {
@@ -29,6 +34,17 @@ public class GpxTrackSegment extends WithAttributes implements IGpxTrackSegment
         this.length = calculateLength();
     }
 
+    /**
+     * Constructs a new {@code GpxTrackSegment} from columns of points.
+     * @param trackPoints the points
+     * @since xxx
+     */
+    public GpxTrackSegment(GpxTrackPoints trackPoints) {
+        this.wayPoints = new LazyWayPointList(trackPoints);
+        this.bounds = trackPoints.getBounds();
+        this.length = trackPoints.length();
+    }
+
     private Bounds calculateBounds() {
         Bounds result = null;
         for (WayPoint wpt: wayPoints) {
@@ -66,6 +82,32 @@ public class GpxTrackSegment extends WithAttributes implements IGpxTrackSegment
         return Collections.unmodifiableList(wayPoints);
     }
 
+    /**
+     * Returns the points of this segment in columns, without creating the way points of a segment made of columns.
+     * <p>
+     * As long as its way points have not been created, the columns of such a segment are returned. Otherwise, the
+     * columns are computed from the current way points on each call: they are a snapshot, which does not follow the
+     * later modifications of the way points.
+     * @return the points of this segment
+     * @since xxx
+     */
+    public GpxTrackPoints getTrackPoints() {
+        GpxTrackPoints result = getColumns();
+        return result != null ? result : GpxTrackPoints.of(wayPoints);
+    }
+
+    /**
+     * Returns the columns of this segment, as long as its way points have not been created.
+     * <p>
+     * Unlike {@link #getTrackPoints()}, this never computes columns from the way points: the drawing state stored in the
+     * returned columns is copied to the way points if they are created later.
+     * @return the columns, or {@code null} if this segment is made of way points, or if they have been created
+     * @since xxx
+     */
+    public GpxTrackPoints getColumns() {
+        return wayPoints instanceof LazyWayPointList ? ((LazyWayPointList) wayPoints).getTrackPoints() : null;
+    }
+
     @Override
     public double length() {
         return length;
@@ -99,4 +141,55 @@ public class GpxTrackSegment extends WithAttributes implements IGpxTrackSegment
             return false;
         return true;
     }
+
+    /**
+     * The way points of columns, created all at once when one of them is first accessed. The columns are released
+     * then, so that the points are not kept twice in memory.
+     */
+    private static final class LazyWayPointList extends AbstractList<WayPoint> implements RandomAccess {
+        private final int size;
+        /** The columns, until the way points are created */
+        private volatile GpxTrackPoints trackPoints;
+        private volatile WayPoint[] wayPoints;
+
+        LazyWayPointList(GpxTrackPoints trackPoints) {
+            this.size = trackPoints.size();
+            this.trackPoints = trackPoints;
+        }
+
+        /**
+         * Returns the columns, if the way points have not been created yet.
+         * @return the columns, or {@code null} if the way points have been created
+         */
+        GpxTrackPoints getTrackPoints() {
+            return trackPoints;
+        }
+
+        @Override
+        public WayPoint get(int index) {
+            WayPoint[] result = wayPoints;
+            if (result == null) {
+                synchronized (this) {
+                    result = wayPoints;
+                    if (result == null) {
+                        GpxTrackPoints columns = trackPoints;
+                        result = new WayPoint[size];
+                        for (int i = 0; i < result.length; i++) {
+                            result[i] = columns.createWayPoint(i);
+                        }
+                        // released before the way points are published, so that getTrackPoints() never returns columns
+                        // which may differ from the way points
+                        trackPoints = null;
+                        wayPoints = result;
+                    }
+                }
+            }
+            return result[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
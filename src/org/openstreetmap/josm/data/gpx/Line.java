@@ -13,6 +13,8 @@ import java.util.Objects;
  */
 public class Line implements Collection<WayPoint> {
     private final Collection<WayPoint> waypoints;
+    /** The columns of the points, if the line is made of a track segment whose way points have not been created */
+    private final GpxTrackPoints trackPoints;
     private final boolean unordered;
     private final Color color;
 
@@ -24,9 +26,24 @@ public class Line implements Collection<WayPoint> {
      * @since 15496
      */
     public Line(Collection<WayPoint> waypoints, Map<String, Object> attributes, Color color) {
+        this(waypoints, null, attributes, color);
+    }
+
+    private Line(Collection<WayPoint> waypoints, GpxTrackPoints trackPoints, Map<String, Object> attributes, Color color) {
         this.color = color;
         this.waypoints = Objects.requireNonNull(waypoints);
-        unordered = attributes.isEmpty() && waypoints.stream().allMatch(x -> x.get(GpxConstants.PT_TIME) == null);
+        this.trackPoints = trackPoints;
+        unordered = attributes.isEmpty() && (trackPoints != null ? hasNoTime(trackPoints)
+                : waypoints.stream().allMatch(x -> x.get(GpxConstants.PT_TIME) == null));
+    }
+
+    private static boolean hasNoTime(GpxTrackPoints trackPoints) {
+        for (int i = 0; i < trackPoints.size(); i++) {
+            if (trackPoints.hasTime(i) || trackPoints.getAttributes(i).get(GpxConstants.PT_TIME) != null) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -37,7 +54,9 @@ public class Line implements Collection<WayPoint> {
      * @since 15496
      */
     public Line(IGpxTrackSegment trackSegment, Map<String, Object> trackAttributes, Color color) {
-        this(trackSegment.getWayPoints(), trackAttributes, color);
+        this(trackSegment.getWayPoints(),
+                trackSegment instanceof GpxTrackSegment ? ((GpxTrackSegment) trackSegment).getColumns() : null,
+                trackAttributes, color);
     }
 
     /**
@@ -56,6 +75,17 @@ public class Line implements Collection<WayPoint> {
         return unordered;
     }
 
+    /**
+     * Returns the columns of the points of this line, if it is made of a track segment whose way points have not been
+     * created. They allow to read the points, and to store their drawing state, without creating the way points.
+     * @return the columns, or {@code null}
+     * @see GpxTrackSegment#getColumns()
+     * @since xxx
+     */
+    public GpxTrackPoints getTrackPoints() {
+        return trackPoints;
+    }
+
     /**
      * Returns the track/route color
      * @return the color
@@ -233,6 +233,8 @@ public class ImageryInfo extends
     /** Should this map be transparent **/
     private boolean transparent = true;
     private int minimumTileExpire = (int) TimeUnit.MILLISECONDS.toSeconds(TMSCachedTileLoaderJob.MINIMUM_EXPIRES.get());
+    /** Should the tiles be stored in a memory-mapped tile store **/
+    private boolean mappedTileStore;
 
     /**
      * The ImageryPreferenceEntry class for storing data in JOSM preferences.
@@ -255,6 +257,7 @@ public class ImageryInfo extends
         @StructEntry boolean overlay;
         @StructEntry boolean transparent;
         @StructEntry int minimumTileExpire;
+        @StructEntry boolean mappedTileStore;
 
         /**
          * Constructs a new empty WMS {@code ImageryPreferenceEntry}.
@@ -295,6 +298,7 @@ public class ImageryInfo extends
             modTileFeatures = i.isModTileFeatures();
             transparent = i.isTransparent();
             minimumTileExpire = i.minimumTileExpire;
+            mappedTileStore = i.mappedTileStore;
         }
 
         @Override
@@ -448,6 +452,7 @@ public class ImageryInfo extends
         setCustomHttpHeaders(e.customHttpHeaders);
         transparent = e.transparent;
         minimumTileExpire = e.minimumTileExpire;
+        mappedTileStore = e.mappedTileStore;
         category = ImageryCategory.fromString(e.category);
     }
 
@@ -497,6 +502,7 @@ public class ImageryInfo extends
         setCustomHttpHeaders(i.customHttpHeaders);
         this.transparent = i.transparent;
         this.minimumTileExpire = i.minimumTileExpire;
+        this.mappedTileStore = i.mappedTileStore;
         this.categoryOriginalString = Utils.intern(i.categoryOriginalString);
         this.category = i.category;
     }
@@ -589,7 +595,8 @@ public class ImageryInfo extends
                 this.defaultMinZoom == realOther.defaultMinZoom &&
                 Objects.equals(this.serverProjections, realOther.serverProjections) &&
                 this.transparent == realOther.transparent &&
-                this.minimumTileExpire == realOther.minimumTileExpire;
+                this.minimumTileExpire == realOther.minimumTileExpire &&
+                this.mappedTileStore == realOther.mappedTileStore;
         // CHECKSTYLE.ON: BooleanExpressionComplexity
     }
 
@@ -943,6 +950,25 @@ public class ImageryInfo extends
         this.minimumTileExpire = minimumTileExpire;
     }
 
+    /**
+     * Determines if the tiles of this imagery are stored in a memory-mapped tile store instead of the default disk cache.
+     * @return {@code true} if the tiles are stored in a memory-mapped tile store
+     * @since xxx
+     */
+    public boolean isMappedTileStore() {
+        return mappedTileStore;
+    }
+
+    /**
+     * Sets whether the tiles of this imagery are stored in a memory-mapped tile store instead of the default disk cache.
+     * Takes effect for the layers created afterwards.
+     * @param mappedTileStore set to true to store the tiles in a memory-mapped tile store
+     * @since xxx
+     */
+    public void setMappedTileStore(boolean mappedTileStore) {
+        this.mappedTileStore = mappedTileStore;
+    }
+
     /**
      * Get a string representation of this imagery info suitable for the {@code source} changeset tag.
      * @return English name, if known
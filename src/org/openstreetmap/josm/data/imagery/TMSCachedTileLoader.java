@@ -1,6 +1,9 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.imagery;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -14,6 +17,7 @@ import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
 import org.openstreetmap.josm.data.cache.HostLimitQueue;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Utils;
@@ -39,6 +43,32 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
      */
     public static final IntegerProperty HOST_LIMIT = new IntegerProperty("imagery.tms.tmsloader.maxjobsperhost", 6);
 
+    /**
+     * Limit definition for per host concurrent requests, for the hosts multiplexing them over a single HTTP/2 connection
+     * @since xxx
+     */
+    public static final IntegerProperty MULTIPLEXED_HOST_LIMIT = new IntegerProperty("imagery.tms.tmsloader.maxjobsperhost.http2", 16);
+
+    /**
+     * Run the downloads in virtual threads, on Java 21 and later
+     * @since xxx
+     */
+    public static final BooleanProperty VIRTUAL_THREADS = new BooleanProperty("imagery.tms.tmsloader.virtual_threads", false);
+
+    /**
+     * Limit of concurrent downloads, when the downloads run in virtual threads. The downloads of a host are still
+     * limited by {@link #HOST_LIMIT}: the other threads wait in the {@link HostLimitQueue} without taking any job, so
+     * that the queued jobs keep being run by priority
+     * @since xxx
+     */
+    public static final IntegerProperty VIRTUAL_THREAD_LIMIT = new IntegerProperty("imagery.tms.tmsloader.maxjobs.virtual", 256);
+
+    /**
+     * Pool decoding the tile images downloaded by virtual threads, so that the CPU bound decoding does not keep the
+     * download slots, nor the carrier threads of the virtual threads
+     */
+    private static final ThreadPoolExecutor DECODE_EXECUTOR = getNewDecodeExecutor();
+
     /**
      * separate from JCS thread pool for TMS loader, so we can have different thread pools for default JCS
      * and for TMS imagery
@@ -85,18 +115,41 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
                 workers, // be never more threads than corePoolSize
                 300, // keep alive for thread
                 TimeUnit.SECONDS,
-                new HostLimitQueue(hostLimit),
-                Utils.newThreadFactory(nameFormat, Thread.NORM_PRIORITY)
+                new HostLimitQueue(hostLimit, Math.max(hostLimit, MULTIPLEXED_HOST_LIMIT.get()), Integer.MAX_VALUE),
+                getThreadFactory(nameFormat)
                 );
     }
 
+    private static ThreadFactory getThreadFactory(String nameFormat) {
+        ThreadFactory factory = VIRTUAL_THREADS.get() ? Utils.newVirtualThreadFactory(nameFormat) : null;
+        return factory != null ? factory : Utils.newThreadFactory(nameFormat, Thread.NORM_PRIORITY);
+    }
+
     /**
      * Returns a new {@link ThreadPoolExecutor}.
      * @param name name of threads
      * @return new ThreadPoolExecutor that will use a {@link HostLimitQueue} based queue, with default number of threads
      */
     public static ThreadPoolExecutor getNewThreadPoolExecutor(String name) {
-        return getNewThreadPoolExecutor(name, THREAD_LIMIT.get().intValue());
+        boolean virtual = VIRTUAL_THREADS.get() && Utils.getJavaVersion() >= 21;
+        return getNewThreadPoolExecutor(name, (virtual ? VIRTUAL_THREAD_LIMIT : THREAD_LIMIT).get().intValue());
+    }
+
+    private static ThreadPoolExecutor getNewDecodeExecutor() {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                Utils.newThreadFactory("TMS-decoder-%d", Thread.NORM_PRIORITY));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns the pool decoding the tile images downloaded by virtual threads.
+     * @return the pool decoding the tile images, with one thread less than the number of processors
+     * @since xxx
+     */
+    public static Executor getDecodeExecutor() {
+        return DECODE_EXECUTOR;
     }
 
     @Override
@@ -17,6 +17,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -58,6 +59,9 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
     protected final Tile tile;
     private volatile URL url;
     private final TileJobOptions options;
+    private volatile boolean forDisplay;
+    /** The executor decoding the downloaded image, {@code null} for the default behaviour */
+    private volatile Executor decodeExecutor;
 
     // we need another deduplication of Tile Loader listeners, as for each submit, new TMSCachedTileLoaderJob was created
     // that way, we reduce calls to tileLoadingFinished, and general CPU load due to surplus Map repaints
@@ -182,8 +186,52 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         }
     }
 
+    /**
+     * Sets whether the tile is downloaded to be displayed in its layer. Only these jobs are scheduled by distance to the
+     * {@link TileViewport} of the tile source, and canceled once the tile scrolled out of view. The other jobs, such as
+     * the downloads along a track, are run in the order they were submitted.
+     * @param forDisplay {@code true} if the tile is downloaded to be displayed
+     * @since xxx
+     */
+    public void setForDisplay(boolean forDisplay) {
+        this.forDisplay = forDisplay;
+    }
+
+    /**
+     * Sets the executor decoding the downloaded image and notifying the listeners, instead of the download thread.
+     * By default, only the images downloaded by virtual threads are handed off, to {@link TMSCachedTileLoader#getDecodeExecutor()}.
+     * @param decodeExecutor the executor decoding the downloaded image, {@code null} for the default behaviour
+     * @since xxx
+     */
+    public void setDecodeExecutor(Executor decodeExecutor) {
+        this.decodeExecutor = decodeExecutor;
+    }
+
+    @Override
+    public double getPriority() {
+        return forDisplay ? TileViewport.getPriority(tile) : super.getPriority();
+    }
+
+    @Override
+    public boolean isObsolete() {
+        return forDisplay ? TileViewport.isObsolete(tile) : super.isObsolete();
+    }
+
     @Override
     public void loadingFinished(CacheEntry object, CacheEntryAttributes attributes, LoadResult result) {
+        Executor executor = decodeExecutor;
+        if (executor == null && Utils.isVirtualThread(Thread.currentThread())) {
+            // decode the image in the CPU bound pool, so that the virtual thread releases its download slot at once
+            executor = TMSCachedTileLoader.getDecodeExecutor();
+        }
+        if (result != LoadResult.CANCELED && executor != null) {
+            executor.execute(() -> finishTile(object, attributes, result));
+        } else {
+            finishTile(object, attributes, result);
+        }
+    }
+
+    private void finishTile(CacheEntry object, CacheEntryAttributes attributes, LoadResult result) {
         this.attributes = attributes; // as we might get notification from other object than our selfs, pass attributes along
         Set<TileLoaderListener> listeners = inProgress.remove(getCacheKey());
         boolean status = result == LoadResult.SUCCESS;
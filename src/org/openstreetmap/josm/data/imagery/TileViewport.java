@@ -0,0 +1,189 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.josm.data.cache.HostLimitQueue;
+
+/**
+ * The tiles visible in a layer, used to schedule the download of tiles.
+ * <p>
+ * The tiles nearest to the centre of the viewport, at the current zoom level, are downloaded first. The tiles in the
+ * direction of the panning are downloaded before the other ones at the same distance, and the tiles of the next zoom
+ * level are prefetched after the visible ones. The tiles which scrolled out of view are not downloaded anymore.
+ * @since xxx
+ */
+public final class TileViewport {
+
+    /** Number of tiles around the visible tiles which are still downloaded */
+    static final int MARGIN = 2;
+
+    private static final Map<TileSource, TileViewport> VIEWPORTS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final int zoom;
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    /** Unit vector of the last panning, {@code 0} if unknown */
+    private final double panX;
+    private final double panY;
+
+    TileViewport(int zoom, int minX, int minY, int maxX, int maxY, double panX, double panY) {
+        this.zoom = zoom;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.panX = panX;
+        this.panY = panY;
+    }
+
+    /**
+     * Sets the visible tiles of a tile source. The panning direction is computed from the previous visible tiles.
+     * @param source the tile source
+     * @param zoom the zoom level of the visible tiles
+     * @param minX the minimum x index of the visible tiles
+     * @param minY the minimum y index of the visible tiles
+     * @param maxX the maximum x index of the visible tiles
+     * @param maxY the maximum y index of the visible tiles
+     * @return the new viewport
+     */
+    public static TileViewport update(TileSource source, int zoom, int minX, int minY, int maxX, int maxY) {
+        synchronized (VIEWPORTS) {
+            TileViewport old = VIEWPORTS.get(source);
+            double panX = 0;
+            double panY = 0;
+            if (old != null && old.zoom == zoom) {
+                double dx = (minX + maxX - old.minX - old.maxX) / 2d;
+                double dy = (minY + maxY - old.minY - old.maxY) / 2d;
+                double length = Math.hypot(dx, dy);
+                if (length > 0) {
+                    panX = dx / length;
+                    panY = dy / length;
+                } else {
+                    // repaint without panning, keep the last direction
+                    panX = old.panX;
+                    panY = old.panY;
+                }
+            }
+            TileViewport viewport = new TileViewport(zoom, minX, minY, maxX, maxY, panX, panY);
+            VIEWPORTS.put(source, viewport);
+            if (old == null || old.zoom != zoom || old.minX != minX || old.minY != minY || old.maxX != maxX || old.maxY != maxY) {
+                // the queued downloads are ranked again, and the tiles which scrolled out of view canceled
+                HostLimitQueue.invalidatePriorities();
+            }
+            return viewport;
+        }
+    }
+
+    /**
+     * Removes the visible tiles of a tile source, when its layer is removed.
+     * @param source the tile source
+     */
+    public static void remove(TileSource source) {
+        if (VIEWPORTS.remove(source) != null) {
+            HostLimitQueue.invalidatePriorities();
+        }
+    }
+
+    /**
+     * Returns the visible tiles of a tile source.
+     * @param source the tile source
+     * @return the visible tiles of the tile source, or {@code null} if unknown
+     */
+    public static TileViewport get(TileSource source) {
+        return source == null ? null : VIEWPORTS.get(source);
+    }
+
+    /**
+     * Returns the download priority of a tile. The tiles of unknown viewports have the priority {@code 0}.
+     * @param tile the tile
+     * @return the priority of the tile, the tiles with the lowest value are downloaded first
+     */
+    public static double getPriority(Tile tile) {
+        TileViewport viewport = get(tile.getTileSource());
+        return viewport == null ? 0 : viewport.getPriority(tile.getZoom(), tile.getXtile(), tile.getYtile());
+    }
+
+    /**
+     * Determines if a tile is not needed anymore: it scrolled out of view, or it belongs to a zoom level which is not
+     * displayed anymore.
+     * @param tile the tile
+     * @return {@code true} if the tile does not need to be downloaded anymore
+     */
+    public static boolean isObsolete(Tile tile) {
+        TileViewport viewport = get(tile.getTileSource());
+        return viewport != null && viewport.isObsolete(tile.getZoom(), tile.getXtile(), tile.getYtile());
+    }
+
+    /**
+     * Returns the zoom level of the visible tiles.
+     * @return the zoom level of the visible tiles
+     */
+    public int getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Returns the x component of the panning direction.
+     * @return the x component of the unit vector of the last panning, {@code 0} if unknown
+     */
+    public double getPanX() {
+        return panX;
+    }
+
+    /**
+     * Returns the y component of the panning direction.
+     * @return the y component of the unit vector of the last panning, {@code 0} if unknown
+     */
+    public double getPanY() {
+        return panY;
+    }
+
+    /**
+     * Returns the download priority of a tile.
+     * @param z the zoom level of the tile
+     * @param x the x index of the tile
+     * @param y the y index of the tile
+     * @return the priority of the tile, the tiles with the lowest value are downloaded first
+     */
+    double getPriority(int z, int x, int y) {
+        double scale = Math.pow(2, (double) zoom - z);
+        // distance from the centre of the tile to the centre of the viewport, in tiles of the viewport zoom level
+        double dx = (x + 0.5) * scale - (minX + maxX + 1) / 2d;
+        double dy = (y + 0.5) * scale - (minY + maxY + 1) / 2d;
+        double distance = Math.hypot(dx, dy);
+        // the tiles ahead in the panning direction will be visible soon
+        double ahead = dx * panX + dy * panY;
+        if (ahead > 0) {
+            distance -= Math.min(ahead, distance) / 2;
+        }
+        if (z > zoom) {
+            // prefetched tiles of the next zoom level come after the visible ones
+            return distance + Math.hypot(maxX - minX + 1, maxY - minY + 1) / 2 + 1;
+        }
+        // the tiles of lower zoom levels are used as placeholders for the missing tiles
+        return distance + zoom - z;
+    }
+
+    /**
+     * Determines if a tile is not needed anymore.
+     * @param z the zoom level of the tile
+     * @param x the x index of the tile
+     * @param y the y index of the tile
+     * @return {@code true} if the tile is too far from the visible tiles, or of a too high zoom level
+     */
+    boolean isObsolete(int z, int x, int y) {
+        if (z > zoom + 1) {
+            return true;
+        }
+        double scale = Math.pow(2, (double) zoom - z);
+        return (x + 1) * scale <= minX - MARGIN || x * scale >= maxX + 1 + MARGIN
+            || (y + 1) * scale <= minY - MARGIN || y * scale >= maxY + 1 + MARGIN;
+    }
+}
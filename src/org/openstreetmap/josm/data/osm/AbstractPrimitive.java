@@ -498,6 +498,9 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
      *     https://en.wikipedia.org/wiki/Read-copy-update</a> (mind that we have a Garbage collector,
      *     {@code rcu_assign_pointer} and {@code rcu_dereference} are ensured by the {@code volatile} keyword)</li>
      * </ul>
+     * <p>
+     * The arrays are shared between primitives with the same tags, see {@link TagSetDictionary}.
+     * They must never be modified.
      */
     protected volatile String[] keys;
 
@@ -547,7 +550,7 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
             newKeys[index++] = Objects.requireNonNull(entry.getKey());
             newKeys[index++] = Objects.requireNonNull(entry.getValue());
         }
-        this.keys = newKeys;
+        this.keys = TagSetDictionary.intern(newKeys);
         keysChangedImpl(originalKeys);
     }
 
@@ -564,7 +567,7 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
             if (arr.length == 0) {
                 this.keys = null;
             } else {
-                this.keys = arr;
+                this.keys = TagSetDictionary.intern(arr);
             }
         }
         keysChangedImpl(originalKeys);
@@ -590,7 +593,7 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
         else if (value == null) {
             remove(key);
         } else if (keys == null) {
-            keys = new String[] {key, value};
+            keys = TagSetDictionary.intern(new String[] {key, value});
             keysChangedImpl(originalKeys);
         } else {
             int keyIndex = indexOfKey(keys, key);
@@ -607,7 +610,7 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
             String[] newKeys = Arrays.copyOf(keys, tagArrayLength);
             newKeys[keyIndex] = key;
             newKeys[keyIndex + 1] = value;
-            keys = newKeys;
+            keys = TagSetDictionary.intern(newKeys);
             keysChangedImpl(originalKeys);
         }
     }
@@ -617,8 +620,8 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
         if (tags == null || tags.isEmpty()) {
             return;
         }
-        // Defensive copy of keys
-        String[] newKeys = keys;
+        // Defensive copy of keys, the current array may be shared with other primitives
+        String[] newKeys = keys != null ? keys.clone() : null;
         Map<String, String> originalKeys = getKeys();
         List<Map.Entry<String, String>> tagsToAdd = new ArrayList<>(tags.size());
         for (Map.Entry<String, String> tag : tags.entrySet()) {
@@ -639,8 +642,8 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
                 newKeys[index++] = tag.getKey();
                 newKeys[index++] = tag.getValue();
             }
-            keys = newKeys;
         }
+        keys = TagSetDictionary.intern(newKeys);
         keysChangedImpl(originalKeys);
     }
 
@@ -689,7 +692,7 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
                 newKeys[j++] = keys[i+1];
             }
         }
-        keys = newKeys;
+        keys = TagSetDictionary.intern(newKeys);
         keysChangedImpl(originalKeys);
     }
 
@@ -18,7 +18,6 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -54,6 +53,7 @@ import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
@@ -62,6 +62,7 @@ import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * DataSet is the data behind the application. It can consists of only a few points up to the whole
@@ -119,9 +120,25 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
      */
     private static final int MAX_EVENTS = 1000;
 
-    private final QuadBucketPrimitiveStore<Node, Way, Relation> store = new QuadBucketPrimitiveStore<>();
+    /**
+     * Determines if nodes and ways are searched in immutable snapshots of the spatial index, without locking the dataset.
+     * Disabled by default, as the snapshots hold a second copy of the spatial index of the nodes and ways.
+     * @since xxx
+     */
+    public static final BooleanProperty SNAPSHOT_SEARCH = new BooleanProperty("osm.dataset.snapshot-search", false);
+
+    /**
+     * Determines if an inverted index of the tags is maintained, see {@link #getTagIndex()}.
+     * @since xxx
+     */
+    public static final BooleanProperty TAG_INDEX = new BooleanProperty("osm.dataset.tag-index", false);
+
+    private final QuadBucketPrimitiveStore<Node, Way, Relation> store =
+            new QuadBucketPrimitiveStore<>(Config.getPref() != null && SNAPSHOT_SEARCH.get());
 
     private final Storage<OsmPrimitive> allPrimitives = new Storage<>(new Storage.PrimitiveIdHash(), true);
+    /** The tag index, built on demand */
+    private volatile TagIndex tagIndex;
     private final Map<PrimitiveId, OsmPrimitive> primitivesMap = allPrimitives
             .foreignKey(new Storage.PrimitiveIdHash());
     private final CopyOnWriteArrayList<DataSetListener> listeners = new CopyOnWriteArrayList<>();
@@ -142,7 +159,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     /** Flag used to know if the dataset should not be editable */
     private final AtomicBoolean isReadOnly = new AtomicBoolean(false);
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
      * The mutex lock that is used to synchronize selection changes.
@@ -406,12 +423,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
 
     @Override
     public List<Node> searchNodes(BBox bbox) {
-        lock.readLock().lock();
-        try {
-            return store.searchNodes(bbox);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return search(bbox, store::searchNodesInSnapshot, store::searchNodes);
     }
 
     @Override
@@ -421,9 +433,29 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
 
     @Override
     public List<Way> searchWays(BBox bbox) {
+        return search(bbox, store::searchWaysInSnapshot, store::searchWays);
+    }
+
+    /**
+     * Searches the spatial index, preferably in its last snapshot without locking (see {@link #SNAPSHOT_SEARCH}).
+     * The snapshot is brought up to date if needed, unless the current thread is modifying the dataset.
+     * @param <T> the type of the searched primitives
+     * @param bbox the bounding box
+     * @param snapshotSearch search in the snapshot, returning {@code null} if disabled or outdated
+     * @param search search in the quad buckets, requiring the read lock
+     * @return List of primitives in the given bbox. Can be empty but not null
+     */
+    private <T> List<T> search(BBox bbox, Function<BBox, List<T>> snapshotSearch, Function<BBox, List<T>> search) {
+        List<T> result = snapshotSearch.apply(bbox);
+        if (result != null) {
+            return result;
+        }
         lock.readLock().lock();
         try {
-            return store.searchWays(bbox);
+            if (!lock.isWriteLockedByCurrentThread() && store.updateSnapshots()) {
+                result = snapshotSearch.apply(bbox);
+            }
+            return result != null ? result : search.apply(bbox);
         } finally {
             lock.readLock().unlock();
         }
@@ -498,6 +530,37 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         return store.containsRelation(r);
     }
 
+    /**
+     * Returns the inverted index of the tags of the primitives of this dataset, to find the primitives having
+     * a given tag without iterating all of them. The index is built on the first call, then kept up to date
+     * until it is disabled by {@link #TAG_INDEX}.
+     * @return the tag index, or {@code null} if {@link #TAG_INDEX} is disabled
+     * @since xxx
+     */
+    public TagIndex getTagIndex() {
+        if (Config.getPref() == null || !TAG_INDEX.get()) {
+            tagIndex = null;
+            return null;
+        }
+        TagIndex index = tagIndex;
+        if (index == null) {
+            // The modifications hold the write lock, so that none of them is missed by the new index
+            lock.readLock().lock();
+            try {
+                synchronized (allPrimitives) {
+                    index = tagIndex;
+                    if (index == null) {
+                        index = new TagIndex(allPrimitives);
+                        tagIndex = index;
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return index;
+    }
+
     /**
      * Adds a primitive to the dataset.
      *
@@ -518,10 +581,50 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
             primitive.setDataset(this);
             primitive.updatePosition(); // Set cached bbox for way and relation (required for reindexWay and reindexRelation to work properly)
             store.addPrimitive(primitive);
+            TagIndex index = tagIndex;
+            if (index != null) {
+                index.add(primitive);
+            }
             firePrimitivesAdded(Collections.singletonList(primitive), false);
         });
     }
 
+    /**
+     * Adds primitives to the dataset. For large collections, this is much faster than adding them one by one
+     * with {@link #addPrimitive(OsmPrimitive)}, as the spatial index is then built in one pass.
+     *
+     * @param primitives the primitives.
+     * @throws IllegalStateException if the dataset is read-only
+     * @since xxx
+     */
+    public void addPrimitives(Collection<? extends OsmPrimitive> primitives) {
+        Objects.requireNonNull(primitives, "primitives");
+        if (primitives.isEmpty()) {
+            return;
+        }
+        checkModifiable();
+        update(() -> {
+            Set<PrimitiveId> ids = new HashSet<>(Utils.hashMapInitialCapacity(primitives.size()));
+            for (OsmPrimitive primitive : primitives) {
+                if (getPrimitiveById(primitive) != null || !ids.add(new SimplePrimitiveId(primitive.getUniqueId(), primitive.getType())))
+                    throw new DataIntegrityProblemException(
+                            tr("Unable to add primitive {0} to the dataset because it is already included", primitive.toString()),
+                            null, primitive);
+            }
+            for (OsmPrimitive primitive : primitives) {
+                allPrimitives.add(primitive);
+                primitive.setDataset(this);
+                primitive.updatePosition(); // Set cached bbox for way and relation (required for reindexWay and reindexRelation to work properly)
+            }
+            store.addPrimitives(primitives);
+            TagIndex index = tagIndex;
+            if (index != null) {
+                primitives.forEach(index::add);
+            }
+            firePrimitivesAdded(primitives, false);
+        });
+    }
+
     /**
      * Adds recursively a primitive, and all its children, to the dataset.
      *
@@ -565,6 +668,10 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
             throw new DataIntegrityProblemException("Primitive was re-selected by a selection listener: " + primitive);
         }
         store.removePrimitive(primitive);
+        TagIndex index = tagIndex;
+        if (index != null) {
+            index.remove(primitive);
+        }
         allPrimitives.remove(primitive);
         primitive.setDataset(null);
     }
@@ -675,8 +782,9 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (highlightedVirtualNodes.isEmpty() && waySegments.isEmpty())
             return;
 
+        Collection<WaySegment> old = highlightedVirtualNodes;
         highlightedVirtualNodes = waySegments;
-        fireHighlightingChanged();
+        fireHighlightingChanged(getWays(old, waySegments));
     }
 
     @Override
@@ -684,8 +792,15 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (highlightedWaySegments.isEmpty() && waySegments.isEmpty())
             return;
 
+        Collection<WaySegment> old = highlightedWaySegments;
         highlightedWaySegments = waySegments;
-        fireHighlightingChanged();
+        fireHighlightingChanged(getWays(old, waySegments));
+    }
+
+    private static Set<Way> getWays(Collection<WaySegment> oldSegments, Collection<WaySegment> newSegments) {
+        return Stream.concat(oldSegments.stream(), newSegments.stream())
+                .map(WaySegment::getWay)
+                .collect(Collectors.toSet());
     }
 
     @Override
@@ -1064,6 +1179,10 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     }
 
     void fireTagsChanged(OsmPrimitive prim, Map<String, String> originalKeys) {
+        TagIndex index = tagIndex;
+        if (index != null) {
+            index.tagsChanged(prim, originalKeys);
+        }
         fireEvent(new TagsChangedEvent(this, prim, originalKeys));
     }
 
@@ -1073,15 +1192,18 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     }
 
     void fireNodeMoved(Node node, LatLon newCoor, EastNorth eastNorth) {
+        LatLon oldCoor = node.getCoor();
         store.reindexNode(node, n -> n.setCoorInternal(newCoor, eastNorth), Way::updatePosition, Relation::updatePosition);
-        fireEvent(new NodeMovedEvent(this, node));
+        fireEvent(new NodeMovedEvent(this, node, oldCoor));
     }
 
     void fireWayNodesChanged(Way way) {
+        // the cached bounding box is still the one of the old nodes
+        BBox oldBBox = way.getBBox();
         if (!way.isEmpty()) {
             store.reindexWay(way, Way::updatePosition, Relation::updatePosition);
         }
-        fireEvent(new WayNodesChangedEvent(this, way));
+        fireEvent(new WayNodesChangedEvent(this, way, oldBBox));
     }
 
     void fireChangesetIdChanged(OsmPrimitive primitive, int oldChangesetId, int newChangesetId) {
@@ -1097,8 +1219,8 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         fireEvent(new FilterChangedEvent(this));
     }
 
-    void fireHighlightingChanged() {
-        HighlightUpdateListener.HighlightUpdateEvent e = new HighlightUpdateListener.HighlightUpdateEvent(this);
+    void fireHighlightingChanged(Collection<? extends OsmPrimitive> primitives) {
+        HighlightUpdateListener.HighlightUpdateEvent e = new HighlightUpdateListener.HighlightUpdateEvent(this, primitives);
         highlightUpdateListeners.fireEvent(l -> l.highlightUpdated(e));
     }
 
@@ -1149,6 +1271,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
             }
             store.clear();
             allPrimitives.clear();
+            tagIndex = null;
             conflicts.get().clear();
         });
     }
@@ -46,6 +46,8 @@ public class DataSetMerger {
      */
     private final Set<PrimitiveId> objectsWithChildrenToMerge;
     private final Set<OsmPrimitive> objectsToDelete;
+    /** primitives created for the target dataset, added to it in bulk once all primitives of a type are merged */
+    private final List<OsmPrimitive> newTargets = new ArrayList<>();
 
     /**
      * constructor
@@ -121,11 +123,16 @@ public class DataSetMerger {
         default: throw new AssertionError();
         }
         target.mergeFrom(source);
-        targetDataSet.addPrimitive(target);
+        newTargets.add(target);
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
         objectsWithChildrenToMerge.add(source.getPrimitiveId());
     }
 
+    private void addNewTargets() {
+        targetDataSet.addPrimitives(newTargets);
+        newTargets.clear();
+    }
+
     protected OsmPrimitive getMergeTarget(OsmPrimitive mergeSource) {
         PrimitiveId targetId = mergedMap.get(mergeSource.getPrimitiveId());
         if (targetId == null)
@@ -425,6 +432,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addNewTargets();
             candidates = null;
             for (Way way: sourceDataSet.getWays()) {
                 // lazy initialisation to improve performance
@@ -436,6 +444,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addNewTargets();
             candidates = null;
             for (Relation relation: sourceDataSet.getRelations()) {
                 // lazy initialisation to improve performance
@@ -447,6 +456,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addNewTargets();
             candidates = null;
             fixReferences();
 
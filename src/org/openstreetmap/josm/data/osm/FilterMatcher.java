@@ -91,6 +91,7 @@ public class FilterMatcher {
 
     private final List<FilterInfo> hiddenFilters = new ArrayList<>();
     private final List<FilterInfo> disabledFilters = new ArrayList<>();
+    private int relativesDepth;
 
     /**
      * Clears the current filters, and adds the given filters
@@ -110,6 +111,17 @@ public class FilterMatcher {
     public void reset() {
         hiddenFilters.clear();
         disabledFilters.clear();
+        relativesDepth = 0;
+    }
+
+    /**
+     * Returns how many levels of parents or children of a primitive the filter expressions look at,
+     * e.g. 2 for {@code child(parent(type:relation))}.
+     * @return the maximal {@linkplain Match#getRelativesDepth() depth} of the relatives used by the filters
+     * @since xxx
+     */
+    public int getRelativesDepth() {
+        return relativesDepth;
     }
 
     /**
@@ -132,6 +144,7 @@ public class FilterMatcher {
         }
 
         FilterInfo fi = new FilterInfo(filter);
+        relativesDepth = Math.max(relativesDepth, fi.match.getRelativesDepth());
         if (fi.isDelete) {
             if (filter.hiding) {
                 // Remove only hide flag
@@ -21,6 +21,7 @@ import org.openstreetmap.josm.data.SortableModel;
 import org.openstreetmap.josm.data.StructUtils;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.widgets.OSDLabel;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -33,6 +34,12 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class FilterModel implements SortableModel<Filter> {
 
+    /**
+     * Whether data set changes only re-run the filters on the primitives depending on the modified ones.
+     * @since xxx
+     */
+    public static final BooleanProperty PROP_INCREMENTAL = new BooleanProperty("filter.incremental", true);
+
     /**
      * number of primitives that are disabled but not hidden
      */
@@ -197,6 +204,62 @@ public class FilterModel implements SortableModel<Filter> {
         }
     }
 
+    /**
+     * Runs the filters on the primitives of the edit data set whose filter state may depend on the given
+     * modified primitives, see {@link FilterWorker#getDependentPrimitives}.
+     * If {@link #PROP_INCREMENTAL} is disabled, the filters are run on the whole data set.
+     * @param modified the primitives which have been added or modified
+     * @param removed the primitives which have been removed or deleted
+     * @since xxx
+     */
+    public void executeFiltersIncrementally(Collection<? extends OsmPrimitive> modified, Collection<? extends OsmPrimitive> removed) {
+        if (!PROP_INCREMENTAL.get()) {
+            executeFilters();
+            return;
+        }
+        DataSet ds = OsmDataManager.getInstance().getActiveDataSet();
+        if (ds == null)
+            return;
+
+        Set<OsmPrimitive> seeds = new HashSet<>(modified);
+        seeds.addAll(removed);
+        Set<OsmPrimitive> dependents = FilterWorker.getDependentPrimitives(seeds, filterMatcher);
+        dependents.removeIf(p -> p.getDataSet() != ds || p.isDeleted() || p.isIncomplete());
+        List<OsmPrimitive> deselect = new ArrayList<>();
+
+        ds.update(() -> {
+            for (OsmPrimitive primitive : removed) {
+                if (!dependents.contains(primitive)) {
+                    updateCount(primitive, -1);
+                }
+            }
+            changed = FilterWorker.clearFilterFlags(removed);
+            dependents.forEach(primitive -> updateCount(primitive, -1));
+            changed |= FilterWorker.executeFilters(dependents, filterMatcher);
+            for (OsmPrimitive primitive : dependents) {
+                updateCount(primitive, 1);
+                if (primitive.isSelected() && primitive.isDisabled()) {
+                    deselect.add(primitive);
+                }
+            }
+        });
+
+        if (!deselect.isEmpty()) {
+            ds.clearSelection(deselect);
+        }
+        if (changed) {
+            updateMap();
+        }
+    }
+
+    private void updateCount(OsmPrimitive primitive, int delta) {
+        if (primitive.isDisabledAndHidden()) {
+            disabledAndHiddenCount += delta;
+        } else if (primitive.isDisabled()) {
+            disabledCount += delta;
+        }
+    }
+
     private static void updateMap() {
         MainApplication.getLayerManager().invalidateEditLayer();
     }
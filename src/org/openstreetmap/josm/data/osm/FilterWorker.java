@@ -1,8 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.openstreetmap.josm.data.osm.FilterMatcher.FilterType;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
@@ -90,6 +96,71 @@ public final class FilterWorker {
         return doExecuteFilters(Collections.singleton(primitive), filterMatcher);
     }
 
+    /**
+     * Returns the primitives whose filter state may change when the given primitives are modified, added or removed.
+     * <p>
+     * These are the given primitives, their parent ways and relations (whose geometry may have changed),
+     * the relatives within the {@linkplain FilterMatcher#getRelativesDepth() depth} used by the filter expressions,
+     * and the nodes and multipolygon member ways inheriting the filter state of all of these.
+     *
+     * @param primitives the modified primitives
+     * @param filterMatcher the FilterMatcher
+     * @return the primitives to filter again, including primitives which may not be part of the data set any more
+     * @since xxx
+     */
+    public static Set<OsmPrimitive> getDependentPrimitives(Collection<? extends OsmPrimitive> primitives, FilterMatcher filterMatcher) {
+        Set<OsmPrimitive> result = new HashSet<>(primitives);
+        Deque<OsmPrimitive> stack = new ArrayDeque<>(primitives);
+        while (!stack.isEmpty()) {
+            for (OsmPrimitive referrer : stack.pop().getReferrers()) {
+                if (result.add(referrer)) {
+                    stack.push(referrer);
+                }
+            }
+        }
+
+        List<OsmPrimitive> level = new ArrayList<>(result);
+        for (int depth = filterMatcher.getRelativesDepth(); depth > 0 && !level.isEmpty(); depth--) {
+            List<OsmPrimitive> next = new ArrayList<>();
+            for (OsmPrimitive p : level) {
+                for (OsmPrimitive relative : p.getReferrers()) {
+                    if (result.add(relative)) {
+                        next.add(relative);
+                    }
+                }
+                for (OsmPrimitive relative : getChildren(p)) {
+                    if (result.add(relative)) {
+                        next.add(relative);
+                    }
+                }
+            }
+            level = next;
+        }
+
+        for (OsmPrimitive p : new ArrayList<>(result)) {
+            if (p instanceof Relation && p.isMultipolygon()) {
+                for (OsmPrimitive member : ((Relation) p).getMemberPrimitivesList()) {
+                    if (member instanceof Way) {
+                        result.add(member);
+                        result.addAll(((Way) member).getNodes());
+                    }
+                }
+            } else if (p instanceof Way) {
+                result.addAll(((Way) p).getNodes());
+            }
+        }
+        return result;
+    }
+
+    private static List<? extends OsmPrimitive> getChildren(OsmPrimitive p) {
+        if (p instanceof Way) {
+            return ((Way) p).getNodes();
+        } else if (p instanceof Relation) {
+            return ((Relation) p).getMemberPrimitivesList();
+        }
+        return Collections.emptyList();
+    }
+
     /**
      * Clear all filter flags, i.e.&nbsp;turn off filters.
      * @param <T> the primitive type
@@ -492,7 +492,7 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Template
         if (isHighlighted() != highlighted) {
             updateFlags(FLAG_HIGHLIGHTED, highlighted);
             if (dataSet != null) {
-                dataSet.fireHighlightingChanged();
+                dataSet.fireHighlightingChanged(Collections.singleton(this));
             }
         }
     }
@@ -890,7 +890,8 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Template
 
     boolean hasEqualSemanticAttributes(final OsmPrimitive other, final boolean testInterestingTagsOnly) {
         return hasEqualSemanticFlags(other)
-                && (testInterestingTagsOnly ? hasSameInterestingTags(other) : getKeys().equals(other.getKeys()));
+                && (keys == other.keys // tag arrays are shared, see TagSetDictionary
+                    || (testInterestingTagsOnly ? hasSameInterestingTags(other) : getKeys().equals(other.getKeys())));
     }
 
     /**
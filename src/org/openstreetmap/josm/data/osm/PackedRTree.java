@@ -0,0 +1,214 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+
+/**
+ * An immutable R-tree, bulk loaded with the Sort-Tile-Recursive algorithm and packed into flat arrays.
+ * <p>
+ * The bounding boxes of the objects are copied when the tree is built, so that searches do not depend on the
+ * (possibly changing) state of the objects. As the tree is never modified, it can be searched by any number
+ * of threads without synchronization.
+ * @param <T> the type of the indexed objects
+ * @since xxx
+ */
+final class PackedRTree<T extends IQuadBucketType> {
+
+    /** Maximum number of children of a tree node */
+    private static final int NODE_SIZE = 16;
+
+    @SuppressWarnings("rawtypes")
+    private static final PackedRTree EMPTY = new PackedRTree<>(new Object[0], new double[0], new int[] {0});
+
+    private static final class Entry {
+        final Object item;
+        final double minX;
+        final double minY;
+        final double maxX;
+        final double maxY;
+
+        Entry(Object item, BBox bbox) {
+            this.item = item;
+            this.minX = bbox.getMinLon();
+            this.minY = bbox.getMinLat();
+            this.maxX = bbox.getMaxLon();
+            this.maxY = bbox.getMaxLat();
+        }
+
+        double centerX() {
+            return minX + maxX;
+        }
+
+        double centerY() {
+            return minY + maxY;
+        }
+    }
+
+    /** The indexed objects, in leaf order */
+    private final Object[] items;
+    /** minX, minY, maxX, maxY of each tree node, the leaves (the objects) first, then level by level up to the root */
+    private final double[] boxes;
+    /** End position of each level in {@link #boxes} (in units of 4 doubles), level 0 being the leaves */
+    private final int[] levelEnds;
+
+    private PackedRTree(Object[] items, double[] boxes, int[] levelEnds) {
+        this.items = items;
+        this.boxes = boxes;
+        this.levelEnds = levelEnds;
+    }
+
+    /**
+     * Returns an empty tree.
+     * @param <T> the type of the indexed objects
+     * @return an empty tree
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends IQuadBucketType> PackedRTree<T> empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a new tree. Objects with an invalid bounding box are ignored.
+     * @param <T> the type of the indexed objects
+     * @param objects the objects to index
+     * @return the new tree
+     */
+    static <T extends IQuadBucketType> PackedRTree<T> build(Collection<? extends T> objects) {
+        return PackedRTree.<T>prepare(objects).get();
+    }
+
+    /**
+     * Prepares to build a new tree. The bounding boxes of the objects are copied by this method, the tree is then
+     * built by the returned supplier, which can be called in another thread while the objects are modified.
+     * Objects with an invalid bounding box are ignored.
+     * @param <T> the type of the indexed objects
+     * @param objects the objects to index
+     * @return the supplier building the new tree
+     */
+    static <T extends IQuadBucketType> Supplier<PackedRTree<T>> prepare(Collection<? extends T> objects) {
+        List<Entry> list = new ArrayList<>(objects.size());
+        for (T o : objects) {
+            BBox bbox = o.getBBox();
+            if (bbox.isValid()) {
+                list.add(new Entry(o, bbox));
+            }
+        }
+        Entry[] entries = list.toArray(new Entry[0]);
+        return () -> PackedRTree.<T>pack(entries);
+    }
+
+    private static <T extends IQuadBucketType> PackedRTree<T> pack(Entry[] entries) {
+        int n = entries.length;
+        if (n == 0) {
+            return empty();
+        }
+
+        // Sort-Tile-Recursive: sort by x, cut into vertical slices, sort each slice by y
+        Arrays.sort(entries, Comparator.comparingDouble(Entry::centerX));
+        int leafNodes = (n + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceSize = (int) Math.ceil(Math.sqrt(leafNodes)) * NODE_SIZE;
+        for (int start = 0; start < n; start += sliceSize) {
+            Arrays.sort(entries, start, Math.min(n, start + sliceSize), Comparator.comparingDouble(Entry::centerY));
+        }
+
+        List<Integer> ends = new ArrayList<>();
+        int count = n;
+        int total = n;
+        ends.add(total);
+        while (count > 1) {
+            count = (count + NODE_SIZE - 1) / NODE_SIZE;
+            total += count;
+            ends.add(total);
+        }
+        int[] levelEnds = ends.stream().mapToInt(Integer::intValue).toArray();
+
+        Object[] items = new Object[n];
+        double[] boxes = new double[4 * total];
+        for (int i = 0; i < n; i++) {
+            Entry e = entries[i];
+            items[i] = e.item;
+            boxes[4 * i] = e.minX;
+            boxes[4 * i + 1] = e.minY;
+            boxes[4 * i + 2] = e.maxX;
+            boxes[4 * i + 3] = e.maxY;
+        }
+        for (int level = 1; level < levelEnds.length; level++) {
+            int childStart = level == 1 ? 0 : levelEnds[level - 2];
+            int childEnd = levelEnds[level - 1];
+            int position = childEnd;
+            for (int child = childStart; child < childEnd; child += NODE_SIZE, position++) {
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int c = child; c < Math.min(child + NODE_SIZE, childEnd); c++) {
+                    minX = Math.min(minX, boxes[4 * c]);
+                    minY = Math.min(minY, boxes[4 * c + 1]);
+                    maxX = Math.max(maxX, boxes[4 * c + 2]);
+                    maxY = Math.max(maxY, boxes[4 * c + 3]);
+                }
+                boxes[4 * position] = minX;
+                boxes[4 * position + 1] = minY;
+                boxes[4 * position + 2] = maxX;
+                boxes[4 * position + 3] = maxY;
+            }
+        }
+        return new PackedRTree<>(items, boxes, levelEnds);
+    }
+
+    /**
+     * Returns the number of indexed objects.
+     * @return the number of indexed objects
+     */
+    int size() {
+        return items.length;
+    }
+
+    /**
+     * Searches the objects whose bounding box intersects the given one.
+     * @param bbox the bounding box to search
+     * @param excluded objects to exclude from the result
+     * @param result the list to add the found objects to
+     */
+    void search(BBox bbox, Set<?> excluded, List<T> result) {
+        if (items.length == 0) {
+            return;
+        }
+        int top = levelEnds.length - 1;
+        int start = top == 0 ? 0 : levelEnds[top - 1];
+        for (int position = start; position < levelEnds[top]; position++) {
+            search(top, position, bbox.getMinLon(), bbox.getMinLat(), bbox.getMaxLon(), bbox.getMaxLat(), excluded, result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void search(int level, int position, double minX, double minY, double maxX, double maxY,
+            Set<?> excluded, List<T> result) {
+        int b = 4 * position;
+        if (boxes[b] > maxX || boxes[b + 2] < minX || boxes[b + 1] > maxY || boxes[b + 3] < minY) {
+            return;
+        }
+        if (level == 0) {
+            Object item = items[position];
+            if (excluded.isEmpty() || !excluded.contains(item)) {
+                result.add((T) item);
+            }
+            return;
+        }
+        // The children of the n-th node of a level are the n-th group of NODE_SIZE nodes of the level below
+        int childLevelStart = level == 1 ? 0 : levelEnds[level - 2];
+        int first = childLevelStart + (position - levelEnds[level - 1]) * NODE_SIZE;
+        int last = Math.min(first + NODE_SIZE, levelEnds[level - 1]);
+        for (int child = first; child < last; child++) {
+            search(level - 1, child, minX, minY, maxX, maxY, excluded, result);
+        }
+    }
+}
@@ -102,7 +102,7 @@ public abstract class PrimitiveData extends AbstractPrimitive implements Seriali
         version = ois.readInt();
         changesetId = ois.readInt();
         timestamp = ois.readInt();
-        keys = (String[]) ois.readObject();
+        keys = TagSetDictionary.intern((String[]) ois.readObject());
         flags = ois.readShort();
         ois.defaultReadObject();
     }
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -12,7 +13,7 @@ import org.openstreetmap.josm.tools.JosmRuntimeException;
 /**
  * Stores primitives in quad buckets. This can be used to hold a collection of primitives, e.g. in a {@link DataSet}
  *
- * This class does not do any synchronization.
+ * This class does not do any synchronization, except for the searches in snapshots (see {@link #searchNodesInSnapshot}).
  * @author Michael Zangl
  * @param <N> type representing OSM nodes
  * @param <W> type representing OSM ways
@@ -38,6 +39,38 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      */
     private final Collection<R> relations = new ArrayList<>();
 
+    /**
+     * Snapshots of {@link #nodes} and {@link #ways} for searches without locking, or {@code null} if disabled
+     */
+    private final SnapshotSpatialIndex<N> nodeSnapshots;
+    private final SnapshotSpatialIndex<W> waySnapshots;
+
+    /**
+     * Constructs a new {@code QuadBucketPrimitiveStore}, without support for searches in snapshots.
+     */
+    public QuadBucketPrimitiveStore() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new {@code QuadBucketPrimitiveStore}.
+     * @param snapshots if {@code true}, immutable snapshots of the nodes and ways are maintained so that they can
+     * be searched concurrently with modifications, see {@link #searchNodesInSnapshot(BBox)}
+     * @since xxx
+     */
+    public QuadBucketPrimitiveStore(boolean snapshots) {
+        this(snapshots ? SnapshotSpatialIndex.REBUILD_EXECUTOR : null);
+    }
+
+    /**
+     * Constructs a new {@code QuadBucketPrimitiveStore}.
+     * @param snapshotExecutor the executor building the trees of the snapshots, {@code null} to disable snapshots
+     */
+    QuadBucketPrimitiveStore(Executor snapshotExecutor) {
+        this.nodeSnapshots = snapshotExecutor != null ? new SnapshotSpatialIndex<>(nodes, snapshotExecutor) : null;
+        this.waySnapshots = snapshotExecutor != null ? new SnapshotSpatialIndex<>(ways, snapshotExecutor) : null;
+    }
+
     /**
      * Searches for nodes in the given bounding box.
      * @param bbox the bounding box
@@ -47,6 +80,18 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         return nodes.search(bbox);
     }
 
+    /**
+     * Searches for nodes in the given bounding box, in the last published snapshot.
+     * This method does not require any synchronization.
+     * @param bbox the bounding box
+     * @return List of nodes in the given bbox, or {@code null} if snapshots are disabled or if no snapshot of the
+     * current state has been published by {@link #updateSnapshots()}
+     * @since xxx
+     */
+    public List<N> searchNodesInSnapshot(BBox bbox) {
+        return nodeSnapshots != null ? nodeSnapshots.search(bbox) : null;
+    }
+
     /**
      * Determines if the given node can be retrieved in the store through its bounding box. Useful for dataset consistency test.
      * @param n The node to search
@@ -65,6 +110,35 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         return ways.search(bbox);
     }
 
+    /**
+     * Searches for ways in the given bounding box, in the last published snapshot.
+     * This method does not require any synchronization.
+     * @param bbox the bounding box
+     * @return List of ways in the given bbox, or {@code null} if snapshots are disabled or if no snapshot of the
+     * current state has been published by {@link #updateSnapshots()}
+     * @since xxx
+     */
+    public List<W> searchWaysInSnapshot(BBox bbox) {
+        return waySnapshots != null ? waySnapshots.search(bbox) : null;
+    }
+
+    /**
+     * Publishes snapshots of the current nodes and ways, for {@link #searchNodesInSnapshot(BBox)} and
+     * {@link #searchWaysInSnapshot(BBox)}. The trees of the snapshots are built in the background, so that no snapshot
+     * is published until the first ones are built, or while too many modifications are waiting for a rebuild.
+     * The store must not be modified concurrently.
+     * @return {@code true} if snapshots are enabled
+     * @since xxx
+     */
+    public boolean updateSnapshots() {
+        if (nodeSnapshots == null) {
+            return false;
+        }
+        nodeSnapshots.update();
+        waySnapshots.update();
+        return true;
+    }
+
     /**
      * Determines if the given way can be retrieved in the store through its bounding box. Useful for dataset consistency test.
      * @param w The way to search
@@ -105,8 +179,14 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         boolean success = false;
         if (primitive instanceof INode) {
             success = nodes.add((N) primitive);
+            if (success && nodeSnapshots != null) {
+                nodeSnapshots.add((N) primitive);
+            }
         } else if (primitive instanceof IWay) {
             success = ways.add((W) primitive);
+            if (success && waySnapshots != null) {
+                waySnapshots.add((W) primitive);
+            }
         } else if (primitive instanceof IRelation) {
             success = relations.add((R) primitive);
         }
@@ -115,12 +195,51 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         }
     }
 
+    /**
+     * Adds primitives to this quad bucket store. For large collections, this is much faster than adding them
+     * one by one with {@link #addPrimitive(IPrimitive)}, as the quad buckets are then built in one pass.
+     *
+     * @param primitives the primitives.
+     * @since xxx
+     */
+    @SuppressWarnings("unchecked")
+    public void addPrimitives(Collection<? extends IPrimitive> primitives) {
+        List<N> newNodes = new ArrayList<>();
+        List<W> newWays = new ArrayList<>();
+        List<R> newRelations = new ArrayList<>();
+        for (IPrimitive primitive : primitives) {
+            if (primitive instanceof INode) {
+                newNodes.add((N) primitive);
+            } else if (primitive instanceof IWay) {
+                newWays.add((W) primitive);
+            } else if (primitive instanceof IRelation) {
+                newRelations.add((R) primitive);
+            } else {
+                throw new JosmRuntimeException("failed to add primitive: "+primitive);
+            }
+        }
+        nodes.addAll(newNodes);
+        ways.addAll(newWays);
+        relations.addAll(newRelations);
+        if (nodeSnapshots != null) {
+            newNodes.forEach(nodeSnapshots::add);
+            newWays.forEach(waySnapshots::add);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
     protected void removePrimitive(IPrimitive primitive) {
         boolean success = false;
         if (primitive instanceof INode) {
             success = nodes.remove(primitive);
+            if (success && nodeSnapshots != null) {
+                nodeSnapshots.remove((N) primitive);
+            }
         } else if (primitive instanceof IWay) {
             success = ways.remove(primitive);
+            if (success && waySnapshots != null) {
+                waySnapshots.remove((W) primitive);
+            }
         } else if (primitive instanceof IRelation) {
             success = relations.remove(primitive);
         }
@@ -143,6 +262,10 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         nUpdater.accept(node);
         if (!nodes.add(node))
             throw new JosmRuntimeException("Reindexing node failed to add");
+        if (nodeSnapshots != null) {
+            nodeSnapshots.remove(node);
+            nodeSnapshots.add(node);
+        }
         for (IPrimitive primitive: node.getReferrers()) {
             if (primitive instanceof IWay) {
                 reindexWay((W) primitive, wUpdater, rUpdater);
@@ -166,6 +289,10 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         wUpdater.accept(way);
         if (!ways.add(way))
             throw new JosmRuntimeException("Reindexing way failed to add");
+        if (waySnapshots != null) {
+            waySnapshots.remove(way);
+            waySnapshots.add(way);
+        }
         if (!way.getBBox().equals(before)) {
             for (IPrimitive primitive: way.getReferrers()) {
                 reindexRelation((R) primitive, rUpdater);
@@ -196,5 +323,9 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         nodes.clear();
         ways.clear();
         relations.clear();
+        if (nodeSnapshots != null) {
+            nodeSnapshots.clear();
+            waySnapshots.clear();
+        }
     }
 }
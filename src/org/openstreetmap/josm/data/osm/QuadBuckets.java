@@ -38,6 +38,39 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
 
     private static final int MAX_OBJECTS_PER_NODE = 48;
 
+    /**
+     * An object to bulk load, with the quad tiling positions of its bounding box computed once.
+     */
+    private static final class BulkEntry<T> {
+        final T object;
+        final long x1;
+        final long y1;
+        final long x2;
+        final long y2;
+        byte index;
+
+        BulkEntry(T object, BBox bbox) {
+            this.object = object;
+            this.x1 = QuadTiling.lon2x(bbox.getMinLon());
+            this.y1 = QuadTiling.lat2y(bbox.getMinLat());
+            this.x2 = QuadTiling.lon2x(bbox.getMaxLon());
+            this.y2 = QuadTiling.lat2y(bbox.getMaxLat());
+        }
+
+        /**
+         * Same as {@link BBox#getIndex(int)}, without converting the coordinates again.
+         * @param level the level
+         * @return the index of the child containing the object, or -1 if it spans several children
+         */
+        byte computeIndex(int level) {
+            int shift = QuadTiling.NR_LEVELS - level - 1;
+            if ((((x1 ^ x2) >> shift) & 1) != 0 || (((y1 ^ y2) >> shift) & 1) != 0) {
+                return -1;
+            }
+            return (byte) ((x1 >> shift & 1) * 2 + (y1 >> shift & 1));
+        }
+    }
+
     static class QBLevel<T extends IQuadBucketType> extends BBox {
         private final byte level;
         private final byte index;
@@ -295,6 +328,56 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
             findBucket(o.getBBox()).doAdd(o);
         }
 
+        /**
+         * Builds the subtree of this empty bucket in one pass, producing the same layout as splitting
+         * when adding the objects one by one would.
+         * @param entries the objects, {@code entries[from]} to {@code entries[to - 1]} belong to this bucket
+         * @param from the first object (inclusive)
+         * @param to the last object (exclusive)
+         * @param scratch a temporary array, as large as {@code entries}
+         */
+        void bulkLoad(BulkEntry<T>[] entries, int from, int to, BulkEntry<T>[] scratch) {
+            int count = to - from;
+            if (count <= MAX_OBJECTS_PER_NODE || level >= QuadTiling.NR_LEVELS) {
+                if (count > 0) {
+                    content = new ArrayList<>(count);
+                    for (int i = from; i < to; i++) {
+                        content.add(entries[i].object);
+                    }
+                }
+                return;
+            }
+            isLeaf = false;
+            // Counting sort by child index, objects spanning several children (index -1) first
+            int[] starts = new int[6];
+            for (int i = from; i < to; i++) {
+                BulkEntry<T> e = entries[i];
+                e.index = e.computeIndex(level);
+                starts[e.index + 2]++;
+            }
+            starts[0] = from;
+            for (int i = 1; i < starts.length; i++) {
+                starts[i] += starts[i - 1];
+            }
+            int[] positions = Arrays.copyOf(starts, 5);
+            for (int i = from; i < to; i++) {
+                BulkEntry<T> e = entries[i];
+                scratch[positions[e.index + 1]++] = e;
+            }
+            System.arraycopy(scratch, from, entries, from, count);
+            if (starts[1] > starts[0]) {
+                content = new ArrayList<>(starts[1] - starts[0]);
+                for (int i = starts[0]; i < starts[1]; i++) {
+                    content.add(entries[i].object);
+                }
+            }
+            for (byte idx = 0; idx < QuadTiling.TILES_PER_LEVEL; idx++) {
+                if (starts[idx + 2] > starts[idx + 1]) {
+                    getChild(idx).bulkLoad(entries, starts[idx + 1], starts[idx + 2], scratch);
+                }
+            }
+        }
+
         private void search(QuadBuckets<T> buckets, BBox searchBbox, List<T> result) {
             if (!this.intersects(searchBbox))
                 return;
@@ -413,9 +496,39 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
         return objects.stream().map(this::remove).reduce(false, (a, b) -> a || b);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the collection is at least as large as the current content, the whole tree is rebuilt in one pass,
+     * which is much faster than adding the objects one by one.
+     */
     @Override
     public boolean addAll(Collection<? extends T> objects) {
-        return objects.stream().map(this::add).reduce(false, (a, b) -> a || b);
+        if (objects.size() <= MAX_OBJECTS_PER_NODE || objects.size() < size) {
+            return objects.stream().map(this::add).reduce(false, (a, b) -> a || b);
+        }
+        List<T> all = new ArrayList<>(size + objects.size());
+        all.addAll(this);
+        all.addAll(objects);
+        bulkLoad(all);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bulkLoad(List<T> objects) {
+        clear();
+        BulkEntry<T>[] entries = new BulkEntry[objects.size()];
+        int count = 0;
+        for (T o : objects) {
+            BBox bbox = o.getBBox();
+            if (bbox.isValid()) {
+                entries[count++] = new BulkEntry<>(o, bbox);
+            } else {
+                invalidBBoxPrimitives.add(o);
+            }
+        }
+        root.bulkLoad(entries, 0, count, new BulkEntry[count]);
+        size = objects.size();
     }
 
     @Override
@@ -0,0 +1,205 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A spatial index answering searches from immutable snapshots, so that any number of threads can search it
+ * without locking.
+ * <p>
+ * The modifications of the indexed collection are recorded, and a new snapshot is published on demand by
+ * {@link #update()}. The modifications are published as a delta on top of the current {@link PackedRTree}, which is
+ * rebuilt in the background once the delta becomes too large. The snapshots keep using the previous tree and a
+ * growing delta until the new tree is built, unless the delta becomes too large to be published: the indexed
+ * collection must then be searched instead.
+ * @param <T> the type of the indexed objects
+ * @since xxx
+ */
+final class SnapshotSpatialIndex<T extends IQuadBucketType> {
+
+    /** Minimum number of recorded modifications before the base tree is rebuilt */
+    private static final int MIN_REBUILD_THRESHOLD = 1024;
+    /** Number of recorded modifications above which the base tree is always rebuilt */
+    private static final int MAX_REBUILD_THRESHOLD = 16_384;
+    /** Maximum number of recorded modifications published as a delta, while the base tree is rebuilt */
+    private static final int MAX_DELTA = 65_536;
+
+    private static final ThreadFactory REBUILD_THREADS = Utils.newThreadFactory("spatial-index-rebuild-%d", Thread.MIN_PRIORITY);
+    /** Builds the base trees in the background */
+    static final Executor REBUILD_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = REBUILD_THREADS.newThread(runnable);
+        // the trees are only used to speed up searches, they must not keep the application running
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * An immutable view of the index.
+     */
+    private static final class Snapshot<T extends IQuadBucketType> {
+        final PackedRTree<T> base;
+        final Set<T> removed;
+        final PackedRTree<T> added;
+        final long modCount;
+
+        Snapshot(PackedRTree<T> base, Set<T> removed, PackedRTree<T> added, long modCount) {
+            this.base = base;
+            this.removed = removed;
+            this.added = added;
+            this.modCount = modCount;
+        }
+
+        List<T> search(BBox bbox) {
+            List<T> result = new ArrayList<>();
+            if (bbox != null && bbox.isValid()) {
+                base.search(bbox, removed, result);
+                added.search(bbox, Collections.emptySet(), result);
+            }
+            return result;
+        }
+    }
+
+    private final Collection<T> contents;
+    private final Executor executor;
+    /** The last base tree, {@code null} until the first one is built */
+    private PackedRTree<T> base;
+    /** The modifications since {@link #base} was built */
+    private Set<T> added = newIdentitySet();
+    private Set<T> removed = newIdentitySet();
+    /** The modifications since the rebuild in progress started, {@code null} if there is none */
+    private Set<T> addedSinceRebuild;
+    private Set<T> removedSinceRebuild;
+    /** Incremented for each rebuild, so that the outdated ones are ignored */
+    private int rebuildCount;
+    private volatile long modCount;
+    private volatile Snapshot<T> snapshot;
+
+    /**
+     * Constructs a new {@code SnapshotSpatialIndex}.
+     * @param contents the indexed collection, whose modifications must be reported to this index
+     * @param executor the executor building the base trees
+     */
+    SnapshotSpatialIndex(Collection<T> contents, Executor executor) {
+        this.contents = contents;
+        this.executor = executor;
+    }
+
+    private static <T> Set<T> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Records that an object has been added to the indexed collection.
+     * @param o the added object
+     */
+    synchronized void add(T o) {
+        added.add(o);
+        if (addedSinceRebuild != null) {
+            addedSinceRebuild.add(o);
+        }
+        modCount++;
+    }
+
+    /**
+     * Records that an object has been removed from the indexed collection.
+     * @param o the removed object
+     */
+    synchronized void remove(T o) {
+        if (!added.remove(o)) {
+            removed.add(o);
+        }
+        if (addedSinceRebuild != null && !addedSinceRebuild.remove(o)) {
+            removedSinceRebuild.add(o);
+        }
+        modCount++;
+    }
+
+    /**
+     * Records that the indexed collection has been cleared.
+     */
+    synchronized void clear() {
+        base = PackedRTree.empty();
+        added.clear();
+        removed.clear();
+        addedSinceRebuild = null;
+        removedSinceRebuild = null;
+        rebuildCount++;
+        snapshot = new Snapshot<>(base, Collections.emptySet(), PackedRTree.empty(), ++modCount);
+    }
+
+    /**
+     * Searches the current snapshot, without any synchronization.
+     * @param bbox the bounding box to search
+     * @return the objects intersecting {@code bbox}, or {@code null} if the indexed collection has been modified
+     * since the last {@link #update()}
+     */
+    List<T> search(BBox bbox) {
+        Snapshot<T> s = snapshot;
+        return s != null && s.modCount == modCount ? s.search(bbox) : null;
+    }
+
+    /**
+     * Publishes a snapshot of the current state of the indexed collection, if possible, and starts to rebuild the
+     * base tree if needed. No snapshot is published before the first base tree is built, or while the modifications
+     * are too many to be published as a delta.
+     * It must not be modified concurrently.
+     */
+    synchronized void update() {
+        Snapshot<T> s = snapshot;
+        if (s != null && s.modCount == modCount) {
+            return;
+        }
+        if (addedSinceRebuild == null && (base == null || added.size() + removed.size()
+                > Math.max(MIN_REBUILD_THRESHOLD, Math.min(base.size() / 8, MAX_REBUILD_THRESHOLD)))) {
+            startRebuild();
+        }
+        // the rebuild may have completed already, depending on the executor
+        if (base != null && added.size() + removed.size() <= MAX_DELTA) {
+            Set<T> removedCopy = newIdentitySet();
+            removedCopy.addAll(removed);
+            snapshot = new Snapshot<>(base, removedCopy, PackedRTree.build(added), modCount);
+        }
+    }
+
+    private void startRebuild() {
+        // the bounding boxes are copied here, while the indexed collection is not modified
+        Supplier<PackedRTree<T>> builder = PackedRTree.prepare(contents);
+        addedSinceRebuild = newIdentitySet();
+        removedSinceRebuild = newIdentitySet();
+        int rebuild = ++rebuildCount;
+        executor.execute(() -> {
+            PackedRTree<T> tree = null;
+            try {
+                tree = builder.get();
+            } finally {
+                finishRebuild(rebuild, tree);
+            }
+        });
+    }
+
+    private synchronized void finishRebuild(int rebuild, PackedRTree<T> tree) {
+        if (rebuild != rebuildCount) {
+            return;
+        }
+        if (tree != null) {
+            // the current snapshot is still valid, the next one is published on top of the new tree
+            base = tree;
+            added = addedSinceRebuild;
+            removed = removedSinceRebuild;
+        }
+        addedSinceRebuild = null;
+        removedSinceRebuild = null;
+    }
+}
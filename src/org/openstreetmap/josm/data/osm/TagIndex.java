@@ -0,0 +1,114 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * An inverted index of the tags of the primitives of a {@link DataSet}: key &rarr; value &rarr; primitives.
+ * <p>
+ * It is kept up to date by the dataset when primitives are added or removed and when their tags change,
+ * see {@link DataSet#getTagIndex()}. The lookups return new sets, owned by the caller.
+ * @since xxx
+ */
+public final class TagIndex {
+
+    private final Map<String, Map<String, Set<OsmPrimitive>>> index = new HashMap<>();
+
+    /**
+     * Constructs a new {@code TagIndex}.
+     * @param primitives the primitives to index
+     */
+    TagIndex(Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive primitive : primitives) {
+            add(primitive);
+        }
+    }
+
+    private static Set<OsmPrimitive> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Indexes the tags of a primitive.
+     * @param primitive the primitive added to the dataset
+     */
+    synchronized void add(OsmPrimitive primitive) {
+        primitive.visitKeys((p, key, value) -> add(primitive, key, value));
+    }
+
+    /**
+     * Removes the tags of a primitive from the index.
+     * @param primitive the primitive removed from the dataset
+     */
+    synchronized void remove(OsmPrimitive primitive) {
+        primitive.visitKeys((p, key, value) -> remove(primitive, key, value));
+    }
+
+    /**
+     * Updates the index after the tags of a primitive have changed.
+     * @param primitive the primitive
+     * @param originalKeys the tags of the primitive before the change
+     */
+    synchronized void tagsChanged(OsmPrimitive primitive, Map<String, String> originalKeys) {
+        originalKeys.forEach((key, value) -> remove(primitive, key, value));
+        add(primitive);
+    }
+
+    private void add(OsmPrimitive primitive, String key, String value) {
+        index.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(value, v -> newIdentitySet()).add(primitive);
+    }
+
+    private void remove(OsmPrimitive primitive, String key, String value) {
+        Map<String, Set<OsmPrimitive>> values = index.get(key);
+        if (values != null) {
+            Set<OsmPrimitive> primitives = values.get(value);
+            if (primitives != null && primitives.remove(primitive) && primitives.isEmpty()) {
+                values.remove(value);
+                if (values.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the primitives having the given tag.
+     * @param key the key
+     * @param value the value
+     * @return the primitives having the tag {@code key=value}
+     */
+    public synchronized Set<OsmPrimitive> get(String key, String value) {
+        Set<OsmPrimitive> result = newIdentitySet();
+        Map<String, Set<OsmPrimitive>> values = index.get(key);
+        if (values != null) {
+            result.addAll(values.getOrDefault(value, Collections.emptySet()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the primitives having a tag accepted by the given filters.
+     * @param keyFilter the filter of the keys
+     * @param valueFilter the filter of the values
+     * @return the primitives having at least one tag whose key and value are accepted by the filters
+     */
+    public synchronized Set<OsmPrimitive> find(Predicate<String> keyFilter, Predicate<String> valueFilter) {
+        Set<OsmPrimitive> result = newIdentitySet();
+        index.forEach((key, values) -> {
+            if (keyFilter.test(key)) {
+                values.forEach((value, primitives) -> {
+                    if (valueFilter.test(value)) {
+                        result.addAll(primitives);
+                    }
+                });
+            }
+        });
+        return result;
+    }
+}
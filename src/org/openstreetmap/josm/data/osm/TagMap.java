@@ -236,6 +236,17 @@ public class TagMap extends AbstractMap<String, String> implements Serializable
         return tags.length / 2;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        // Tag arrays are often shared, see TagSetDictionary
+        return (o instanceof TagMap && ((TagMap) o).tags == tags) || super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
     /**
      * Gets a list of all tags contained in this map.
      * @return The list of tags in the order they were added.
@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A global dictionary of tag arrays, structured like {@link AbstractPrimitive#keys}.
+ * <p>
+ * Most primitives share their tags with many others (e.g. {@code building=yes}). Passing the tag arrays through
+ * {@link #intern(String[])} lets equal arrays be shared, which saves memory and allows equality checks
+ * to succeed on reference comparison.
+ * <p>
+ * The dictionary is a lossy, direct-mapped cache: it never grows, does not retain unused arrays for long and
+ * requires no locking. An array not found in the dictionary simply replaces the colliding entry.
+ * Interned arrays are shared and must therefore never be modified.
+ * @since xxx
+ */
+public final class TagSetDictionary {
+
+    /** Number of entries of the dictionary, a power of two */
+    private static final int SIZE = 1 << 15;
+    /** Maximum length of the arrays to intern, larger tag sets are seldom shared */
+    private static final int MAX_LENGTH = 16;
+
+    private static final AtomicReferenceArray<String[]> ENTRIES = new AtomicReferenceArray<>(SIZE);
+
+    private TagSetDictionary() {
+        // Hide default constructor for utilities classes
+    }
+
+    /**
+     * Returns a canonical representation of the given tag array.
+     * @param tags the key/value/key/value/... array, may be {@code null}. It must not be modified after this call.
+     * @return a shared array equal to {@code tags}, or {@code tags} itself
+     */
+    public static String[] intern(String[] tags) {
+        if (tags == null || tags.length == 0 || tags.length > MAX_LENGTH) {
+            return tags;
+        }
+        int hash = Arrays.hashCode(tags);
+        int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+        String[] existing = ENTRIES.get(index);
+        if (existing != null && Arrays.equals(existing, tags)) {
+            return existing;
+        }
+        ENTRIES.set(index, tags);
+        return tags;
+    }
+}
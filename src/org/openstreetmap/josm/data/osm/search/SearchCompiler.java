@@ -12,16 +12,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -34,6 +37,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer.Range;
@@ -84,6 +88,9 @@ public class SearchCompiler {
     private static final String rxErrorMsg = marktr("The regex \"{0}\" had a parse error at offset {1}, full error:\n\n{2}");
     private static final String rxErrorMsgNoPos = marktr("The regex \"{0}\" had a parse error, full error:\n\n{1}");
     private final PushbackTokenizer tokenizer;
+    /** Lower bound of the probabilities used to rank the operands, to avoid divisions by zero */
+    private static final double MIN_PROBABILITY = 1e-3;
+
     private static final Map<String, SimpleMatchFactory> simpleMatchFactoryMap = new HashMap<>();
     private static final Map<String, UnaryMatchFactory> unaryMatchFactoryMap = new HashMap<>();
     private static final Map<String, BinaryMatchFactory> binaryMatchFactoryMap = new HashMap<>();
@@ -291,6 +298,47 @@ public class SearchCompiler {
             return match(object);
         }
 
+        /**
+         * Looks up the primitives which may match this criterion in a tag index, instead of testing all primitives.
+         * The result can contain primitives which do not match, they must still be tested with {@link #match}.
+         * @param index the tag index of the searched dataset
+         * @return a new set containing at least all matching primitives of the dataset, or {@code null} if they
+         * cannot be determined from the tag index
+         * @since xxx
+         */
+        public Set<OsmPrimitive> findCandidates(TagIndex index) {
+            return null;
+        }
+
+        /**
+         * Returns the estimated cost of {@link #match} for one primitive, a tag lookup costing about 1.
+         * It is used with {@link #getSelectivity()} to choose the evaluation order of the operands of {@link And} and {@link Or}.
+         * @return the estimated cost
+         * @since xxx
+         */
+        public double getCost() {
+            return 10;
+        }
+
+        /**
+         * Returns the estimated fraction of the primitives matching this criterion.
+         * @return the estimated selectivity, between 0 and 1
+         * @since xxx
+         */
+        public double getSelectivity() {
+            return 0.5;
+        }
+
+        /**
+         * Returns how many levels of parents or children of a primitive this criterion looks at.
+         * The result for a primitive can only change when it or one of these relatives is modified.
+         * @return 0 if only the primitive itself is tested, 1 if its direct parents or children are also tested, etc.
+         * @since xxx
+         */
+        public int getRelativesDepth() {
+            return 0;
+        }
+
         /**
          * Check if this is a valid match object
          * @return {@code this}, for easy chaining
@@ -346,6 +394,11 @@ public class SearchCompiler {
             return match;
         }
 
+        @Override
+        public int getRelativesDepth() {
+            return match.getRelativesDepth();
+        }
+
         @Override
         public int hashCode() {
             return 31 + ((match == null) ? 0 : match.hashCode());
@@ -417,6 +470,35 @@ public class SearchCompiler {
             return '(' + m.toString() + ')';
         }
 
+        @Override
+        public int getRelativesDepth() {
+            return Math.max(lhs.getRelativesDepth(), rhs.getRelativesDepth());
+        }
+
+        /**
+         * Returns the operands of this operator and of the nested operators of the same class, sorted by rank.
+         * The structure of the expression is kept, so that the operands can be evaluated in this order without
+         * changing its string representation.
+         * @param rank the rank of an operand, operands of lower rank come first
+         * @return the sorted operands
+         * @since xxx
+         */
+        protected final Match[] plan(ToDoubleFunction<Match> rank) {
+            List<Match> operands = new ArrayList<>();
+            addOperands(this, operands);
+            operands.sort(Comparator.comparingDouble(rank));
+            return operands.toArray(new Match[0]);
+        }
+
+        private void addOperands(Match m, List<Match> operands) {
+            if (m.getClass() == getClass()) {
+                addOperands(((AbstractBinaryMatch) m).lhs, operands);
+                addOperands(((AbstractBinaryMatch) m).rhs, operands);
+            } else {
+                operands.add(m);
+            }
+        }
+
         @Override
         public int hashCode() {
             return Objects.hash(lhs, rhs);
@@ -453,6 +535,16 @@ public class SearchCompiler {
         public boolean match(Tagged osm) {
             return true;
         }
+
+        @Override
+        public double getCost() {
+            return 0;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 1;
+        }
     }
 
     /**
@@ -465,6 +557,16 @@ public class SearchCompiler {
         public boolean match(Tagged osm) {
             return false;
         }
+
+        @Override
+        public double getCost() {
+            return 0;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0;
+        }
     }
 
     /**
@@ -485,6 +587,16 @@ public class SearchCompiler {
             return !match.match(osm);
         }
 
+        @Override
+        public double getCost() {
+            return match.getCost();
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 1 - match.getSelectivity();
+        }
+
         @Override
         public String toString() {
             return '!' + match.toString();
@@ -516,6 +628,22 @@ public class SearchCompiler {
             return Optional.ofNullable(OsmUtils.getOsmBoolean(osm.get(key))).orElse(defaultValue);
         }
 
+        @Override
+        public double getCost() {
+            return 1;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return defaultValue ? 0.9 : 0.1;
+        }
+
+        @Override
+        public Set<OsmPrimitive> findCandidates(TagIndex index) {
+            // the primitives without the key match if the default value is true
+            return defaultValue ? null : index.find(key::equals, v -> Boolean.TRUE.equals(OsmUtils.getOsmBoolean(v)));
+        }
+
         @Override
         public String toString() {
             return key + '?';
@@ -548,6 +676,9 @@ public class SearchCompiler {
      * Matches if both left and right expressions match.
      */
     public static class And extends AbstractBinaryMatch {
+        /** The operands of this conjunction and of the nested ones, in evaluation order */
+        private final transient Match[] plan;
+
         /**
          * Constructs a new {@code And} match.
          * @param lhs left hand side
@@ -555,16 +686,69 @@ public class SearchCompiler {
          */
         public And(Match lhs, Match rhs) {
             super(lhs, rhs);
+            // cheap operands likely to fail first
+            plan = plan(m -> m.getCost() / Math.max(1 - m.getSelectivity(), MIN_PROBABILITY));
+        }
+
+        /**
+         * Returns the operands of this conjunction and of the nested ones, in evaluation order.
+         * @return the operands in evaluation order
+         * @since xxx
+         */
+        public List<Match> getEvaluationOrder() {
+            return Collections.unmodifiableList(Arrays.asList(plan));
         }
 
         @Override
         public boolean match(OsmPrimitive osm) {
-            return lhs.match(osm) && rhs.match(osm);
+            for (Match m : plan) {
+                if (!m.match(osm)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         @Override
         public boolean match(Tagged osm) {
-            return lhs.match(osm) && rhs.match(osm);
+            for (Match m : plan) {
+                if (!m.match(osm)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public double getCost() {
+            double cost = 0;
+            double probability = 1;
+            for (Match m : plan) {
+                cost += probability * m.getCost();
+                probability *= m.getSelectivity();
+            }
+            return cost;
+        }
+
+        @Override
+        public double getSelectivity() {
+            double selectivity = 1;
+            for (Match m : plan) {
+                selectivity *= m.getSelectivity();
+            }
+            return selectivity;
+        }
+
+        @Override
+        public Set<OsmPrimitive> findCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.findCandidates(index);
+            Set<OsmPrimitive> right = rhs.findCandidates(index);
+            if (left == null || right == null) {
+                return left == null ? right : left;
+            }
+            Set<OsmPrimitive> smaller = left.size() <= right.size() ? left : right;
+            smaller.retainAll(smaller == left ? right : left);
+            return smaller;
         }
 
         @Override
@@ -577,6 +761,9 @@ public class SearchCompiler {
      * Matches if the left OR the right expression match.
      */
     public static class Or extends AbstractBinaryMatch {
+        /** The operands of this disjunction and of the nested ones, in evaluation order */
+        private final transient Match[] plan;
+
         /**
          * Constructs a new {@code Or} match.
          * @param lhs left hand side
@@ -584,16 +771,69 @@ public class SearchCompiler {
          */
         public Or(Match lhs, Match rhs) {
             super(lhs, rhs);
+            // cheap operands likely to succeed first
+            plan = plan(m -> m.getCost() / Math.max(m.getSelectivity(), MIN_PROBABILITY));
+        }
+
+        /**
+         * Returns the operands of this disjunction and of the nested ones, in evaluation order.
+         * @return the operands in evaluation order
+         * @since xxx
+         */
+        public List<Match> getEvaluationOrder() {
+            return Collections.unmodifiableList(Arrays.asList(plan));
         }
 
         @Override
         public boolean match(OsmPrimitive osm) {
-            return lhs.match(osm) || rhs.match(osm);
+            for (Match m : plan) {
+                if (m.match(osm)) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         @Override
         public boolean match(Tagged osm) {
-            return lhs.match(osm) || rhs.match(osm);
+            for (Match m : plan) {
+                if (m.match(osm)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public double getCost() {
+            double cost = 0;
+            double probability = 1;
+            for (Match m : plan) {
+                cost += probability * m.getCost();
+                probability *= 1 - m.getSelectivity();
+            }
+            return cost;
+        }
+
+        @Override
+        public double getSelectivity() {
+            double probability = 1;
+            for (Match m : plan) {
+                probability *= 1 - m.getSelectivity();
+            }
+            return 1 - probability;
+        }
+
+        @Override
+        public Set<OsmPrimitive> findCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.findCandidates(index);
+            Set<OsmPrimitive> right = left == null ? null : rhs.findCandidates(index);
+            if (right == null) {
+                return null;
+            }
+            Set<OsmPrimitive> larger = left.size() >= right.size() ? left : right;
+            larger.addAll(larger == left ? right : left);
+            return larger;
         }
 
         @Override
@@ -625,6 +865,18 @@ public class SearchCompiler {
             return lhs.match(osm) ^ rhs.match(osm);
         }
 
+        @Override
+        public double getCost() {
+            return lhs.getCost() + rhs.getCost();
+        }
+
+        @Override
+        public double getSelectivity() {
+            double l = lhs.getSelectivity();
+            double r = rhs.getSelectivity();
+            return l + r - 2 * l * r;
+        }
+
         @Override
         public String toString() {
             return map(m -> m instanceof AbstractBinaryMatch && !(m instanceof Xor) ? parenthesis(m) : m, (s1, s2) -> s1 + " ^ " + s2);
@@ -747,6 +999,27 @@ public class SearchCompiler {
             return false;
         }
 
+        @Override
+        public double getCost() {
+            return keyPattern != null ? 10 : 4;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.05;
+        }
+
+        @Override
+        public Set<OsmPrimitive> findCandidates(TagIndex index) {
+            if (keyPattern != null) {
+                return index.find(k -> keyPattern.matcher(k).find(), v -> valuePattern.matcher(v).find());
+            } else if ("timestamp".equals(key)) {
+                return null;
+            }
+            // the values are compared after normalization by match
+            return index.find(caseSensitive ? key::equals : key::equalsIgnoreCase, v -> true);
+        }
+
         private String getMv(Tagged osm) {
             String mv;
             if ("timestamp".equals(key) && osm instanceof OsmPrimitive) {
@@ -835,6 +1108,16 @@ public class SearchCompiler {
             return compareMode < 0 ? compareResult < 0 : compareMode > 0 ? compareResult > 0 : compareResult == 0;
         }
 
+        @Override
+        public double getCost() {
+            return 3;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.3;
+        }
+
         @Override
         public String toString() {
             return key + (compareMode == -1 ? "<" : compareMode == +1 ? ">" : "") + referenceValue;
@@ -991,6 +1274,62 @@ public class SearchCompiler {
             throw new AssertionError("Missed state");
         }
 
+        @Override
+        public double getCost() {
+            switch (mode) {
+            case ANY_KEY_REGEXP:
+            case ANY_VALUE_REGEXP:
+            case EXACT_REGEXP:
+            case MISSING_KEY_REGEXP:
+                return 10;
+            case ANY_KEY:
+                return 3;
+            default:
+                return 1;
+            }
+        }
+
+        @Override
+        public double getSelectivity() {
+            switch (mode) {
+            case EXACT:
+            case ANY_KEY:
+                return 0.02;
+            case EXACT_REGEXP:
+            case ANY_KEY_REGEXP:
+                return 0.05;
+            case ANY_VALUE:
+            case ANY_VALUE_REGEXP:
+                return 0.1;
+            case MISSING_KEY:
+            case MISSING_KEY_REGEXP:
+                return 0.9;
+            default:
+                return 0.5;
+            }
+        }
+
+        @Override
+        public Set<OsmPrimitive> findCandidates(TagIndex index) {
+            switch (mode) {
+            case EXACT:
+                return index.get(key, value);
+            case ANY_VALUE:
+                return index.find(key::equals, v -> true);
+            case ANY_KEY:
+                return index.find(k -> true, value::equals);
+            case ANY_KEY_REGEXP:
+                return index.find(k -> true, v -> valuePattern.matcher(v).matches());
+            case ANY_VALUE_REGEXP:
+                return index.find(k -> keyPattern.matcher(k).matches(), v -> true);
+            case EXACT_REGEXP:
+                return index.find(k -> keyPattern.matcher(k).matches(), v -> valuePattern.matcher(v).matches());
+            default:
+                // the other modes match all tagged primitives, or also primitives without tags
+                return null;
+            }
+        }
+
         public String getKey() {
             return key;
         }
@@ -1104,6 +1443,16 @@ public class SearchCompiler {
             return false;
         }
 
+        @Override
+        public double getCost() {
+            return 20;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.05;
+        }
+
         @Override
         public String toString() {
             return search;
@@ -1155,6 +1504,16 @@ public class SearchCompiler {
             return type == osm.getType();
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return type == OsmPrimitiveType.NODE ? 0.9 : type == OsmPrimitiveType.WAY ? 0.1 : 0.01;
+        }
+
         @Override
         public String toString() {
             return "type=" + type;
@@ -1202,6 +1561,16 @@ public class SearchCompiler {
                 return osm.getUser().hasName(user);
         }
 
+        @Override
+        public double getCost() {
+            return 1;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.1;
+        }
+
         @Override
         public String toString() {
             return "user=" + (user == null ? "" : user);
@@ -1251,6 +1620,21 @@ public class SearchCompiler {
                     .anyMatch(testRole -> role.equals(testRole == null ? "" : testRole));
         }
 
+        @Override
+        public double getCost() {
+            return 5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.1;
+        }
+
+        @Override
+        public int getRelativesDepth() {
+            return 1;
+        }
+
         @Override
         public String toString() {
             return "role=" + role;
@@ -1321,6 +1705,21 @@ public class SearchCompiler {
             return false;
         }
 
+        @Override
+        public double getCost() {
+            return 10;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.1;
+        }
+
+        @Override
+        public int getRelativesDepth() {
+            return 1;
+        }
+
         @Override
         public String toString() {
             return "Nth{nth=" + nth + ", modulo=" + modulo + '}';
@@ -1373,6 +1772,16 @@ public class SearchCompiler {
                 return (num >= min) && (num <= max);
         }
 
+        @Override
+        public double getCost() {
+            return 1;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.3;
+        }
+
         @Override
         public String toString() {
             return getString() + '=' + min + '-' + max;
@@ -1560,6 +1969,21 @@ public class SearchCompiler {
             return osm instanceof Relation && ((Relation) osm).getMemberRoles().contains(role);
         }
 
+        @Override
+        public double getCost() {
+            return 5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.05;
+        }
+
+        @Override
+        public int getRelativesDepth() {
+            return 1;
+        }
+
         @Override
         public int hashCode() {
             return 31 + ((role == null) ? 0 : role.hashCode());
@@ -1590,6 +2014,16 @@ public class SearchCompiler {
             return osm.isNew();
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.05;
+        }
+
         @Override
         public String toString() {
             return "new";
@@ -1605,6 +2039,16 @@ public class SearchCompiler {
             return osm.isModified() || osm.isNewOrUndeleted();
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.1;
+        }
+
         @Override
         public String toString() {
             return "modified";
@@ -1620,6 +2064,16 @@ public class SearchCompiler {
             return osm.isDeleted();
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.01;
+        }
+
         @Override
         public String toString() {
             return "deleted";
@@ -1635,6 +2089,16 @@ public class SearchCompiler {
             return osm.getDataSet().isSelected(osm);
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.01;
+        }
+
         @Override
         public String toString() {
             return "selected";
@@ -1652,6 +2116,16 @@ public class SearchCompiler {
             return osm.isIncomplete() || (osm instanceof Relation && ((Relation) osm).hasIncompleteMembers());
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.01;
+        }
+
         @Override
         public String toString() {
             return "incomplete";
@@ -1669,6 +2143,16 @@ public class SearchCompiler {
             return !osm.isTagged() && !osm.isIncomplete();
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.5;
+        }
+
         @Override
         public String toString() {
             return "untagged";
@@ -1684,6 +2168,16 @@ public class SearchCompiler {
             return osm instanceof Way && ((Way) osm).isClosed();
         }
 
+        @Override
+        public double getCost() {
+            return 0.5;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.05;
+        }
+
         @Override
         public String toString() {
             return "closed";
@@ -1709,6 +2203,17 @@ public class SearchCompiler {
             }
         }
 
+        @Override
+        public double getCost() {
+            // a way has about ten nodes
+            return 5 + 10 * match.getCost();
+        }
+
+        @Override
+        public int getRelativesDepth() {
+            return 1 + match.getRelativesDepth();
+        }
+
         @Override
         public String toString() {
             return "parent(" + match + ')';
@@ -1729,6 +2234,17 @@ public class SearchCompiler {
             return osm.getReferrers().stream().anyMatch(match::match);
         }
 
+        @Override
+        public double getCost() {
+            // a primitive has few referrers
+            return 5 + 2 * match.getCost();
+        }
+
+        @Override
+        public int getRelativesDepth() {
+            return 1 + match.getRelativesDepth();
+        }
+
         @Override
         public String toString() {
             return "child(" + match + ')';
@@ -1760,6 +2276,11 @@ public class SearchCompiler {
         protected String getString() {
             return "areasize";
         }
+
+        @Override
+        public double getCost() {
+            return 30;
+        }
     }
 
     /**
@@ -1787,6 +2308,11 @@ public class SearchCompiler {
         protected String getString() {
             return "waylength";
         }
+
+        @Override
+        public double getCost() {
+            return 20;
+        }
     }
 
     /**
@@ -1822,6 +2348,11 @@ public class SearchCompiler {
                 return false;
         }
 
+        @Override
+        public double getCost() {
+            return 5;
+        }
+
         @Override
         public int hashCode() {
             return 31 + (all ? 1231 : 1237);
@@ -1926,6 +2457,16 @@ public class SearchCompiler {
             return this.presets.stream().anyMatch(preset -> preset.test(osm));
         }
 
+        @Override
+        public double getCost() {
+            return 20;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.05;
+        }
+
         private static boolean presetNameMatch(String name, TaggingPreset preset, boolean matchStrictly) {
             if (matchStrictly) {
                 return name.equalsIgnoreCase(preset.getRawName());
@@ -1997,6 +2538,48 @@ public class SearchCompiler {
                 .parse();
     }
 
+    /**
+     * Describes how a compiled search expression is evaluated: the operands of {@link And} and {@link Or}
+     * in evaluation order, with the estimated cost and selectivity of each criterion.
+     * @param match the compiled search expression
+     * @return the description, one criterion per line
+     * @since xxx
+     */
+    public static String explain(Match match) {
+        StringBuilder sb = new StringBuilder();
+        explain(match, 0, sb);
+        return sb.toString();
+    }
+
+    private static void explain(Match match, int depth, StringBuilder sb) {
+        List<Match> operands;
+        String name;
+        if (match instanceof And) {
+            operands = ((And) match).getEvaluationOrder();
+            name = "AND";
+        } else if (match instanceof Or) {
+            operands = ((Or) match).getEvaluationOrder();
+            name = "OR";
+        } else if (match instanceof Xor) {
+            operands = Arrays.asList(((Xor) match).getLhs(), ((Xor) match).getRhs());
+            name = "XOR";
+        } else if (match instanceof UnaryMatch) {
+            operands = Collections.singletonList(((UnaryMatch) match).getOperand());
+            name = match.getClass().getSimpleName().toLowerCase(Locale.ENGLISH);
+        } else {
+            operands = Collections.emptyList();
+            name = String.valueOf(match);
+        }
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ");
+        }
+        sb.append(name).append(String.format(Locale.ROOT, " (cost=%.2f, selectivity=%.3f)",
+                match.getCost(), match.getSelectivity())).append('\n');
+        for (Match operand : operands) {
+            explain(operand, depth + 1, sb);
+        }
+    }
+
     static Match compileMapCSS(String mapCSS) throws SearchParseError {
         try {
             final List<Selector> selectors = new MapCSSParser(new StringReader(mapCSS)).selectors_for_search();
@@ -2019,6 +2602,16 @@ public class SearchCompiler {
                     .anyMatch(selector -> selector.matches(new Environment(osm)));
         }
 
+        @Override
+        public double getCost() {
+            return 50;
+        }
+
+        @Override
+        public double getSelectivity() {
+            return 0.1;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -0,0 +1,445 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * A cache of rendered map data, split into tiles of {@value #TILE_SIZE} pixels that are anchored to a fixed projected
+ * point, so that they can be reused when the map is panned.
+ * <p>
+ * Modifications of the data invalidate the tiles intersecting the bounding boxes of the changed primitives
+ * (extended by a margin for strokes, icons and labels). Only these tiles, and the tiles that become visible,
+ * are rendered again. Changes that cannot be located (filters, styles, preferences, zoom, ...) invalidate all tiles.
+ * <p>
+ * As the tiles are rendered at different times, labels whose placement depends on the viewport may not match
+ * exactly at tile borders. The mode is therefore disabled by default, see {@link #PROP_INCREMENTAL}.
+ * @since xxx
+ */
+public class RenderTileCache {
+
+    /** Preference: render the map data incrementally into cached tiles */
+    public static final BooleanProperty PROP_INCREMENTAL = new BooleanProperty("mappaint.incremental", false);
+    /** Preference: margin, in pixels, around the changed primitives that is rendered again */
+    public static final IntegerProperty PROP_DIRTY_MARGIN = new IntegerProperty("mappaint.incremental.margin", 128);
+
+    /** Size of the tiles in (unscaled) pixels */
+    public static final int TILE_SIZE = 256;
+    /** Number of changed regions above which all tiles are invalidated */
+    private static final int MAX_DIRTY_REGIONS = 1000;
+    /** Distance in device pixels between the view and the anchor of the tiles above which the tiles are anchored again */
+    private static final double MAX_ANCHOR_DISTANCE = 1 << 24;
+
+    /** Incremented on each preference change, as most paint settings are preferences */
+    private static final AtomicInteger PREFERENCES_GENERATION = new AtomicInteger();
+
+    static {
+        if (Config.getPref() != null) {
+            Config.getPref().addPreferenceChangeListener(e -> PREFERENCES_GENERATION.incrementAndGet());
+        }
+    }
+
+    private static final class Tile {
+        final BufferedImage image;
+        /** The part of the tile that has been rendered completely, in tile pixels */
+        final Rectangle valid;
+
+        Tile(BufferedImage image, Rectangle valid) {
+            this.image = image;
+            this.valid = valid;
+        }
+    }
+
+    /** The tiles, by {@link #key(int, int)}. Only accessed by the painting thread. */
+    private final Map<Long, Tile> tiles = new HashMap<>();
+    /** The settings the tiles have been rendered with. Only accessed by the painting thread. */
+    private List<Object> tilesKey;
+    /**
+     * The projected point the tiles are anchored to, near the view so that the device coordinates relative to it fit
+     * in an {@code int} at any zoom level. Only accessed by the painting thread.
+     */
+    private EastNorth anchor;
+
+    /** Bounding boxes of the changes since the last paint */
+    private List<BBox> dirty = new ArrayList<>();
+    private boolean allDirty = true;
+
+    /**
+     * Invalidates all tiles.
+     */
+    public synchronized void invalidate() {
+        allDirty = true;
+        dirty = new ArrayList<>();
+    }
+
+    /**
+     * Invalidates the tiles displaying the given primitives, before or after a change.
+     * @param primitives the primitives
+     */
+    public void invalidate(Collection<? extends OsmPrimitive> primitives) {
+        if (!PROP_INCREMENTAL.get() || primitives.size() > MAX_DIRTY_REGIONS) {
+            invalidate();
+            return;
+        }
+        List<BBox> regions = new ArrayList<>();
+        addRegions(primitives, regions);
+        addDirty(regions);
+    }
+
+    /**
+     * Invalidates the tiles affected by a change of the data.
+     * @param event the change event
+     */
+    public void invalidate(AbstractDatasetChangedEvent event) {
+        List<BBox> regions = new ArrayList<>();
+        if (PROP_INCREMENTAL.get() && addRegions(event, regions)) {
+            addDirty(regions);
+        } else {
+            invalidate();
+        }
+    }
+
+    private synchronized void addDirty(List<BBox> regions) {
+        if (!allDirty) {
+            dirty.addAll(regions);
+            if (dirty.size() > MAX_DIRTY_REGIONS) {
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * Adds the regions affected by a change.
+     * @param event the change event
+     * @param regions the list to add the regions to
+     * @return {@code false} if the affected regions are unknown or too many
+     */
+    private static boolean addRegions(AbstractDatasetChangedEvent event, List<BBox> regions) {
+        switch (event.getType()) {
+        case DATA_CHANGED:
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                return false;
+            }
+            for (AbstractDatasetChangedEvent e : events) {
+                if (!addRegions(e, regions)) {
+                    return false;
+                }
+            }
+            return true;
+        case NODE_MOVED:
+            NodeMovedEvent moved = (NodeMovedEvent) event;
+            if (moved.getOldCoor() == null) {
+                break;
+            }
+            addMovedNodeRegions(moved.getNode(), moved.getOldCoor(), regions);
+            return regions.size() <= MAX_DIRTY_REGIONS;
+        case WAY_NODES_CHANGED:
+            BBox oldBBox = ((WayNodesChangedEvent) event).getOldBBox();
+            if (oldBBox == null) {
+                return false;
+            }
+            regions.add(oldBBox);
+            break;
+        case TAGS_CHANGED:
+        case PRIMITIVES_ADDED:
+        case PRIMITIVES_REMOVED:
+        case PRIMITIVE_FLAGS_CHANGED:
+        case CHANGESET_ID_CHANGED:
+            break;
+        default:
+            return false;
+        }
+        Collection<? extends OsmPrimitive> primitives = event.getPrimitives();
+        if (regions.size() + primitives.size() > MAX_DIRTY_REGIONS) {
+            return false;
+        }
+        addRegions(primitives, regions);
+        return regions.size() <= MAX_DIRTY_REGIONS;
+    }
+
+    /**
+     * Adds the regions where the given primitives are displayed. This includes their parent ways, the relations
+     * of nodes (e.g. turn restrictions) and the multipolygons, whose rendering depends on their members.
+     * @param primitives the primitives
+     * @param regions the list to add the regions to
+     */
+    private static void addRegions(Collection<? extends OsmPrimitive> primitives, List<BBox> regions) {
+        for (OsmPrimitive p : primitives) {
+            addRegion(p, regions);
+            for (OsmPrimitive referrer : p.getReferrers()) {
+                if (referrer instanceof Way) {
+                    addRegion(referrer, regions);
+                    addMultipolygonRegions(referrer, regions);
+                } else if (p instanceof Node || isMultipolygon(referrer)) {
+                    addRegion(referrer, regions);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the regions where a moved node and its parents were and are displayed. The segments between the old
+     * position of the node and its neighbours may lie outside of both the old position and the new extent of the
+     * parents, so the old position is added to the extent of each parent.
+     * @param node the moved node
+     * @param oldCoor the old position of the node
+     * @param regions the list to add the regions to
+     */
+    private static void addMovedNodeRegions(Node node, LatLon oldCoor, List<BBox> regions) {
+        addRegion(node, oldCoor, regions);
+        for (OsmPrimitive referrer : node.getReferrers()) {
+            addRegion(referrer, oldCoor, regions);
+            if (referrer instanceof Way) {
+                for (OsmPrimitive parent : referrer.getReferrers()) {
+                    if (isMultipolygon(parent)) {
+                        addRegion(parent, oldCoor, regions);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addRegion(OsmPrimitive p, LatLon oldCoor, List<BBox> regions) {
+        BBox bbox = new BBox(p.getBBox());
+        bbox.add(oldCoor);
+        regions.add(bbox);
+    }
+
+    private static void addMultipolygonRegions(OsmPrimitive p, List<BBox> regions) {
+        for (OsmPrimitive referrer : p.getReferrers()) {
+            if (isMultipolygon(referrer)) {
+                addRegion(referrer, regions);
+            }
+        }
+    }
+
+    private static boolean isMultipolygon(OsmPrimitive p) {
+        return p instanceof Relation && ((Relation) p).isMultipolygon();
+    }
+
+    private static void addRegion(OsmPrimitive p, List<BBox> regions) {
+        BBox bbox = p.getBBox();
+        if (bbox.isValid()) {
+            regions.add(bbox);
+        }
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static Rectangle tileRect(long key, int size) {
+        return new Rectangle((int) (key >> 32) * size, (int) key * size, size, size);
+    }
+
+    /**
+     * Paints the map data from the cached tiles, rendering the missing and invalidated tiles first.
+     * @param g the graphics to paint to, in map view coordinates
+     * @param nc the map view
+     * @param renderKey the settings affecting the rendering besides the map view state and the preferences,
+     * the tiles rendered with other settings are discarded
+     * @param renderer renders the data within the given bounds to the given graphics
+     * @return {@code false} if the incremental mode is disabled or cannot be used with this graphics,
+     * in which case nothing has been painted
+     */
+    public boolean paint(Graphics2D g, NavigatableComponent nc, Object renderKey, BiConsumer<Graphics2D, Bounds> renderer) {
+        AffineTransform transform = g.getTransform();
+        if (!PROP_INCREMENTAL.get() || transform == null
+                || (transform.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) != 0) {
+            tiles.clear();
+            tilesKey = null;
+            return false;
+        }
+        MapViewState state = nc.getState();
+        double uiScale = transform.getScaleX();
+        int size = (int) Math.round(TILE_SIZE * uiScale);
+        double margin = PROP_DIRTY_MARGIN.get() * uiScale;
+        List<BBox> changes;
+        boolean all;
+        synchronized (this) {
+            changes = dirty;
+            all = allDirty;
+            dirty = new ArrayList<>();
+            allDirty = false;
+        }
+        List<Object> key = Arrays.asList(renderKey, state.getScale(), uiScale, state.getProjection(),
+                PREFERENCES_GENERATION.get());
+        // All rectangles are in device pixels, relative to the position of the anchor
+        Point2D origin = anchor == null ? null : transform.transform(state.getPointFor(anchor).getInView(), null);
+        if (all || !key.equals(tilesKey) || origin == null
+                || Math.abs(origin.getX()) > MAX_ANCHOR_DISTANCE || Math.abs(origin.getY()) > MAX_ANCHOR_DISTANCE) {
+            tiles.clear();
+            tilesKey = key;
+            anchor = state.getCenter().getEastNorth();
+            origin = transform.transform(state.getPointFor(anchor).getInView(), null);
+        }
+        int originX = (int) Math.round(origin.getX());
+        int originY = (int) Math.round(origin.getY());
+        if (!changes.isEmpty() && !tiles.isEmpty()) {
+            List<Rectangle2D> regions = new ArrayList<>(changes.size());
+            for (BBox bbox : changes) {
+                Rectangle2D r = toDevice(bbox, state, transform, originX, originY);
+                r.setRect(r.getX() - margin, r.getY() - margin, r.getWidth() + 2 * margin, r.getHeight() + 2 * margin);
+                regions.add(r);
+            }
+            tiles.keySet().removeIf(k -> {
+                Rectangle tile = tileRect(k, size);
+                return regions.stream().anyMatch(tile::intersects);
+            });
+        }
+
+        Rectangle view = transform.createTransformedShape(new Rectangle(0, 0, nc.getWidth(), nc.getHeight())).getBounds();
+        view.translate(-originX, -originY);
+        Rectangle clip = g.getClipBounds() == null ? view
+                : transform.createTransformedShape(g.getClipBounds()).getBounds();
+        if (g.getClipBounds() != null) {
+            clip.translate(-originX, -originY);
+        }
+        clip = clip.intersection(view);
+        if (clip.isEmpty()) {
+            return true;
+        }
+
+        int minX = Math.floorDiv(clip.x, size);
+        int minY = Math.floorDiv(clip.y, size);
+        int maxX = Math.floorDiv(clip.x + clip.width - 1, size);
+        int maxY = Math.floorDiv(clip.y + clip.height - 1, size);
+        List<Long> missing = new ArrayList<>();
+        Rectangle missingBounds = null;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                long k = key(x, y);
+                Tile tile = tiles.get(k);
+                Rectangle rect = tileRect(k, size);
+                Rectangle needed = rect.intersection(clip);
+                needed.translate(-rect.x, -rect.y);
+                if (tile == null || !tile.valid.contains(needed)) {
+                    missing.add(k);
+                    missingBounds = missingBounds == null ? rect : missingBounds.union(rect);
+                }
+            }
+        }
+
+        if (missingBounds != null) {
+            if (2L * missing.size() * size * size >= (long) missingBounds.width * missingBounds.height) {
+                // The missing tiles are dense enough to be rendered in a single pass
+                render(missingBounds, missing, size, view, g, transform, originX, originY, state, margin, renderer);
+            } else {
+                for (long k : missing) {
+                    render(tileRect(k, size), Arrays.asList(k), size, view, g, transform, originX, originY, state, margin,
+                            renderer);
+                }
+            }
+        }
+
+        Graphics2D device = (Graphics2D) g.create();
+        try {
+            device.setTransform(new AffineTransform());
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    Tile tile = tiles.get(key(x, y));
+                    if (tile != null) {
+                        device.drawImage(tile.image, originX + x * size, originY + y * size, null);
+                    }
+                }
+            }
+        } finally {
+            device.dispose();
+        }
+
+        // Keep a ring of tiles around the view for small pans
+        Rectangle keep = new Rectangle(view);
+        keep.grow(size, size);
+        tiles.keySet().removeIf(k -> !tileRect(k, size).intersects(keep));
+        return true;
+    }
+
+    private static Rectangle2D toDevice(BBox bbox, MapViewState state, AffineTransform transform, int originX, int originY) {
+        Rectangle2D r = null;
+        for (LatLon ll : new LatLon[] {
+                new LatLon(bbox.getTopLeftLat(), bbox.getTopLeftLon()),
+                new LatLon(bbox.getTopLeftLat(), bbox.getBottomRightLon()),
+                new LatLon(bbox.getBottomRightLat(), bbox.getTopLeftLon()),
+                new LatLon(bbox.getBottomRightLat(), bbox.getBottomRightLon())}) {
+            MapViewPoint p = state.getPointFor(ll);
+            Point2D d = transform.transform(p.getInView(), null);
+            if (r == null) {
+                r = new Rectangle2D.Double(d.getX() - originX, d.getY() - originY, 0, 0);
+            } else {
+                r.add(d.getX() - originX, d.getY() - originY);
+            }
+        }
+        return r;
+    }
+
+    private void render(Rectangle region, List<Long> keys, int size, Rectangle view, Graphics2D g,
+            AffineTransform transform, int originX, int originY, MapViewState state, double margin,
+            BiConsumer<Graphics2D, Bounds> renderer) {
+        BufferedImage image = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D rg = image.createGraphics();
+        try {
+            rg.setRenderingHints(g.getRenderingHints());
+            rg.setClip(0, 0, region.width, region.height);
+            AffineTransform rt = AffineTransform.getTranslateInstance(-originX - region.x, -originY - region.y);
+            rt.concatenate(transform);
+            rg.setTransform(rt);
+            Rectangle2D inView = transform.createInverse().createTransformedShape(
+                    new Rectangle2D.Double(region.x + originX - margin, region.y + originY - margin,
+                            region.width + 2 * margin, region.height + 2 * margin)).getBounds2D();
+            renderer.accept(rg, state.getViewArea(inView).getLatLonBoundsBox());
+        } catch (NoninvertibleTransformException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            rg.dispose();
+        }
+
+        for (long k : keys) {
+            Rectangle rect = tileRect(k, size);
+            Rectangle valid = rect.intersection(view);
+            valid.translate(-rect.x, -rect.y);
+            BufferedImage tileImage = image;
+            if (keys.size() > 1) {
+                tileImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D tg = tileImage.createGraphics();
+                tg.setComposite(AlphaComposite.Src);
+                tg.drawImage(image, region.x - rect.x, region.y - rect.y, null);
+                tg.dispose();
+            }
+            tiles.put(k, new Tile(tileImage, valid));
+        }
+    }
+}
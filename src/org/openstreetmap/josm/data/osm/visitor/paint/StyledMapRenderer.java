@@ -28,13 +28,16 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.function.BiConsumer;
@@ -87,6 +90,7 @@ import org.openstreetmap.josm.tools.Geometry.AreaAndPerimeter;
 import org.openstreetmap.josm.tools.HiDPISupport;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Metrics;
 import org.openstreetmap.josm.tools.RotationAngle;
 import org.openstreetmap.josm.tools.ShapeClipper;
 import org.openstreetmap.josm.tools.Utils;
@@ -240,7 +244,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new HashMap<>();
+    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new ConcurrentHashMap<>();
 
     /**
      * Check, if this System has the GlyphVector double translation bug.
@@ -350,6 +354,21 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private static final AbstractProperty<Integer> WIDER_HIGHLIGHT = new IntegerProperty("mappaint.highlight.bigger-increment", 5).cached();
     private static final AbstractProperty<Integer> HIGHLIGHT_STEP = new IntegerProperty("mappaint.highlight.step", 4).cached();
 
+    /** Measures the rendering of the data layers */
+    private static final Metrics.Timer RENDER_FRAME = Metrics.timer("render.frame");
+
+    /**
+     * Indicates that the renderer should draw large views in tiles, in parallel
+     * @since xxx
+     */
+    public static final BooleanProperty PREFERENCE_PARALLEL_DRAWING = new BooleanProperty("mappaint.parallel-drawing", false);
+    /** Minimum number of style records to draw in parallel */
+    private static final int PARALLEL_DRAWING_MIN_RECORDS = 1000;
+    /** Minimum size of the tiles drawn in parallel, in pixels */
+    private static final int PARALLEL_DRAWING_MIN_TILE_SIZE = 256;
+    /** Distance beyond the extent of a style element, in pixels, up to which highlights and direction arrows may be drawn */
+    private static final int PARALLEL_DRAWING_MARGIN = 32;
+
     private Collection<WaySegment> highlightWaySegments;
 
     //flag that activate wider highlight mode
@@ -382,6 +401,21 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         this.styles = MapPaintStyles.getStyles();
     }
 
+    /**
+     * Constructs a new {@code StyledMapRenderer} drawing a tile of the view of another renderer.
+     * @param g the graphics context of the tile
+     * @param parent the renderer of the whole view
+     * @param renderVirtualNodes if virtual nodes are rendered
+     */
+    private StyledMapRenderer(Graphics2D g, StyledMapRenderer parent, boolean renderVirtualNodes) {
+        super(g, parent.nc, parent.isInactiveMode);
+        useWiderHighlight = parent.useWiderHighlight;
+        styles = parent.styles;
+        doSlowOperations = parent.doSlowOperations;
+        getSettings(renderVirtualNodes);
+        highlightWaySegments = parent.highlightWaySegments;
+    }
+
     /**
      * Set the {@link ElemStyles} instance to use for this renderer.
      * @param styles the {@code ElemStyles} instance to use
@@ -1641,10 +1675,12 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         try {
             Lock readLock = data.getReadLock();
             if (readLock.tryLock(1, TimeUnit.SECONDS)) {
+                long start = System.nanoTime();
                 try {
                     paintWithLock(data, renderVirtualNodes, benchmark, bbox);
                 } finally {
                     readLock.unlock();
+                    RENDER_FRAME.stop(start);
                 }
             } else {
                 Logging.warn("Cannot paint layer {0}: It is locked.");
@@ -1692,8 +1728,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 return;
             }
 
-            for (StyleRecord record : sorted) {
-                paintRecord(record);
+            if (!paintRecordsInParallel(sorted, renderVirtualNodes)) {
+                for (StyleRecord record : sorted) {
+                    paintRecord(record);
+                }
             }
 
             drawVirtualNodes(data, bbox);
@@ -1709,6 +1747,111 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    /**
+     * Draws the style records in tiles of the view, each on its own thread and image, if enabled.
+     * <p>
+     * Each tile draws, in z-order, the records which may be drawn within it, according to the bounding box of the primitive
+     * and the extent of the style element. The tiles are then copied to the graphics.
+     * @param sorted the records, sorted by z-order
+     * @param renderVirtualNodes if virtual nodes are rendered
+     * @return {@code false} if the records have not been drawn, as parallel drawing is disabled or not worthwhile
+     */
+    private boolean paintRecordsInParallel(StyleRecord[] sorted, boolean renderVirtualNodes) {
+        AffineTransform transform = g.getTransform();
+        if (THREAD_POOL == null || sorted.length < PARALLEL_DRAWING_MIN_RECORDS
+                || !PREFERENCE_PARALLEL_DRAWING.get() || transform == null
+                || (transform.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) != 0) {
+            return false;
+        }
+        // Work in device pixels, so that the tiles are copied without scaling
+        Rectangle view = new Rectangle(0, 0, (int) Math.ceil(mapState.getViewWidth()), (int) Math.ceil(mapState.getViewHeight()));
+        Rectangle clip = g.getClipBounds();
+        Rectangle region = transform.createTransformedShape(clip == null ? view : view.intersection(clip)).getBounds();
+        int tileSize = Math.max(PARALLEL_DRAWING_MIN_TILE_SIZE,
+                (int) Math.ceil(Math.sqrt((double) region.width * region.height / (2 * THREAD_POOL.getParallelism()))));
+        int columns = (region.width + tileSize - 1) / tileSize;
+        int rows = (region.height + tileSize - 1) / tileSize;
+        if (columns * rows < 2) {
+            return false;
+        }
+
+        List<List<StyleRecord>> tileRecords = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            tileRecords.add(new ArrayList<>());
+        }
+        for (StyleRecord record : sorted) {
+            BBox bbox = record.osm.getBBox();
+            int minColumn = 0;
+            int maxColumn = columns - 1;
+            int minRow = 0;
+            int maxRow = rows - 1;
+            // The records whose extent is not known (labels, ...) are drawn in all tiles
+            double extent = record.style.getDrawingExtent();
+            if (bbox.isValid() && extent >= 0) {
+                double margin = (extent + PARALLEL_DRAWING_MARGIN) * transform.getScaleX();
+                Point2D p1 = transform.transform(mapState.getPointFor(bbox.getTopLeft()).getInView(), null);
+                Point2D p2 = transform.transform(mapState.getPointFor(bbox.getBottomRight()).getInView(), null);
+                minColumn = Math.max(minColumn, (int) Math.floor((Math.min(p1.getX(), p2.getX()) - margin - region.x) / tileSize));
+                maxColumn = Math.min(maxColumn, (int) Math.floor((Math.max(p1.getX(), p2.getX()) + margin - region.x) / tileSize));
+                minRow = Math.max(minRow, (int) Math.floor((Math.min(p1.getY(), p2.getY()) - margin - region.y) / tileSize));
+                maxRow = Math.min(maxRow, (int) Math.floor((Math.max(p1.getY(), p2.getY()) + margin - region.y) / tileSize));
+            }
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int row = minRow; row <= maxRow; row++) {
+                    tileRecords.get(row * columns + column).add(record);
+                }
+            }
+        }
+
+        List<Callable<BufferedImage>> tasks = new ArrayList<>(columns * rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                List<StyleRecord> records = tileRecords.get(row * columns + column);
+                int x = region.x + column * tileSize;
+                int y = region.y + row * tileSize;
+                BufferedImage image = new BufferedImage(Math.min(tileSize, region.x + region.width - x),
+                        Math.min(tileSize, region.y + region.height - y), BufferedImage.TYPE_INT_ARGB);
+                tasks.add(() -> {
+                    Graphics2D tileGraphics = image.createGraphics();
+                    try {
+                        tileGraphics.setRenderingHints(g.getRenderingHints());
+                        tileGraphics.clipRect(0, 0, image.getWidth(), image.getHeight());
+                        AffineTransform tileTransform = AffineTransform.getTranslateInstance(-x, -y);
+                        tileTransform.concatenate(transform);
+                        tileGraphics.setTransform(tileTransform);
+                        StyledMapRenderer tileRenderer = new StyledMapRenderer(tileGraphics, this, renderVirtualNodes);
+                        for (StyleRecord record : records) {
+                            tileRenderer.paintRecord(record);
+                        }
+                    } finally {
+                        tileGraphics.dispose();
+                    }
+                    return image;
+                });
+            }
+        }
+
+        Graphics2D device = (Graphics2D) g.create();
+        try {
+            device.setTransform(new AffineTransform());
+            List<Future<BufferedImage>> images = THREAD_POOL.invokeAll(tasks);
+            for (int i = 0; i < images.size(); i++) {
+                device.drawImage(images.get(i).get(), region.x + (i % columns) * tileSize, region.y + (i / columns) * tileSize, null);
+            }
+        } catch (InterruptedException e) {
+            Logging.warn("Interrupted while drawing in parallel");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JosmRuntimeException(e.getCause());
+        } finally {
+            device.dispose();
+        }
+        return true;
+    }
+
     private void paintRecord(StyleRecord record) {
         try {
             record.paintPrimitive(paintSettings, this);
@@ -44,6 +44,18 @@ public class ValidatorPrefHelper extends SourcePrefHelper {
     /** The preferences for ignored severity other */
     public static final BooleanProperty PREF_OTHER = new BooleanProperty(PREFIX + ".other", false);
 
+    /**
+     * The preferences key for running the tests in parallel
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_PARALLEL = new BooleanProperty(PREFIX + ".parallel", false);
+
+    /**
+     * The preferences key for keeping the validation results up to date while editing
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_CONTINUOUS = new BooleanProperty(PREFIX + ".continuous", false);
+
     /** The preferences key for the ignorelist */
     public static final String PREF_IGNORELIST = PREFIX + ".ignorelist";
 
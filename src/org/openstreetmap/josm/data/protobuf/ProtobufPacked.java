@@ -48,6 +48,49 @@ public class ProtobufPacked {
         return this.numbers;
     }
 
+    /**
+     * Decode packed var ints directly into a primitive array. This avoids boxing every single value into a
+     * {@link Number}, which matters for large packed fields such as the coordinates of OSM dense nodes.
+     *
+     * @param bytes The packed bytes
+     * @return The decoded (unsigned) values. Use {@link #decodeZigZag(long)} for {@code sint32} and {@code sint64}.
+     * @since xxx
+     */
+    public static long[] decodeVarInts(byte[] bytes) {
+        int count = 0;
+        for (byte b : bytes) {
+            if ((b & ProtobufParser.MOST_SIGNIFICANT_BYTE) == 0) {
+                count++;
+            }
+        }
+        long[] values = new long[count];
+        int location = 0;
+        for (int i = 0; i < count; i++) {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = bytes[location++];
+                value |= (long) (current & 0x7F) << shift;
+                shift += ProtobufParser.VAR_INT_BYTE_SIZE;
+            } while ((current & ProtobufParser.MOST_SIGNIFICANT_BYTE) != 0);
+            values[i] = value;
+        }
+        return values;
+    }
+
+    /**
+     * Decode a zig-zag encoded value without boxing it
+     *
+     * @param signed The value to decode
+     * @return The decoded value
+     * @see ProtobufParser#decodeZigZag(Number)
+     * @since xxx
+     */
+    public static long decodeZigZag(long signed) {
+        return (signed >>> 1) ^ -(signed & 1);
+    }
+
     private byte[] nextVarInt(final ByteArrayOutputStream byteArrayOutputStream) {
         // In a real world test, the largest List<Byte> seen had 3 elements. Use 4 to avoid most new array allocations.
         // Memory allocations went from 368 MB to 280 MB by using an initial array allocation. When using a
@@ -597,6 +597,31 @@ public final class OsmValidator {
         return enabledTests;
     }
 
+    /**
+     * Creates new instances of the tests that are run, which do not share their state with the instances returned by
+     * {@link #getEnabledTests}, so that they can be run concurrently with them. The data shared by all the instances
+     * of a test is only loaded by the original instances, see {@link Test#initializeCopy}.
+     * @param beforeUpload To get the ones that are run before upload
+     * @return The new initialized tests
+     * @since xxx
+     */
+    public static Collection<Test> createEnabledTests(boolean beforeUpload) {
+        initializeTests();
+        Collection<Test> tests = new ArrayList<>();
+        for (Test test : getEnabledTests(beforeUpload)) {
+            try {
+                Test copy = test.getClass().getConstructor().newInstance();
+                copy.enabled = test.enabled;
+                copy.testBeforeUpload = test.testBeforeUpload;
+                copy.initializeCopy(test);
+                tests.add(copy);
+            } catch (Exception e) { // NOPMD
+                Logging.error(tr("Error initializing test {0}:\n {1}", test.getClass().getSimpleName(), e));
+            }
+        }
+        return tests;
+    }
+
     /**
      * Gets the list of all available test classes
      *
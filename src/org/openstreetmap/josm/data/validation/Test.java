@@ -152,6 +152,19 @@ public class Test implements OsmPrimitiveVisitor {
         this.stopwatch = Stopwatch.createStarted();
     }
 
+    /**
+     * Initializes a new instance of this test, created to run concurrently with the initialized instance of
+     * {@link OsmValidator}, see {@link OsmValidator#createEnabledTests}. Calls {@link #initialize()} by default.
+     * The tests whose data is static, and thus shared by all their instances, override it so that this data is not
+     * loaded again while the other instance uses it.
+     * @param original the initialized instance of this test
+     * @throws Exception When cannot initialize the test
+     * @since xxx
+     */
+    public void initializeCopy(Test original) throws Exception {
+        initialize();
+    }
+
     /**
      * Start the test using a given progress monitor
      *
@@ -251,6 +264,27 @@ public class Test implements OsmPrimitiveVisitor {
         // To be overridden in subclasses
     }
 
+    /**
+     * Determines if this test can run concurrently with other tests, see {@link ValidationEngine}.
+     * Tests sharing mutable state with other tests must return {@code false}, they are run one after another.
+     * @return {@code true} if this test can run concurrently with other tests
+     * @since xxx
+     */
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    /**
+     * Creates a new instance of this test, to check a part of the primitives concurrently with this instance,
+     * see {@link ValidationEngine}. This is only possible for tests which check each primitive on its own.
+     * The new instance is started, visited and ended like this one, it must share the data loaded by {@link #initialize()}.
+     * @return a new instance of this test, or {@code null} if the primitives cannot be checked in parts
+     * @since xxx
+     */
+    public Test newPartitionTest() {
+        return null;
+    }
+
     /**
      * Allow the tester to manage its own preferences
      * @param testPanel The panel to add any preferences component
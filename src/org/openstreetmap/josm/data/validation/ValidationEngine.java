@@ -0,0 +1,192 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Metrics;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Runs validation tests on a collection of primitives, sequentially or in parallel.
+ * <p>
+ * In parallel mode, the tests which {@linkplain Test#isConcurrent() can run concurrently} run on a {@link ForkJoinPool},
+ * while the other ones run one after another. The primitives checked by tests providing
+ * {@linkplain Test#newPartitionTest() partition instances} are additionally split into chunks checked in parallel,
+ * each by its own instance of the test. The errors are merged in the order of the tests and of the chunks,
+ * so that the result does not depend on the scheduling of the threads.
+ * @since xxx
+ */
+public final class ValidationEngine {
+
+    /** Minimal number of primitives checked by one instance of a partitioned test */
+    private static final int MIN_PARTITION_SIZE = 512;
+
+    private static ForkJoinPool pool;
+
+    private ValidationEngine() {
+        // Hide default constructor for utils classes
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = Utils.newForkJoinPool("validator.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+        }
+        return pool;
+    }
+
+    /**
+     * Runs the tests, in parallel if {@link ValidatorPrefHelper#PREF_PARALLEL} is enabled.
+     * @param tests the tests to run
+     * @param primitives the primitives to check
+     * @param progressMonitor the progress monitor, in which a sub task of {@code primitives.size()} ticks is created for
+     * each test. Can be {@code null}
+     * @return the errors found by the tests
+     * @see #runTests(Collection, Collection, ProgressMonitor, boolean)
+     */
+    public static List<TestError> runTests(Collection<? extends Test> tests, Collection<OsmPrimitive> primitives,
+            ProgressMonitor progressMonitor) {
+        return runTests(tests, primitives, progressMonitor, ValidatorPrefHelper.PREF_PARALLEL.get());
+    }
+
+    /**
+     * Runs the tests. The flags of the tests ({@link Test#setBeforeUpload}, {@link Test#setPartialSelection}) must
+     * be set by the caller. Each test is started, visited and ended, and then {@linkplain Test#clear() cleared}.
+     * @param tests the tests to run
+     * @param primitives the primitives to check
+     * @param progressMonitor the progress monitor, in which a sub task of {@code primitives.size()} ticks is created for
+     * each test. Can be {@code null}
+     * @param parallel whether to run the tests in parallel
+     * @return the errors found by the tests, in the order of the tests
+     */
+    public static List<TestError> runTests(Collection<? extends Test> tests, Collection<OsmPrimitive> primitives,
+            ProgressMonitor progressMonitor, boolean parallel) {
+        ProgressMonitor monitor = Optional.ofNullable(progressMonitor).orElse(NullProgressMonitor.INSTANCE);
+        List<TestError> errors = new ArrayList<>();
+        if (!parallel) {
+            int testCounter = 0;
+            for (Test test : tests) {
+                if (monitor.isCanceled())
+                    break;
+                testCounter++;
+                monitor.setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
+                long start = System.nanoTime();
+                test.startTest(monitor.createSubTaskMonitor(primitives.size(), false));
+                test.visit(primitives);
+                test.endTest();
+                getTimer(test).stop(start);
+                errors.addAll(test.getErrors());
+                test.clear();
+            }
+            return errors;
+        }
+
+        List<OsmPrimitive> list = new ArrayList<>(primitives);
+        List<Test> testList = new ArrayList<>(tests);
+        List<List<TestError>> results = new ArrayList<>(Collections.nCopies(testList.size(), null));
+        List<Integer> sequential = new ArrayList<>();
+        List<ProgressMonitor> monitors = new ArrayList<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        monitor.setCustomText(tr("Running {0} tests", testList.size()));
+        for (int i = 0; i < testList.size(); i++) {
+            final int index = i;
+            monitors.add(monitor.createSubTaskMonitor(primitives.size(), false));
+            if (testList.get(i).isConcurrent()) {
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    results.set(index, runTest(testList.get(index), list, monitors.get(index)));
+                }));
+            } else {
+                sequential.add(i);
+            }
+        }
+        tasks.add(ForkJoinTask.adapt(() -> {
+            for (int index : sequential) {
+                results.set(index, runTest(testList.get(index), list, monitors.get(index)));
+            }
+        }));
+        getPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        for (List<TestError> result : results) {
+            if (result != null) {
+                errors.addAll(result);
+            }
+        }
+        return errors;
+    }
+
+    private static List<TestError> runTest(Test test, List<OsmPrimitive> primitives, ProgressMonitor monitor) {
+        List<TestError> errors = new ArrayList<>();
+        if (monitor.isCanceled()) {
+            return errors;
+        }
+        long start = System.nanoTime();
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, primitives.size() / (4 * getPool().getParallelism()));
+        List<Test> instances = new ArrayList<>();
+        instances.add(test);
+        for (int i = partitionSize; i < primitives.size(); i += partitionSize) {
+            Test instance = test.newPartitionTest();
+            if (instance == null) {
+                instances.subList(1, instances.size()).clear();
+                break;
+            }
+            instance.setBeforeUpload(test.isBeforeUpload);
+            instance.setPartialSelection(test.partialSelection);
+            instances.add(instance);
+        }
+
+        if (instances.size() == 1) {
+            test.startTest(monitor);
+            test.visit(primitives);
+            test.endTest();
+            errors.addAll(test.getErrors());
+        } else {
+            Logging.debug("Running test {0} in {1} parts", test.getName(), instances.size());
+            monitor.beginTask(tr("Running test {0}", test.getName()), instances.size());
+            List<ForkJoinTask<?>> parts = new ArrayList<>();
+            for (int i = 0; i < instances.size(); i++) {
+                Test instance = instances.get(i);
+                List<OsmPrimitive> part = primitives.subList(i * partitionSize, Math.min(primitives.size(), (i + 1) * partitionSize));
+                // start and end the tests in this thread, only the visit of the primitives runs concurrently
+                instance.startTest(NullProgressMonitor.INSTANCE);
+                parts.add(ForkJoinTask.adapt(() -> {
+                    if (!monitor.isCanceled()) {
+                        instance.visit(part);
+                        monitor.worked(1);
+                    }
+                }));
+            }
+            ForkJoinTask.invokeAll(parts);
+            for (Test instance : instances) {
+                instance.endTest();
+                errors.addAll(instance.getErrors());
+                instance.clear();
+            }
+            monitor.finishTask();
+        }
+        test.clear();
+        getTimer(test).stop(start);
+        return errors;
+    }
+
+    /**
+     * Returns the timer measuring the duration of a test.
+     * @param test the test
+     * @return the timer {@code validation.test.<fully qualified class name>}
+     */
+    private static Metrics.Timer getTimer(Test test) {
+        // the simple names are not unique, e.g. for the nested classes of CrossingWays
+        return Metrics.timer("validation.test." + test.getClass().getName());
+    }
+}
@@ -0,0 +1,261 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+
+/**
+ * Keeps the validation errors of a data set up to date while it is edited.
+ * <p>
+ * The session listens to the changes of the data set and records the modified primitives. {@link #update} then checks
+ * again only these primitives, their parents and children, and the primitives around them, which the geometric tests
+ * (crossing, overlapping, duplicated or unconnected ways and nodes) compare them with. The errors involving the
+ * modified primitives are replaced by the new ones, the other errors are kept.
+ * @since xxx
+ */
+public class ValidationSession implements DataSetListener {
+
+    /** Distance in degrees around the modified primitives in which the neighbouring primitives are checked again */
+    private static final double NEIGHBOURHOOD = 1e-3;
+
+    private final DataSet dataSet;
+    private final Runnable onChange;
+    private final List<TestError> errors;
+    private Set<OsmPrimitive> modified = new HashSet<>();
+    private boolean fullValidation;
+
+    /**
+     * Constructs a new {@code ValidationSession}.
+     * @param dataSet the validated data set
+     * @param errors the current validation errors of the data set
+     * @param onChange called when the data set has changed and {@link #update} must be called, can be {@code null}
+     */
+    public ValidationSession(DataSet dataSet, Collection<TestError> errors, Runnable onChange) {
+        this.dataSet = dataSet;
+        this.errors = new ArrayList<>(errors);
+        this.onChange = onChange;
+    }
+
+    /**
+     * Returns the validated data set.
+     * @return the validated data set
+     */
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Returns the current validation errors.
+     * @return a copy of the current validation errors
+     */
+    public synchronized List<TestError> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    /**
+     * Replaces the current validation errors by the results of a validation run outside of this session. The
+     * modifications which have not been checked yet are kept, they are checked by the next {@link #update}.
+     * @param errors the new validation errors
+     */
+    public synchronized void reset(Collection<TestError> errors) {
+        this.errors.clear();
+        this.errors.addAll(errors);
+    }
+
+    /**
+     * Determines if the data set has been modified since the last {@link #update}.
+     * @return {@code true} if the validation errors must be updated
+     */
+    public synchronized boolean isModified() {
+        return fullValidation || !modified.isEmpty();
+    }
+
+    /**
+     * Checks again the primitives affected by the modifications since the last update.
+     * <p>
+     * The tests run without holding the lock of the session, so that the modifications made meanwhile are recorded
+     * without waiting. They are checked by the next update.
+     * @param tests the tests to run
+     * @return the updated validation errors, see {@link #getErrors()}
+     */
+    public List<TestError> update(Collection<? extends Test> tests) {
+        boolean full;
+        Set<OsmPrimitive> changed;
+        synchronized (this) {
+            full = fullValidation;
+            fullValidation = false;
+            changed = modified;
+            modified = new HashSet<>();
+        }
+        if (full) {
+            for (Test test : tests) {
+                test.setBeforeUpload(false);
+                test.setPartialSelection(false);
+            }
+            List<TestError> result = ValidationEngine.runTests(tests, dataSet.allNonDeletedPrimitives(), null);
+            synchronized (this) {
+                errors.clear();
+                errors.addAll(result);
+            }
+        } else if (!changed.isEmpty()) {
+            Set<OsmPrimitive> core = getCorePrimitives(changed);
+            Set<OsmPrimitive> affected = getNeighbours(core);
+            affected.addAll(core);
+            affected.removeIf(p -> p.getDataSet() != dataSet || p.isDeleted());
+
+            for (Test test : tests) {
+                test.setBeforeUpload(false);
+                test.setPartialSelection(true);
+            }
+            List<TestError> result = new ArrayList<>();
+            for (TestError error : ValidationEngine.runTests(tests, affected, null)) {
+                // the errors only involving neighbours are still in the list
+                if (error.getPrimitives().stream().anyMatch(core::contains)) {
+                    result.add(error);
+                }
+            }
+            synchronized (this) {
+                // the errors may have been reset meanwhile, only replace the ones of the checked primitives
+                errors.removeIf(e -> e.getPrimitives().stream().anyMatch(
+                        p -> core.contains(p) || p.isDeleted() || p.getDataSet() == null));
+                errors.addAll(result);
+            }
+        }
+        List<TestError> result = getErrors();
+        if (Boolean.TRUE.equals(ValidatorPrefHelper.PREF_USE_IGNORE.get())) {
+            result.forEach(TestError::updateIgnored);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the modified primitives together with their parents and the nodes of the modified ways.
+     * @param primitives the modified primitives
+     * @return the primitives whose errors must be computed again
+     */
+    static Set<OsmPrimitive> getCorePrimitives(Collection<OsmPrimitive> primitives) {
+        Set<OsmPrimitive> result = new HashSet<>();
+        for (OsmPrimitive p : primitives) {
+            addWithReferrers(p, result);
+            if (p instanceof Way) {
+                result.addAll(((Way) p).getNodes());
+            }
+        }
+        return result;
+    }
+
+    private static void addWithReferrers(OsmPrimitive p, Set<OsmPrimitive> result) {
+        // the removed primitives have no referrers anymore
+        if (result.add(p) && p.getDataSet() != null) {
+            for (OsmPrimitive referrer : p.getReferrers()) {
+                addWithReferrers(referrer, result);
+            }
+        }
+    }
+
+    private Set<OsmPrimitive> getNeighbours(Collection<OsmPrimitive> primitives) {
+        Set<OsmPrimitive> result = new HashSet<>();
+        for (OsmPrimitive p : primitives) {
+            // the removed primitives keep their coordinates, so that their former neighbours are checked again
+            if (!p.isIncomplete()) {
+                BBox bbox = new BBox();
+                bbox.addPrimitive(p, NEIGHBOURHOOD);
+                if (bbox.isValid() && bbox.area() < 1) {
+                    result.addAll(dataSet.searchNodes(bbox));
+                    result.addAll(dataSet.searchWays(bbox));
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized void addModified(Collection<? extends OsmPrimitive> primitives) {
+        boolean wasModified = isModified();
+        modified.addAll(primitives);
+        if (!wasModified && onChange != null) {
+            onChange.run();
+        }
+    }
+
+    private synchronized void setFullValidation() {
+        boolean wasModified = isModified();
+        fullValidation = true;
+        if (!wasModified && onChange != null) {
+            onChange.run();
+        }
+    }
+
+    private void processEvent(AbstractDatasetChangedEvent event) {
+        if (event.getDataset() != dataSet) {
+            return;
+        }
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                setFullValidation();
+            } else {
+                events.forEach(this::processEvent);
+            }
+        } else {
+            addModified(event.getPrimitives());
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        processEvent(event);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        processEvent(event);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        processEvent(event);
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        processEvent(event);
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        processEvent(event);
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        processEvent(event);
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Filters and selection do not change the validation errors
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        processEvent(event);
+    }
+}
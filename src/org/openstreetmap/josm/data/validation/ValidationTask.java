@@ -3,7 +3,6 @@ package org.openstreetmap.josm.data.validation;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -67,7 +66,7 @@ public class ValidationTask extends PleaseWaitRunnable {
         GuiHelper.runInEDT(() -> {
             MapFrame map = MainApplication.getMap();
             map.validatorDialog.unfurlDialog();
-            map.validatorDialog.tree.setErrors(errors);
+            map.validatorDialog.setErrors(errors);
             //FIXME: nicer way to find / invalidate the corresponding error layer
             MainApplication.getLayerManager().getLayersOfType(ValidatorLayer.class).forEach(ValidatorLayer::invalidate);
             if (!errors.isEmpty()) {
@@ -80,23 +79,15 @@ public class ValidationTask extends PleaseWaitRunnable {
     protected void realRun() {
         if (Utils.isEmpty(tests))
             return;
-        errors = new ArrayList<>();
         getProgressMonitor().setTicksCount(tests.size() * validatedPrimitives.size());
-        int testCounter = 0;
         for (Test test : tests) {
-            if (canceled)
-                return;
-            testCounter++;
-            getProgressMonitor().setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
             test.setBeforeUpload(false);
             test.setPartialSelection(formerValidatedPrimitives != null);
-            test.startTest(getProgressMonitor().createSubTaskMonitor(validatedPrimitives.size(), false));
-            test.visit(validatedPrimitives);
-            test.endTest();
-            errors.addAll(test.getErrors());
-            test.clear();
         }
+        errors = ValidationEngine.runTests(tests, validatedPrimitives, getProgressMonitor());
         tests = null;
+        if (canceled)
+            return;
         if (Boolean.TRUE.equals(ValidatorPrefHelper.PREF_USE_IGNORE.get())) {
             getProgressMonitor().setCustomText("");
             getProgressMonitor().subTask(tr("Updating ignored errors ..."));
@@ -25,6 +25,8 @@ import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
+import javax.json.JsonObject;
+
 import org.apache.commons.compress.utils.FileNameUtils;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
 import org.openstreetmap.josm.cli.CLIModule;
@@ -57,6 +59,7 @@ import org.openstreetmap.josm.tools.HttpClient;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Metrics;
 import org.openstreetmap.josm.tools.OptionParser;
 import org.openstreetmap.josm.tools.Stopwatch;
 import org.openstreetmap.josm.tools.Territories;
@@ -79,6 +82,8 @@ public class ValidatorCLI implements CLIModule {
     private final Map<String, List<String>> changeFiles = new HashMap<>();
     /** The output file(s). If {@code null}, use input filename as base (replace extension with geojson). input -> output */
     private final Map<String, String> output = new HashMap<>();
+    /** The file to write the metrics to. If {@code null}, the metrics are not written. */
+    private String metricsFile;
 
     private static final Supplier<ProgressMonitor> progressMonitorFactory = CLIProgressMonitor::new;
 
@@ -103,7 +108,9 @@ public class ValidatorCLI implements CLIModule {
         /** --load-preferences=&lt;url-to-xml&gt;      Changes preferences according to the XML file */
         LOAD_PREFERENCES(true, 'p'),
         /** --set=&lt;key&gt;=&lt;value&gt;            Set preference key to value */
-        SET(true, 's');
+        SET(true, 's'),
+        /** --metrics=&lt;metrics-file&gt;            Write the performance metrics to a file */
+        METRICS(true, '*');
 
         private final String name;
         private final boolean requiresArgument;
@@ -183,6 +190,9 @@ public class ValidatorCLI implements CLIModule {
                 fileMonitor.worked(1);
             }
             fileMonitor.finishTask();
+            if (this.metricsFile != null) {
+                Metrics.write(Paths.get(this.metricsFile));
+            }
         } catch (Exception e) {
             Logging.info(e);
             Lifecycle.exitJosm(true, 1);
@@ -272,8 +282,21 @@ public class ValidatorCLI implements CLIModule {
                 Logging.error("Could not delete {0}, attempting to append", outputFile);
             }
             GeoJSONMapRouletteWriter geoJSONMapRouletteWriter = new GeoJSONMapRouletteWriter(dataSet);
+            ProgressMonitor validationMonitor = progressMonitorFactory.get();
+            validationMonitor.beginTask(task, tests.size() * dataSet.allPrimitives().size());
+            List<TestError> errors;
+            try {
+                errors = ValidationEngine.runTests(tests, dataSet.allPrimitives(), validationMonitor, true);
+            } finally {
+                validationMonitor.finishTask();
+            }
             try (OutputStream fileOutputStream = Files.newOutputStream(Paths.get(outputFile))) {
-                tests.parallelStream().forEach(test -> runTest(test, geoJSONMapRouletteWriter, fileOutputStream, dataSet));
+                for (TestError error : errors) {
+                    Optional<JsonObject> json = geoJSONMapRouletteWriter.write(error);
+                    if (json.isPresent()) {
+                        writeToFile(fileOutputStream, json.get().toString().getBytes(StandardCharsets.UTF_8));
+                    }
+                }
             }
         } finally {
             if (dataLayer != null) {
@@ -299,30 +322,6 @@ public class ValidatorCLI implements CLIModule {
         return FileNameUtils.getBaseName(FileNameUtils.getBaseName(inputString)) + ".geojson";
     }
 
-    /**
-     * Run a test
-     * @param test The test to run
-     * @param geoJSONMapRouletteWriter The object to use to create challenges
-     * @param fileOutputStream The location to write data to
-     * @param dataSet The dataset to check
-     */
-    private void runTest(final Test test, final GeoJSONMapRouletteWriter geoJSONMapRouletteWriter,
-            final OutputStream fileOutputStream, DataSet dataSet) {
-        test.startTest(progressMonitorFactory.get());
-        test.visit(dataSet.allPrimitives());
-        test.endTest();
-        test.getErrors().stream().map(geoJSONMapRouletteWriter::write)
-                .filter(Optional::isPresent).map(Optional::get)
-                .map(jsonObject -> jsonObject.toString().getBytes(StandardCharsets.UTF_8)).forEach(bytes -> {
-                    try {
-                        writeToFile(fileOutputStream, bytes);
-                    } catch (IOException e) {
-                        throw new JosmRuntimeException(e);
-                    }
-                });
-        test.clear();
-    }
-
     /**
      * Write to a file. Synchronized to avoid writing to the same file in different threads.
      *
@@ -418,6 +417,9 @@ public class ValidatorCLI implements CLIModule {
         case LANGUAGE:
             I18n.set(argument);
             break;
+        case METRICS:
+            this.metricsFile = argument;
+            break;
         case LOAD_PREFERENCES:
             final Preferences tempPreferences = new Preferences();
             tempPreferences.enableSaveOnPut(false);
@@ -465,7 +467,8 @@ public class ValidatorCLI implements CLIModule {
                 "\t--output|-o <file>        " + tr("Output data file name (.geojson, line-by-line delimited for MapRoulette). Optional.")
                                                + '\n' +
                 "\t--change-file|-c <file>   " + tr("Change file name (.osc). Can be specified multiple times per input.") + '\n' +
-                helpPadding                    + tr("Changes will be applied in the specified order. Optional.");
+                helpPadding                    + tr("Changes will be applied in the specified order. Optional.") + '\n' +
+                "\t--metrics <file>          " + tr("Write the performance metrics (.json) to this file. Optional.");
         // CHECKSTYLE.ON: SingleSpaceSeparator
     }
 }
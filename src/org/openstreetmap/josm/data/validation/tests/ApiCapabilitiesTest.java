@@ -40,6 +40,11 @@ public class ApiCapabilitiesTest extends Test {
         }
     }
 
+    @Override
+    public void initializeCopy(Test original) {
+        maxNodes = ((ApiCapabilitiesTest) original).maxNodes;
+    }
+
     @Override
     public void visit(Way w) {
         if (maxNodes > 1 && w.getNodesCount() > maxNodes) {
@@ -24,6 +24,7 @@ import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.util.SegmentGrid;
 import org.openstreetmap.josm.data.validation.util.ValUtil;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
@@ -77,7 +78,7 @@ public abstract class CrossingWays extends Test {
     }
 
     /** All way segments, grouped by cells */
-    private final Map<Point2D, List<WaySegment>> cellSegments = new HashMap<>(1000);
+    private SegmentGrid cellSegments = new SegmentGrid();
     /** The already detected ways in error */
     private final Map<List<Way>, List<WaySegment>> seenWays = new HashMap<>(50);
 
@@ -298,14 +299,14 @@ public abstract class CrossingWays extends Test {
     @Override
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
-        cellSegments.clear();
+        cellSegments = new SegmentGrid();
         seenWays.clear();
     }
 
     @Override
     public void endTest() {
         super.endTest();
-        cellSegments.clear();
+        cellSegments = new SegmentGrid();
         seenWays.clear();
     }
 
@@ -346,52 +347,45 @@ public abstract class CrossingWays extends Test {
         boolean findSelfCrossingOnly = this instanceof SelfCrossing;
         if (findSelfCrossingOnly) {
             // free memory, we are not interested in previous ways
-            cellSegments.clear();
+            cellSegments = new SegmentGrid();
             seenWays.clear();
         }
 
         int nodesSize = w.getNodesCount();
         for (int i = 0; i < nodesSize - 1; i++) {
             final WaySegment es1 = new WaySegment(w, i);
-            final EastNorth en1 = es1.getFirstNode().getEastNorth();
-            final EastNorth en2 = es1.getSecondNode().getEastNorth();
-            if (en1 == null || en2 == null) {
+            if (cellSegments.add(es1, es2 -> checkCrossing(es1, es2, findSelfCrossingOnly)) < 0) {
                 Logging.warn("Crossing ways test skipped " + es1);
-                continue;
             }
-            for (List<WaySegment> segments : getSegments(cellSegments, en1, en2)) {
-                for (WaySegment es2 : segments) {
-                    List<Way> prims;
-                    List<WaySegment> highlight;
+        }
+    }
 
-                    if (!es1.intersects(es2)
-                            || (!findSelfCrossingOnly && ignoreWaySegmentCombination(es1.getWay(), es2.getWay()))) {
-                        continue;
-                    }
+    private void checkCrossing(WaySegment es1, WaySegment es2, boolean findSelfCrossingOnly) {
+        if (!es1.intersects(es2)
+                || (!findSelfCrossingOnly && ignoreWaySegmentCombination(es1.getWay(), es2.getWay()))) {
+            return;
+        }
 
-                    prims = new ArrayList<>();
-                    prims.add(es1.getWay());
-                    if (es1.getWay() != es2.getWay())
-                        prims.add(es2.getWay());
-                    if ((highlight = seenWays.get(prims)) == null) {
-                        highlight = new ArrayList<>();
-                        highlight.add(es1);
-                        highlight.add(es2);
-
-                        final MessageHelper message = createMessage(es1.getWay(), es2.getWay());
-                        errors.add(TestError.builder(this, Severity.WARNING, message.code)
-                                .message(message.message)
-                                .primitives(prims)
-                                .highlightWaySegments(highlight)
-                                .build());
-                        seenWays.put(prims, highlight);
-                    } else {
-                        highlight.add(es1);
-                        highlight.add(es2);
-                    }
-                }
-                segments.add(es1);
-            }
+        List<Way> prims = new ArrayList<>();
+        prims.add(es1.getWay());
+        if (es1.getWay() != es2.getWay())
+            prims.add(es2.getWay());
+        List<WaySegment> highlight = seenWays.get(prims);
+        if (highlight == null) {
+            highlight = new ArrayList<>();
+            highlight.add(es1);
+            highlight.add(es2);
+
+            final MessageHelper message = createMessage(es1.getWay(), es2.getWay());
+            errors.add(TestError.builder(this, Severity.WARNING, message.code)
+                    .message(message.message)
+                    .primitives(prims)
+                    .highlightWaySegments(highlight)
+                    .build());
+            seenWays.put(prims, highlight);
+        } else {
+            highlight.add(es1);
+            highlight.add(es2);
         }
     }
 
@@ -434,29 +428,67 @@ public abstract class CrossingWays extends Test {
             }
             for (List<WaySegment> segments : CrossingWays.getSegments(cellSegments, en1, en2)) {
                 for (WaySegment es2 : segments) {
-
-                    List<WaySegment> highlight;
-                    if (es2.getWay() == w // reported by CrossingWays.SelfIntersection
-                            || (findSharedWaySegments && !es1.isSimilar(es2))
-                            || (!findSharedWaySegments && !es1.intersects(es2)))
-                        continue;
-
-                    List<Way> prims = Arrays.asList(es1.getWay(), es2.getWay());
-                    if ((highlight = crossingWays.get(prims)) == null) {
-                        highlight = new ArrayList<>();
-                        highlight.add(es1);
-                        highlight.add(es2);
-                        crossingWays.put(prims, highlight);
-                    } else {
-                        highlight.add(es1);
-                        highlight.add(es2);
-                    }
+                    addIntersection(es1, es2, crossingWays, findSharedWaySegments);
                 }
                 segments.add(es1);
             }
         }
     }
 
+    /**
+     * Find ways which are crossing without sharing a node.
+     * @param w way that is to be checked
+     * @param cellSegments grid with already collected way segments
+     * @param crossingWays map to collect crossing ways and related segments
+     * @param findSharedWaySegments true: find shared way segments instead of crossings
+     * @since xxx
+     */
+    public static void findIntersectingWay(Way w, SegmentGrid cellSegments,
+            Map<List<Way>, List<WaySegment>> crossingWays, boolean findSharedWaySegments) {
+        int nodesSize = w.getNodesCount();
+        for (int i = 0; i < nodesSize - 1; i++) {
+            final WaySegment es1 = new WaySegment(w, i);
+            if (cellSegments.add(es1, es2 -> addIntersection(es1, es2, crossingWays, findSharedWaySegments)) < 0) {
+                Logging.warn("Crossing ways test skipped " + es1);
+            }
+        }
+    }
+
+    /**
+     * Find the ways of a grid which are crossing without sharing a node.
+     * @param cellSegments grid of the way segments to check, see {@link SegmentGrid#of}
+     * @param crossingWays map to collect crossing ways and related segments
+     * @param findSharedWaySegments true: find shared way segments instead of crossings
+     * @since xxx
+     */
+    public static void findIntersectingWays(SegmentGrid cellSegments,
+            Map<List<Way>, List<WaySegment>> crossingWays, boolean findSharedWaySegments) {
+        for (int i = 0; i < cellSegments.size(); i++) {
+            final WaySegment es1 = cellSegments.get(i);
+            cellSegments.forEachPreviousSegment(i, es2 -> addIntersection(es1, es2, crossingWays, findSharedWaySegments));
+        }
+    }
+
+    private static void addIntersection(WaySegment es1, WaySegment es2,
+            Map<List<Way>, List<WaySegment>> crossingWays, boolean findSharedWaySegments) {
+        if (es2.getWay() == es1.getWay() // reported by CrossingWays.SelfIntersection
+                || (findSharedWaySegments && !es1.isSimilar(es2))
+                || (!findSharedWaySegments && !es1.intersects(es2)))
+            return;
+
+        List<Way> prims = Arrays.asList(es1.getWay(), es2.getWay());
+        List<WaySegment> highlight = crossingWays.get(prims);
+        if (highlight == null) {
+            highlight = new ArrayList<>();
+            highlight.add(es1);
+            highlight.add(es2);
+            crossingWays.put(prims, highlight);
+        } else {
+            highlight.add(es1);
+            highlight.add(es2);
+        }
+    }
+
     /**
      * Check if the given way is self crossing
      * @param way the way to check
@@ -51,6 +51,11 @@ public class InternetTags extends Test.TagTest {
         super(tr("Internet tags"), tr("Checks for errors in internet-related tags."));
     }
 
+    @Override
+    public Test newPartitionTest() {
+        return getClass() == InternetTags.class ? new InternetTags() : null;
+    }
+
     /**
      * Potentially validates a given primitive key against a given validator.
      * @param p The OSM primitive to test
@@ -82,6 +82,12 @@ public class MapCSSTagChecker extends Test.TagTest {
         super(tr("Tag checker (MapCSS based)"), tr("This test checks for errors in tag keys and values."));
     }
 
+    @Override
+    public boolean isConcurrent() {
+        // the caches of multipolygon areas and surrounding primitives are static
+        return false;
+    }
+
     final MultiMap<String, MapCSSTagCheckerRule> checks = new MultiMap<>();
 
     /** maps the source URL for a test to the title shown in the dialog where known */
@@ -346,6 +352,18 @@ public class MapCSSTagChecker extends Test.TagTest {
         MapCSSTagCheckerAsserts.clear();
     }
 
+    @Override
+    public void initializeCopy(Test original) {
+        // share the parsed rules, which are not modified by the checks
+        MapCSSTagChecker checker = (MapCSSTagChecker) original;
+        synchronized (checker) {
+            for (Entry<String, Set<MapCSSTagCheckerRule>> entry : checker.checks.entrySet()) {
+                checks.putAll(entry.getKey(), entry.getValue());
+            }
+            urlTitles.putAll(checker.urlTitles);
+        }
+    }
+
     /**
      * Reload tagchecker rule.
      * @param rule tagchecker rule to reload
@@ -5,7 +5,6 @@ import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.geom.Area;
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,9 +29,11 @@ import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.WaySegment;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
+import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.util.SegmentGrid;
 import org.openstreetmap.josm.gui.mappaint.ElemStyles;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 import org.openstreetmap.josm.gui.mappaint.styleelement.AreaElement;
@@ -602,15 +603,13 @@ public class MultipolygonTest extends Test {
      */
     private static Map<List<Way>, List<WaySegment>> findIntersectingWays(Relation r, boolean findSharedWaySegments) {
         /** All way segments, grouped by cells */
-        final Map<Point2D, List<WaySegment>> cellSegments = new HashMap<>(1000);
+        final SegmentGrid cellSegments = SegmentGrid.of(r.getMemberPrimitives(Way.class).stream()
+                .filter(w -> !w.hasIncompleteNodes())
+                .collect(Collectors.toList()), OsmValidator.getGridDetail());
         /** The detected crossing ways */
         final Map<List<Way>, List<WaySegment>> crossingWays = new HashMap<>(50);
 
-        for (Way w: r.getMemberPrimitives(Way.class)) {
-            if (!w.hasIncompleteNodes()) {
-                CrossingWays.findIntersectingWay(w, cellSegments, crossingWays, findSharedWaySegments);
-            }
-        }
+        CrossingWays.findIntersectingWays(cellSegments, crossingWays, findSharedWaySegments);
         return crossingWays;
     }
 
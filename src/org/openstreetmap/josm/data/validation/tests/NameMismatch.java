@@ -57,6 +57,11 @@ public class NameMismatch extends Test.TagTest {
                     "and not a composition of ''name:*'' attributes, e.g., Italia - Italien - Italy."));
     }
 
+    @Override
+    public Test newPartitionTest() {
+        return getClass() == NameMismatch.class ? new NameMismatch() : null;
+    }
+
     /**
      * Report a missing translation.
      *
@@ -20,6 +20,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.Severity;
+import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.Test.TagTest;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.tools.GBC;
@@ -52,6 +53,11 @@ public class OpeningHourTest extends TagTest {
                 tr("This test checks the correct usage of the opening hours syntax."));
     }
 
+    @Override
+    public Test newPartitionTest() {
+        return getClass() == OpeningHourTest.class ? new OpeningHourTest() : null;
+    }
+
     /**
      * Returns the real test error given to JOSM validator.
      * @param severity The error severity
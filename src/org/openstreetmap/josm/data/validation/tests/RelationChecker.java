@@ -95,6 +95,11 @@ public class RelationChecker extends Test implements TaggingPresetListener {
         initializePresets();
     }
 
+    @Override
+    public void initializeCopy(Test original) {
+        // the presets are static, they have been read by the original instance
+    }
+
     private static final Collection<TaggingPreset> relationpresets = new LinkedList<>();
 
     /**
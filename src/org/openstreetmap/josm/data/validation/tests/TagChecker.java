@@ -51,6 +51,7 @@ import org.openstreetmap.josm.data.osm.visitor.MergeSourceBuildingVisitor;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
+import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.Test.TagTest;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.data.validation.util.Entities;
@@ -223,6 +224,17 @@ public class TagChecker extends TagTest implements TaggingPresetListener {
         super(tr("Tag checker"), tr("This test checks for errors in tag keys and values."));
     }
 
+    @Override
+    public boolean isConcurrent() {
+        // uses the MapCSSTagChecker instance, see #countDeprecated
+        return false;
+    }
+
+    @Override
+    public Test newPartitionTest() {
+        return getClass() == TagChecker.class ? new TagChecker() : null;
+    }
+
     @Override
     public void initialize() throws IOException {
         TaggingPresets.addListener(this);
@@ -231,6 +243,11 @@ public class TagChecker extends TagTest implements TaggingPresetListener {
         analysePresets();
     }
 
+    @Override
+    public void initializeCopy(Test original) {
+        // the data is static, it has been loaded by the original instance
+    }
+
     /**
      * Add presets that contain only numerical values to the ignore list
      */
@@ -1044,9 +1061,12 @@ public class TagChecker extends TagTest implements TaggingPresetListener {
     private int countDeprecated(OsmPrimitive p) {
         if (deprecatedChecker == null)
             return 0;
-        deprecatedChecker.getErrors().clear();
-        deprecatedChecker.visit(Collections.singleton(p), url -> url.endsWith("deprecated.mapcss"));
-        return deprecatedChecker.getErrors().size();
+        // the instances checking parts of the primitives share the checker
+        synchronized (deprecatedChecker) {
+            deprecatedChecker.getErrors().clear();
+            deprecatedChecker.visit(Collections.singleton(p), url -> url.endsWith("deprecated.mapcss"));
+            return deprecatedChecker.getErrors().size();
+        }
     }
 
     private static boolean isNum(String harmonizedValue) {
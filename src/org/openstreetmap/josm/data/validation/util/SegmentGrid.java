@@ -0,0 +1,251 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+
+/**
+ * A grid of way segments, used by the geometric tests to find the segments which may cross or overlap a segment.
+ * <p>
+ * The grid has the same cells as {@link ValUtil#getSegmentCells}. Each segment is stored once, the cells and their
+ * content are kept in primitive arrays: the cells are found with an open addressing hash table, and the segments
+ * of a cell are linked in the order of their addition. Compared to a {@code Map<Point2D, List<WaySegment>>},
+ * no key or list object is allocated per cell.
+ * <p>
+ * The segments are numbered in the order of their addition. Looking up only the segments added before a given one
+ * checks each pair of segments once, whether the grid is {@linkplain #add(WaySegment, Consumer) filled while the
+ * ways are visited} or {@linkplain #of(Collection, double) built beforehand}.
+ * This class is not thread safe.
+ * @since xxx
+ */
+public final class SegmentGrid {
+
+    private static final int NONE = -1;
+    /** Minimal number of ways for which the cells are computed in parallel */
+    private static final int PARALLEL_THRESHOLD = 16;
+
+    private final double gridDetail;
+
+    // segments, and the start of their entries
+    private WaySegment[] segments = new WaySegment[64];
+    private int[] segmentEntries = new int[65];
+    private int segmentCount;
+
+    // cells, and the first and last of their entries
+    private long[] cellX = new long[64];
+    private long[] cellY = new long[64];
+    private int[] cellFirst = new int[64];
+    private int[] cellLast = new int[64];
+    private int cellCount;
+    /** Hash table of the cells, {@code NONE} for a free slot */
+    private int[] table = newTable(128);
+
+    // entries: a segment in a cell, linked to the next segment of the cell
+    private int[] entryCell = new int[256];
+    private int[] entrySegment = new int[256];
+    private int[] entryNext = new int[256];
+    private int entryCount;
+
+    /**
+     * Constructs a new empty {@code SegmentGrid} with the {@linkplain OsmValidator#getGridDetail() grid detail of the validator}.
+     */
+    public SegmentGrid() {
+        this(OsmValidator.getGridDetail());
+    }
+
+    /**
+     * Constructs a new empty {@code SegmentGrid}.
+     * @param gridDetail the detail of the grid, see {@link ValUtil#getSegmentCells}
+     */
+    public SegmentGrid(double gridDetail) {
+        this.gridDetail = gridDetail;
+    }
+
+    /**
+     * Builds the grid of all segments of the given ways. The cells of the segments of many ways are computed in
+     * parallel. The segments are numbered in the order of the ways and of the segments in each way, the segments
+     * whose nodes have no coordinates are skipped.
+     * @param ways the ways, which must not have incomplete nodes
+     * @param gridDetail the detail of the grid, see {@link ValUtil#getSegmentCells}
+     * @return the grid
+     */
+    public static SegmentGrid of(Collection<Way> ways, double gridDetail) {
+        List<long[][]> cells = (ways.size() < PARALLEL_THRESHOLD ? ways.stream() : ways.parallelStream()).map(w -> {
+            long[][] wayCells = new long[Math.max(0, w.getNodesCount() - 1)][];
+            for (int i = 0; i < wayCells.length; i++) {
+                wayCells[i] = getCells(w.getNode(i).getEastNorth(), w.getNode(i + 1).getEastNorth(), gridDetail);
+            }
+            return wayCells;
+        }).collect(Collectors.toList());
+
+        SegmentGrid grid = new SegmentGrid(gridDetail);
+        int i = 0;
+        for (Way w : ways) {
+            long[][] wayCells = cells.get(i++);
+            for (int j = 0; j < wayCells.length; j++) {
+                if (wayCells[j] != null) {
+                    grid.add(new WaySegment(w, j), wayCells[j]);
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static long[] getCells(EastNorth en1, EastNorth en2, double gridDetail) {
+        return en1 == null || en2 == null ? null : ValUtil.getSegmentCellCoordinates(en1, en2, gridDetail);
+    }
+
+    private static int[] newTable(int size) {
+        int[] result = new int[size];
+        Arrays.fill(result, NONE);
+        return result;
+    }
+
+    /**
+     * Returns the number of segments in the grid.
+     * @return the number of segments
+     */
+    public int size() {
+        return segmentCount;
+    }
+
+    /**
+     * Returns a segment of the grid.
+     * @param id the number of the segment, in the order of addition
+     * @return the segment
+     */
+    public WaySegment get(int id) {
+        return segments[id];
+    }
+
+    /**
+     * Visits the segments already in the cells crossed by a segment, and then adds it to these cells.
+     * A segment sharing several cells with the new one is visited once per common cell.
+     * @param segment the segment to add
+     * @param previousSegments the consumer of the segments already in the cells, can be {@code null}
+     * @return the number of the segment, or {@code -1} if its nodes have no coordinates
+     */
+    public int add(WaySegment segment, Consumer<WaySegment> previousSegments) {
+        long[] cells = getCells(segment.getFirstNode().getEastNorth(), segment.getSecondNode().getEastNorth(), gridDetail);
+        if (cells == null) {
+            return NONE;
+        }
+        if (previousSegments != null) {
+            for (int i = 0; i < cells.length; i += 2) {
+                int cell = findCell(cells[i], cells[i + 1]);
+                if (cell != NONE) {
+                    visitCell(cell, Integer.MAX_VALUE, previousSegments);
+                }
+            }
+        }
+        return add(segment, cells);
+    }
+
+    private int add(WaySegment segment, long[] cells) {
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, 2 * segmentCount);
+            segmentEntries = Arrays.copyOf(segmentEntries, 2 * segmentCount + 1);
+        }
+        int id = segmentCount++;
+        segments[id] = segment;
+        for (int i = 0; i < cells.length; i += 2) {
+            int cell = findCell(cells[i], cells[i + 1]);
+            if (cell == NONE) {
+                cell = addCell(cells[i], cells[i + 1]);
+            }
+            if (entryCount == entrySegment.length) {
+                entryCell = Arrays.copyOf(entryCell, 2 * entryCount);
+                entrySegment = Arrays.copyOf(entrySegment, 2 * entryCount);
+                entryNext = Arrays.copyOf(entryNext, 2 * entryCount);
+            }
+            int entry = entryCount++;
+            entryCell[entry] = cell;
+            entrySegment[entry] = id;
+            entryNext[entry] = NONE;
+            if (cellFirst[cell] == NONE) {
+                cellFirst[cell] = entry;
+            } else {
+                entryNext[cellLast[cell]] = entry;
+            }
+            cellLast[cell] = entry;
+        }
+        segmentEntries[id + 1] = entryCount;
+        return id;
+    }
+
+    /**
+     * Visits the segments added before the given one, in the cells it crosses. Iterating over all segments, this
+     * visits each pair of segments once per common cell, as {@link #add(WaySegment, Consumer)} does.
+     * @param id the number of the segment
+     * @param consumer the consumer of the previous segments
+     */
+    public void forEachPreviousSegment(int id, Consumer<WaySegment> consumer) {
+        for (int entry = segmentEntries[id]; entry < segmentEntries[id + 1]; entry++) {
+            visitCell(entryCell[entry], id, consumer);
+        }
+    }
+
+    private void visitCell(int cell, int maxId, Consumer<WaySegment> consumer) {
+        // the entries of a cell are sorted by segment
+        for (int entry = cellFirst[cell]; entry != NONE && entrySegment[entry] < maxId; entry = entryNext[entry]) {
+            consumer.accept(segments[entrySegment[entry]]);
+        }
+    }
+
+    private static int hash(long x, long y) {
+        long h = x * 0x9E3779B97F4A7C15L + y;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int findCell(long x, long y) {
+        int mask = table.length - 1;
+        for (int slot = hash(x, y) & mask; table[slot] != NONE; slot = (slot + 1) & mask) {
+            int cell = table[slot];
+            if (cellX[cell] == x && cellY[cell] == y) {
+                return cell;
+            }
+        }
+        return NONE;
+    }
+
+    private int addCell(long x, long y) {
+        if (cellCount == cellX.length) {
+            int size = 2 * cellCount;
+            cellX = Arrays.copyOf(cellX, size);
+            cellY = Arrays.copyOf(cellY, size);
+            cellFirst = Arrays.copyOf(cellFirst, size);
+            cellLast = Arrays.copyOf(cellLast, size);
+        }
+        int cell = cellCount++;
+        cellX[cell] = x;
+        cellY[cell] = y;
+        cellFirst[cell] = NONE;
+        if (2 * cellCount > table.length) {
+            table = newTable(2 * table.length);
+            for (int i = 0; i < cell; i++) {
+                insert(i);
+            }
+        }
+        insert(cell);
+        return cell;
+    }
+
+    private void insert(int cell) {
+        int mask = table.length - 1;
+        int slot = hash(cellX[cell], cellY[cell]) & mask;
+        while (table[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = cell;
+    }
+}
@@ -3,6 +3,7 @@ package org.openstreetmap.josm.data.validation.util;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -116,9 +117,29 @@ public final class ValUtil {
      * @since 6869
      */
     public static List<Point2D> getSegmentCells(EastNorth en1, EastNorth en2, double gridDetail) {
+        long[] coordinates = getSegmentCellCoordinates(en1, en2, gridDetail);
+        List<Point2D> cells = new ArrayList<>(coordinates.length / 2);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            cells.add(new Point2D.Double(coordinates[i], coordinates[i + 1]));
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the coordinates of all cells in a grid that a line between 2 nodes intersects with, without allocating
+     * a {@link Point2D} for each cell.
+     *
+     * @param en1 The first EastNorth.
+     * @param en2 The second EastNorth.
+     * @param gridDetail The detail of the grid. Bigger values give smaller
+     * cells, but a bigger number of them.
+     * @return The coordinates of the cells, as consecutive x, y pairs, in the order of {@link #getSegmentCells}
+     * @throws IllegalArgumentException if en1 or en2 is {@code null}
+     * @since xxx
+     */
+    public static long[] getSegmentCellCoordinates(EastNorth en1, EastNorth en2, double gridDetail) {
         CheckParameterUtil.ensureParameterNotNull(en1, "en1");
         CheckParameterUtil.ensureParameterNotNull(en2, "en2");
-        List<Point2D> cells = new ArrayList<>();
         double x0 = en1.east() * gridDetail;
         double x1 = en2.east() * gridDetail;
         double y0 = en1.north() * gridDetail + 1;
@@ -140,8 +161,11 @@ public final class ValUtil {
         long gridY1 = (long) Math.floor(y1);
 
         long maxSteps = (gridX1 - gridX0) + Math.abs(gridY1 - gridY0) + 1;
+        long[] cells = new long[2 * (int) Math.max(0, Math.min(maxSteps, Integer.MAX_VALUE / 2))];
+        int size = 0;
         while ((gridX0 <= gridX1 && (gridY0 - gridY1)*stepY <= 0) && maxSteps-- > 0) {
-            cells.add(new Point2D.Double(gridX0, gridY0));
+            cells[size++] = gridX0;
+            cells[size++] = gridY0;
 
             // Is the cross between the segment and next vertical line nearer than the cross with next horizontal line?
             // Note: segment line formula: y=dy/dx(x-x1)+y1
@@ -158,6 +182,6 @@ public final class ValUtil {
                 gridY0 += stepY;
             }
         }
-        return cells;
+        return size == cells.length ? cells : Arrays.copyOf(cells, size);
     }
 }
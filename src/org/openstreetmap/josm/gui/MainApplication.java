@@ -154,6 +154,7 @@ import org.openstreetmap.josm.tools.FontsManager;
 import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.Http1Client;
 import org.openstreetmap.josm.tools.HttpClient;
+import org.openstreetmap.josm.tools.HttpClient.HttpClientFactory;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
@@ -1098,7 +1099,8 @@ public class MainApplication {
     }
 
     static void setupCallbacks() {
-        HttpClient.setFactory(Http1Client::new);
+        HttpClientFactory http2Factory = Config.getPref().getBoolean("http.client.http2", false) ? HttpClient.getHttp2Factory() : null;
+        HttpClient.setFactory(http2Factory != null ? http2Factory : Http1Client::new);
         OsmConnection.setOAuthAccessTokenFetcher(OAuthAuthorizationWizard::obtainAccessToken);
         AbstractCredentialsAgent.setCredentialsProvider(CredentialDialog::promptCredentials);
         MessageNotifier.setNotifierCallback(MainApplication::notifyNewMessages);
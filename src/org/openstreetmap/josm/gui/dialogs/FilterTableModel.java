@@ -115,6 +115,20 @@ public class FilterTableModel extends AbstractTableModel implements SortableTabl
         }
     }
 
+    /**
+     * Runs the filters on the primitives depending on the given modified primitives, if any filter is enabled.
+     * @param modified the primitives which have been added or modified
+     * @param removed the primitives which have been removed or deleted
+     * @see FilterModel#executeFiltersIncrementally
+     * @since xxx
+     */
+    public void executeFiltersIncrementally(Collection<? extends OsmPrimitive> modified, Collection<? extends OsmPrimitive> removed) {
+        if (AutoFilterManager.getInstance().getCurrentAutoFilter() == null && model.hasFilters()) {
+            model.executeFiltersIncrementally(modified, removed);
+            updateMap();
+        }
+    }
+
     private void updateMap() {
         MapFrame map = MainApplication.getMap();
         if (map != null && model.isChanged()) {
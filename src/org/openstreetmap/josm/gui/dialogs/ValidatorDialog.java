@@ -48,11 +48,15 @@ import org.openstreetmap.josm.data.osm.event.DatasetEventManager.FireMode;
 import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
+import org.openstreetmap.josm.data.preferences.AbstractProperty.ValueChangeListener;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
+import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationSession;
 import org.openstreetmap.josm.data.validation.ValidatorVisitor;
+import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.PopupMenuHandler;
@@ -68,6 +72,7 @@ import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.gui.widgets.PopupMenuLauncher;
 import org.openstreetmap.josm.io.OsmTransferException;
 import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangedListener;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.InputMapUtils;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
@@ -106,6 +111,18 @@ public class ValidatorDialog extends ToggleDialog
     private final JPopupMenu popupMenu = new JPopupMenu();
     private final transient PopupMenuHandler popupMenuHandler = new PopupMenuHandler(popupMenu);
     private final transient DataSetListenerAdapter dataChangedAdapter = new DataSetListenerAdapter(this);
+    /** The session keeping the errors of the edit layer up to date, if continuous validation is enabled */
+    private transient volatile ValidationSession validationSession;
+    /** The tests run by the sessions, not shared with the other validations. Only accessed by {@link MainApplication#worker} */
+    private transient Collection<Test> validationSessionTests;
+    private final transient ValueChangeListener<Boolean> continuousValidationListener =
+            e -> GuiHelper.runInEDT(() -> setValidationSession(MainApplication.getLayerManager().getEditLayer()));
+    private final transient PreferenceChangedListener validatorPreferenceListener = e -> {
+        if (ValidatorPrefHelper.PREF_SKIP_TESTS.equals(e.getKey()) || MapCSSTagChecker.ENTRIES_PREF_KEY.equals(e.getKey())) {
+            // the tests are created again, with the new enabled tests and rules
+            MainApplication.worker.submit(() -> validationSessionTests = null);
+        }
+    };
 
     /** Last selected element */
     private DefaultMutableTreeNode lastSelectedNode;
@@ -256,7 +273,8 @@ public class ValidatorDialog extends ToggleDialog
             updateSelection(ds.getAllSelected());
         }
         MainApplication.getLayerManager().addAndFireActiveLayerChangeListener(this);
-
+        ValidatorPrefHelper.PREF_CONTINUOUS.addListener(continuousValidationListener);
+        Config.getPref().addPreferenceChangeListener(validatorPreferenceListener);
     }
 
     @Override
@@ -264,6 +282,9 @@ public class ValidatorDialog extends ToggleDialog
         DatasetEventManager.getInstance().removeDatasetListener(dataChangedAdapter);
         MainApplication.getLayerManager().removeActiveLayerChangeListener(this);
         SelectionEventManager.getInstance().removeSelectionListener(this);
+        ValidatorPrefHelper.PREF_CONTINUOUS.removeListener(continuousValidationListener);
+        Config.getPref().removePreferenceChangeListener(validatorPreferenceListener);
+        setValidationSession(null);
     }
 
     @Override
@@ -432,6 +453,58 @@ public class ValidatorDialog extends ToggleDialog
         } else {
             tree.setErrorList(editLayer.validationErrors);
         }
+        setValidationSession(editLayer);
+    }
+
+    /**
+     * Replaces the continuous validation session by a new one for the given layer.
+     * @param editLayer the edit layer, or {@code null} to stop the continuous validation
+     */
+    private void setValidationSession(OsmDataLayer editLayer) {
+        if (validationSession != null) {
+            DatasetEventManager.getInstance().removeDatasetListener(validationSession);
+            validationSession = null;
+        }
+        if (editLayer != null && Boolean.TRUE.equals(ValidatorPrefHelper.PREF_CONTINUOUS.get())) {
+            ValidationSession session = new ValidationSession(editLayer.getDataSet(), editLayer.validationErrors,
+                    () -> MainApplication.worker.submit(() -> updateValidationSession(editLayer)));
+            validationSession = session;
+            DatasetEventManager.getInstance().addDatasetListener(session, FireMode.IN_EDT_CONSOLIDATED);
+        }
+    }
+
+    /**
+     * Sets the validation errors of the edit layer, computed by a validation run outside of the continuous validation.
+     * @param errors the validation errors
+     * @since xxx
+     */
+    public void setErrors(List<TestError> errors) {
+        tree.setErrors(errors);
+        ValidationSession session = validationSession;
+        if (session != null) {
+            session.reset(errors);
+        }
+    }
+
+    /**
+     * Updates the continuous validation session. Runs on {@link MainApplication#worker}, as the tests of the session.
+     * @param editLayer the edit layer of the session
+     */
+    private void updateValidationSession(OsmDataLayer editLayer) {
+        ValidationSession session = validationSession;
+        if (session == null || session.getDataSet() != editLayer.getDataSet()) {
+            return;
+        }
+        if (validationSessionTests == null) {
+            validationSessionTests = OsmValidator.createEnabledTests(false);
+        }
+        List<TestError> errors = session.update(validationSessionTests);
+        GuiHelper.runInEDT(() -> {
+            if (session == validationSession) {
+                tree.setErrors(errors);
+                invalidateValidatorLayers();
+            }
+        });
     }
 
     /**
@@ -0,0 +1,48 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmPbfWriter;
+
+/**
+ * Exporter to write map data to an OSM PBF file.
+ * <p>
+ * The PBF format cannot store the modification state of primitives, so the layer is not considered saved afterwards.
+ * @since xxx
+ */
+public class OsmPbfExporter extends FileExporter {
+
+    /**
+     * Constructs a new {@code OsmPbfExporter}.
+     */
+    public OsmPbfExporter() {
+        super(OsmPbfImporter.FILE_FILTER);
+    }
+
+    @Override
+    public void exportData(File file, Layer layer) throws IOException {
+        if (layer instanceof OsmDataLayer) {
+            DataSet data = ((OsmDataLayer) layer).data;
+            try (OutputStream out = Files.newOutputStream(file.toPath());
+                 OsmPbfWriter writer = new OsmPbfWriter(out)) {
+                data.getReadLock().lock();
+                try {
+                    writer.write(data);
+                } finally {
+                    data.getReadLock().unlock();
+                }
+            }
+        } else {
+            throw new IllegalArgumentException(tr("Layer ''{0}'' not supported", layer.getClass().toString()));
+        }
+    }
+}
@@ -28,6 +28,7 @@ public abstract class AbstractCachedTileSourceLayer<T extends AbstractTMSTileSou
     private static final Map<String, TileLoaderFactory> loaderFactories = new ConcurrentHashMap<>();
 
     private static final String PREFERENCE_PREFIX = "imagery.cache.";
+    private static final String MAPPED_STORE_SUFFIX = "_MMAP";
 
     private static volatile TileLoaderFactory loaderFactoryOverride;
 
@@ -50,7 +51,7 @@ public abstract class AbstractCachedTileSourceLayer<T extends AbstractTMSTileSou
         if (loaderFactoryOverride != null) {
             loaderFactory = loaderFactoryOverride;
         } else {
-            String key = this.getClass().getCanonicalName();
+            String key = this.getClass().getCanonicalName() + (info.isMappedTileStore() ? MAPPED_STORE_SUFFIX : "");
             loaderFactory = loaderFactories.get(key);
             synchronized (AbstractCachedTileSourceLayer.class) {
                 if (loaderFactory == null) {
@@ -78,10 +79,13 @@ public abstract class AbstractCachedTileSourceLayer<T extends AbstractTMSTileSou
      */
     private synchronized ICacheAccess<String, BufferedImageCacheEntry> getCache() {
         if (cache == null) {
-            cache = JCSCacheManager.getCache(getCacheName(),
+            // the layers using a memory-mapped tile store have their own cache region
+            boolean useMappedStore = info.isMappedTileStore();
+            cache = JCSCacheManager.getCache(getCacheName() + (useMappedStore ? MAPPED_STORE_SUFFIX : ""),
                     0,
                     getDiskCacheSize(),
-                    CachedTileLoaderFactory.PROP_TILECACHE_DIR.get());
+                    CachedTileLoaderFactory.PROP_TILECACHE_DIR.get(),
+                    useMappedStore);
         }
         return cache;
     }
@@ -58,7 +58,6 @@ import javax.swing.JSeparator;
 import javax.swing.Timer;
 
 import org.openstreetmap.gui.jmapviewer.AttributionSupport;
-import org.openstreetmap.gui.jmapviewer.MemoryTileCache;
 import org.openstreetmap.gui.jmapviewer.OsmTileLoader;
 import org.openstreetmap.gui.jmapviewer.Tile;
 import org.openstreetmap.gui.jmapviewer.TileRange;
@@ -68,6 +67,7 @@ import org.openstreetmap.gui.jmapviewer.interfaces.ICoordinate;
 import org.openstreetmap.gui.jmapviewer.interfaces.IProjected;
 import org.openstreetmap.gui.jmapviewer.interfaces.TemplatedTileSource;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileCache;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileJob;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoader;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
@@ -85,7 +85,9 @@ import org.openstreetmap.josm.data.imagery.CoordinateConversion;
 import org.openstreetmap.josm.data.imagery.ImageryInfo;
 import org.openstreetmap.josm.data.imagery.OffsetBookmark;
 import org.openstreetmap.josm.data.imagery.TMSCachedTileLoader;
+import org.openstreetmap.josm.data.imagery.TMSCachedTileLoaderJob;
 import org.openstreetmap.josm.data.imagery.TileLoaderFactory;
+import org.openstreetmap.josm.data.imagery.TileViewport;
 import org.openstreetmap.josm.data.imagery.vectortile.VectorTile;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
@@ -115,6 +117,7 @@ import org.openstreetmap.josm.gui.layer.imagery.ReprojectionTile;
 import org.openstreetmap.josm.gui.layer.imagery.ShowErrorsAction;
 import org.openstreetmap.josm.gui.layer.imagery.TileAnchor;
 import org.openstreetmap.josm.gui.layer.imagery.TileCoordinateConverter;
+import org.openstreetmap.josm.gui.layer.imagery.TileImageCache;
 import org.openstreetmap.josm.gui.layer.imagery.TilePosition;
 import org.openstreetmap.josm.gui.layer.imagery.TileSourceDisplaySettings;
 import org.openstreetmap.josm.gui.layer.imagery.TileSourceDisplaySettings.DisplaySettingsChangeEvent;
@@ -178,9 +181,21 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
 
     private static final BooleanProperty POPUP_MENU_ENABLED = new BooleanProperty(PREFERENCE_PREFIX + ".popupmenu", true);
 
+    /**
+     * Maximum size of the tile images kept in memory by each layer, in MB. 0 to size it from the screen size.
+     * @since xxx
+     */
+    public static final IntegerProperty MEMORY_CACHE_SIZE = new IntegerProperty(PREFERENCE_PREFIX + ".memory_cache_size", 0);
+
+    /**
+     * Prefetch the tiles of the next zoom level, once the visible tiles are loaded.
+     * @since xxx
+     */
+    public static final BooleanProperty PREFETCH_NEXT_ZOOM = new BooleanProperty(PREFERENCE_PREFIX + ".prefetch_next_zoom", true);
+
     /*
-     *  use MemoryTileCache instead of tileLoader JCS cache, as tileLoader caches only content (byte[] of image)
-     *  and MemoryTileCache caches whole Tile. This gives huge performance improvement when a lot of tiles are visible
+     *  use TileImageCache instead of tileLoader JCS cache, as tileLoader caches only content (byte[] of image)
+     *  and TileImageCache caches whole Tile. This gives huge performance improvement when a lot of tiles are visible
      *  in MapView (for example - when limiting min zoom in imagery)
      *
      *  Use per-layer tileCache instance, as the more layers there are, the more tiles needs to be cached
@@ -298,7 +313,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         if (tileLoader == null)
             tileLoader = new OsmTileLoader(this, headers);
 
-        tileCache = new MemoryTileCache(estimateTileCacheSize());
+        tileCache = new TileImageCache(getMemoryCacheSize(), tileSource.getTileSize());
     }
 
     @Override
@@ -630,6 +645,20 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         }
     }
 
+    /**
+     * Returns the maximum size of the tile images kept in memory by this layer.
+     * @return the maximum size of the tile images kept in memory, in bytes
+     * @since xxx
+     */
+    protected long getMemoryCacheSize() {
+        int configured = MEMORY_CACHE_SIZE.get();
+        if (configured > 0) {
+            return configured * 1024L * 1024L;
+        }
+        int tileSize = tileSource != null ? tileSource.getTileSize() : 256;
+        return 4L * tileSize * tileSize * estimateTileCacheSize();
+    }
+
     protected int estimateTileCacheSize() {
         Dimension screenSize = GuiHelper.getMaximumScreenSize();
         int height = screenSize.height;
@@ -923,10 +952,23 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             return false;
         if (tile.isLoading())
             return false;
-        tileLoader.createTileLoaderJob(tile).submit(force);
+        createDisplayJob(tile).submit(force);
         return true;
     }
 
+    /**
+     * Creates the job downloading a tile to be displayed, so that it is scheduled by the viewport of this layer.
+     * @param tile the tile
+     * @return the new job
+     */
+    private TileJob createDisplayJob(Tile tile) {
+        TileJob job = tileLoader.createTileLoaderJob(tile);
+        if (job instanceof TMSCachedTileLoaderJob) {
+            ((TMSCachedTileLoaderJob) job).setForDisplay(true);
+        }
+        return job;
+    }
+
     private TileSet getVisibleTileSet() {
         if (!MainApplication.isDisplayingMapView())
             return new TileSet();
@@ -1129,6 +1171,26 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         return Collections.unmodifiableList(missedTiles);
     }
 
+    /**
+     * Paints a missing tile with the loaded tiles of a higher zoom level, scaled down once and kept in the tile cache.
+     * @param g the graphics
+     * @param missed the missing tile
+     * @param zoomOffset the difference between the zoom level of the loaded tiles and the zoom level of the missing tile
+     * @return {@code true} if the tile has been painted
+     */
+    private boolean paintMip(Graphics2D g, Tile missed, int zoomOffset) {
+        if (!(tileCache instanceof TileImageCache) || coordinateConverter.requiresReprojection()) {
+            return false;
+        }
+        BufferedImage mip = ((TileImageCache) tileCache).getMip(tileSource, missed.getXtile(), missed.getYtile(),
+                missed.getZoom(), zoomOffset);
+        if (mip == null) {
+            return false;
+        }
+        drawImageInside(g, applyImageProcessors(mip), getAnchor(missed, mip), coordinateConverter.getScreenAnchorForTile(missed), null);
+        return true;
+    }
+
     private static TileAnchor getAnchor(Tile tile, BufferedImage image) {
         if (tile instanceof ReprojectionTile) {
             return ((ReprojectionTile) tile).getAnchor();
@@ -1260,6 +1322,22 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             return tileCache == null || size() > tileCache.getCacheSize();
         }
 
+        /**
+         * Marks the tiles of this set as the visible ones, so that the tiles near them are kept longer in the tile cache.
+         */
+        private void setVisibleInCache() {
+            if (tileCache instanceof TileImageCache) {
+                ((TileImageCache) tileCache).setViewport(zoom, minX, minY, maxX, maxY);
+            }
+        }
+
+        /**
+         * Marks the tiles of this set as the visible ones, so that the tiles near them are downloaded first.
+         */
+        private void setDownloadViewport() {
+            TileViewport.update(tileSource, zoom, minX, minY, maxX, maxY);
+        }
+
         /**
          * Get all tiles represented by this TileSet that are already in the tileCache.
          * @return all tiles represented by this TileSet that are already in the tileCache
@@ -1329,11 +1407,19 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
              *  @see #estimateTileCacheSize()
              */
             int overload = 1;
+            // one more row or column of tiles in the panning direction
+            int aheadX = 0;
+            int aheadY = 0;
+            TileViewport viewport = TileViewport.get(tileSource);
+            if (viewport != null && viewport.getZoom() == zoom) {
+                aheadX = (int) Math.round(viewport.getPanX());
+                aheadY = (int) Math.round(viewport.getPanY());
+            }
 
-            int minXo = Utils.clamp(minX-overload, tileSource.getTileXMin(zoom), tileSource.getTileXMax(zoom));
-            int maxXo = Utils.clamp(maxX+overload, tileSource.getTileXMin(zoom), tileSource.getTileXMax(zoom));
-            int minYo = Utils.clamp(minY-overload, tileSource.getTileYMin(zoom), tileSource.getTileYMax(zoom));
-            int maxYo = Utils.clamp(maxY+overload, tileSource.getTileYMin(zoom), tileSource.getTileYMax(zoom));
+            int minXo = Utils.clamp(minX-overload-Math.max(0, -aheadX), tileSource.getTileXMin(zoom), tileSource.getTileXMax(zoom));
+            int maxXo = Utils.clamp(maxX+overload+Math.max(0, aheadX), tileSource.getTileXMin(zoom), tileSource.getTileXMax(zoom));
+            int minYo = Utils.clamp(minY-overload-Math.max(0, -aheadY), tileSource.getTileYMin(zoom), tileSource.getTileYMax(zoom));
+            int maxYo = Utils.clamp(maxY+overload+Math.max(0, aheadY), tileSource.getTileYMin(zoom), tileSource.getTileYMax(zoom));
 
             TileSet ts = new TileSet(new TileXY(minXo, minYo), new TileXY(maxXo, maxYo), zoom);
             ts.loadAllTiles(false);
@@ -1344,7 +1430,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
                 return;
             for (Tile t : this.allTilesCreate()) {
                 if (t.hasError()) {
-                    tileLoader.createTileLoaderJob(t).submit(force);
+                    createDisplayJob(t).submit(force);
                 }
             }
         }
@@ -1572,6 +1658,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             setZoomLevel(zoom, false);
         }
         TileSet ts = dts.getTileSet(zoom);
+        ts.setDownloadViewport();
 
         // try to load tiles from desired zoom level, no matter what we will show (for example, tiles from previous zoom level
         // on zoom in)
@@ -1589,9 +1676,19 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
 
         g.setColor(Color.DARK_GRAY);
 
+        ts.setVisibleInCache();
         List<Tile> missedTiles = this.paintTileImages(g, ts);
         if (getDisplaySettings().isAutoLoad()) {
             ts.overloadTiles();
+            TileSet current = dts.getTileSet(zoom);
+            if (PREFETCH_NEXT_ZOOM.get() && zoom < getMaxZoomLvl() && !current.hasLoadingTiles()
+                    && current.hasAllLoadedTiles() && !current.hasOverzoomedTiles()) {
+                // the downloads of the next zoom level come after the ones of the visible tiles, see TileViewport
+                TileSet next = getTileSet(pb, zoom + 1);
+                if (!next.tooLarge()) {
+                    next.loadAllTiles(false);
+                }
+            }
         }
         if (getDisplaySettings().isAutoZoom()) {
             /**
@@ -1674,6 +1771,9 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
                 newlyMissedTiles.add(missed);
                 continue;
             }
+            if (zoomOffset > 0 && paintMip(g, missed, zoomOffset)) {
+                continue;
+            }
             TileSet ts2 = new TileSet(tileSource.getCoveringTileRange(missed, newzoom));
             // Instantiating large TileSets is expensive. If there are no loaded tiles, don't bother even trying.
             if (ts2.allLoadedTiles().isEmpty()) {
@@ -1988,6 +2088,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         super.destroy();
         MapView.removeZoomChangeListener(this);
         adjustAction.destroy();
+        TileViewport.remove(tileSource);
         if (tileLoader instanceof TMSCachedTileLoader) {
             ((TMSCachedTileLoader) tileLoader).shutdown();
         }
@@ -2040,7 +2141,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         }
 
         protected long getEstimatedCacheSize() {
-            return 4L * tileSource.getTileSize() * tileSource.getTileSize() * estimateTileCacheSize();
+            return getMemoryCacheSize();
         }
 
         @Override
@@ -93,6 +93,12 @@ public class GpxRouteLayer extends AbstractModifiableLayer {
             protected Iterable<Line> getLinesIterable(boolean[] trackVisibility) {
                 return () -> routes.stream().map(Line::new).iterator();
             }
+
+            @Override
+            protected boolean useTrackIndex() {
+                // routes are drawn, not the tracks
+                return false;
+            }
         };
     }
 }
@@ -92,6 +92,7 @@ import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.AbstractMapRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderTileCache;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
@@ -383,6 +384,11 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
     public final DataSet data;
     private final DataSetListenerAdapter dataSetListenerAdapter;
 
+    /**
+     * the tiles of rendered data, used in incremental rendering mode
+     */
+    private final RenderTileCache renderTileCache = new RenderTileCache();
+
     /**
      * a texture for non-downloaded area
      */
@@ -537,11 +543,19 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
             }
         }
 
+        boolean slowOperations = mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
+                || !PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get();
+        if (!renderTileCache.paint(g, mv, Arrays.asList(inactive, virtual, slowOperations),
+                (tileGraphics, bounds) -> render(tileGraphics, mv, bounds, inactive, virtual, slowOperations))) {
+            render(g, mv, box, inactive, virtual, slowOperations);
+        }
+        MainApplication.getMap().conflictDialog.paintConflicts(g, mv);
+    }
+
+    private void render(Graphics2D g, MapView mv, Bounds box, boolean inactive, boolean virtual, boolean slowOperations) {
         AbstractMapRenderer painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
-        painter.enableSlowOperations(mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
-                || !PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get());
+        painter.enableSlowOperations(slowOperations);
         painter.render(data, virtual, box);
-        MainApplication.getMap().conflictDialog.paintConflicts(g, mv);
     }
 
     @Override public String getToolTipText() {
@@ -1163,16 +1177,27 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
         }
     }
 
+    @Override
+    public void invalidate() {
+        if (renderTileCache != null) { // null when called by the superclass constructor
+            renderTileCache.invalidate();
+        }
+        super.invalidate();
+    }
+
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
-        invalidate();
+        renderTileCache.invalidate(event);
+        super.invalidate();
         setRequiresSaveToFile(true);
         setRequiresUploadToServer(event.getDataset().requiresUploadToServer());
     }
 
     @Override
     public void selectionChanged(SelectionChangeEvent event) {
-        invalidate();
+        renderTileCache.invalidate(event.getAdded());
+        renderTileCache.invalidate(event.getRemoved());
+        super.invalidate();
     }
 
     @Override
@@ -1304,7 +1329,12 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
 
     @Override
     public void highlightUpdated(HighlightUpdateEvent e) {
-        invalidate();
+        if (e.getPrimitives() != null) {
+            renderTileCache.invalidate(e.getPrimitives());
+            super.invalidate();
+        } else {
+            invalidate();
+        }
     }
 
     @Override
@@ -25,10 +25,13 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.ImageIcon;
 
@@ -52,6 +55,7 @@ import org.openstreetmap.josm.gui.layer.MapViewPaintable.MapViewEvent;
 import org.openstreetmap.josm.gui.layer.MapViewPaintable.PaintableInvalidationEvent;
 import org.openstreetmap.josm.gui.layer.MapViewPaintable.PaintableInvalidationListener;
 import org.openstreetmap.josm.gui.preferences.display.GPXSettingsPanel;
+import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.io.CachedFile;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.ColorScale;
@@ -235,6 +239,21 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     // The heat map was invalidated since the last draw.
     private boolean gpxLayerInvalidated;
 
+    private static final ThreadFactory TRACK_INDEX_THREADS = Utils.newThreadFactory("gpx-track-index-%d", Thread.MIN_PRIORITY);
+    /** Builds the level of detail indexes of the tracks in the background */
+    private static final ExecutorService TRACK_INDEX_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = TRACK_INDEX_THREADS.newThread(runnable);
+        // the indexes are only used for drawing, they must not keep the application running
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The level of detail index of the tracks, null while it is built or if there are few track points
+    private volatile GpxTrackIndex trackIndex;
+    private Future<?> trackIndexTask;
+    private int trackIndexGeneration;
+    // Incremented each time the drawLine values of the points are computed
+    private int drawLineVersion;
+
     private void setupColors() {
         hdopAlpha = Config.getPref().getInt("hdop.color.alpha", -1);
         velocityScale = ColorScale.createHSBScale(256);
@@ -399,8 +418,11 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
     @Override
     public void paint(MapViewGraphics graphics) {
+        if (trackIndexTask == null && useTrackIndex()) {
+            scheduleTrackIndex();
+        }
         Bounds clipBounds = graphics.getClipBounds().getLatLonBoundsBox();
-        List<WayPoint> visibleSegments = listVisibleSegments(clipBounds);
+        GpxVisiblePoints visibleSegments = listVisibleSegments(graphics.getMapView(), clipBounds);
         if (!visibleSegments.isEmpty()) {
             readPreferences();
             drawAll(graphics.getDefaultGraphics(), graphics.getMapView(), visibleSegments, clipBounds);
@@ -410,32 +432,69 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         }
     }
 
-    private List<WayPoint> listVisibleSegments(Bounds box) {
-        WayPoint last = null;
-        LinkedList<WayPoint> visibleSegments = new LinkedList<>();
+    /**
+     * Determines if the tracks are drawn with a level of detail index, built in the background, when they have many points.
+     * @return {@code true} if the drawn lines are the track segments of the data
+     * @since xxx
+     */
+    protected boolean useTrackIndex() {
+        return true;
+    }
+
+    /**
+     * Builds the level of detail index of the tracks in the background, replacing the current one.
+     */
+    private synchronized void scheduleTrackIndex() {
+        if (trackIndexTask != null) {
+            trackIndexTask.cancel(true);
+        }
+        trackIndex = null;
+        final int generation = ++trackIndexGeneration;
+        trackIndexTask = TRACK_INDEX_EXECUTOR.submit(() -> {
+            GpxTrackIndex index = GpxTrackIndex.build(data, GpxTrackIndex.MIN_POINTS);
+            if (index != null) {
+                synchronized (this) {
+                    if (generation != trackIndexGeneration) {
+                        return;
+                    }
+                    trackIndex = index;
+                }
+                GuiHelper.runInEDT(layer::invalidate);
+            }
+        });
+    }
+
+    private static double getPixelSize(MapView mv) {
+        return Math.abs(mv.getLatLon(0, 0).lat() - mv.getLatLon(0, 1).lat());
+    }
+
+    private GpxVisiblePoints listVisibleSegments(MapView mv, Bounds box) {
+        GpxTrackIndex index = trackIndex;
+        if (index != null && mv != null) {
+            ensureTrackVisibilityLength();
+            index.updateBreaks(drawLineVersion);
+            return index.listVisibleSegments(box, getPixelSize(mv), layer.trackVisibility);
+        }
+        GpxLinePoints lastLine = null;
+        int last = -1;
+        GpxVisiblePoints visibleSegments = new GpxVisiblePoints();
 
         ensureTrackVisibilityLength();
         for (Line segment : getLinesIterable(layer.trackVisibility)) {
-
-            for (WayPoint pt : segment) {
-                Bounds b = new Bounds(pt.getCoor());
-                if (pt.drawLine && last != null) {
-                    b.extend(last.getCoor());
+            GpxLinePoints points = GpxLinePoints.of(segment);
+            for (int i = 0; i < points.size(); i++) {
+                Bounds b = new Bounds(points.getCoor(i));
+                if (points.isDrawLine(i) && lastLine != null) {
+                    b.extend(lastLine.getCoor(last));
                 }
                 if (b.intersects(box)) {
-                    if (last != null && (visibleSegments.isEmpty()
-                            || visibleSegments.getLast() != last)) {
-                        if (last.drawLine) {
-                            WayPoint l = new WayPoint(last);
-                            l.drawLine = false;
-                            visibleSegments.add(l);
-                        } else {
-                            visibleSegments.add(last);
-                        }
+                    if (lastLine != null && !visibleSegments.isLast(lastLine, last)) {
+                        visibleSegments.add(lastLine, last, false);
                     }
-                    visibleSegments.add(pt);
+                    visibleSegments.add(points, i, points.isDrawLine(i));
                 }
-                last = pt;
+                lastLine = points;
+                last = i;
             }
         }
         return visibleSegments;
@@ -464,11 +523,21 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Draw all enabled GPX elements of layer.
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
+     * @param visibleSegments segments visible in the current scope of mv. If the colors have to be computed again,
+     *                        the segments of the data visible in the clipping rectangle are drawn instead.
      * @param clipBounds      the clipping rectangle for the current view
      * @since 14748 : new parameter clipBounds
      */
     public void drawAll(Graphics2D g, MapView mv, List<WayPoint> visibleSegments, Bounds clipBounds) {
+        GpxLinePoints points = GpxLinePoints.of(visibleSegments);
+        GpxVisiblePoints visible = new GpxVisiblePoints();
+        for (int i = 0; i < points.size(); i++) {
+            visible.add(points, i, points.isDrawLine(i));
+        }
+        drawAll(g, mv, visible, clipBounds);
+    }
+
+    private void drawAll(Graphics2D g, MapView mv, GpxVisiblePoints visibleSegments, Bounds clipBounds) {
 
         final Stopwatch stopwatch = Stopwatch.createStarted();
 
@@ -477,9 +546,8 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // STEP 2b - RE-COMPUTE CACHE DATA *********************
         if (!computeCacheInSync) { // don't compute if the cache is good
             calculateColors();
-            // update the WaiPoint.drawline attributes
-            visibleSegments.clear();
-            visibleSegments.addAll(listVisibleSegments(clipBounds));
+            // update the drawLine attributes
+            visibleSegments = listVisibleSegments(mv, clipBounds);
         }
 
         fixColors(visibleSegments);
@@ -552,25 +620,30 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     public void calculateColors() {
         double minval = +1e10;
         double maxval = -1e10;
-        WayPoint oldWp = null;
+        LatLon oldCoor = null;
+        double oldTime = 0;
 
         if (colorModeDynamic) {
             if (colored == ColorMode.VELOCITY) {
                 final List<Double> velocities = new ArrayList<>();
                 for (Line segment : getLinesIterable(null)) {
                     if (!forceLines) {
-                        oldWp = null;
+                        oldCoor = null;
                     }
-                    for (WayPoint trkPnt : segment) {
-                        if (!trkPnt.isLatLonKnown()) {
+                    GpxLinePoints points = GpxLinePoints.of(segment);
+                    for (int i = 0; i < points.size(); i++) {
+                        if (!points.isLatLonKnown(i)) {
                             continue;
                         }
-                        if (oldWp != null && trkPnt.getTimeInMillis() > oldWp.getTimeInMillis()) {
-                            double vel = trkPnt.greatCircleDistance(oldWp)
-                                    / (trkPnt.getTime() - oldWp.getTime());
+                        LatLon coor = points.getCoor(i);
+                        double time = points.getTime(i);
+                        if (oldCoor != null && time > oldTime) {
+                            double vel = coor.greatCircleDistance(oldCoor)
+                                    / (time - oldTime);
                             velocities.add(vel);
                         }
-                        oldWp = trkPnt;
+                        oldCoor = coor;
+                        oldTime = time;
                     }
                 }
                 Collections.sort(velocities);
@@ -583,8 +656,9 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                 }
             } else if (colored == ColorMode.HDOP) {
                 for (Line segment : getLinesIterable(null)) {
-                    for (WayPoint trkPnt : segment) {
-                        Object val = trkPnt.get(GpxConstants.PT_HDOP);
+                    GpxLinePoints points = GpxLinePoints.of(segment);
+                    for (int i = 0; i < points.size(); i++) {
+                        Object val = points.get(i, GpxConstants.PT_HDOP);
                         if (val != null) {
                             double hdop = ((Float) val).doubleValue();
                             if (hdop > maxval) {
@@ -602,7 +676,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     hdopScale.setRange(minval, maxval);
                 }
             }
-            oldWp = null;
+            oldCoor = null;
         } else { // color mode not dynamic
             velocityScale.setRange(0, velocityTune);
             hdopScale.setRange(0, hdoprange);
@@ -620,22 +694,25 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // Now the colors for all the points will be assigned
         for (Line segment : getLinesIterable(null)) {
             if (!forceLines) { // don't draw lines between segments, unless forced to
-                oldWp = null;
+                oldCoor = null;
             }
-            for (WayPoint trkPnt : segment) {
-                trkPnt.customColoring = segment.getColor();
-                if (Double.isNaN(trkPnt.lat()) || Double.isNaN(trkPnt.lon())) {
+            GpxLinePoints points = GpxLinePoints.of(segment);
+            for (int i = 0; i < points.size(); i++) {
+                points.setCustomColoring(i, segment.getColor());
+                if (!points.isLatLonKnown(i)) {
                     continue;
                 }
+                LatLon coor = points.getCoor(i);
+                double time = points.getTime(i);
                 // now we are sure some color will be assigned
                 Color color = null;
 
                 if (colored == ColorMode.HDOP) {
-                    color = hdopScale.getColor((Float) trkPnt.get(GpxConstants.PT_HDOP));
+                    color = hdopScale.getColor((Float) points.get(i, GpxConstants.PT_HDOP));
                 } else if (colored == ColorMode.QUALITY) {
-                    color = qualityScale.getColor((Integer) trkPnt.get(GpxConstants.RTKLIB_Q));
+                    color = qualityScale.getColor((Integer) points.get(i, GpxConstants.RTKLIB_Q));
                 } else if (colored == ColorMode.FIX) {
-                    Object fixval = trkPnt.get(GpxConstants.PT_FIX);
+                    Object fixval = points.get(i, GpxConstants.PT_FIX);
                     if (fixval != null) {
                         int fix = GpxConstants.FIX_VALUES.indexOf(fixval);
                         if (fix >= 0) {
@@ -643,12 +720,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                         }
                     }
                 }
-                if (oldWp != null) { // other coloring modes need segment for calcuation
-                    double dist = trkPnt.greatCircleDistance(oldWp);
+                if (oldCoor != null) { // other coloring modes need segment for calcuation
+                    double dist = coor.greatCircleDistance(oldCoor);
                     boolean noDraw = false;
                     switch (colored) {
                     case VELOCITY:
-                        double dtime = trkPnt.getTime() - oldWp.getTime();
+                        double dtime = time - oldTime;
                         if (dtime > 0) {
                             color = velocityScale.getColor(dist / dtime);
                         } else {
@@ -656,14 +733,13 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                         }
                         break;
                     case DIRECTION:
-                        double dirColor = oldWp.bearing(trkPnt);
+                        double dirColor = oldCoor.bearing(coor);
                         color = directionScale.getColor(dirColor);
                         break;
                     case TIME:
-                        double t = trkPnt.getTime();
                         // skip bad timestamps and very short tracks
-                        if (t > 0 && t <= now && maxval - minval > minTrackDurationForTimeColoring) {
-                            color = dateScale.getColor(t);
+                        if (time > 0 && time <= now && maxval - minval > minTrackDurationForTimeColoring) {
+                            color = dateScale.getColor(time);
                         } else {
                             color = dateScale.getNoDataColor();
                         }
@@ -671,20 +747,21 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     default: // Do nothing
                     }
                     if (!noDraw && (!segment.isUnordered() || !data.fromServer) && (maxLineLength == -1 || dist <= maxLineLength)) {
-                        trkPnt.drawLine = true;
-                        double bearing = oldWp.bearing(trkPnt);
-                        trkPnt.dir = ((int) (bearing / Math.PI * 4 + 1.5)) % 8;
+                        points.setDrawLine(i, true);
+                        double bearing = oldCoor.bearing(coor);
+                        points.setDir(i, ((int) (bearing / Math.PI * 4 + 1.5)) % 8);
                     } else {
-                        trkPnt.drawLine = false;
+                        points.setDrawLine(i, false);
                     }
                 } else { // make sure we reset outdated data
-                    trkPnt.drawLine = false;
+                    points.setDrawLine(i, false);
                     color = segment.getColor();
                 }
                 if (color != null) {
-                    trkPnt.customColoring = color;
+                    points.setCustomColoring(i, color);
                 }
-                oldWp = trkPnt;
+                oldCoor = coor;
+                oldTime = time;
             }
         }
 
@@ -699,6 +776,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             heatMapMapViewState = null;
         }
 
+        drawLineVersion++;
         computeCacheInSync = true;
     }
 
@@ -708,18 +786,18 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawLines(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawLines(Graphics2D g, MapView mv, GpxVisiblePoints visibleSegments) {
         if (lines) {
             Point old = null;
-            for (WayPoint trkPnt : visibleSegments) {
-                if (!trkPnt.isLatLonKnown()) {
+            for (int i = 0; i < visibleSegments.size(); i++) {
+                if (!visibleSegments.isLatLonKnown(i)) {
                     old = null;
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
+                Point screen = mv.getPoint(visibleSegments.getEastNorth(i));
                 // skip points that are on the same screenposition
-                if (trkPnt.drawLine && old != null && ((old.x != screen.x) || (old.y != screen.y))) {
-                    g.setColor(trkPnt.customColoring);
+                if (visibleSegments.isDrawLine(i) && old != null && ((old.x != screen.x) || (old.y != screen.y))) {
+                    g.setColor(visibleSegments.getCustomColoring(i));
                     g.drawLine(old.x, old.y, screen.x, screen.y);
                 }
                 old = screen;
@@ -733,25 +811,25 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawArrows(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawArrows(Graphics2D g, MapView mv, GpxVisiblePoints visibleSegments) {
         /****************************************************************
          ********** STEP 3b - DRAW NICE ARROWS **************************
          ****************************************************************/
         if (lines && arrows && !arrowsFast) {
             Point old = null;
             Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                if (!trkPnt.isLatLonKnown()) {
+            for (int i = 0; i < visibleSegments.size(); i++) {
+                if (!visibleSegments.isLatLonKnown(i)) {
                     old = null;
                     continue;
                 }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (visibleSegments.isDrawLine(i)) {
+                    Point screen = mv.getPoint(visibleSegments.getEastNorth(i));
                     // skip points that are on the same screenposition
                     if (old != null
                             && (oldA == null || screen.x < oldA.x - arrowsDelta || screen.x > oldA.x + arrowsDelta
                             || screen.y < oldA.y - arrowsDelta || screen.y > oldA.y + arrowsDelta)) {
-                        g.setColor(trkPnt.customColoring);
+                        g.setColor(visibleSegments.getCustomColoring(i));
                         double t = Math.atan2((double) screen.y - old.y, (double) screen.x - old.x) + Math.PI;
                         g.drawLine(screen.x, screen.y, (int) (screen.x + 10 * Math.cos(t - PHI)),
                                 (int) (screen.y + 10 * Math.sin(t - PHI)));
@@ -770,22 +848,21 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         if (lines && arrows && arrowsFast) {
             Point old = null;
             Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visibleSegments.size(); i++) {
+                if (!visibleSegments.isLatLonKnown(i)) {
                     continue;
                 }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (visibleSegments.isDrawLine(i)) {
+                    Point screen = mv.getPoint(visibleSegments.getEastNorth(i));
                     // skip points that are on the same screenposition
                     if (old != null
                             && (oldA == null || screen.x < oldA.x - arrowsDelta || screen.x > oldA.x + arrowsDelta
                             || screen.y < oldA.y - arrowsDelta || screen.y > oldA.y + arrowsDelta)) {
-                        g.setColor(trkPnt.customColoring);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][0], screen.y
-                                + dir[trkPnt.dir][1]);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][2], screen.y
-                                + dir[trkPnt.dir][3]);
+                        g.setColor(visibleSegments.getCustomColoring(i));
+                        g.drawLine(screen.x, screen.y, screen.x + dir[visibleSegments.getDir(i)][0], screen.y
+                                + dir[visibleSegments.getDir(i)][1]);
+                        g.drawLine(screen.x, screen.y, screen.x + dir[visibleSegments.getDir(i)][2], screen.y
+                                + dir[visibleSegments.getDir(i)][3]);
                         oldA = screen;
                     }
                     old = screen;
@@ -800,45 +877,46 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawPoints(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawPoints(Graphics2D g, MapView mv, GpxVisiblePoints visibleSegments) {
         /****************************************************************
          ********** STEP 3d - DRAW LARGE POINTS AND HDOP CIRCLE *********
          ****************************************************************/
         if (large || hdopCircle) {
             final int halfSize = largesize/2;
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visibleSegments.size(); i++) {
+                if (!visibleSegments.isLatLonKnown(i)) {
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
+                Point screen = mv.getPoint(visibleSegments.getEastNorth(i));
+                Color customColoring = visibleSegments.getCustomColoring(i);
 
-                if (hdopCircle && trkPnt.get(GpxConstants.PT_HDOP) != null) {
+                if (hdopCircle && visibleSegments.get(i, GpxConstants.PT_HDOP) != null) {
                     // hdop value
-                    float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
+                    float hdop = (Float) visibleSegments.get(i, GpxConstants.PT_HDOP);
                     if (hdop < 0) {
                         hdop = 0;
                     }
-                    Color customColoringTransparent = hdopAlpha < 0 ? trkPnt.customColoring :
-                        new Color((trkPnt.customColoring.getRGB() & 0x00ffffff) | (hdopAlpha << 24), true);
+                    Color customColoringTransparent = hdopAlpha < 0 ? customColoring :
+                        new Color((customColoring.getRGB() & 0x00ffffff) | (hdopAlpha << 24), true);
                     g.setColor(customColoringTransparent);
                     // hdop circles
+                    LatLon c = visibleSegments.getCoor(i);
                     int hdopp = mv.getPoint(new LatLon(
-                            trkPnt.getCoor().lat(),
-                            trkPnt.getCoor().lon() + 2d*6*hdop*360/40000000d)).x - screen.x;
+                            c.lat(),
+                            c.lon() + 2d*6*hdop*360/40000000d)).x - screen.x;
                     g.drawArc(screen.x-hdopp/2, screen.y-hdopp/2, hdopp, hdopp, 0, 360);
                 }
                 if (large) {
                     // color the large GPS points like the gps lines
-                    if (trkPnt.customColoring != null) {
-                        if (trkPnt.customColoring.equals(colorCache) && colorCacheTransparent != null) {
+                    if (customColoring != null) {
+                        if (customColoring.equals(colorCache) && colorCacheTransparent != null) {
                             g.setColor(colorCacheTransparent);
                         } else {
-                            Color customColoringTransparent = largePointAlpha < 0 ? trkPnt.customColoring :
-                                new Color((trkPnt.customColoring.getRGB() & 0x00ffffff) | (largePointAlpha << 24), true);
+                            Color customColoringTransparent = largePointAlpha < 0 ? customColoring :
+                                new Color((customColoring.getRGB() & 0x00ffffff) | (largePointAlpha << 24), true);
 
                             g.setColor(customColoringTransparent);
-                            colorCache = trkPnt.customColoring;
+                            colorCache = customColoring;
                             colorCacheTransparent = customColoringTransparent;
                         }
                     }
@@ -852,14 +930,13 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
          ****************************************************************/
         if (!large && lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visibleSegments.size(); i++) {
+                if (!visibleSegments.isLatLonKnown(i)) {
                     continue;
                 }
-                if (!trkPnt.drawLine) {
-                    g.setColor(trkPnt.customColoring);
-                    Point screen = mv.getPoint(trkPnt);
+                if (!visibleSegments.isDrawLine(i)) {
+                    g.setColor(visibleSegments.getCustomColoring(i));
+                    Point screen = mv.getPoint(visibleSegments.getEastNorth(i));
                     g.drawRect(screen.x, screen.y, 0, 0);
                 }
             } // end for trkpnt
@@ -870,13 +947,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
          ****************************************************************/
         if (!large && !lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visibleSegments.size(); i++) {
+                if (!visibleSegments.isLatLonKnown(i)) {
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
-                g.setColor(trkPnt.customColoring);
+                Point screen = mv.getPoint(visibleSegments.getEastNorth(i));
+                g.setColor(visibleSegments.getCustomColoring(i));
                 g.drawRect(screen.x, screen.y, 0, 0);
             } // end for trkpnt
         } // end if large
@@ -889,7 +965,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param visibleSegments segments visible in the current scope of mv
      * @param layerAlpha      the color alpha value set for that operation
      */
-    private void drawLinesAlpha(Graphics2D g, MapView mv, List<WayPoint> visibleSegments, float layerAlpha) {
+    private void drawLinesAlpha(Graphics2D g, MapView mv, GpxVisiblePoints visibleSegments, float layerAlpha) {
 
         // 1st. backup the paint environment ----------------------------------
         Composite oldComposite = g.getComposite();
@@ -922,16 +998,16 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // 5th draw the layer ---------------------------------------------------
 
         // for all points
-        for (WayPoint trkPnt : visibleSegments) {
+        for (int i = 0; i < visibleSegments.size(); i++) {
 
             // transform coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+            final Point paintPnt = mv.getPoint(visibleSegments.getEastNorth(i));
 
             // skip single points
-            if (lastPaintPnt != null && trkPnt.drawLine && !lastPaintPnt.equals(paintPnt)) {
+            if (lastPaintPnt != null && visibleSegments.isDrawLine(i) && !lastPaintPnt.equals(paintPnt)) {
 
                 // set different color
-                g.setColor(trkPnt.customColoring);
+                g.setColor(visibleSegments.getCustomColoring(i));
 
                 // draw it
                 g.drawLine(lastPaintPnt.x, lastPaintPnt.y, paintPnt.x, paintPnt.y);
@@ -1167,7 +1243,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param backComp        composite use to draw background objects
      * @param backStroke      stroke use to draw background objects
      */
-    private void drawHeatGrayLineMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm,
+    private void drawHeatGrayLineMap(Graphics2D gB, MapView mv, GpxVisiblePoints listSegm,
                                      Composite foreComp, Stroke foreStroke,
                                      Composite backComp, Stroke backStroke) {
 
@@ -1177,17 +1253,14 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // set initial values
         gB.setStroke(backStroke); gB.setComposite(backComp);
 
-        // get last point in list
-        final WayPoint lastPnt = !listSegm.isEmpty() ? listSegm.get(listSegm.size() - 1) : null;
-
         // for all points, draw single lines by using optimized drawing
-        for (WayPoint trkPnt : listSegm) {
+        for (int i = 0; i < listSegm.size(); i++) {
 
             // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+            final Point paintPnt = mv.getPoint(listSegm.getEastNorth(i));
 
             // end of line segment or end of list reached
-            if (!trkPnt.drawLine || (lastPnt == trkPnt)) {
+            if (!listSegm.isDrawLine(i) || (i == listSegm.size() - 1)) {
 
                 // convert to primitive type
                 final int[] polyXArr = heatMapPolyX.stream().mapToInt(Integer::intValue).toArray();
@@ -1316,7 +1389,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawHeatMap(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawHeatMap(Graphics2D g, MapView mv, GpxVisiblePoints visibleSegments) {
 
         // get bounds of screen image and projection, zoom and adjust input parameters
         final Rectangle screenBounds = new Rectangle(mv.getWidth(), mv.getHeight());
@@ -1413,7 +1486,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param listSegm        segments visible in the current scope of mv
      * @param drawSize        draw size of draw element
      */
-    private static void drawHeatGrayDotMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm, int drawSize) {
+    private static void drawHeatGrayDotMap(Graphics2D gB, MapView mv, GpxVisiblePoints listSegm, int drawSize) {
 
         // typical rendering rate -> use realtime preview instead of accurate display
         final double maxSegm = 25_000, nrSegms = listSegm.size();
@@ -1431,13 +1504,13 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         Point lastPnt = null;
 
         // for all points, draw single lines
-        for (WayPoint trkPnt : listSegm) {
+        for (int i = 0; i < listSegm.size(); i++) {
 
             // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+            final Point paintPnt = mv.getPoint(listSegm.getEastNorth(i));
 
             // end of line segment or end of list reached
-            if (trkPnt.drawLine && null != lastPnt) {
+            if (listSegm.isDrawLine(i) && null != lastPnt) {
                 drawHeatSurfaceLine(gB, paintPnt, lastPnt, drawSize, pixelRmsX, pixelRmsY, randomDrop);
             }
 
@@ -1509,10 +1582,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Apply default color configuration to way segments
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void fixColors(List<WayPoint> visibleSegments) {
-        for (WayPoint trkPnt : visibleSegments) {
-            if (trkPnt.customColoring == null) {
-                trkPnt.customColoring = neutralColor;
+    private void fixColors(GpxVisiblePoints visibleSegments) {
+        for (int i = 0; i < visibleSegments.size(); i++) {
+            if (visibleSegments.getCustomColoring(i) == null) {
+                visibleSegments.setCustomColoring(i, neutralColor);
             }
         }
     }
@@ -1552,6 +1625,9 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     @Override
     public void gpxDataChanged(GpxDataChangeEvent e) {
         computeCacheInSync = false;
+        if (trackIndexTask != null) {
+            scheduleTrackIndex();
+        }
     }
 
     /**
@@ -1589,5 +1665,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         SystemOfMeasurement.removeSoMChangeListener(this);
         layer.removeInvalidationListener(this);
         data.removeChangeListener(this);
+        synchronized (this) {
+            trackIndexGeneration++;
+            trackIndex = null;
+            if (trackIndexTask != null) {
+                trackIndexTask.cancel(true);
+            }
+        }
     }
 }
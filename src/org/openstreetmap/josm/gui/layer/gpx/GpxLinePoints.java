@@ -0,0 +1,301 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxTrackPoints;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.IGpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.Line;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.projection.Projecting;
+
+/**
+ * Access by index to the points of a GPX line and to their drawing state.
+ * <p>
+ * The points of the track segments read from files are read from their {@link GpxTrackPoints columns}, so that drawing
+ * them does not create their way points. The other lines are made of {@link WayPoint}s.
+ * @since xxx
+ */
+abstract class GpxLinePoints {
+
+    /**
+     * Returns the points of a line.
+     * @param line the line
+     * @return the points of the line
+     */
+    static GpxLinePoints of(Line line) {
+        GpxTrackPoints columns = line.getTrackPoints();
+        return columns != null ? new Columns(columns) : of((Collection<WayPoint>) line);
+    }
+
+    /**
+     * Returns the points of a track segment.
+     * @param segment the track segment
+     * @return the points of the track segment
+     */
+    static GpxLinePoints of(IGpxTrackSegment segment) {
+        GpxTrackPoints columns = segment instanceof GpxTrackSegment ? ((GpxTrackSegment) segment).getColumns() : null;
+        return columns != null ? new Columns(columns) : of(segment.getWayPoints());
+    }
+
+    /**
+     * Returns the points of a collection of way points.
+     * @param wayPoints the way points
+     * @return the points
+     */
+    static GpxLinePoints of(Collection<WayPoint> wayPoints) {
+        return new WayPoints(wayPoints instanceof List ? (List<WayPoint>) wayPoints : new ArrayList<>(wayPoints));
+    }
+
+    /**
+     * Returns the number of points.
+     * @return the number of points
+     */
+    abstract int size();
+
+    /**
+     * Returns the latitude of a point.
+     * @param index the index of the point
+     * @return the latitude of the point
+     */
+    abstract double lat(int index);
+
+    /**
+     * Returns the longitude of a point.
+     * @param index the index of the point
+     * @return the longitude of the point
+     */
+    abstract double lon(int index);
+
+    /**
+     * Determines if the coordinates of a point are known.
+     * @param index the index of the point
+     * @return {@code true} if the coordinates of the point are known
+     */
+    final boolean isLatLonKnown(int index) {
+        return !Double.isNaN(lat(index)) && !Double.isNaN(lon(index));
+    }
+
+    /**
+     * Returns the coordinates of a point.
+     * @param index the index of the point
+     * @return the coordinates of the point
+     */
+    final LatLon getCoor(int index) {
+        return new LatLon(lat(index), lon(index));
+    }
+
+    /**
+     * Returns the time of a point.
+     * @param index the index of the point
+     * @return the time of the point in seconds since the epoch, 0 if the point has no time
+     * @see WayPoint#getTime()
+     */
+    abstract double getTime(int index);
+
+    /**
+     * Returns an attribute of a point, which is neither the time nor the elevation.
+     * @param index the index of the point
+     * @param key the key of the attribute
+     * @return the value of the attribute, {@code null} if the point does not have it
+     */
+    abstract Object get(int index, String key);
+
+    /**
+     * Returns the projected coordinates of a point.
+     * @param index the index of the point
+     * @param projecting the projection to use
+     * @return the projected coordinates of the point
+     */
+    abstract EastNorth getEastNorth(int index, Projecting projecting);
+
+    /**
+     * Returns the color to draw the line before a point in.
+     * @param index the index of the point
+     * @return the color, can be {@code null}
+     * @see WayPoint#customColoring
+     */
+    abstract Color getCustomColoring(int index);
+
+    /**
+     * Sets the color to draw the line before a point in.
+     * @param index the index of the point
+     * @param color the color, can be {@code null}
+     * @see WayPoint#customColoring
+     */
+    abstract void setCustomColoring(int index, Color color);
+
+    /**
+     * Determines if the line before a point should be drawn.
+     * @param index the index of the point
+     * @return {@code true} if the line before the point should be drawn
+     * @see WayPoint#drawLine
+     */
+    abstract boolean isDrawLine(int index);
+
+    /**
+     * Sets if the line before a point should be drawn.
+     * @param index the index of the point
+     * @param drawLine {@code true} if the line before the point should be drawn
+     * @see WayPoint#drawLine
+     */
+    abstract void setDrawLine(int index, boolean drawLine);
+
+    /**
+     * Returns the direction of the line before a point.
+     * @param index the index of the point
+     * @return the direction of the line before the point
+     * @see WayPoint#dir
+     */
+    abstract int getDir(int index);
+
+    /**
+     * Sets the direction of the line before a point.
+     * @param index the index of the point
+     * @param dir the direction of the line before the point, from 0 to 7
+     * @see WayPoint#dir
+     */
+    abstract void setDir(int index, int dir);
+
+    private static final class Columns extends GpxLinePoints {
+        private final GpxTrackPoints points;
+
+        Columns(GpxTrackPoints points) {
+            this.points = points;
+        }
+
+        @Override
+        int size() {
+            return points.size();
+        }
+
+        @Override
+        double lat(int index) {
+            return points.lat(index);
+        }
+
+        @Override
+        double lon(int index) {
+            return points.lon(index);
+        }
+
+        @Override
+        double getTime(int index) {
+            return points.getTimeInMillis(index) / 1000.;
+        }
+
+        @Override
+        Object get(int index, String key) {
+            return points.getAttributes(index).get(key);
+        }
+
+        @Override
+        EastNorth getEastNorth(int index, Projecting projecting) {
+            return points.getEastNorth(index, projecting);
+        }
+
+        @Override
+        Color getCustomColoring(int index) {
+            return points.getCustomColoring(index);
+        }
+
+        @Override
+        void setCustomColoring(int index, Color color) {
+            points.setCustomColoring(index, color);
+        }
+
+        @Override
+        boolean isDrawLine(int index) {
+            return points.isDrawLine(index);
+        }
+
+        @Override
+        void setDrawLine(int index, boolean drawLine) {
+            points.setDrawLine(index, drawLine);
+        }
+
+        @Override
+        int getDir(int index) {
+            return points.getDir(index);
+        }
+
+        @Override
+        void setDir(int index, int dir) {
+            points.setDir(index, dir);
+        }
+    }
+
+    private static final class WayPoints extends GpxLinePoints {
+        private final List<WayPoint> points;
+
+        WayPoints(List<WayPoint> points) {
+            this.points = points;
+        }
+
+        @Override
+        int size() {
+            return points.size();
+        }
+
+        @Override
+        double lat(int index) {
+            return points.get(index).lat();
+        }
+
+        @Override
+        double lon(int index) {
+            return points.get(index).lon();
+        }
+
+        @Override
+        double getTime(int index) {
+            return points.get(index).getTime();
+        }
+
+        @Override
+        Object get(int index, String key) {
+            return points.get(index).get(key);
+        }
+
+        @Override
+        EastNorth getEastNorth(int index, Projecting projecting) {
+            return points.get(index).getEastNorth(projecting);
+        }
+
+        @Override
+        Color getCustomColoring(int index) {
+            return points.get(index).customColoring;
+        }
+
+        @Override
+        void setCustomColoring(int index, Color color) {
+            points.get(index).customColoring = color;
+        }
+
+        @Override
+        boolean isDrawLine(int index) {
+            return points.get(index).drawLine;
+        }
+
+        @Override
+        void setDrawLine(int index, boolean drawLine) {
+            points.get(index).drawLine = drawLine;
+        }
+
+        @Override
+        int getDir(int index) {
+            return points.get(index).dir;
+        }
+
+        @Override
+        void setDir(int index, int dir) {
+            points.get(index).dir = dir;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrackPoints;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.IGpxTrack;
+import org.openstreetmap.josm.data.gpx.IGpxTrackSegment;
+
+/**
+ * Level of detail pyramid of the tracks of a GPX layer, so that drawing only touches the points relevant to the
+ * current scale and viewport.
+ * <p>
+ * The points of each track segment are ranked once with the Douglas-Peucker algorithm: the importance of a point is
+ * the tolerance up to which the algorithm keeps it. Each level of detail keeps the points more important than its
+ * tolerance, which grows by a factor of 4 from level to level, the first level keeping all points. The kept points
+ * are grouped in blocks of consecutive points, whose bounding boxes are used to find the visible points.
+ * <p>
+ * The index is built from the {@link GpxTrackPoints columns} of the track segments, and the visible points are drawn
+ * from them as well, so that it does not create the way points of the segments read from files.
+ * @since xxx
+ */
+final class GpxTrackIndex {
+
+    /** Minimum number of track points for which an index is worthwhile */
+    static final int MIN_POINTS = 20_000;
+
+    /** Number of consecutive kept points in a block */
+    private static final int BLOCK_SIZE = 32;
+    /** Tolerance of the second level, in degrees of latitude. The first level keeps all points. */
+    private static final double FINEST_TOLERANCE = 1e-6;
+    /** Factor between the tolerances of consecutive levels */
+    private static final double LEVEL_FACTOR = 4;
+    /** Number of levels, the coarsest having a tolerance of about 0.26 degrees */
+    private static final int LEVEL_COUNT = 11;
+
+    /** Track segments, whose points are resolved on each use, as their way points may have been created since */
+    private final IGpxTrackSegment[] lines;
+    /** Index of the track of each track segment, to handle the track visibility */
+    private final int[] lineTracks;
+    private final Level[] levels = new Level[LEVEL_COUNT];
+    /** Per track segment, number of points without line to their predecessor before each point */
+    private int[][] breaks;
+    private int breaksVersion = -1;
+
+    /**
+     * The points kept for a tolerance, grouped in blocks.
+     */
+    private static final class Level {
+        final double tolerance;
+        /** Per track segment, indexes of the kept points */
+        final int[][] kept;
+        int blockCount;
+        int[] blockLine = new int[16];
+        /** First and last position (exclusive) in {@link #kept} of each block */
+        int[] blockStart = new int[16];
+        int[] blockEnd = new int[16];
+        /** Bounding boxes of the blocks, including the line from the point before the block */
+        double[] blockBox = new double[4 * 16];
+
+        Level(double tolerance, GpxTrackPoints[] lines, float[][] importance) {
+            this.tolerance = tolerance;
+            kept = new int[lines.length][];
+            for (int line = 0; line < lines.length; line++) {
+                float[] imp = importance[line];
+                int[] indexes = new int[imp.length];
+                int n = 0;
+                for (int i = 0; i < imp.length; i++) {
+                    if (tolerance == 0 || imp[i] > tolerance) {
+                        indexes[n++] = i;
+                    }
+                }
+                kept[line] = n == indexes.length ? indexes : Arrays.copyOf(indexes, n);
+                for (int start = 0; start < n; start += BLOCK_SIZE) {
+                    addBlock(line, start, Math.min(n, start + BLOCK_SIZE), lines[line]);
+                }
+            }
+        }
+
+        private void addBlock(int line, int start, int end, GpxTrackPoints points) {
+            if (blockCount == blockLine.length) {
+                int capacity = blockCount * 2;
+                blockLine = Arrays.copyOf(blockLine, capacity);
+                blockStart = Arrays.copyOf(blockStart, capacity);
+                blockEnd = Arrays.copyOf(blockEnd, capacity);
+                blockBox = Arrays.copyOf(blockBox, 4 * capacity);
+            }
+            double minLat = Double.POSITIVE_INFINITY;
+            double minLon = Double.POSITIVE_INFINITY;
+            double maxLat = Double.NEGATIVE_INFINITY;
+            double maxLon = Double.NEGATIVE_INFINITY;
+            int[] indexes = kept[line];
+            for (int pos = Math.max(0, start - 1); pos < end; pos++) {
+                double lat = points.lat(indexes[pos]);
+                double lon = points.lon(indexes[pos]);
+                // comparisons with NaN are false, so that points without coordinates are ignored
+                if (lat < minLat) minLat = lat;
+                if (lat > maxLat) maxLat = lat;
+                if (lon < minLon) minLon = lon;
+                if (lon > maxLon) maxLon = lon;
+            }
+            blockLine[blockCount] = line;
+            blockStart[blockCount] = start;
+            blockEnd[blockCount] = end;
+            blockBox[4 * blockCount] = minLat;
+            blockBox[4 * blockCount + 1] = minLon;
+            blockBox[4 * blockCount + 2] = maxLat;
+            blockBox[4 * blockCount + 3] = maxLon;
+            blockCount++;
+        }
+
+        boolean intersects(int block, Bounds box) {
+            int b = 4 * block;
+            return blockBox[b] <= box.getMaxLat() && blockBox[b + 2] >= box.getMinLat()
+                    && (box.crosses180thMeridian() || (blockBox[b + 1] <= box.getMaxLon() && blockBox[b + 3] >= box.getMinLon()));
+        }
+    }
+
+    private GpxTrackIndex(IGpxTrackSegment[] lines, GpxTrackPoints[] points, int[] lineTracks) {
+        this.lines = lines;
+        this.lineTracks = lineTracks;
+        float[][] importance = new float[points.length][];
+        for (int line = 0; line < points.length; line++) {
+            importance[line] = computeImportance(points[line]);
+        }
+        double tolerance = 0;
+        for (int i = 0; i < LEVEL_COUNT; i++) {
+            levels[i] = new Level(tolerance, points, importance);
+            tolerance = i == 0 ? FINEST_TOLERANCE : tolerance * LEVEL_FACTOR;
+        }
+    }
+
+    /**
+     * Builds the index of the tracks of the given data, if they have enough points.
+     * @param data the GPX data
+     * @param minPoints the minimum number of track points
+     * @return the index, or {@code null} if the tracks have less points than {@code minPoints}
+     */
+    static GpxTrackIndex build(GpxData data, int minPoints) {
+        List<IGpxTrackSegment> lines = new ArrayList<>();
+        List<GpxTrackPoints> points = new ArrayList<>();
+        List<Integer> lineTracks = new ArrayList<>();
+        List<IGpxTrack> tracks;
+        synchronized (data) {
+            tracks = new ArrayList<>(data.getTracks());
+        }
+        long count = 0;
+        int track = 0;
+        for (IGpxTrack trk : tracks) {
+            for (IGpxTrackSegment seg : trk.getSegments()) {
+                count += seg.getWayPoints().size();
+            }
+        }
+        if (count < minPoints) {
+            return null;
+        }
+        for (IGpxTrack trk : tracks) {
+            for (IGpxTrackSegment seg : trk.getSegments()) {
+                lines.add(seg);
+                points.add(seg instanceof GpxTrackSegment
+                        ? ((GpxTrackSegment) seg).getTrackPoints() : GpxTrackPoints.of(seg.getWayPoints()));
+                lineTracks.add(track);
+            }
+            track++;
+        }
+        return new GpxTrackIndex(lines.toArray(new IGpxTrackSegment[0]), points.toArray(new GpxTrackPoints[0]),
+                lineTracks.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Ranks the points of a track segment with the Douglas-Peucker algorithm.
+     * @param points the points
+     * @return the importance of each point, in degrees of latitude: the greatest tolerance for which the point is kept
+     */
+    static float[] computeImportance(GpxTrackPoints points) {
+        int n = points.size();
+        float[] importance = new float[n];
+        if (n == 0) {
+            return importance;
+        }
+        importance[0] = Float.POSITIVE_INFINITY;
+        importance[n - 1] = Float.POSITIVE_INFINITY;
+        double meanLat = 0;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(points.lat(i))) {
+                meanLat += points.lat(i) / n;
+            }
+        }
+        // scale the longitudes, so that distances are roughly isotropic
+        double lonScale = Math.cos(Math.toRadians(meanLat));
+        // ranges [start, end] still to be split, with the importance of their end points
+        int[] stack = new int[64];
+        float[] stackImportance = new float[32];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        stackImportance[0] = Float.POSITIVE_INFINITY;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            float parentImportance = stackImportance[top / 2];
+            if (end - start < 2) {
+                continue;
+            }
+            int farthest = -1;
+            double maxDistance = 0;
+            for (int i = start + 1; i < end; i++) {
+                double d = distance(points, i, start, end, lonScale);
+                if (d > maxDistance) {
+                    maxDistance = d;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) {
+                // all points are on the line or without coordinates, they are never kept but in the first level
+                continue;
+            }
+            float imp = Math.min(parentImportance, (float) maxDistance);
+            importance[farthest] = imp;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                stackImportance = Arrays.copyOf(stackImportance, stackImportance.length * 2);
+            }
+            stackImportance[top / 2] = imp;
+            stack[top++] = start;
+            stack[top++] = farthest;
+            stackImportance[top / 2] = imp;
+            stack[top++] = farthest;
+            stack[top++] = end;
+        }
+        return importance;
+    }
+
+    /**
+     * Computes the distance of a point to a segment.
+     * @param points the points
+     * @param p the index of the point
+     * @param a the index of the start of the segment
+     * @param b the index of the end of the segment
+     * @param lonScale the scale of the longitudes
+     * @return the distance, in degrees of latitude
+     */
+    private static double distance(GpxTrackPoints points, int p, int a, int b, double lonScale) {
+        double ax = points.lon(a) * lonScale;
+        double ay = points.lat(a);
+        double dx = points.lon(b) * lonScale - ax;
+        double dy = points.lat(b) - ay;
+        double px = points.lon(p) * lonScale - ax;
+        double py = points.lat(p) - ay;
+        double length2 = dx * dx + dy * dy;
+        if (length2 > 0) {
+            double t = Math.max(0, Math.min(1, (px * dx + py * dy) / length2));
+            px -= t * dx;
+            py -= t * dy;
+        }
+        return Math.sqrt(px * px + py * py);
+    }
+
+    /**
+     * Returns the level of detail to use to draw at the given scale.
+     * @param pixelSize the size of a pixel, in degrees of latitude
+     * @return the index of the coarsest level whose tolerance is at most half a pixel
+     */
+    int getLevel(double pixelSize) {
+        int level = 0;
+        while (level + 1 < LEVEL_COUNT && levels[level + 1].tolerance <= pixelSize / 2) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns the number of points kept at a level of detail.
+     * @param level the level
+     * @return the number of points
+     */
+    int getPointCount(int level) {
+        int count = 0;
+        for (int[] kept : levels[level].kept) {
+            count += kept.length;
+        }
+        return count;
+    }
+
+    /**
+     * Updates the points without line to their predecessor, after the {@code drawLine} values have changed.
+     * @param version the version of the {@code drawLine} values
+     */
+    void updateBreaks(int version) {
+        if (version == breaksVersion) {
+            return;
+        }
+        int[][] result = new int[lines.length][];
+        for (int line = 0; line < lines.length; line++) {
+            GpxLinePoints points = GpxLinePoints.of(lines[line]);
+            int[] prefix = new int[points.size() + 1];
+            for (int i = 0; i < points.size(); i++) {
+                prefix[i + 1] = prefix[i] + (points.isDrawLine(i) ? 0 : 1);
+            }
+            result[line] = prefix;
+        }
+        breaks = result;
+        breaksVersion = version;
+    }
+
+    /**
+     * Lists the points to draw, like {@code GpxDrawHelper#listVisibleSegments} but only with the points of the level
+     * of detail of the given scale.
+     * <p>
+     * A kept point is drawn without line to the previous kept point if a skipped point between them has no line.
+     * @param box the visible area
+     * @param pixelSize the size of a pixel, in degrees of latitude
+     * @param trackVisibility the visibility of the tracks, can be {@code null}
+     * @return the points to draw
+     */
+    GpxVisiblePoints listVisibleSegments(Bounds box, double pixelSize, boolean[] trackVisibility) {
+        Level level = levels[getLevel(pixelSize)];
+        GpxLinePoints[] points = new GpxLinePoints[lines.length];
+        GpxVisiblePoints result = new GpxVisiblePoints();
+        int lastLine = -1;
+        int lastEnd = -1;
+        for (int block = 0; block < level.blockCount; block++) {
+            int line = level.blockLine[block];
+            int track = lineTracks[line];
+            if ((trackVisibility != null && track < trackVisibility.length && !trackVisibility[track])
+                    || !level.intersects(block, box)) {
+                continue;
+            }
+            if (points[line] == null) {
+                points[line] = GpxLinePoints.of(lines[line]);
+            }
+            GpxLinePoints linePoints = points[line];
+            int[] kept = level.kept[line];
+            int start = level.blockStart[block];
+            boolean continued = line == lastLine && start == lastEnd;
+            if (start > 0 && !continued) {
+                result.add(linePoints, kept[start - 1], false);
+            }
+            for (int pos = start; pos < level.blockEnd[block]; pos++) {
+                boolean lineAllowed;
+                if (pos == 0) {
+                    // a line to the previous track segment is only drawn if its last point is just before
+                    lineAllowed = line > 0 && lastLine == line - 1 && lastEnd == level.kept[line - 1].length;
+                } else {
+                    lineAllowed = !hasBreak(line, kept[pos - 1], kept[pos]);
+                }
+                result.add(linePoints, kept[pos], lineAllowed && linePoints.isDrawLine(kept[pos]));
+            }
+            lastLine = line;
+            lastEnd = level.blockEnd[block];
+        }
+        return result;
+    }
+
+    private boolean hasBreak(int line, int previous, int index) {
+        int[] prefix = breaks == null ? null : breaks[line];
+        return prefix != null && index - previous > 1 && prefix[index] - prefix[previous + 1] > 0;
+    }
+}
@@ -0,0 +1,159 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+
+/**
+ * The points of GPX lines to draw, in drawing order. Each point refers to a point of a {@link GpxLinePoints line},
+ * whose drawing state it uses, but whether the line before it is drawn is set per point: it is not drawn when the
+ * previous point of the line is not drawn.
+ * @since xxx
+ */
+final class GpxVisiblePoints {
+
+    private GpxLinePoints[] lines = new GpxLinePoints[16];
+    private int[] indexes = new int[16];
+    private boolean[] drawLines = new boolean[16];
+    private int size;
+
+    /**
+     * Adds a point.
+     * @param line the line of the point
+     * @param index the index of the point in the line
+     * @param drawLine {@code true} if the line before the point should be drawn
+     */
+    void add(GpxLinePoints line, int index, boolean drawLine) {
+        if (size == lines.length) {
+            int capacity = size * 2;
+            lines = Arrays.copyOf(lines, capacity);
+            indexes = Arrays.copyOf(indexes, capacity);
+            drawLines = Arrays.copyOf(drawLines, capacity);
+        }
+        lines[size] = line;
+        indexes[size] = index;
+        drawLines[size] = drawLine;
+        size++;
+    }
+
+    /**
+     * Determines if the last point added is the given point.
+     * @param line the line of the point
+     * @param index the index of the point in the line
+     * @return {@code true} if the last point added is the given point
+     */
+    boolean isLast(GpxLinePoints line, int index) {
+        return size > 0 && lines[size - 1] == line && indexes[size - 1] == index;
+    }
+
+    /**
+     * Returns the number of points.
+     * @return the number of points
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Determines if there is no point.
+     * @return {@code true} if there is no point
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the line of a point.
+     * @param i the position of the point
+     * @return the line of the point
+     */
+    GpxLinePoints getLine(int i) {
+        return lines[i];
+    }
+
+    /**
+     * Returns the index of a point in its line.
+     * @param i the position of the point
+     * @return the index of the point in its line
+     */
+    int getIndex(int i) {
+        return indexes[i];
+    }
+
+    /**
+     * Determines if the line before a point should be drawn.
+     * @param i the position of the point
+     * @return {@code true} if the line before the point should be drawn
+     */
+    boolean isDrawLine(int i) {
+        return drawLines[i];
+    }
+
+    /**
+     * Determines if the coordinates of a point are known.
+     * @param i the position of the point
+     * @return {@code true} if the coordinates of the point are known
+     */
+    boolean isLatLonKnown(int i) {
+        return lines[i].isLatLonKnown(indexes[i]);
+    }
+
+    /**
+     * Returns the coordinates of a point.
+     * @param i the position of the point
+     * @return the coordinates of the point
+     */
+    LatLon getCoor(int i) {
+        return lines[i].getCoor(indexes[i]);
+    }
+
+    /**
+     * Returns the projected coordinates of a point, in the current projection.
+     * @param i the position of the point
+     * @return the projected coordinates of the point
+     */
+    EastNorth getEastNorth(int i) {
+        return lines[i].getEastNorth(indexes[i], ProjectionRegistry.getProjection());
+    }
+
+    /**
+     * Returns an attribute of a point.
+     * @param i the position of the point
+     * @param key the key of the attribute
+     * @return the value of the attribute, {@code null} if the point does not have it
+     */
+    Object get(int i, String key) {
+        return lines[i].get(indexes[i], key);
+    }
+
+    /**
+     * Returns the color to draw the line before a point in.
+     * @param i the position of the point
+     * @return the color, can be {@code null}
+     */
+    Color getCustomColoring(int i) {
+        return lines[i].getCustomColoring(indexes[i]);
+    }
+
+    /**
+     * Sets the color to draw the line before a point in.
+     * @param i the position of the point
+     * @param color the color
+     */
+    void setCustomColoring(int i, Color color) {
+        lines[i].setCustomColoring(indexes[i], color);
+    }
+
+    /**
+     * Returns the direction of the line before a point.
+     * @param i the position of the point
+     * @return the direction of the line before the point
+     */
+    int getDir(int i) {
+        return lines[i].getDir(indexes[i]);
+    }
+}
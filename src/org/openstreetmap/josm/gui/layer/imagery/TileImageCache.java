@@ -0,0 +1,384 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.imagery;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileCache;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.josm.data.imagery.vectortile.VectorTile;
+
+/**
+ * Memory cache of the tiles of a layer, limited by the size of their decoded images.
+ * <p>
+ * When the cache is full, the tiles farthest from the viewport are removed first, then the least recently used ones.
+ * The cache also keeps downscaled images of tiles made of their loaded children ("mip" images), so that the tiles of
+ * a higher zoom level are rescaled once when zooming out, instead of on every paint.
+ * @since xxx
+ */
+public class TileImageCache implements TileCache {
+
+    /** Maximum number of zoom levels between a mip image and the tiles it is made of */
+    public static final int MAX_MIP_LEVELS = 2;
+
+    private static final String MIP_PREFIX = "mip";
+
+    /**
+     * A tile, or a mip image.
+     */
+    private static final class Entry {
+        private final int zoom;
+        private final int x;
+        private final int y;
+        private final Tile tile;
+        private final BufferedImage mip;
+        /** The images the mip image is made of */
+        private final List<WeakReference<BufferedImage>> sources;
+        /** The image the size of the entry has been computed for */
+        private BufferedImage accountedImage;
+        /** The size of the entry in bytes, negative until it is computed */
+        private long bytes = -1;
+
+        Entry(Tile tile) {
+            this.zoom = tile.getZoom();
+            this.x = tile.getXtile();
+            this.y = tile.getYtile();
+            this.tile = tile;
+            this.mip = null;
+            this.sources = null;
+        }
+
+        Entry(int zoom, int x, int y, BufferedImage mip, List<BufferedImage> sources) {
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+            this.tile = null;
+            this.mip = mip;
+            this.sources = new ArrayList<>(sources.size());
+            for (BufferedImage source : sources) {
+                this.sources.add(new WeakReference<>(source));
+            }
+        }
+
+        BufferedImage getImage() {
+            return tile != null ? tile.getImage() : mip;
+        }
+    }
+
+    private final long maxBytes;
+    private final int tileSize;
+    /** Entries in access order, the least recently used first */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private int tileCount;
+    /** The sum of the sizes of the entries, as last computed */
+    private long totalBytes;
+
+    private int viewportZoom;
+    private int viewportMinX;
+    private int viewportMinY;
+    private int viewportMaxX = -1;
+    private int viewportMaxY = -1;
+
+    /**
+     * Constructs a new {@code TileImageCache}.
+     * @param maxBytes the maximum size of the images in the cache, in bytes
+     * @param tileSize the size of the tiles, in pixels
+     */
+    public TileImageCache(long maxBytes, int tileSize) {
+        this.maxBytes = maxBytes;
+        this.tileSize = Math.max(1, tileSize);
+    }
+
+    /**
+     * Returns the size of the images of a full tile.
+     * @return the size of the images of a full tile, in bytes
+     */
+    private long getTileBytes() {
+        return 4L * tileSize * tileSize;
+    }
+
+    /**
+     * Returns the memory used by an image.
+     * @param image the image
+     * @return the size of the pixel data of the image, in bytes
+     */
+    static long getImageBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private long getBytes(BufferedImage image) {
+        if (image == null || image == Tile.LOADING_IMAGE || image == Tile.ERROR_IMAGE) {
+            // tiles without image still use some memory, this also bounds their number
+            return getTileBytes() / 8;
+        }
+        return getImageBytes(image);
+    }
+
+    /**
+     * Computes the size of an entry, if its image changed since it was last computed, and updates the total size.
+     * The images of the tiles change when they are loaded, which is noticed when the tiles are accessed.
+     * @param entry the entry
+     */
+    private void account(Entry entry) {
+        BufferedImage image = entry.getImage();
+        if (entry.bytes < 0 || image != entry.accountedImage) {
+            long bytes = getBytes(image);
+            totalBytes += bytes - Math.max(0, entry.bytes);
+            entry.bytes = bytes;
+            entry.accountedImage = image;
+        }
+    }
+
+    /**
+     * Adds an entry, replacing the entry with the same key.
+     * @param key the key of the entry
+     * @param entry the entry
+     */
+    private void put(String key, Entry entry) {
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            totalBytes -= Math.max(0, old.bytes);
+        } else if (entry.tile != null) {
+            tileCount++;
+        }
+        account(entry);
+        trim();
+    }
+
+    /**
+     * Sets the visible tiles. The tiles near them are kept longer in the cache.
+     * @param zoom the zoom level of the visible tiles
+     * @param minX the minimum x index of the visible tiles
+     * @param minY the minimum y index of the visible tiles
+     * @param maxX the maximum x index of the visible tiles
+     * @param maxY the maximum y index of the visible tiles
+     */
+    public synchronized void setViewport(int zoom, int minX, int minY, int maxX, int maxY) {
+        viewportZoom = zoom;
+        viewportMinX = minX;
+        viewportMinY = minY;
+        viewportMaxX = maxX;
+        viewportMaxY = maxY;
+    }
+
+    /**
+     * Returns the distance of a tile to the viewport.
+     * @param zoom the zoom level of the tile
+     * @param x the x index of the tile
+     * @param y the y index of the tile
+     * @return the distance of the tile to the visible tiles, in tiles of the zoom level of the viewport
+     */
+    double getViewportDistance(int zoom, int x, int y) {
+        if (viewportMaxX < viewportMinX) {
+            return 0;
+        }
+        double scale = Math.pow(2, (double) viewportZoom - zoom);
+        double dx = Math.max(0, Math.max(viewportMinX - (x + 1) * scale, x * scale - (viewportMaxX + 1)));
+        double dy = Math.max(0, Math.max(viewportMinY - (y + 1) * scale, y * scale - (viewportMaxY + 1)));
+        return Math.hypot(dx, dy);
+    }
+
+    @Override
+    public synchronized Tile getTile(TileSource source, int x, int y, int z) {
+        Entry entry = entries.get(Tile.getTileKey(source, x, y, z));
+        if (entry == null) {
+            return null;
+        }
+        account(entry);
+        return entry.tile;
+    }
+
+    @Override
+    public synchronized void addTile(Tile tile) {
+        put(tile.getKey(), new Entry(tile));
+    }
+
+    /**
+     * Returns an image of a tile made of the loaded tiles of a higher zoom level, scaled down to the tile size.
+     * The image is created only once, as long as the tiles it is made of do not change.
+     * @param source the tile source
+     * @param x the x index of the tile
+     * @param y the y index of the tile
+     * @param zoom the zoom level of the tile
+     * @param levels the number of zoom levels between the tile and the tiles the image is made of, from 1 to
+     * {@link #MAX_MIP_LEVELS}
+     * @return the image, or {@code null} if some of the tiles covered by the tile are not loaded
+     */
+    public BufferedImage getMip(TileSource source, int x, int y, int zoom, int levels) {
+        if (levels < 1 || levels > MAX_MIP_LEVELS) {
+            return null;
+        }
+        String key = getMipKey(source, x, y, zoom, levels);
+        List<BufferedImage> children = new ArrayList<>(4);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && isValid(entry, source, levels)) {
+                return entry.mip;
+            }
+        }
+        for (int i = 0; i < 4; i++) {
+            int cx = 2 * x + (i & 1);
+            int cy = 2 * y + (i >> 1);
+            BufferedImage child = levels == 1 ? getLoadedImage(source, cx, cy, zoom + 1)
+                    : getMip(source, cx, cy, zoom + 1, levels - 1);
+            if (child == null) {
+                return null;
+            }
+            children.add(child);
+        }
+        BufferedImage mip = createMip(children);
+        synchronized (this) {
+            put(key, new Entry(zoom, x, y, mip, children));
+        }
+        return mip;
+    }
+
+    private static String getMipKey(TileSource source, int x, int y, int zoom, int levels) {
+        return MIP_PREFIX + levels + ':' + Tile.getTileKey(source, x, y, zoom);
+    }
+
+    /**
+     * Determines if a mip image is up to date: the images it is made of which are still in the cache have not changed.
+     * @param entry the entry of the mip image
+     * @param source the tile source
+     * @param levels the number of zoom levels of the mip image
+     * @return {@code true} if the mip image is up to date
+     */
+    private boolean isValid(Entry entry, TileSource source, int levels) {
+        for (int i = 0; i < 4; i++) {
+            int cx = 2 * entry.x + (i & 1);
+            int cy = 2 * entry.y + (i >> 1);
+            Entry child = entries.get(levels == 1 ? Tile.getTileKey(source, cx, cy, entry.zoom + 1)
+                    : getMipKey(source, cx, cy, entry.zoom + 1, levels - 1));
+            BufferedImage image = child == null ? null : child.tile != null ? getLoadedImage(child.tile) : child.mip;
+            if (image != null && image != entry.sources.get(i).get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized BufferedImage getLoadedImage(TileSource source, int x, int y, int zoom) {
+        Entry entry = entries.get(Tile.getTileKey(source, x, y, zoom));
+        if (entry == null || entry.tile == null) {
+            return null;
+        }
+        account(entry);
+        return getLoadedImage(entry.tile);
+    }
+
+    /**
+     * Returns the image of a loaded tile, which can be scaled into a mip image.
+     * @param tile the tile
+     * @return the image of the tile, or {@code null}
+     */
+    private static BufferedImage getLoadedImage(Tile tile) {
+        if (!tile.isLoaded() || tile.hasError() || tile instanceof ReprojectionTile || tile instanceof VectorTile) {
+            return null;
+        }
+        BufferedImage image = tile.getImage();
+        return image == Tile.LOADING_IMAGE || image == Tile.ERROR_IMAGE ? null : image;
+    }
+
+    private BufferedImage createMip(List<BufferedImage> children) {
+        int size = children.get(0).getWidth();
+        BufferedImage mip = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = mip.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            int half = size / 2;
+            for (int i = 0; i < 4; i++) {
+                int x0 = (i & 1) * half;
+                int y0 = (i >> 1) * half;
+                g.drawImage(children.get(i), x0, y0, (i & 1) == 0 ? half : size - half, (i >> 1) == 0 ? half : size - half, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return mip;
+    }
+
+    /**
+     * Removes the entries farthest from the viewport and least recently used, until the cache fits in its budget.
+     */
+    private void trim() {
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        // the entries are sorted anyway, take the images of the tiles loaded since they were last accessed into account
+        for (Entry entry : entries.values()) {
+            account(entry);
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        // remove a bit more than needed, not to sort the entries for each new tile
+        long target = maxBytes - maxBytes / 10;
+        int n = entries.size();
+        Map<String, Double> scores = new LinkedHashMap<>(n * 2);
+        int rank = 0;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            // the least recently used entries are visited first
+            scores.put(e.getKey(), getViewportDistance(entry.zoom, entry.x, entry.y) + 1 - (double) rank++ / n);
+        }
+        List<Map.Entry<String, Double>> sorted = new ArrayList<>(scores.entrySet());
+        sorted.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()));
+        Iterator<Map.Entry<String, Double>> it = sorted.iterator();
+        while (totalBytes > target && it.hasNext()) {
+            Entry entry = entries.remove(it.next().getKey());
+            totalBytes -= entry.bytes;
+            if (entry.tile != null) {
+                tileCount--;
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the images in the cache. The tiles loaded since they were last accessed are counted without image.
+     * @return the size of the images in the cache, in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the maximum size of the images in the cache.
+     * @return the maximum size of the images in the cache, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized int getTileCount() {
+        return tileCount;
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        tileCount = 0;
+        totalBytes = 0;
+    }
+
+    /**
+     * Returns the number of full tiles fitting in the cache.
+     * @return the number of full tiles fitting in the cache
+     */
+    @Override
+    public int getCacheSize() {
+        return (int) Math.min(Integer.MAX_VALUE, maxBytes / getTileBytes());
+    }
+}
@@ -20,6 +20,7 @@ import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.visitor.paint.PaintColors;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.NamedColorProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.NavigatableComponent;
@@ -41,6 +42,7 @@ import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.spi.preferences.PreferenceChangeEvent;
 import org.openstreetmap.josm.spi.preferences.PreferenceChangedListener;
 import org.openstreetmap.josm.tools.ColorHelper;
+import org.openstreetmap.josm.tools.Metrics;
 import org.openstreetmap.josm.tools.Pair;
 
 /**
@@ -63,6 +65,19 @@ import org.openstreetmap.josm.tools.Pair;
  * Use {@link #setStyleSources(Collection)} to select the StyleSources that are applied.
  */
 public class ElemStyles implements PreferenceChangedListener {
+    /**
+     * Preference: when the style of a primitive is computed, compute it for all the scale ranges at once,
+     * so that zooming does not require to evaluate the style sources again.
+     * @since xxx
+     */
+    public static final BooleanProperty PREFERENCE_CACHE_ALL_SCALES = new BooleanProperty("mappaint.style-cache.all-scales", false);
+
+    /** Maximum number of scale ranges cached at once for a primitive */
+    private static final int MAX_CACHED_SCALE_RANGES = 64;
+
+    private static final Metrics.Counter STYLE_CACHE_HITS = Metrics.counter("style.cache.hit");
+    private static final Metrics.Counter STYLE_CACHE_MISSES = Metrics.counter("style.cache.miss");
+
     private final List<StyleSource> styleSources = Collections.synchronizedList(new ArrayList<>());
     private boolean drawMultipolygon;
 
@@ -167,65 +182,107 @@ public class ElemStyles implements PreferenceChangedListener {
                 osm.setCachedStyle(StyleCache.EMPTY_STYLECACHE);
             } else {
                 Pair<StyleElementList, Range> lst = osm.getCachedStyle().getWithRange(scale, osm.isSelected());
-                if (lst.a != null)
+                if (lst.a != null) {
+                    STYLE_CACHE_HITS.increment();
                     return lst;
+                }
             }
-            Pair<StyleElementList, Range> p = getImpl(osm, scale, nc);
-            if (osm instanceof INode && isDefaultNodes()) {
-                if (p.a.isEmpty()) {
-                    if (TextLabel.AUTO_LABEL_COMPOSITION_STRATEGY.compose(osm) != null) {
-                        p.a = DefaultStyles.DEFAULT_NODE_STYLELIST_TEXT;
-                    } else {
-                        p.a = DefaultStyles.DEFAULT_NODE_STYLELIST;
-                    }
+            STYLE_CACHE_MISSES.increment();
+            Pair<StyleElementList, Range> p = cacheStyle(osm, scale, nc);
+            if (scale > 0 && PREFERENCE_CACHE_ALL_SCALES.get()) {
+                cacheOtherScales(osm, p.b, nc);
+            }
+            osm.declareCachedStyleUpToDate();
+            return p;
+        }
+    }
+
+    /**
+     * Computes the styles of a primitive, including the default styles, and adds them to its style cache.
+     * @param osm OSM primitive
+     * @param scale scale
+     * @param nc navigable component
+     * @return pair containing style list and range
+     */
+    private Pair<StyleElementList, Range> cacheStyle(IPrimitive osm, double scale, NavigatableComponent nc) {
+        Pair<StyleElementList, Range> p = getImpl(osm, scale, nc);
+        if (osm instanceof INode && isDefaultNodes()) {
+            if (p.a.isEmpty()) {
+                if (TextLabel.AUTO_LABEL_COMPOSITION_STRATEGY.compose(osm) != null) {
+                    p.a = DefaultStyles.DEFAULT_NODE_STYLELIST_TEXT;
                 } else {
-                    boolean hasNonModifier = false;
-                    boolean hasText = false;
-                    for (StyleElement s : p.a) {
-                        if (s instanceof BoxTextElement) {
-                            hasText = true;
-                        } else {
-                            if (!s.isModifier) {
-                                hasNonModifier = true;
-                            }
-                        }
-                    }
-                    if (!hasNonModifier) {
-                        p.a = new StyleElementList(p.a, DefaultStyles.SIMPLE_NODE_ELEMSTYLE);
-                        if (!hasText && TextLabel.AUTO_LABEL_COMPOSITION_STRATEGY.compose(osm) != null) {
-                            p.a = new StyleElementList(p.a, DefaultStyles.SIMPLE_NODE_TEXT_ELEMSTYLE);
-                        }
-                    }
+                    p.a = DefaultStyles.DEFAULT_NODE_STYLELIST;
                 }
-            } else if (osm instanceof IWay && isDefaultLines()) {
-                boolean hasProperLineStyle = false;
+            } else {
+                boolean hasNonModifier = false;
+                boolean hasText = false;
                 for (StyleElement s : p.a) {
-                    if (s.isProperLineStyle()) {
-                        hasProperLineStyle = true;
-                        break;
+                    if (s instanceof BoxTextElement) {
+                        hasText = true;
+                    } else {
+                        if (!s.isModifier) {
+                            hasNonModifier = true;
+                        }
                     }
                 }
-                if (!hasProperLineStyle) {
-                    LineElement line = LineElement.UNTAGGED_WAY;
-                    for (StyleElement element : p.a) {
-                        if (element instanceof AreaElement) {
-                            line = LineElement.createSimpleLineStyle(((AreaElement) element).color, true);
-                            break;
-                        }
+                if (!hasNonModifier) {
+                    p.a = new StyleElementList(p.a, DefaultStyles.SIMPLE_NODE_ELEMSTYLE);
+                    if (!hasText && TextLabel.AUTO_LABEL_COMPOSITION_STRATEGY.compose(osm) != null) {
+                        p.a = new StyleElementList(p.a, DefaultStyles.SIMPLE_NODE_TEXT_ELEMSTYLE);
                     }
-                    p.a = new StyleElementList(p.a, line);
                 }
             }
-            StyleCache style = osm.getCachedStyle() != null ? osm.getCachedStyle() : StyleCache.EMPTY_STYLECACHE;
-            try {
-                osm.setCachedStyle(style.put(p.a, p.b, osm.isSelected()));
-            } catch (RangeViolatedError e) {
-                throw new AssertionError("Range violated: " + e.getMessage()
-                  + " (object: " + osm.getPrimitiveId() + ", current style: " + osm.getCachedStyle()
-                  + ", scale: " + scale + ", new stylelist: " + p.a + ", new range: " + p.b + ')', e);
+        } else if (osm instanceof IWay && isDefaultLines()) {
+            boolean hasProperLineStyle = false;
+            for (StyleElement s : p.a) {
+                if (s.isProperLineStyle()) {
+                    hasProperLineStyle = true;
+                    break;
+                }
             }
-            osm.declareCachedStyleUpToDate();
-            return p;
+            if (!hasProperLineStyle) {
+                LineElement line = LineElement.UNTAGGED_WAY;
+                for (StyleElement element : p.a) {
+                    if (element instanceof AreaElement) {
+                        line = LineElement.createSimpleLineStyle(((AreaElement) element).color, true);
+                        break;
+                    }
+                }
+                p.a = new StyleElementList(p.a, line);
+            }
+        }
+        StyleCache style = osm.getCachedStyle() != null ? osm.getCachedStyle() : StyleCache.EMPTY_STYLECACHE;
+        try {
+            osm.setCachedStyle(style.put(p.a, p.b, osm.isSelected()));
+        } catch (RangeViolatedError e) {
+            throw new AssertionError("Range violated: " + e.getMessage()
+              + " (object: " + osm.getPrimitiveId() + ", current style: " + osm.getCachedStyle()
+              + ", scale: " + scale + ", new stylelist: " + p.a + ", new range: " + p.b + ')', e);
+        }
+        return p;
+    }
+
+    /**
+     * Fills the style cache of a primitive for all the scale ranges distinguished by the style sources,
+     * going outwards from the range which has just been computed.
+     * @param osm OSM primitive
+     * @param range the range which has just been cached
+     * @param nc navigable component
+     */
+    private void cacheOtherScales(IPrimitive osm, Range range, NavigatableComponent nc) {
+        boolean selected = osm.isSelected();
+        int ranges = 1;
+        for (Range r = range; r.getUpper() < Double.POSITIVE_INFINITY && ranges < MAX_CACHED_SCALE_RANGES; ranges++) {
+            // the upper bound belongs to the current range
+            double next = Math.nextUp(r.getUpper());
+            Pair<StyleElementList, Range> cached = osm.getCachedStyle().getWithRange(next, selected);
+            r = cached.a != null ? cached.b : cacheStyle(osm, next, nc).b;
+        }
+        for (Range r = range; r.getLower() > 0 && ranges < MAX_CACHED_SCALE_RANGES; ranges++) {
+            // the lower bound belongs to the range below
+            double next = r.getLower();
+            Pair<StyleElementList, Range> cached = osm.getCachedStyle().getWithRange(next, selected);
+            r = cached.a != null ? cached.b : cacheStyle(osm, next, nc).b;
         }
     }
 
@@ -30,6 +30,7 @@ import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.coor.conversion.LatLonParser;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
 import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
 import org.openstreetmap.josm.data.preferences.JosmUrls;
 import org.openstreetmap.josm.data.projection.Projection;
@@ -82,6 +83,7 @@ public class RenderingCLI implements CLIModule {
     private Integer argHeightPx;
     private String argProjection;
     private Integer argMaxImageSize;
+    private boolean argParallel;
 
     private StyleData argCurrentStyle;
 
@@ -102,7 +104,8 @@ public class RenderingCLI implements CLIModule {
         WIDTH_PX(true, '*'),
         HEIGHT_PX(true, '*'),
         PROJECTION(true, '*'),
-        MAX_IMAGE_SIZE(true, '*');
+        MAX_IMAGE_SIZE(true, '*'),
+        PARALLEL(false, '*');
 
         private final String name;
         private final boolean requiresArg;
@@ -237,6 +240,9 @@ public class RenderingCLI implements CLIModule {
         case TRACE:
             argTrace = true;
             break;
+        case PARALLEL:
+            argParallel = true;
+            break;
         default:
             throw new AssertionError("Unexpected option index: " + o);
         }
@@ -416,6 +422,7 @@ public class RenderingCLI implements CLIModule {
                 "\t--projection <code>       "+tr("Projection to use, default value ''{0}'' (web-Mercator)", "epsg:3857")+"\n"+
                 "\t--max-image-size <number> "+tr("Maximum image width/height in pixel (''{0}'' means no limit), default value: {1}",
                                                    0, Integer.toString(DEFAULT_MAX_IMAGE_SIZE))+"\n"+
+                "\t--parallel                "+tr("Draw large images in parallel tiles, using all processor cores")+"\n"+
                 "\n"+
                 tr("To specify the rendered area and scale, the options can be combined in various ways")+":\n"+
                 "  * --bounds (--zoom|--scale|--width-px|--height-px)\n"+
@@ -450,6 +457,9 @@ public class RenderingCLI implements CLIModule {
         Config.setPreferencesInstance(new MemoryPreferences());
         Config.setUrlsProvider(JosmUrls.getInstance());
         Config.getPref().putBoolean("mappaint.auto_reload_local_styles", false); // unnecessary to listen for external changes
+        if (argParallel) {
+            Config.getPref().putBoolean(StyledMapRenderer.PREFERENCE_PARALLEL_DRAWING.getKey(), true);
+        }
         String projCode = Optional.ofNullable(argProjection).orElse("epsg:3857");
         ProjectionRegistry.setProjection(Projections.getProjectionByCode(projCode.toUpperCase(Locale.US)));
 
@@ -6,12 +6,15 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.DoubleUnaryOperator;
@@ -19,6 +22,8 @@ import java.util.function.Function;
 
 import org.openstreetmap.josm.gui.mappaint.Cascade;
 import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.Keyword;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -62,10 +67,14 @@ public final class ExpressionFactory {
                     Double arg = Cascade.convertTo(args.get(0).evaluate(env), Double.class);
                     return arg == null ? null : unaryOperator.applyAsDouble(arg);
                 } else {
-                    return args.stream()
-                            .map(arg -> Cascade.convertTo(arg.evaluate(env), Double.class))
-                            .filter(Objects::nonNull)
-                            .reduce(operator::applyAsDouble).orElse(null);
+                    Double result = null;
+                    for (Expression arg : args) {
+                        Double v = Cascade.convertTo(arg.evaluate(env), Double.class);
+                        if (v != null) {
+                            result = result == null ? v : operator.applyAsDouble(result, v);
+                        }
+                    }
+                    return result;
                 }
             };
         }
@@ -141,6 +150,20 @@ public final class ExpressionFactory {
 
     static final Map<String, Factory> FACTORY_MAP = new HashMap<>();
 
+    /**
+     * Functions whose result only depends on their arguments, so that they can be evaluated once when the style is
+     * parsed if all their arguments are constant. Functions with side effects or depending on the locale are excluded.
+     */
+    private static final Set<String> PURE_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "CRC32_checksum", "URL_decode", "URL_encode", "XML_encode", "abs", "acos", "alpha", "and", "any", "asin", "atan",
+            "atan2", "blue", "cardinal_to_radians", "ceil", "color2html", "concat", "cond", "cos", "cosh", "count",
+            "degree_to_radians", "divided_by", "equal", "eval", "exp", "floor", "get", "greater", "greater_equal", "green",
+            "hsb_color", "html2color", "is_similar", "join", "join_list", "length", "less", "less_equal", "list", "log", "lower",
+            "max", "min", "minus", "mod", "not", "not_equal", "or", "plus", "red", "regexp_match", "regexp_test", "replace",
+            "rgb", "rgba", "round", "signum", "sin", "sinh", "sort", "sort_list", "split", "sqrt", "substring", "tan", "tanh",
+            "times", "title", "to_boolean", "to_byte", "to_double", "to_float", "to_int", "to_long", "to_short", "trim",
+            "trim_list", "uniq", "uniq_list", "upper"));
+
     static {
         initFactories();
     }
@@ -272,6 +295,11 @@ public final class ExpressionFactory {
      * returns {@link NullExpression#INSTANCE}.
      */
     public static Expression createFunctionExpression(String name, List<Expression> args) {
+        Expression expression = createFunctionExpressionImpl(name, args);
+        return PURE_FUNCTIONS.contains(name) ? foldConstant(expression, args) : expression;
+    }
+
+    private static Expression createFunctionExpressionImpl(String name, List<Expression> args) {
         if ("cond".equals(name) && args.size() == 3)
             return new CondOperator(args.get(0), args.get(1), args.get(2));
         else if ("and".equals(name))
@@ -296,6 +324,62 @@ public final class ExpressionFactory {
         return NullExpression.INSTANCE;
     }
 
+    /**
+     * Evaluates an expression once if all its arguments are constant.
+     * @param expression the expression of a pure function
+     * @param args the arguments of the function
+     * @return a {@link ConstantExpression}, or {@code expression} if it cannot be evaluated in advance
+     */
+    private static Expression foldConstant(Expression expression, List<Expression> args) {
+        for (Expression arg : args) {
+            if (!(arg instanceof LiteralExpression || arg instanceof ConstantExpression)) {
+                return expression;
+            }
+        }
+        Object value;
+        try {
+            value = expression.evaluate(null);
+        } catch (RuntimeException e) {
+            // report the error when the expression is evaluated, as before
+            Logging.trace(e);
+            return expression;
+        }
+        // mutable values such as lists must not be shared between evaluations
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Color || value instanceof Keyword) {
+            return new ConstantExpression(value, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * The result of a function whose arguments are all constant, computed when the style is parsed.
+     * <p>
+     * Unlike a {@link LiteralExpression}, it is not interpreted by the declarations, for instance as a tag key
+     * for {@code text: eval("static text")}.
+     * @since xxx
+     */
+    public static class ConstantExpression implements Expression {
+
+        private final Object value;
+        private final Expression source;
+
+        ConstantExpression(Object value, Expression source) {
+            this.value = value;
+            this.source = source;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(source);
+        }
+    }
+
     /**
      * Expression that always evaluates to null.
      */
@@ -358,9 +442,12 @@ public final class ExpressionFactory {
 
         @Override
         public Object evaluate(Environment env) {
-            return args.stream()
-                    .map(arg -> Cascade.convertTo(arg.evaluate(env), boolean.class))
-                    .allMatch(Boolean.TRUE::equals);
+            for (Expression arg : args) {
+                if (!Boolean.TRUE.equals(Cascade.convertTo(arg.evaluate(env), boolean.class))) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
@@ -381,9 +468,12 @@ public final class ExpressionFactory {
 
         @Override
         public Object evaluate(Environment env) {
-            return args.stream()
-                    .map(arg -> Cascade.convertTo(arg.evaluate(env), boolean.class))
-                    .anyMatch(Boolean.TRUE::equals);
+            for (Expression arg : args) {
+                if (Boolean.TRUE.equals(Cascade.convertTo(arg.evaluate(env), boolean.class))) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
@@ -140,6 +140,12 @@ public class AreaElement extends StyleElement {
         }
     }
 
+    @Override
+    public double getDrawingExtent() {
+        // the area is filled inside of its outline only
+        return 0;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -180,6 +180,12 @@ public class LineElement extends StyleElement {
         return !isModifier;
     }
 
+    @Override
+    public double getDrawingExtent() {
+        // the width of lines with a real width depends on the scale
+        return realWidth > 0 ? -1 : line.getLineWidth() / 2 + Math.abs(offset);
+    }
+
     /**
      * Converts a linejoin of a {@link BasicStroke} to a MapCSS string
      * @param linejoin The linejoin
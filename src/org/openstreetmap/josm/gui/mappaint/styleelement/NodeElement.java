@@ -19,6 +19,7 @@ import org.openstreetmap.josm.gui.mappaint.Environment;
 import org.openstreetmap.josm.gui.mappaint.Keyword;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.IconReference;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.BoxProvider;
+import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.BoxProviderResult;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.SimpleBoxProvider;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
@@ -349,6 +350,24 @@ public class NodeElement extends StyleElement {
         }
     }
 
+    @Override
+    public double getDrawingExtent() {
+        if (mapImage != null) {
+            BoxProviderResult result = mapImage.getBoxProvider().get();
+            if (result.isTemporary()) {
+                // the image is still loading, its size is not known yet
+                return -1;
+            }
+            Rectangle box = result.getBox();
+            // the icon may be rotated around the node
+            return Math.hypot(Math.max(-box.x, box.x + box.width), Math.max(-box.y, box.y + box.height));
+        } else if (symbol != null) {
+            return symbol.size / Math.sqrt(2);
+        }
+        // simple nodes are drawn with the small sizes of the preferences
+        return 0;
+    }
+
     private static int max(int a, int b, int c, int d) {
         // Profile before switching to a stream/int[] array
         // This was 66% give or take for painting nodes in terms of memory allocations
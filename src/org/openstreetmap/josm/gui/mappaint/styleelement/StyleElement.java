@@ -101,6 +101,15 @@ public abstract class StyleElement implements StyleKeys {
         return false;
     }
 
+    /**
+     * Returns the distance from the primitive up to which this element is drawn, without highlighting.
+     * @return the distance in pixels, or a negative value if it is not known in advance (e.g. for labels)
+     * @since xxx
+     */
+    public double getDrawingExtent() {
+        return -1;
+    }
+
     /**
      * Get a property value of type Width
      * @param c the cascade
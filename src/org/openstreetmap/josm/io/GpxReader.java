@@ -26,6 +26,7 @@ import org.openstreetmap.josm.data.gpx.GpxExtensionCollection;
 import org.openstreetmap.josm.data.gpx.GpxLink;
 import org.openstreetmap.josm.data.gpx.GpxRoute;
 import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackPoints;
 import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.IGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
@@ -74,9 +75,15 @@ public class GpxReader implements GpxConstants, IGpxReader {
         private GpxData data;
         private Collection<IGpxTrackSegment> currentTrack;
         private Map<String, Object> currentTrackAttr;
-        private Collection<WayPoint> currentTrackSeg;
+        private GpxTrackPoints.Builder currentTrackSeg;
         private GpxRoute currentRoute;
+        /** The current way or route point, {@code null} for track points */
         private WayPoint currentWayPoint;
+        /** The coordinates of the current track point */
+        private double currentTrackPointLat;
+        private double currentTrackPointLon;
+        /** The attributes of the current track point, created when the first attribute is read */
+        private Map<String, Object> currentTrackPointAttr;
 
         private State currentState = State.INIT;
 
@@ -240,7 +247,7 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "trkseg":
                     states.push(currentState);
                     currentState = State.TRKSEG;
-                    currentTrackSeg = new ArrayList<>();
+                    currentTrackSeg = new GpxTrackPoints.Builder();
                     break;
                 case "link":
                     states.push(currentState);
@@ -257,9 +264,13 @@ public class GpxReader implements GpxConstants, IGpxReader {
             case TRKSEG:
                 switch (localName) {
                 case "trkpt":
+                    // track points are stored in columns, without creating way points
                     states.push(currentState);
                     currentState = State.WPT;
-                    currentWayPoint = new WayPoint(parseLatLon(atts));
+                    currentWayPoint = null;
+                    currentTrackPointLat = parseCoord(atts, "lat");
+                    currentTrackPointLon = parseCoord(atts, "lon");
+                    currentTrackPointAttr = null;
                     break;
                 case "extensions":
                     states.push(currentState);
@@ -336,12 +347,22 @@ public class GpxReader implements GpxConstants, IGpxReader {
             switch (currentState) {
             case RTE: return currentRoute.attr;
             case METADATA: return data.attr;
-            case WPT: return currentWayPoint.attr;
+            case WPT: return getPointAttr();
             case TRK: return currentTrackAttr;
             default: return null;
             }
         }
 
+        private Map<String, Object> getPointAttr() {
+            if (currentWayPoint != null) {
+                return currentWayPoint.attr;
+            }
+            if (currentTrackPointAttr == null) {
+                currentTrackPointAttr = new HashMap<>();
+            }
+            return currentTrackPointAttr;
+        }
+
         @SuppressWarnings("unchecked")
         @Override
         public void endElement(String namespaceURI, String localName, String qName) {
@@ -465,20 +486,20 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "cmt":
                 case "desc":
                 case "fix":
-                    currentWayPoint.put(localName, accumulator.toString());
+                    getPointAttr().put(localName, accumulator.toString());
                     break;
                 case "hdop":
                 case "vdop":
                 case "pdop":
                     try {
-                        currentWayPoint.put(localName, Float.valueOf(accumulator.toString()));
+                        getPointAttr().put(localName, Float.valueOf(accumulator.toString()));
                     } catch (NumberFormatException e) {
-                        currentWayPoint.put(localName, 0f);
+                        getPointAttr().put(localName, 0f);
                     }
                     break;
                 case PT_TIME:
                     try {
-                        currentWayPoint.setInstant(DateUtils.parseInstant(accumulator.toString()));
+                        getPointAttr().put(PT_TIME, DateUtils.parseInstant(accumulator.toString()));
                     } catch (UncheckedParseException | DateTimeException e) {
                         Logging.error(e);
                     }
@@ -490,8 +511,11 @@ public class GpxReader implements GpxConstants, IGpxReader {
                     break;
                 case "trkpt":
                     currentState = states.pop();
-                    convertUrlToLink(currentWayPoint.attr);
-                    currentTrackSeg.add(currentWayPoint);
+                    if (currentTrackPointAttr != null) {
+                        convertUrlToLink(currentTrackPointAttr);
+                    }
+                    currentTrackSeg.add(currentTrackPointLat, currentTrackPointLon, currentTrackPointAttr);
+                    currentTrackPointAttr = null;
                     break;
                 case "wpt":
                     currentState = states.pop();
@@ -506,8 +530,8 @@ public class GpxReader implements GpxConstants, IGpxReader {
             case TRKSEG:
                 if ("trkseg".equals(localName)) {
                     currentState = states.pop();
-                    if (!currentTrackSeg.isEmpty()) {
-                        GpxTrackSegment seg = new GpxTrackSegment(currentTrackSeg);
+                    if (currentTrackSeg.size() > 0) {
+                        GpxTrackSegment seg = new GpxTrackSegment(currentTrackSeg.build());
                         if (!currentExtensionCollection.isEmpty()) {
                             seg.getExtensions().addAll(currentExtensionCollection);
                         }
@@ -0,0 +1,888 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.data.protobuf.ProtobufPacked;
+import org.openstreetmap.josm.data.protobuf.ProtobufParser;
+import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+import org.tukaani.xz.LZMAInputStream;
+
+/**
+ * Parser for OSM PBF files (see <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF Format</a>).
+ * <p>
+ * The file blobs are read sequentially, but the {@code OSMData} blocks are decompressed and decoded in parallel.
+ * The decoded blocks are then added to the data set in file order, so the result does not depend on the number of threads.
+ * @since xxx
+ */
+public class OsmPbfReader extends AbstractReader {
+
+    /** The blob type of the file header */
+    static final String OSM_HEADER = "OSMHeader";
+    /** The blob type of data blocks */
+    static final String OSM_DATA = "OSMData";
+    /** Maximum size of a serialized blob header, as defined by the specification */
+    static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+    /** Maximum size of a serialized or uncompressed blob, as defined by the specification */
+    static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    /** The features this reader (and {@link OsmPbfWriter}) support */
+    static final Set<String> SUPPORTED_FEATURES = new HashSet<>(Arrays.asList("OsmSchema-V0.6", "DenseNodes", "HistoricalInformation"));
+
+    /**
+     * Constructs a new {@code OsmPbfReader}.
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected OsmPbfReader() {
+        // Restricts visibility
+    }
+
+    /**
+     * A raw file block, as read from the stream
+     */
+    private static final class Blob {
+        final String type;
+        final byte[] bytes;
+
+        Blob(String type, byte[] bytes) {
+            this.type = type;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Returns the uncompressed content of this blob
+         * @return the uncompressed content of this blob
+         * @throws IllegalDataException if the blob is invalid or uses an unsupported compression
+         * @throws IOException in case of I/O error
+         */
+        byte[] decompress() throws IllegalDataException, IOException {
+            byte[] raw = null;
+            byte[] zlib = null;
+            byte[] lzma = null;
+            int rawSize = -1;
+            boolean unsupported = false;
+            try (ProtobufParser parser = new ProtobufParser(bytes)) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(4);
+                while (parser.hasNext()) {
+                    ProtobufRecord blobRecord = new ProtobufRecord(baos, parser);
+                    switch (blobRecord.getField()) {
+                    case 1:
+                        raw = blobRecord.getBytes();
+                        break;
+                    case 2:
+                        rawSize = blobRecord.asUnsignedVarInt().intValue();
+                        break;
+                    case 3:
+                        zlib = blobRecord.getBytes();
+                        break;
+                    case 4:
+                        lzma = blobRecord.getBytes();
+                        break;
+                    default:
+                        // bzip2 (deprecated), lz4 and zstd
+                        unsupported = true;
+                    }
+                }
+            }
+            if (raw != null) {
+                return raw;
+            } else if (rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+                throw new IllegalDataException(tr("Invalid uncompressed size of PBF blob: {0}", rawSize));
+            } else if (zlib != null) {
+                return inflate(zlib, rawSize);
+            } else if (lzma != null) {
+                byte[] data = new byte[rawSize];
+                try (DataInputStream in = new DataInputStream(new LZMAInputStream(new ByteArrayInputStream(lzma)))) {
+                    in.readFully(data);
+                }
+                return data;
+            }
+            throw new IllegalDataException(unsupported
+                    ? tr("Unsupported compression of PBF blob")
+                    : tr("Empty PBF blob"));
+        }
+
+        private static byte[] inflate(byte[] zlib, int rawSize) throws IllegalDataException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(zlib);
+                byte[] data = new byte[rawSize];
+                int length = 0;
+                while (length < rawSize && !inflater.finished()) {
+                    int read = inflater.inflate(data, length, rawSize - length);
+                    if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += read;
+                }
+                if (length != rawSize) {
+                    throw new IllegalDataException(tr("Truncated PBF blob: expected {0} bytes, got {1}", rawSize, length));
+                }
+                return data;
+            } catch (DataFormatException e) {
+                throw new IllegalDataException(e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * The primitives of one decoded {@code OSMData} block. Only the parsed data is stored, the {@code OsmPrimitive}s
+     * are built by the reading thread.
+     */
+    private static final class PrimitiveBlock {
+        final List<NodeData> nodes = new ArrayList<>();
+        final List<WayData> ways = new ArrayList<>();
+        final List<Collection<Long>> wayNodes = new ArrayList<>();
+        final List<RelationData> relations = new ArrayList<>();
+        final List<Collection<RelationMemberData>> relationMembers = new ArrayList<>();
+    }
+
+    /**
+     * An immutable list view of way node ids. Avoids boxing the ids until the ways are actually built.
+     */
+    private static final class LongArrayList extends AbstractList<Long> {
+        private final long[] values;
+
+        LongArrayList(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * The decoding state for one {@code OSMData} block: string table, coordinate granularity and offsets, users.
+     */
+    private final class BlockDecoder {
+        private String[] strings = new String[0];
+        private long granularity = 100;
+        private long dateGranularity = 1000;
+        private long latOffset;
+        private long lonOffset;
+        private final Map<Long, User> users = new HashMap<>();
+        private final ByteArrayOutputStream baos = new ByteArrayOutputStream(4);
+        private final PrimitiveBlock block = new PrimitiveBlock();
+
+        PrimitiveBlock decode(byte[] data) throws IllegalDataException, IOException {
+            List<byte[]> groups = new ArrayList<>();
+            try (ProtobufParser parser = new ProtobufParser(data)) {
+                while (parser.hasNext()) {
+                    ProtobufRecord blockRecord = new ProtobufRecord(baos, parser);
+                    switch (blockRecord.getField()) {
+                    case 1:
+                        strings = decodeStringTable(blockRecord.getBytes());
+                        break;
+                    case 2:
+                        groups.add(blockRecord.getBytes());
+                        break;
+                    case 17:
+                        granularity = blockRecord.asUnsignedVarInt().longValue();
+                        break;
+                    case 18:
+                        dateGranularity = blockRecord.asUnsignedVarInt().longValue();
+                        break;
+                    case 19:
+                        latOffset = blockRecord.asUnsignedVarInt().longValue();
+                        break;
+                    case 20:
+                        lonOffset = blockRecord.asUnsignedVarInt().longValue();
+                        break;
+                    default:
+                        // Ignore unknown fields
+                    }
+                }
+            }
+            // The group messages may appear before the string table and the granularity, so decode them last
+            for (byte[] group : groups) {
+                decodeGroup(group);
+            }
+            return block;
+        }
+
+        private String[] decodeStringTable(byte[] data) throws IOException {
+            List<String> table = new ArrayList<>();
+            try (ProtobufParser parser = new ProtobufParser(data)) {
+                while (parser.hasNext()) {
+                    ProtobufRecord stringRecord = new ProtobufRecord(baos, parser);
+                    if (stringRecord.getField() == 1) {
+                        table.add(stringRecord.asString());
+                    }
+                }
+            }
+            return table.toArray(new String[0]);
+        }
+
+        private void decodeGroup(byte[] data) throws IllegalDataException, IOException {
+            try (ProtobufParser parser = new ProtobufParser(data)) {
+                while (parser.hasNext()) {
+                    ProtobufRecord groupRecord = new ProtobufRecord(baos, parser);
+                    switch (groupRecord.getField()) {
+                    case 1:
+                        decodeNode(groupRecord.getBytes());
+                        break;
+                    case 2:
+                        decodeDenseNodes(groupRecord.getBytes());
+                        break;
+                    case 3:
+                        decodeWay(groupRecord.getBytes());
+                        break;
+                    case 4:
+                        decodeRelation(groupRecord.getBytes());
+                        break;
+                    default:
+                        // Changesets are not supported (and not used by common producers)
+                    }
+                }
+            }
+        }
+
+        private String getString(long index) throws IllegalDataException {
+            if (index < 0 || index >= strings.length) {
+                throw new IllegalDataException(tr("Invalid PBF string table index: {0}", index));
+            }
+            return strings[(int) index];
+        }
+
+        private double lat(long lat) {
+            // Divide instead of multiplying with 1e-9 so the result is the same double as parsing the XML decimal value
+            return (latOffset + granularity * lat) / 1e9;
+        }
+
+        private double lon(long lon) {
+            return (lonOffset + granularity * lon) / 1e9;
+        }
+
+        private void setNodeCoordinates(NodeData nd, long lat, long lon) throws IllegalDataException {
+            LatLon ll = new LatLon(lat(lat), lon(lon));
+            if (!ll.isValid()) {
+                throw new IllegalDataException(tr("Illegal value for attributes ''lat'', ''lon'' on node with ID {0}. Got ''{1}'', ''{2}''.",
+                        Long.toString(nd.getId()), ll.lat(), ll.lon()));
+            }
+            nd.setCoor(ll);
+        }
+
+        private void setMetadata(PrimitiveData pd, long id, int version, long timestamp, long changeset, long uid, long userSid,
+                boolean visible) throws IllegalDataException {
+            parseId(pd, id);
+            if (version > 0) {
+                parseVersion(pd, version);
+            } else if (!pd.isNew()) {
+                // Many extracts are generated without metadata, which is legal for PBF but not for OSM API data
+                parseVersion(pd, 1);
+            }
+            if (timestamp > 0) {
+                pd.setRawTimestamp((int) (timestamp * dateGranularity / 1000));
+            }
+            if (changeset > 0) {
+                parseChangeset(pd, (int) changeset);
+            }
+            String name = userSid > 0 ? getString(userSid) : null;
+            if (uid > 0) {
+                pd.setUser(users.computeIfAbsent(uid, k -> User.createOsmUser(k, name)));
+            } else if (!Utils.isEmpty(name)) {
+                pd.setUser(User.createLocalUser(name));
+            }
+            pd.setVisible(visible);
+        }
+
+        private void decodeInfo(PrimitiveData pd, long id, byte[] info) throws IllegalDataException, IOException {
+            int version = -1;
+            long timestamp = 0;
+            long changeset = 0;
+            long uid = 0;
+            long userSid = 0;
+            boolean visible = true;
+            if (info != null) {
+                try (ProtobufParser parser = new ProtobufParser(info)) {
+                    while (parser.hasNext()) {
+                        ProtobufRecord infoRecord = new ProtobufRecord(baos, parser);
+                        long value = infoRecord.asUnsignedVarInt().longValue();
+                        switch (infoRecord.getField()) {
+                        case 1:
+                            version = (int) value;
+                            break;
+                        case 2:
+                            timestamp = value;
+                            break;
+                        case 3:
+                            changeset = value;
+                            break;
+                        case 4:
+                            uid = (int) value;
+                            break;
+                        case 5:
+                            userSid = value;
+                            break;
+                        case 6:
+                            visible = value != 0;
+                            break;
+                        default:
+                            // Ignore unknown fields
+                        }
+                    }
+                }
+            }
+            setMetadata(pd, id, version, timestamp, changeset, uid, userSid, visible);
+        }
+
+        private void setTags(PrimitiveData pd, long[] keys, long[] values) throws IllegalDataException {
+            if (keys.length != values.length) {
+                throw new IllegalDataException(tr("PBF primitive {0} has {1} keys but {2} values",
+                        Long.toString(pd.getUniqueId()), keys.length, values.length));
+            }
+            if (keys.length > 0) {
+                String[] tags = new String[2 * keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    tags[2 * i] = getString(keys[i]);
+                    tags[2 * i + 1] = getString(values[i]);
+                }
+                setTags(pd, tags, tags.length);
+            }
+        }
+
+        private void setTags(PrimitiveData pd, String[] tags, int length) {
+            boolean safe = true;
+            for (int i = 0; i < length && safe; i += 2) {
+                safe = !Utils.isStripEmpty(tags[i]);
+                for (int j = 0; j < i && safe; j += 2) {
+                    safe = !tags[i].equals(tags[j]);
+                }
+            }
+            if (safe) {
+                pd.setKeys(new TagMap(length == tags.length ? tags : Arrays.copyOf(tags, length)));
+            } else {
+                for (int i = 0; i < length; i += 2) {
+                    if (Utils.isStripEmpty(tags[i])) {
+                        // #14199: drop empty keys, but flag the primitive as modified (see AbstractReader#parseTag)
+                        pd.setModified(true);
+                    } else {
+                        pd.put(tags[i], tags[i + 1]);
+                    }
+                }
+            }
+        }
+
+        private void decodeNode(byte[] data) throws IllegalDataException, IOException {
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            long[] keys = new long[0];
+            long[] values = keys;
+            byte[] info = null;
+            try (ProtobufParser parser = new ProtobufParser(data)) {
+                while (parser.hasNext()) {
+                    ProtobufRecord nodeRecord = new ProtobufRecord(baos, parser);
+                    switch (nodeRecord.getField()) {
+                    case 1:
+                        id = nodeRecord.asSignedVarInt().longValue();
+                        break;
+                    case 2:
+                        keys = ProtobufPacked.decodeVarInts(nodeRecord.getBytes());
+                        break;
+                    case 3:
+                        values = ProtobufPacked.decodeVarInts(nodeRecord.getBytes());
+                        break;
+                    case 4:
+                        info = nodeRecord.getBytes();
+                        break;
+                    case 8:
+                        lat = nodeRecord.asSignedVarInt().longValue();
+                        break;
+                    case 9:
+                        lon = nodeRecord.asSignedVarInt().longValue();
+                        break;
+                    default:
+                        // Ignore unknown fields
+                    }
+                }
+            }
+            NodeData nd = new NodeData(0);
+            decodeInfo(nd, id, info);
+            setNodeCoordinates(nd, lat, lon);
+            setTags(nd, keys, values);
+            block.nodes.add(nd);
+        }
+
+        private void decodeDenseNodes(byte[] data) throws IllegalDataException, IOException {
+            long[] ids = new long[0];
+            long[] lats = ids;
+            long[] lons = ids;
+            long[] keysValues = ids;
+            byte[] denseInfo = null;
+            try (ProtobufParser parser = new ProtobufParser(data)) {
+                while (parser.hasNext()) {
+                    ProtobufRecord denseRecord = new ProtobufRecord(baos, parser);
+                    switch (denseRecord.getField()) {
+                    case 1:
+                        ids = ProtobufPacked.decodeVarInts(denseRecord.getBytes());
+                        break;
+                    case 5:
+                        denseInfo = denseRecord.getBytes();
+                        break;
+                    case 8:
+                        lats = ProtobufPacked.decodeVarInts(denseRecord.getBytes());
+                        break;
+                    case 9:
+                        lons = ProtobufPacked.decodeVarInts(denseRecord.getBytes());
+                        break;
+                    case 10:
+                        keysValues = ProtobufPacked.decodeVarInts(denseRecord.getBytes());
+                        break;
+                    default:
+                        // Ignore unknown fields
+                    }
+                }
+            }
+            if (lats.length != ids.length || lons.length != ids.length) {
+                throw new IllegalDataException(tr("Invalid PBF dense nodes: {0} ids, {1} latitudes, {2} longitudes",
+                        ids.length, lats.length, lons.length));
+            }
+            DenseInfo info = denseInfo != null ? new DenseInfo(denseInfo, ids.length) : null;
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            int keyValueIndex = 0;
+            String[] tags = new String[16];
+            for (int i = 0; i < ids.length; i++) {
+                // All values are delta coded
+                id += ProtobufPacked.decodeZigZag(ids[i]);
+                lat += ProtobufPacked.decodeZigZag(lats[i]);
+                lon += ProtobufPacked.decodeZigZag(lons[i]);
+                NodeData nd = new NodeData(0);
+                if (info != null) {
+                    info.next();
+                    setMetadata(nd, id, info.version, info.timestamp, info.changeset, info.uid, info.userSid, info.isVisible(i));
+                } else {
+                    setMetadata(nd, id, -1, 0, 0, 0, 0, true);
+                }
+                setNodeCoordinates(nd, lat, lon);
+                int length = 0;
+                while (keyValueIndex < keysValues.length && keysValues[keyValueIndex] != 0) {
+                    if (keyValueIndex + 1 >= keysValues.length) {
+                        throw new IllegalDataException(tr("Invalid PBF dense nodes: key without value"));
+                    }
+                    if (length + 2 > tags.length) {
+                        tags = Arrays.copyOf(tags, 2 * tags.length);
+                    }
+                    tags[length++] = getString(keysValues[keyValueIndex++]);
+                    tags[length++] = getString(keysValues[keyValueIndex++]);
+                }
+                // Skip the 0 delimiter
+                keyValueIndex++;
+                if (length > 0) {
+                    setTags(nd, tags, length);
+                }
+                block.nodes.add(nd);
+            }
+        }
+
+        private void decodeWay(byte[] data) throws IllegalDataException, IOException {
+            long id = 0;
+            long[] keys = new long[0];
+            long[] values = keys;
+            long[] refs = keys;
+            byte[] info = null;
+            try (ProtobufParser parser = new ProtobufParser(data)) {
+                while (parser.hasNext()) {
+                    ProtobufRecord wayRecord = new ProtobufRecord(baos, parser);
+                    switch (wayRecord.getField()) {
+                    case 1:
+                        id = wayRecord.asUnsignedVarInt().longValue();
+                        break;
+                    case 2:
+                        keys = ProtobufPacked.decodeVarInts(wayRecord.getBytes());
+                        break;
+                    case 3:
+                        values = ProtobufPacked.decodeVarInts(wayRecord.getBytes());
+                        break;
+                    case 4:
+                        info = wayRecord.getBytes();
+                        break;
+                    case 8:
+                        refs = ProtobufPacked.decodeVarInts(wayRecord.getBytes());
+                        break;
+                    default:
+                        // Ignore unknown fields (including LocationsOnWays)
+                    }
+                }
+            }
+            WayData wd = new WayData(0);
+            decodeInfo(wd, id, info);
+            setTags(wd, keys, values);
+            long ref = 0;
+            for (int i = 0; i < refs.length; i++) {
+                ref += ProtobufPacked.decodeZigZag(refs[i]);
+                refs[i] = ref;
+            }
+            block.ways.add(wd);
+            block.wayNodes.add(new LongArrayList(refs));
+        }
+
+        private void decodeRelation(byte[] data) throws IllegalDataException, IOException {
+            long id = 0;
+            long[] keys = new long[0];
+            long[] values = keys;
+            long[] roles = keys;
+            long[] memberIds = keys;
+            long[] types = keys;
+            byte[] info = null;
+            try (ProtobufParser parser = new ProtobufParser(data)) {
+                while (parser.hasNext()) {
+                    ProtobufRecord relationRecord = new ProtobufRecord(baos, parser);
+                    switch (relationRecord.getField()) {
+                    case 1:
+                        id = relationRecord.asUnsignedVarInt().longValue();
+                        break;
+                    case 2:
+                        keys = ProtobufPacked.decodeVarInts(relationRecord.getBytes());
+                        break;
+                    case 3:
+                        values = ProtobufPacked.decodeVarInts(relationRecord.getBytes());
+                        break;
+                    case 4:
+                        info = relationRecord.getBytes();
+                        break;
+                    case 8:
+                        roles = ProtobufPacked.decodeVarInts(relationRecord.getBytes());
+                        break;
+                    case 9:
+                        memberIds = ProtobufPacked.decodeVarInts(relationRecord.getBytes());
+                        break;
+                    case 10:
+                        types = ProtobufPacked.decodeVarInts(relationRecord.getBytes());
+                        break;
+                    default:
+                        // Ignore unknown fields
+                    }
+                }
+            }
+            RelationData rd = new RelationData(0);
+            decodeInfo(rd, id, info);
+            setTags(rd, keys, values);
+            if (roles.length != memberIds.length || types.length != memberIds.length) {
+                throw new IllegalDataException(tr("Invalid members of PBF relation {0}", Long.toString(rd.getUniqueId())));
+            }
+            List<RelationMemberData> members = new ArrayList<>(memberIds.length);
+            long memberId = 0;
+            for (int i = 0; i < memberIds.length; i++) {
+                memberId += ProtobufPacked.decodeZigZag(memberIds[i]);
+                if (memberId == 0) {
+                    throw new IllegalDataException(tr("Incomplete <member> specification with ref=0"));
+                }
+                members.add(new RelationMemberData(getString(roles[i]), memberType(rd, types[i]), memberId));
+            }
+            block.relations.add(rd);
+            block.relationMembers.add(members);
+        }
+
+        private OsmPrimitiveType memberType(RelationData rd, long type) throws IllegalDataException {
+            switch ((int) type) {
+            case 0:
+                return OsmPrimitiveType.NODE;
+            case 1:
+                return OsmPrimitiveType.WAY;
+            case 2:
+                return OsmPrimitiveType.RELATION;
+            default:
+                throw new IllegalDataException(tr("Illegal member type {0} in relation {1}.", type, Long.toString(rd.getUniqueId())));
+            }
+        }
+
+        /**
+         * The delta coded metadata of dense nodes
+         */
+        private final class DenseInfo {
+            private long[] versions = new long[0];
+            private long[] timestamps = versions;
+            private long[] changesets = versions;
+            private long[] uids = versions;
+            private long[] userSids = versions;
+            private long[] visibles = versions;
+            private int index = -1;
+            int version;
+            long timestamp;
+            long changeset;
+            long uid;
+            long userSid;
+
+            DenseInfo(byte[] data, int count) throws IllegalDataException, IOException {
+                try (ProtobufParser parser = new ProtobufParser(data)) {
+                    while (parser.hasNext()) {
+                        ProtobufRecord infoRecord = new ProtobufRecord(baos, parser);
+                        long[] values = ProtobufPacked.decodeVarInts(infoRecord.getBytes());
+                        switch (infoRecord.getField()) {
+                        case 1:
+                            versions = values;
+                            break;
+                        case 2:
+                            timestamps = values;
+                            break;
+                        case 3:
+                            changesets = values;
+                            break;
+                        case 4:
+                            uids = values;
+                            break;
+                        case 5:
+                            userSids = values;
+                            break;
+                        case 6:
+                            visibles = values;
+                            break;
+                        default:
+                            // Ignore unknown fields
+                        }
+                    }
+                }
+                for (long[] values : Arrays.asList(versions, timestamps, changesets, uids, userSids)) {
+                    if (values.length != 0 && values.length != count) {
+                        throw new IllegalDataException(tr("Invalid PBF dense info: expected {0} values, got {1}", count, values.length));
+                    }
+                }
+            }
+
+            void next() {
+                index++;
+                version = versions.length > 0 ? (int) versions[index] : -1;
+                timestamp += timestamps.length > 0 ? ProtobufPacked.decodeZigZag(timestamps[index]) : 0;
+                changeset += changesets.length > 0 ? ProtobufPacked.decodeZigZag(changesets[index]) : 0;
+                uid += uids.length > 0 ? (int) ProtobufPacked.decodeZigZag(uids[index]) : 0;
+                userSid += userSids.length > 0 ? (int) ProtobufPacked.decodeZigZag(userSids[index]) : 0;
+            }
+
+            boolean isVisible(int i) {
+                return i >= visibles.length || visibles[i] != 0;
+            }
+        }
+    }
+
+    /**
+     * Reads the next blob from the stream.
+     * @param in the input stream
+     * @return the next blob, or {@code null} at the end of the stream
+     * @throws IllegalDataException if the blob header is invalid
+     * @throws IOException in case of I/O error
+     */
+    private static Blob readBlob(DataInputStream in) throws IllegalDataException, IOException {
+        int headerSize;
+        try {
+            headerSize = in.readInt();
+        } catch (EOFException e) {
+            Logging.trace(e);
+            return null;
+        }
+        if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+            throw new IllegalDataException(tr("Invalid PBF blob header size: {0}", headerSize));
+        }
+        byte[] header = new byte[headerSize];
+        in.readFully(header);
+        String type = null;
+        int dataSize = -1;
+        try (ProtobufParser parser = new ProtobufParser(header)) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(4);
+            while (parser.hasNext()) {
+                ProtobufRecord headerRecord = new ProtobufRecord(baos, parser);
+                if (headerRecord.getField() == 1) {
+                    type = headerRecord.asString();
+                } else if (headerRecord.getField() == 3) {
+                    dataSize = headerRecord.asUnsignedVarInt().intValue();
+                }
+            }
+        }
+        if (type == null || dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+            throw new IllegalDataException(tr("Invalid PBF blob header: type={0}, size={1}", type, dataSize));
+        }
+        byte[] data = new byte[dataSize];
+        in.readFully(data);
+        return new Blob(type, data);
+    }
+
+    private void parseHeader(byte[] data) throws IllegalDataException, IOException {
+        String generator = null;
+        String source = null;
+        byte[] bbox = null;
+        try (ProtobufParser parser = new ProtobufParser(data)) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(4);
+            while (parser.hasNext()) {
+                ProtobufRecord headerRecord = new ProtobufRecord(baos, parser);
+                switch (headerRecord.getField()) {
+                case 1:
+                    bbox = headerRecord.getBytes();
+                    break;
+                case 4:
+                    String feature = headerRecord.asString();
+                    if (!SUPPORTED_FEATURES.contains(feature)) {
+                        throw new IllegalDataException(tr("PBF file requires unsupported feature ''{0}''", feature));
+                    }
+                    break;
+                case 16:
+                    generator = headerRecord.asString();
+                    break;
+                case 17:
+                    source = headerRecord.asString();
+                    break;
+                default:
+                    // Optional features, replication information
+                }
+            }
+            if (bbox != null) {
+                parseBoundingBox(bbox, Utils.firstNonNull(source, generator));
+            }
+        }
+    }
+
+    private void parseBoundingBox(byte[] data, String origin) throws IOException {
+        long[] bbox = new long[4];
+        try (ProtobufParser parser = new ProtobufParser(data)) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(4);
+            while (parser.hasNext()) {
+                ProtobufRecord bboxRecord = new ProtobufRecord(baos, parser);
+                if (bboxRecord.getField() >= 1 && bboxRecord.getField() <= 4) {
+                    bbox[bboxRecord.getField() - 1] = bboxRecord.asSignedVarInt().longValue();
+                }
+            }
+        }
+        // left, right, top, bottom in nanodegrees
+        Bounds bounds = new Bounds(bbox[3] / 1e9, bbox[0] / 1e9, bbox[2] / 1e9, bbox[1] / 1e9);
+        if (bounds.isOutOfTheWorld()) {
+            Bounds copy = new Bounds(bounds);
+            bounds.normalize();
+            Logging.info("Bbox " + copy + " is out of the world, normalized to " + bounds);
+        }
+        ds.addDataSource(new DataSource(bounds, origin));
+    }
+
+    private void addBlock(PrimitiveBlock block) {
+        for (NodeData nd : block.nodes) {
+            buildPrimitive(nd);
+        }
+        for (int i = 0; i < block.ways.size(); i++) {
+            WayData wd = block.ways.get(i);
+            ways.put(wd.getUniqueId(), block.wayNodes.get(i));
+            buildPrimitive(wd);
+        }
+        for (int i = 0; i < block.relations.size(); i++) {
+            RelationData rd = block.relations.get(i);
+            relations.put(rd.getUniqueId(), block.relationMembers.get(i));
+            buildPrimitive(rd);
+        }
+    }
+
+    private static PrimitiveBlock getBlock(Future<PrimitiveBlock> future) throws IllegalDataException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalDataException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalDataException) {
+                throw (IllegalDataException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IllegalDataException(cause);
+        }
+    }
+
+    private void parse(InputStream source) throws IllegalDataException, IOException {
+        ds.setVersion("0.6");
+        ForkJoinPool pool = Utils.newForkJoinPool("osm.pbf.reader.numberOfThreads", "osm-pbf-reader-%d", Thread.NORM_PRIORITY);
+        // Bound the number of decoded blocks waiting to be added, to keep the memory footprint under control
+        int maxPendingBlocks = 2 * pool.getParallelism();
+        Deque<Future<PrimitiveBlock>> pending = new ArrayDeque<>(maxPendingBlocks);
+        boolean headerSeen = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(source))) {
+            Blob blob;
+            while (!cancel && (blob = readBlob(in)) != null) {
+                if (OSM_HEADER.equals(blob.type)) {
+                    parseHeader(blob.decompress());
+                    headerSeen = true;
+                } else if (!headerSeen) {
+                    throw new IllegalDataException(tr("PBF file does not start with an OSMHeader block"));
+                } else if (OSM_DATA.equals(blob.type)) {
+                    final Blob dataBlob = blob;
+                    pending.add(pool.submit(() -> new BlockDecoder().decode(dataBlob.decompress())));
+                    while (pending.size() >= maxPendingBlocks) {
+                        addBlock(getBlock(pending.poll()));
+                    }
+                } else {
+                    Logging.info(tr("Unknown PBF block type ''{0}''. Skipping.", blob.type));
+                }
+            }
+            while (!cancel && !pending.isEmpty()) {
+                addBlock(getBlock(pending.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Override
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return doParseBinaryDataSet(source, progressMonitor, this::parse);
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new OsmPbfReader().doParseDataSet(source, progressMonitor);
+    }
+}
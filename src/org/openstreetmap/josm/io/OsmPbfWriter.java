@@ -0,0 +1,395 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Writes a data set in the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">OSM PBF format</a>.
+ * <p>
+ * Nodes are written as dense nodes. Deleted and incomplete primitives are skipped, and like other export formats
+ * the modification state of the primitives is not kept.
+ * @since xxx
+ */
+public class OsmPbfWriter implements Closeable {
+
+    /** Maximum number of primitives per block, as recommended by the specification */
+    static final int MAX_ENTITIES_PER_BLOCK = 8000;
+    /** Coordinate granularity in nanodegrees, i.e. the 7 decimal digits used by the OSM API */
+    private static final int GRANULARITY = 100;
+    private static final String FEATURE_HISTORICAL_INFORMATION = "HistoricalInformation";
+
+    private final DataOutputStream out;
+
+    /**
+     * Constructs a new {@code OsmPbfWriter}.
+     * @param out the output stream to write to
+     */
+    public OsmPbfWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * A minimal protobuf message encoder
+     */
+    private static final class ProtobufMessage {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private static void writeRawVarInt(ByteArrayOutputStream stream, long value) {
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                stream.write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            stream.write((int) v);
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        ProtobufMessage varInt(int field, long value) {
+            writeRawVarInt(buffer, (long) field << 3);
+            writeRawVarInt(buffer, value);
+            return this;
+        }
+
+        ProtobufMessage signedVarInt(int field, long value) {
+            return varInt(field, zigZag(value));
+        }
+
+        ProtobufMessage bytes(int field, byte[] value) {
+            writeRawVarInt(buffer, (long) field << 3 | 2);
+            writeRawVarInt(buffer, value.length);
+            buffer.write(value, 0, value.length);
+            return this;
+        }
+
+        ProtobufMessage string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ProtobufMessage message(int field, ProtobufMessage value) {
+            return bytes(field, value.toByteArray());
+        }
+
+        ProtobufMessage packed(int field, long[] values, int length, boolean signed) {
+            if (length > 0) {
+                ByteArrayOutputStream packed = new ByteArrayOutputStream(length);
+                for (int i = 0; i < length; i++) {
+                    writeRawVarInt(packed, signed ? zigZag(values[i]) : values[i]);
+                }
+                bytes(field, packed.toByteArray());
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * The string table of a block. Index 0 is reserved for the empty string (used as delimiter in dense nodes).
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        StringTable() {
+            index("");
+        }
+
+        int index(String s) {
+            return indexes.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        ProtobufMessage toMessage() {
+            ProtobufMessage table = new ProtobufMessage();
+            for (String s : strings) {
+                table.string(1, s);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Writes the given data set.
+     * @param ds the data set to write
+     * @throws IOException in case of I/O error
+     */
+    public void write(DataSet ds) throws IOException {
+        Predicate<OsmPrimitive> isWritten = p -> !p.isDeleted() && !p.isIncomplete();
+        List<Node> nodes = ds.getNodes().stream().filter(isWritten).filter(Node::isLatLonKnown)
+                .sorted(Comparator.comparingLong(OsmPrimitive::getUniqueId)).collect(Collectors.toList());
+        List<Way> ways = ds.getWays().stream().filter(isWritten)
+                .sorted(Comparator.comparingLong(OsmPrimitive::getUniqueId)).collect(Collectors.toList());
+        List<Relation> relations = ds.getRelations().stream().filter(isWritten)
+                .sorted(Comparator.comparingLong(OsmPrimitive::getUniqueId)).collect(Collectors.toList());
+        boolean historical = nodes.stream().anyMatch(p -> !p.isVisible())
+                || ways.stream().anyMatch(p -> !p.isVisible())
+                || relations.stream().anyMatch(p -> !p.isVisible());
+
+        writeHeader(ds, historical);
+        for (int i = 0; i < nodes.size(); i += MAX_ENTITIES_PER_BLOCK) {
+            writeNodes(nodes.subList(i, Math.min(nodes.size(), i + MAX_ENTITIES_PER_BLOCK)), historical);
+        }
+        for (int i = 0; i < ways.size(); i += MAX_ENTITIES_PER_BLOCK) {
+            writeWays(ways.subList(i, Math.min(ways.size(), i + MAX_ENTITIES_PER_BLOCK)), historical);
+        }
+        for (int i = 0; i < relations.size(); i += MAX_ENTITIES_PER_BLOCK) {
+            writeRelations(relations.subList(i, Math.min(relations.size(), i + MAX_ENTITIES_PER_BLOCK)), historical);
+        }
+        out.flush();
+    }
+
+    private void writeHeader(DataSet ds, boolean historical) throws IOException {
+        ProtobufMessage header = new ProtobufMessage();
+        Bounds bounds = null;
+        for (DataSource source : ds.getDataSources()) {
+            if (bounds == null) {
+                bounds = new Bounds(source.bounds);
+            } else {
+                bounds.extend(source.bounds);
+            }
+        }
+        if (bounds != null) {
+            header.message(1, new ProtobufMessage()
+                    .signedVarInt(1, Math.round(bounds.getMinLon() * 1e9))
+                    .signedVarInt(2, Math.round(bounds.getMaxLon() * 1e9))
+                    .signedVarInt(3, Math.round(bounds.getMaxLat() * 1e9))
+                    .signedVarInt(4, Math.round(bounds.getMinLat() * 1e9)));
+        }
+        for (String feature : OsmPbfReader.SUPPORTED_FEATURES) {
+            if (historical || !FEATURE_HISTORICAL_INFORMATION.equals(feature)) {
+                header.string(4, feature);
+            }
+        }
+        header.string(16, "JOSM");
+        writeBlob(OsmPbfReader.OSM_HEADER, header.toByteArray());
+    }
+
+    private static int userId(User user) {
+        return user != null && user.isOsmUser() ? (int) user.getId() : 0;
+    }
+
+    private static int userName(StringTable strings, User user) {
+        return user != null ? strings.index(user.getName()) : 0;
+    }
+
+    private static void writeTags(ProtobufMessage message, StringTable strings, OsmPrimitive p) {
+        long[] keys = new long[p.getNumKeys()];
+        long[] values = new long[keys.length];
+        int i = 0;
+        for (Entry<String, String> tag : p.getKeys().entrySet()) {
+            keys[i] = strings.index(tag.getKey());
+            values[i++] = strings.index(tag.getValue());
+        }
+        message.packed(2, keys, i, false);
+        message.packed(3, values, i, false);
+    }
+
+    private static ProtobufMessage info(StringTable strings, OsmPrimitive p, boolean historical) {
+        ProtobufMessage info = new ProtobufMessage()
+                .varInt(1, p.getVersion())
+                .varInt(2, p.getRawTimestamp())
+                .varInt(3, p.getChangesetId())
+                .varInt(4, userId(p.getUser()))
+                .varInt(5, userName(strings, p.getUser()));
+        if (historical) {
+            info.varInt(6, p.isVisible() ? 1 : 0);
+        }
+        return info;
+    }
+
+    private void writeNodes(List<Node> nodes, boolean historical) throws IOException {
+        StringTable strings = new StringTable();
+        int n = nodes.size();
+        long[] ids = new long[n];
+        long[] lats = new long[n];
+        long[] lons = new long[n];
+        long[] versions = new long[n];
+        long[] timestamps = new long[n];
+        long[] changesets = new long[n];
+        long[] uids = new long[n];
+        long[] userSids = new long[n];
+        long[] visibles = new long[n];
+        List<Long> keysValues = new ArrayList<>();
+        long lastId = 0;
+        long lastLat = 0;
+        long lastLon = 0;
+        long lastTimestamp = 0;
+        long lastChangeset = 0;
+        long lastUid = 0;
+        long lastUserSid = 0;
+        for (int i = 0; i < n; i++) {
+            Node node = nodes.get(i);
+            // All values but the version are delta coded
+            long lat = Math.round(node.lat() * 1e9 / GRANULARITY);
+            long lon = Math.round(node.lon() * 1e9 / GRANULARITY);
+            ids[i] = node.getUniqueId() - lastId;
+            lats[i] = lat - lastLat;
+            lons[i] = lon - lastLon;
+            versions[i] = node.getVersion();
+            timestamps[i] = node.getRawTimestamp() - lastTimestamp;
+            changesets[i] = node.getChangesetId() - lastChangeset;
+            long uid = userId(node.getUser());
+            long userSid = userName(strings, node.getUser());
+            uids[i] = uid - lastUid;
+            userSids[i] = userSid - lastUserSid;
+            visibles[i] = node.isVisible() ? 1 : 0;
+            lastId = node.getUniqueId();
+            lastLat = lat;
+            lastLon = lon;
+            lastTimestamp = node.getRawTimestamp();
+            lastChangeset = node.getChangesetId();
+            lastUid = uid;
+            lastUserSid = userSid;
+            for (Entry<String, String> tag : node.getKeys().entrySet()) {
+                keysValues.add((long) strings.index(tag.getKey()));
+                keysValues.add((long) strings.index(tag.getValue()));
+            }
+            keysValues.add(0L);
+        }
+        ProtobufMessage denseInfo = new ProtobufMessage()
+                .packed(1, versions, n, false)
+                .packed(2, timestamps, n, true)
+                .packed(3, changesets, n, true)
+                .packed(4, uids, n, true)
+                .packed(5, userSids, n, true);
+        if (historical) {
+            denseInfo.packed(6, visibles, n, false);
+        }
+        ProtobufMessage dense = new ProtobufMessage()
+                .packed(1, ids, n, true)
+                .message(5, denseInfo)
+                .packed(8, lats, n, true)
+                .packed(9, lons, n, true);
+        // Omit the tags if no node of the block has tags
+        if (keysValues.size() > n) {
+            dense.packed(10, keysValues.stream().mapToLong(Long::longValue).toArray(), keysValues.size(), false);
+        }
+        writeBlock(strings, new ProtobufMessage().message(2, dense));
+    }
+
+    private void writeWays(List<Way> ways, boolean historical) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufMessage group = new ProtobufMessage();
+        for (Way way : ways) {
+            ProtobufMessage message = new ProtobufMessage().varInt(1, way.getUniqueId());
+            writeTags(message, strings, way);
+            message.message(4, info(strings, way, historical));
+            long[] refs = new long[way.getNodesCount()];
+            long last = 0;
+            for (int i = 0; i < refs.length; i++) {
+                long ref = way.getNodeId(i);
+                refs[i] = ref - last;
+                last = ref;
+            }
+            message.packed(8, refs, refs.length, true);
+            group.message(3, message);
+        }
+        writeBlock(strings, group);
+    }
+
+    private void writeRelations(List<Relation> relations, boolean historical) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufMessage group = new ProtobufMessage();
+        for (Relation relation : relations) {
+            ProtobufMessage message = new ProtobufMessage().varInt(1, relation.getUniqueId());
+            writeTags(message, strings, relation);
+            message.message(4, info(strings, relation, historical));
+            int n = relation.getMembersCount();
+            long[] roles = new long[n];
+            long[] memberIds = new long[n];
+            long[] types = new long[n];
+            long last = 0;
+            for (int i = 0; i < n; i++) {
+                RelationMember member = relation.getMember(i);
+                roles[i] = strings.index(member.getRole());
+                memberIds[i] = member.getUniqueId() - last;
+                last = member.getUniqueId();
+                switch (member.getType()) {
+                case NODE:
+                    types[i] = 0;
+                    break;
+                case WAY:
+                    types[i] = 1;
+                    break;
+                default:
+                    types[i] = 2;
+                }
+            }
+            message.packed(8, roles, n, false);
+            message.packed(9, memberIds, n, true);
+            message.packed(10, types, n, false);
+            group.message(4, message);
+        }
+        writeBlock(strings, group);
+    }
+
+    private void writeBlock(StringTable strings, ProtobufMessage group) throws IOException {
+        ProtobufMessage block = new ProtobufMessage()
+                .message(1, strings.toMessage())
+                .message(2, group)
+                .varInt(17, GRANULARITY);
+        writeBlob(OsmPbfReader.OSM_DATA, block.toByteArray());
+    }
+
+    private void writeBlob(String type, byte[] data) throws IOException {
+        Deflater deflater = new Deflater();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 16);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        byte[] blob = new ProtobufMessage()
+                .varInt(2, data.length)
+                .bytes(3, compressed.toByteArray())
+                .toByteArray();
+        byte[] header = new ProtobufMessage()
+                .string(1, type)
+                .varInt(3, blob.length)
+                .toByteArray();
+        out.writeInt(header.length);
+        out.write(header);
+        out.write(blob);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
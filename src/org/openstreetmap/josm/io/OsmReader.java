@@ -4,12 +4,18 @@ package org.openstreetmap.josm.io;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -22,6 +28,7 @@ import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationData;
@@ -29,10 +36,12 @@ import org.openstreetmap.josm.data.osm.RelationMemberData;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.UncheckedParseException;
+import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.XmlUtils;
 
 /**
@@ -60,12 +69,30 @@ public class OsmReader extends AbstractReader {
         SAVE_ORIGINAL_ID
     }
 
+    /**
+     * Property to enable the pipelined mode: the input is read (and decompressed) ahead on a background thread,
+     * and the primitives are constructed on another thread while the XML parsing goes on.
+     * Enabled by default on multi-core machines.
+     * @since xxx
+     */
+    public static final BooleanProperty PIPELINED = new BooleanProperty(
+            "osm.reader.pipelined", Runtime.getRuntime().availableProcessors() > 1);
+
+    /** Number of parsed primitives handed over at once to the construction stage */
+    private static final int CONSTRUCTION_BATCH_SIZE = 1024;
+    /** Maximum number of batches waiting in the construction stage */
+    private static final int CONSTRUCTION_QUEUE_CAPACITY = 16;
+
     protected XMLStreamReader parser;
 
+    /** The construction stage, only set while parsing the primitives of an {@code <osm>} element in pipelined mode */
+    private ConstructionStage constructionStage;
+
     /** The {@link OsmReader.Options} to use when parsing the xml data */
     protected final Collection<Options> options;
 
     private static final Set<String> COMMON_XML_ATTRIBUTES = new TreeSet<>();
+    private static final Set<String> PARSE_METHODS = new TreeSet<>(Arrays.asList("parseNode", "parseWay", "parseRelation"));
 
     static {
         COMMON_XML_ATTRIBUTES.add("id");
@@ -155,6 +182,23 @@ public class OsmReader extends AbstractReader {
         if (parser.getAttributeValue(null, "upload-changeset") != null) {
             uploadChangesetId = getLong("upload-changeset");
         }
+        if (PIPELINED.get() && !overridesParseMethods(getClass())) {
+            constructionStage = new ConstructionStage();
+        }
+        try {
+            parseOsmContent(generator, uploadChangesetId);
+            if (constructionStage != null) {
+                constructionStage.finish();
+            }
+        } finally {
+            if (constructionStage != null) {
+                constructionStage.abort();
+                constructionStage = null;
+            }
+        }
+    }
+
+    private void parseOsmContent(String generator, Long uploadChangesetId) throws XMLStreamException {
         while (parser.hasNext()) {
             int event = parser.next();
 
@@ -192,6 +236,125 @@ public class OsmReader extends AbstractReader {
         }
     }
 
+    /**
+     * Determines if a subclass overrides {@link #parseNode()}, {@link #parseWay()} or {@link #parseRelation()}.
+     * Such subclasses may rely on the returned primitive, so the primitives are not constructed asynchronously for them.
+     * @param klass the reader class
+     * @return {@code true} if one of the methods is overridden
+     */
+    static boolean overridesParseMethods(Class<?> klass) {
+        for (Class<?> c = klass; c != null && c != OsmReader.class; c = c.getSuperclass()) {
+            for (Method m : c.getDeclaredMethods()) {
+                if (m.getParameterCount() == 0 && PARSE_METHODS.contains(m.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the primitive, or hands it over to the construction stage in pipelined mode.
+     * In that case, {@code null} is returned, as the primitive is constructed asynchronously.
+     */
+    @Override
+    protected OsmPrimitive buildPrimitive(PrimitiveData pd) {
+        if (constructionStage != null) {
+            constructionStage.submit(pd);
+            return null;
+        }
+        return super.buildPrimitive(pd);
+    }
+
+    /**
+     * Constructs the primitives on a dedicated thread, in parsing order.
+     * The parsed data is handed over in batches through a bounded queue, so that a slow construction throttles the parsing.
+     */
+    private final class ConstructionStage {
+        private final BlockingQueue<List<PrimitiveData>> queue = new ArrayBlockingQueue<>(CONSTRUCTION_QUEUE_CAPACITY);
+        private final Thread thread;
+        private List<PrimitiveData> batch = new ArrayList<>(CONSTRUCTION_BATCH_SIZE);
+        private volatile RuntimeException failure;
+
+        ConstructionStage() {
+            thread = Utils.newThreadFactory("osm-reader-construction-%d", Thread.NORM_PRIORITY).newThread(this::construct);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void construct() {
+            try {
+                List<PrimitiveData> next;
+                // An empty batch marks the end of the data
+                while (!(next = queue.take()).isEmpty()) {
+                    for (PrimitiveData pd : next) {
+                        OsmReader.super.buildPrimitive(pd);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Logging.trace(e);
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                failure = e;
+                // Unblock the parsing thread, the failure is reported when it submits the next batch
+                queue.clear();
+            }
+        }
+
+        private void put(List<PrimitiveData> primitives) {
+            try {
+                while (!queue.offer(primitives, 100, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedParseException(tr("Reading was canceled"), e);
+            }
+            checkFailure();
+        }
+
+        private void checkFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        void submit(PrimitiveData pd) {
+            batch.add(pd);
+            if (batch.size() >= CONSTRUCTION_BATCH_SIZE) {
+                put(batch);
+                batch = new ArrayList<>(CONSTRUCTION_BATCH_SIZE);
+            }
+        }
+
+        void finish() {
+            if (!batch.isEmpty()) {
+                put(batch);
+                batch = new ArrayList<>(0);
+            }
+            put(Collections.emptyList());
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedParseException(tr("Reading was canceled"), e);
+            }
+            checkFailure();
+        }
+
+        void abort() {
+            if (thread.isAlive()) {
+                thread.interrupt();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Logging.trace(e);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
     private void handleIllegalDataException(IllegalDataException e) throws XMLStreamException {
         Throwable cause = e.getCause();
         if (cause instanceof XMLStreamException) {
@@ -226,6 +389,15 @@ public class OsmReader extends AbstractReader {
         jumpToEnd();
     }
 
+    /**
+     * Parses a {@code <node>} element.
+     * <p>
+     * In pipelined mode (see {@link #PIPELINED}), the primitives of an {@code <osm>} element are constructed on a
+     * background thread, and {@code null} is returned. The pipelined mode is disabled for the subclasses overriding
+     * this method, so that they always get the constructed primitive.
+     * @return the parsed node, or {@code null} if it is constructed asynchronously
+     * @throws XMLStreamException if any XML stream error occurs
+     */
     protected Node parseNode() throws XMLStreamException {
         String lat = parser.getAttributeValue(null, "lat");
         String lon = parser.getAttributeValue(null, "lon");
@@ -256,6 +428,15 @@ public class OsmReader extends AbstractReader {
         }
     }
 
+    /**
+     * Parses a {@code <way>} element.
+     * <p>
+     * In pipelined mode (see {@link #PIPELINED}), the primitives of an {@code <osm>} element are constructed on a
+     * background thread, and {@code null} is returned. The pipelined mode is disabled for the subclasses overriding
+     * this method, so that they always get the constructed primitive.
+     * @return the parsed way, or {@code null} if it is constructed asynchronously
+     * @throws XMLStreamException if any XML stream error occurs
+     */
     protected Way parseWay() throws XMLStreamException {
         try {
             return parseWay(this::readCommon, this::parseWayNodesAndTags);
@@ -305,6 +486,15 @@ public class OsmReader extends AbstractReader {
         return id;
     }
 
+    /**
+     * Parses a {@code <relation>} element.
+     * <p>
+     * In pipelined mode (see {@link #PIPELINED}), the primitives of an {@code <osm>} element are constructed on a
+     * background thread, and {@code null} is returned. The pipelined mode is disabled for the subclasses overriding
+     * this method, so that they always get the constructed primitive.
+     * @return the parsed relation, or {@code null} if it is constructed asynchronously
+     * @throws XMLStreamException if any XML stream error occurs
+     */
     protected Relation parseRelation() throws XMLStreamException {
         try {
             return parseRelation(this::readCommon, this::parseRelationMembersAndTags);
@@ -488,7 +678,9 @@ public class OsmReader extends AbstractReader {
 
     @Override
     protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
-        return doParseDataSet(source, progressMonitor, ir -> {
+        // Read (and decompress) the input on a separate thread in pipelined mode
+        InputStream in = source != null && PIPELINED.get() ? new ReadAheadInputStream(source) : source;
+        return doParseDataSet(in, progressMonitor, ir -> {
             try {
                 setParser(XmlUtils.newSafeXMLInputFactory().createXMLStreamReader(ir));
                 parse();
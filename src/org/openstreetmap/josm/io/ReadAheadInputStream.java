@@ -0,0 +1,160 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * An input stream reading its source on a background thread, ahead of the consumer.
+ * <p>
+ * Chunks of the source are handed over through a bounded queue, so that expensive work done while reading
+ * the source (e.g. bzip2 or xz decompression, see {@link Compression}) overlaps with the processing of the data
+ * (e.g. XML parsing) instead of alternating with it.
+ * @since xxx
+ */
+public final class ReadAheadInputStream extends InputStream {
+
+    /** Default size of the chunks read from the source */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    /** Default maximum number of chunks read ahead */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final InputStream in;
+    private final int chunkSize;
+    private final BlockingQueue<Object> queue;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private byte[] current = new byte[0];
+    private int position;
+    private IOException failure;
+
+    /**
+     * Constructs a new {@code ReadAheadInputStream} with default chunk size and capacity.
+     * @param in the source input stream. It is closed when this stream is closed.
+     */
+    public ReadAheadInputStream(InputStream in) {
+        this(in, DEFAULT_CHUNK_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code ReadAheadInputStream}.
+     * @param in the source input stream. It is closed when this stream is closed.
+     * @param chunkSize the size of the chunks read from the source
+     * @param capacity the maximum number of chunks read ahead
+     */
+    public ReadAheadInputStream(InputStream in, int chunkSize, int capacity) {
+        this.in = in;
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = Utils.newThreadFactory("read-ahead-%d", Thread.NORM_PRIORITY).newThread(this::pump);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void pump() {
+        try {
+            while (!closed) {
+                byte[] buffer = new byte[chunkSize];
+                int length = 0;
+                int read = 0;
+                try {
+                    while (length < chunkSize && (read = in.read(buffer, length, chunkSize - length)) != -1) {
+                        length += read;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (closed) {
+                        // The source has been closed while reading it
+                        Logging.trace(e);
+                        return;
+                    }
+                    // Hand over the data read before the error, then the error
+                    if (length > 0) {
+                        queue.put(Arrays.copyOf(buffer, length));
+                    }
+                    queue.put(e instanceof IOException ? e : new IOException(e));
+                    return;
+                }
+                if (length > 0) {
+                    queue.put(length == chunkSize ? buffer : Arrays.copyOf(buffer, length));
+                }
+                if (read == -1) {
+                    queue.put(END_OF_STREAM);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Logging.trace(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position >= current.length) {
+            if (failure != null) {
+                throw failure;
+            } else if (current == END_OF_STREAM) {
+                return false;
+            }
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+            }
+            if (next instanceof IOException) {
+                failure = (IOException) next;
+            } else {
+                current = (byte[]) next;
+                position = 0;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        } else if (!fill()) {
+            return -1;
+        }
+        int length = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            thread.interrupt();
+            queue.clear();
+            in.close();
+        }
+    }
+}
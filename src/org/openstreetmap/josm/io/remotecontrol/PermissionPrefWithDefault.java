@@ -47,6 +47,12 @@ public class PermissionPrefWithDefault {
     /** Read protocol version */
     public static final PermissionPrefWithDefault READ_PROTOCOL_VERSION =
             new PermissionPrefWithDefault("remotecontrol.permission.read-protocolversion", true, tr("Read protocol version"));
+    /**
+     * Read performance metrics
+     * @since xxx
+     */
+    public static final PermissionPrefWithDefault READ_METRICS =
+            new PermissionPrefWithDefault("remotecontrol.permission.read-metrics", false, tr("Read performance metrics"));
 
     /**
      * name of the preference setting to permit the remote operation
@@ -0,0 +1,68 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io.remotecontrol.handler;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import org.openstreetmap.josm.io.remotecontrol.PermissionPrefWithDefault;
+import org.openstreetmap.josm.tools.Metrics;
+
+/**
+ * Handler for metrics request.
+ * @since xxx
+ */
+public class MetricsHandler extends RequestHandler {
+
+    /**
+     * The remote control command name used to reply the performance metrics.
+     */
+    public static final String command = "metrics";
+
+    @Override
+    protected void handleRequest() throws RequestHandlerErrorException,
+            RequestHandlerBadRequestException {
+        content = Metrics.toJson().toString();
+        contentType = "application/json";
+        if (args.containsKey("jsonp")) {
+            content = args.get("jsonp") + " && " + args.get("jsonp") + '(' + content + ')';
+        }
+        if (Boolean.parseBoolean(args.get("reset"))) {
+            Metrics.reset();
+        }
+    }
+
+    @Override
+    public String getPermissionMessage() {
+        return tr("Remote Control has been asked to report the performance metrics of JOSM.");
+    }
+
+    @Override
+    public PermissionPrefWithDefault getPermissionPref() {
+        return PermissionPrefWithDefault.READ_METRICS;
+    }
+
+    @Override
+    public String[] getMandatoryParams() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getOptionalParams() {
+        return new String[]{"jsonp", "reset"};
+    }
+
+    @Override
+    protected void validateRequest() throws RequestHandlerBadRequestException {
+        // Nothing to do
+    }
+
+    @Override
+    public String getUsage() {
+        return "returns the counters, histograms and timers measuring the loading, rendering, validation and downloads, "
+                + "and resets them if asked to";
+    }
+
+    @Override
+    public String[] getUsageExamples() {
+        return new String[] {"/metrics", "/metrics?reset=true", "/metrics?jsonp=test"};
+    }
+}
@@ -6,6 +6,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Constructor;
 import java.net.CookieHandler;
 import java.net.CookieManager;
 import java.net.HttpURLConnection;
@@ -17,7 +18,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -81,6 +84,12 @@ public abstract class HttpClient {
 
     private static HttpClientFactory factory;
 
+    /** The hosts which answered with HTTP/2, and multiplex the requests over a single connection */
+    private static final Set<String> MULTIPLEXED_HOSTS = ConcurrentHashMap.newKeySet();
+
+    private static final Metrics.Timer REQUEST_LATENCY = Metrics.timer("http.request");
+    private static final Metrics.Counter REQUEST_ERRORS = Metrics.counter("http.error");
+
     static {
         try {
             CookieHandler.setDefault(new CookieManager());
@@ -98,6 +107,42 @@ public abstract class HttpClient {
         factory = Objects.requireNonNull(newFactory);
     }
 
+    /**
+     * Returns the factory of the HTTP/2 client based on {@code java.net.http}, which is only available on Java 11 and later,
+     * from the multi-release JOSM jar.
+     * @return the factory of the HTTP/2 client, or {@code null} if it is not available
+     * @since xxx
+     */
+    public static HttpClientFactory getHttp2Factory() {
+        if (Utils.getJavaVersion() < 11) {
+            return null;
+        }
+        try {
+            Constructor<? extends HttpClient> constructor = Class.forName("org.openstreetmap.josm.tools.Http2Client")
+                    .asSubclass(HttpClient.class).getConstructor(URL.class, String.class);
+            return (url, requestMethod) -> {
+                try {
+                    return constructor.newInstance(url, requestMethod);
+                } catch (ReflectiveOperationException e) {
+                    throw new JosmRuntimeException(e);
+                }
+            };
+        } catch (ClassNotFoundException | NoSuchMethodException | ClassCastException e) {
+            Logging.debug(e);
+            return null;
+        }
+    }
+
+    /**
+     * Determines if a host multiplexes the requests over a single connection, as seen in its previous responses.
+     * @param host the host
+     * @return {@code true} if the host answered with HTTP/2
+     * @since xxx
+     */
+    public static boolean isMultiplexed(String host) {
+        return MULTIPLEXED_HOSTS.contains(host);
+    }
+
     /**
      * Constructs a new {@code HttpClient}.
      * @param url URL to access
@@ -154,7 +199,12 @@ public abstract class HttpClient {
                 if (Logging.isDebugEnabled()) {
                     Logging.debug("REQUEST HEADERS: {0}", headers);
                 }
+                long start = System.nanoTime();
                 cr = performConnection();
+                REQUEST_LATENCY.stop(start);
+                if ("HTTP/2".equals(cr.getResponseVersion())) {
+                    MULTIPLEXED_HOSTS.add(url.getHost());
+                }
                 final boolean hasReason = !Utils.isEmpty(reasonForRequest);
                 logRequest("{0} {1}{2} -> {3} {4} ({5}{6})",
                         getRequestMethod(), stripUrl(getURL()), hasReason ? (" (" + reasonForRequest + ')') : "",
@@ -175,6 +225,7 @@ public abstract class HttpClient {
                     DefaultAuthenticator.getInstance().addFailedCredentialHost(url.getHost());
                 }
             } catch (IOException | RuntimeException e) {
+                REQUEST_ERRORS.increment();
                 logRequest("{0} {1} -> !!! ({2})", requestMethod, stripUrl(url), stopwatch);
                 Logging.warn(e);
                 //noinspection ThrowableResultOfMethodCallIgnored
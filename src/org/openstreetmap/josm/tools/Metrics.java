@@ -0,0 +1,310 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+
+/**
+ * A registry of counters, histograms and timers measuring the hot paths of JOSM, like the loading of data,
+ * the rendering, the style and tile caches, the validation and the HTTP requests.
+ * <p>
+ * The metrics are identified by dotted names, e.g. {@code render.frame}, and created on first use. Updating them is
+ * lock-free and cheap enough to be done unconditionally. They can be read with {@link #toJson()}, through the
+ * {@code /metrics} remote control command or written to a file with {@link #write(Path)}.
+ * @since xxx
+ */
+public final class Metrics {
+
+    private static final Map<String, Metric> METRICS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * A metric.
+     */
+    public interface Metric {
+        /**
+         * Returns the current values of the metric.
+         * @return the current values of the metric
+         */
+        JsonObject toJson();
+
+        /**
+         * Resets the metric to its initial state.
+         */
+        void reset();
+    }
+
+    /**
+     * A counter of events.
+     */
+    public static final class Counter implements Metric {
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * Counts one event.
+         */
+        public void increment() {
+            count.increment();
+        }
+
+        /**
+         * Counts events.
+         * @param n the number of events
+         */
+        public void add(long n) {
+            count.add(n);
+        }
+
+        /**
+         * Returns the number of events.
+         * @return the number of events
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public JsonObject toJson() {
+            return Json.createObjectBuilder().add("type", "counter").add("count", getCount()).build();
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * The distribution of values, e.g. sizes. The percentiles are estimated with power of two buckets,
+     * the reported value of a percentile is the upper bound of its bucket.
+     */
+    public static class Histogram implements Metric {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        /** bucket {@code i} counts the values {@code v} with {@code 2^(i-1) <= v < 2^i}, bucket 0 the values {@code <= 0} */
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+        /**
+         * Records a value.
+         * @param value the value
+         */
+        public void update(long value) {
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+            buckets.incrementAndGet(value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value));
+        }
+
+        /**
+         * Returns the number of recorded values.
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the sum of the recorded values.
+         * @return the sum of the recorded values
+         */
+        public long getSum() {
+            return sum.sum();
+        }
+
+        /**
+         * Estimates a percentile of the recorded values.
+         * @param percentile the percentile, between 0 and 1
+         * @return the upper bound of the bucket containing the percentile, 0 if no value has been recorded
+         */
+        public long getPercentile(double percentile) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : Math.min(max.get(), i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return 0;
+        }
+
+        protected String getType() {
+            return "histogram";
+        }
+
+        protected JsonObjectBuilder addValues(JsonObjectBuilder json, Function<Long, Number> scale) {
+            long n = getCount();
+            json.add("count", n);
+            if (n > 0) {
+                json.add("sum", scale.apply(getSum()).doubleValue())
+                    .add("mean", scale.apply(getSum()).doubleValue() / n)
+                    .add("min", scale.apply(min.get()).doubleValue())
+                    .add("max", scale.apply(max.get()).doubleValue())
+                    .add("p50", scale.apply(getPercentile(0.5)).doubleValue())
+                    .add("p95", scale.apply(getPercentile(0.95)).doubleValue())
+                    .add("p99", scale.apply(getPercentile(0.99)).doubleValue());
+            }
+            return json;
+        }
+
+        @Override
+        public JsonObject toJson() {
+            return addValues(Json.createObjectBuilder().add("type", getType()), v -> v).build();
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            sum.reset();
+            min.reset();
+            max.reset();
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * The distribution of durations, recorded in nanoseconds and reported in milliseconds.
+     */
+    public static final class Timer extends Histogram {
+
+        /**
+         * Records a duration.
+         * @param startNanos the start of the measured operation, from {@link System#nanoTime()}
+         */
+        public void stop(long startNanos) {
+            update(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Measures the duration of an operation.
+         * @param <T> the type of the result
+         * @param operation the operation
+         * @return the result of the operation
+         */
+        public <T> T time(Supplier<T> operation) {
+            long start = System.nanoTime();
+            try {
+                return operation.get();
+            } finally {
+                stop(start);
+            }
+        }
+
+        @Override
+        protected String getType() {
+            return "timer";
+        }
+
+        @Override
+        public JsonObject toJson() {
+            return addValues(Json.createObjectBuilder().add("type", getType()).add("unit", "ms"), v -> v / 1e6).build();
+        }
+    }
+
+    private static <T extends Metric> T get(String name, Class<T> type, Supplier<T> constructor) {
+        Metric metric = METRICS.get(name);
+        if (metric == null) {
+            metric = METRICS.computeIfAbsent(name, k -> constructor.get());
+        }
+        if (metric.getClass() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * Returns the counter of the given name, created if needed.
+     * @param name the name of the counter
+     * @return the counter
+     * @throws IllegalArgumentException if a metric of another type has this name
+     */
+    public static Counter counter(String name) {
+        return get(name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Returns the histogram of the given name, created if needed.
+     * @param name the name of the histogram
+     * @return the histogram
+     * @throws IllegalArgumentException if a metric of another type has this name
+     */
+    public static Histogram histogram(String name) {
+        return get(name, Histogram.class, Histogram::new);
+    }
+
+    /**
+     * Returns the timer of the given name, created if needed.
+     * @param name the name of the timer
+     * @return the timer
+     * @throws IllegalArgumentException if a metric of another type has this name
+     */
+    public static Timer timer(String name) {
+        return get(name, Timer.class, Timer::new);
+    }
+
+    /**
+     * Returns all metrics.
+     * @return the metrics, sorted by name
+     */
+    public static SortedMap<String, Metric> getMetrics() {
+        return new TreeMap<>(METRICS);
+    }
+
+    /**
+     * Resets all metrics. The metrics stay registered, so that the measured code can keep them in fields.
+     */
+    public static void reset() {
+        METRICS.values().forEach(Metric::reset);
+    }
+
+    /**
+     * Returns the current values of all metrics.
+     * @return an object mapping the names of the metrics to their values
+     */
+    public static JsonObject toJson() {
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        getMetrics().forEach((name, metric) -> json.add(name, metric.toJson()));
+        return json.build();
+    }
+
+    /**
+     * Writes the current values of all metrics as JSON.
+     * @param file the file to write
+     * @throws IOException in case of I/O error
+     */
+    public static void write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             JsonWriter json = Json.createWriter(writer)) {
+            json.writeObject(toJson());
+        }
+    }
+}
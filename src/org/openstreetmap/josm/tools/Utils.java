@@ -97,6 +97,9 @@ public final class Utils {
     private static final double TO_DEGREES = 180.0 / Math.PI;
     private static final double TO_RADIANS = Math.PI / 180.0;
 
+    /** {@code Thread.isVirtual()}, available on Java 21 and later */
+    private static final Method IS_VIRTUAL = getIsVirtualMethod();
+
     /**
      * A reference to {@code Map.ofEntries()} available since Java 9
      */
@@ -1222,6 +1225,62 @@ public final class Utils {
         };
     }
 
+    /**
+     * Creates a new {@link ThreadFactory} which creates virtual threads with names according to {@code nameFormat}.
+     * Virtual threads are only available on Java 21 and later.
+     * @param nameFormat a {@link String#format(String, Object...)} compatible name format; its first argument is a unique thread index
+     * @return a new {@link ThreadFactory}, or {@code null} if virtual threads are not available
+     * @since xxx
+     */
+    public static ThreadFactory newVirtualThreadFactory(final String nameFormat) {
+        if (getJavaVersion() < 21) {
+            return null;
+        }
+        final ThreadFactory factory;
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Logging.log(Logging.LEVEL_WARN, "Virtual threads are not available", e);
+            return null;
+        }
+        return new ThreadFactory() {
+            final AtomicLong count = new AtomicLong(0);
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = factory.newThread(runnable);
+                thread.setName(String.format(Locale.ENGLISH, nameFormat, count.getAndIncrement()));
+                return thread;
+            }
+        };
+    }
+
+    private static Method getIsVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Determines if a thread is a virtual thread.
+     * @param thread the thread
+     * @return {@code true} if the thread is a virtual thread, always {@code false} before Java 21
+     * @since xxx
+     */
+    public static boolean isVirtualThread(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            Logging.trace(e);
+            return false;
+        }
+    }
+
     /**
      * Compute <a href="https://en.wikipedia.org/wiki/Levenshtein_distance">Levenshtein distance</a>
      *
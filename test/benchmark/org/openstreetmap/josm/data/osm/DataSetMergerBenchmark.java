@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.JOSMFixture;
+
+/**
+ * Benchmarks the merge of downloaded data into a layer with {@link DataSetMerger}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class DataSetMergerBenchmark {
+
+    /** Number of tagged nodes of the merged data sets */
+    @Param({"10000", "100000"})
+    public int nodeCount;
+
+    private DataSet source;
+    private DataSet target;
+
+    /**
+     * Generates the downloaded data once.
+     */
+    @Setup(Level.Trial)
+    public void setUpSource() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        source = createDataSet(nodeCount);
+    }
+
+    /**
+     * Creates the target data, whose primitives have the ids of half of the downloaded primitives,
+     * as after a former download of a part of the area.
+     */
+    @Setup(Level.Invocation)
+    public void setUpTarget() {
+        target = createDataSet(nodeCount / 2);
+    }
+
+    private static DataSet createDataSet(int nodeCount) {
+        DataSet ds = OsmDataGenerator.getKeyValue(nodeCount, 1).generateDataSet();
+        List<Node> nodes = new ArrayList<>(ds.getNodes());
+        long id = 1;
+        for (Node n : nodes) {
+            n.setOsmId(id++, 1);
+        }
+        for (int i = 0; i + 10 <= nodes.size(); i += 10) {
+            Way w = new Way(id++, 1);
+            w.setNodes(nodes.subList(i, i + 10));
+            w.put("highway", "residential");
+            ds.addPrimitive(w);
+        }
+        return ds;
+    }
+
+    /**
+     * Merges the source data into the target data.
+     * @return the target data
+     */
+    @Benchmark
+    public DataSet merge() {
+        new DataSetMerger(target, source).merge();
+        return target;
+    }
+}
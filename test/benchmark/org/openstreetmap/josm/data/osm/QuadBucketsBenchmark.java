@@ -0,0 +1,86 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Benchmarks the spatial searches of a {@link DataSet}, backed by {@link QuadBuckets}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class QuadBucketsBenchmark {
+
+    /** Number of nodes of the data set */
+    @Param({"10000", "1000000"})
+    public int nodeCount;
+
+    /** Size of the searched areas, in degrees */
+    @Param({"0.001", "0.1"})
+    public double searchSize;
+
+    private DataSet ds;
+    private BBox[] searches;
+    private int next;
+
+    /**
+     * Generates the nodes and the searched areas.
+     */
+    @Setup
+    public void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        Random random = new Random(42);
+        ds = new DataSet();
+        for (int i = 0; i < nodeCount; i++) {
+            ds.addPrimitive(new Node(new LatLon(random.nextDouble(), random.nextDouble())));
+        }
+        searches = new BBox[1024];
+        for (int i = 0; i < searches.length; i++) {
+            double lat = random.nextDouble();
+            double lon = random.nextDouble();
+            searches[i] = new BBox(lon, lat, lon + searchSize, lat + searchSize);
+        }
+    }
+
+    /**
+     * Searches the nodes in an area.
+     * @return the found nodes
+     */
+    @Benchmark
+    public List<Node> searchNodes() {
+        next = (next + 1) % searches.length;
+        return ds.searchNodes(searches[next]);
+    }
+
+    /**
+     * Adds and removes a node.
+     * @return the node
+     */
+    @Benchmark
+    public Node addRemoveNode() {
+        next = (next + 1) % searches.length;
+        Node n = new Node(searches[next].getCenter());
+        ds.addPrimitive(n);
+        ds.removePrimitive(n);
+        return n;
+    }
+}
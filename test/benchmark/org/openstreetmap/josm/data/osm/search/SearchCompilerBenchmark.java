@@ -0,0 +1,82 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator.KeyValueDataGenerator;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+
+/**
+ * Benchmarks the compilation of search expressions and their matching with {@link SearchCompiler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SearchCompilerBenchmark {
+
+    /** Kind of expression, the {@code %k} and {@code %v} placeholders are replaced by random keys and values */
+    @Param({"%k=%v", "%k=*", "%k~%v", "%k=%v OR %k=%v", "-%k=%v %k", "type:node %k=%v"})
+    public String expression;
+
+    private List<OsmPrimitive> primitives;
+    private String search;
+    private Match match;
+
+    /**
+     * Generates the data and the expression.
+     * @throws SearchParseError if the expression is invalid
+     */
+    @Setup
+    public void setUp() throws SearchParseError {
+        JOSMFixture.createPerformanceTestFixture().init();
+        KeyValueDataGenerator generator = OsmDataGenerator.getKeyValue(10_000, 3);
+        primitives = new ArrayList<>(generator.generateDataSet().allPrimitives());
+        search = expression;
+        while (search.contains("%k") || search.contains("%v")) {
+            search = search.replaceFirst("%k", '"' + generator.randomKey() + '"')
+                    .replaceFirst("%v", '"' + generator.randomValue() + '"');
+        }
+        match = SearchCompiler.compile(search);
+    }
+
+    /**
+     * Compiles the expression.
+     * @return the compiled expression
+     * @throws SearchParseError if the expression is invalid
+     */
+    @Benchmark
+    public Match compile() throws SearchParseError {
+        return SearchCompiler.compile(search);
+    }
+
+    /**
+     * Matches all primitives against the compiled expression.
+     * @param blackhole the sink of the results
+     */
+    @Benchmark
+    public void match(Blackhole blackhole) {
+        for (OsmPrimitive p : primitives) {
+            blackhole.consume(match.match(p));
+        }
+    }
+}
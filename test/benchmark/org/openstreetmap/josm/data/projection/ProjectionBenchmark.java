@@ -0,0 +1,80 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Benchmarks the transforms between geographic and projected coordinates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    /** Code of the projection: Mercator, WGS84, Lambert 93, UTM 32N, British National Grid */
+    @Param({"EPSG:3857", "EPSG:4326", "EPSG:2154", "EPSG:32632", "EPSG:27700"})
+    public String code;
+
+    private Projection projection;
+    private LatLon[] latLons;
+    private EastNorth[] eastNorths;
+    private int next;
+
+    /**
+     * Creates the projection and the transformed coordinates, in the bounds of the projection.
+     */
+    @Setup
+    public void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        projection = Projections.getProjectionByCode(code);
+        Random random = new Random(42);
+        LatLon min = projection.getWorldBoundsLatLon().getMin();
+        LatLon max = projection.getWorldBoundsLatLon().getMax();
+        latLons = new LatLon[1024];
+        eastNorths = new EastNorth[latLons.length];
+        for (int i = 0; i < latLons.length; i++) {
+            latLons[i] = new LatLon(min.lat() + random.nextDouble() * (max.lat() - min.lat()),
+                    min.lon() + random.nextDouble() * (max.lon() - min.lon()));
+            eastNorths[i] = projection.latlon2eastNorth(latLons[i]);
+        }
+    }
+
+    /**
+     * Projects geographic coordinates.
+     * @return the projected coordinates
+     */
+    @Benchmark
+    public EastNorth latlon2eastNorth() {
+        next = (next + 1) % latLons.length;
+        return projection.latlon2eastNorth(latLons[next]);
+    }
+
+    /**
+     * Computes the geographic coordinates of projected ones.
+     * @return the geographic coordinates
+     */
+    @Benchmark
+    public LatLon eastNorth2latlon() {
+        next = (next + 1) % eastNorths.length;
+        return projection.eastNorth2latlon(eastNorths[next]);
+    }
+}
@@ -0,0 +1,104 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.gui.mappaint.StyleSource;
+
+/**
+ * Benchmarks the evaluation of the default MapCSS style.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MapCSSStyleBenchmark {
+
+    private static final String[][] TAGS = {
+        {"highway", "residential"}, {"highway", "primary"}, {"highway", "footway"}, {"building", "yes"},
+        {"landuse", "forest"}, {"waterway", "stream"}, {"railway", "rail"}, {"amenity", "parking"},
+        {"shop", "bakery"}, {"natural", "tree"}, {"barrier", "fence"}, {"power", "line"},
+    };
+
+    /** Scale, in meters per 100 pixels */
+    @Param({"1", "100"})
+    public double scale;
+
+    private MapCSSStyleSource source;
+    private ElemStyles styles;
+    private List<OsmPrimitive> primitives;
+
+    /**
+     * Loads the default style and generates tagged nodes and ways.
+     */
+    @Setup
+    public void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        source = new MapCSSStyleSource("resource://styles/standard/elemstyles.mapcss", "standard", "");
+        source.loadStyleSource();
+        styles = new ElemStyles(Collections.<StyleSource>singleton(source));
+
+        DataSet ds = OsmDataGenerator.getKeyValue(10_000, 1).generateDataSet();
+        List<Node> nodes = new ArrayList<>(ds.getNodes());
+        Random random = new Random(42);
+        for (int i = 0; i + 5 <= nodes.size(); i += 5) {
+            String[] tag = TAGS[random.nextInt(TAGS.length)];
+            nodes.get(i).put(tag[0], tag[1]);
+            Way w = new Way();
+            w.setNodes(nodes.subList(i, i + 5));
+            w.put(tag[0], tag[1]);
+            ds.addPrimitive(w);
+        }
+        primitives = new ArrayList<>(ds.allPrimitives());
+    }
+
+    /**
+     * Applies the rules of the style to all primitives.
+     * @param blackhole the sink of the results
+     */
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        for (OsmPrimitive p : primitives) {
+            MultiCascade mc = new MultiCascade();
+            source.apply(mc, p, scale, false);
+            blackhole.consume(mc);
+        }
+    }
+
+    /**
+     * Generates the style elements of all primitives.
+     * @param blackhole the sink of the results
+     */
+    @Benchmark
+    public void generateStyles(Blackhole blackhole) {
+        for (OsmPrimitive p : primitives) {
+            blackhole.consume(styles.generateStyles(p, scale, false));
+        }
+    }
+}
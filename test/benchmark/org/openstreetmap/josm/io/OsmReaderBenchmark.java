@@ -0,0 +1,70 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+/**
+ * Benchmarks the parsing of OSM XML data with {@link OsmReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class OsmReaderBenchmark {
+
+    /** Number of tagged nodes of the parsed data */
+    @Param({"10000", "100000"})
+    public int nodeCount;
+
+    private byte[] data;
+
+    /**
+     * Generates the data and writes it as OSM XML.
+     * @throws IOException in case of I/O error
+     */
+    @Setup
+    public void setUp() throws IOException {
+        JOSMFixture.createPerformanceTestFixture().init();
+        DataSet ds = OsmDataGenerator.getKeyValue(nodeCount, 3).generateDataSet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+             OsmWriter osmWriter = OsmWriterFactory.createOsmWriter(writer, true, OsmWriter.DEFAULT_API_VERSION)) {
+            osmWriter.write(ds);
+        }
+        data = out.toByteArray();
+    }
+
+    /**
+     * Parses the data.
+     * @return the parsed data set
+     * @throws IllegalDataException if the data is invalid
+     */
+    @Benchmark
+    public DataSet parse() throws IllegalDataException {
+        return OsmReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE);
+    }
+}
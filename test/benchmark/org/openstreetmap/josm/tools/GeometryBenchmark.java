@@ -0,0 +1,104 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.tools.Geometry.AreaAndPerimeter;
+import org.openstreetmap.josm.tools.Geometry.PolygonIntersection;
+
+/**
+ * Benchmarks the polygon operations of {@link Geometry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+    /** Number of nodes of the polygons */
+    @Param({"10", "1000"})
+    public int nodeCount;
+
+    private List<Node> polygon1;
+    private List<Node> polygon2;
+    private Node point;
+
+    /**
+     * Generates two overlapping star-shaped polygons.
+     */
+    @Setup
+    public void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        Random random = new Random(42);
+        polygon1 = createPolygon(random, new LatLon(0, 0));
+        polygon2 = createPolygon(random, new LatLon(0.005, 0.005));
+        point = new Node(new LatLon(0.002, 0.002));
+    }
+
+    private List<Node> createPolygon(Random random, LatLon center) {
+        List<Node> nodes = new ArrayList<>(nodeCount + 1);
+        for (int i = 0; i < nodeCount; i++) {
+            double angle = 2 * Math.PI * i / nodeCount;
+            double radius = 0.005 + random.nextDouble() * 0.005;
+            nodes.add(new Node(new LatLon(center.lat() + radius * Math.sin(angle), center.lon() + radius * Math.cos(angle))));
+        }
+        nodes.add(nodes.get(0));
+        return nodes;
+    }
+
+    /**
+     * Computes the intersection of two polygons.
+     * @return the kind of intersection
+     */
+    @Benchmark
+    public PolygonIntersection polygonIntersection() {
+        return Geometry.polygonIntersection(polygon1, polygon2);
+    }
+
+    /**
+     * Checks if a node is inside a polygon.
+     * @return {@code true} if it is inside
+     */
+    @Benchmark
+    public boolean nodeInsidePolygon() {
+        return Geometry.nodeInsidePolygon(point, polygon1);
+    }
+
+    /**
+     * Computes the area and perimeter of a polygon.
+     * @return the area and perimeter
+     */
+    @Benchmark
+    public AreaAndPerimeter getAreaAndPerimeter() {
+        return Geometry.getAreaAndPerimeter(polygon1);
+    }
+
+    /**
+     * Computes the centroid of a polygon.
+     * @return the centroid
+     */
+    @Benchmark
+    public EastNorth getCentroid() {
+        return Geometry.getCentroid(polygon1);
+    }
+}
@@ -2,10 +2,17 @@
 package org.openstreetmap.josm.data.cache;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -13,8 +20,14 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.jcs3.access.behavior.ICacheAccess;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.TMSTileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.TileSourceInfo;
 import org.openstreetmap.josm.data.imagery.TMSCachedTileLoader;
+import org.openstreetmap.josm.data.imagery.TMSCachedTileLoaderJob;
 import org.openstreetmap.josm.data.imagery.TileJobOptions;
+import org.openstreetmap.josm.data.imagery.TileViewport;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 import org.openstreetmap.josm.tools.Logging;
 
@@ -73,6 +86,34 @@ class HostLimitQueueTest {
         }
     }
 
+    /**
+     * Mock class with a priority
+     */
+    static class PriorityTask extends Task {
+        private final double priority;
+        private boolean canceled;
+
+        PriorityTask(ICacheAccess<String, CacheEntry> cache, URL url, double priority) {
+            super(cache, url, new AtomicInteger());
+            this.priority = priority;
+        }
+
+        @Override
+        public double getPriority() {
+            return priority;
+        }
+
+        @Override
+        public boolean isObsolete() {
+            return Double.isInfinite(priority);
+        }
+
+        @Override
+        public void handleJobCancellation() {
+            canceled = true;
+        }
+    }
+
     /**
      * Check if single threaded execution works properly
      * @throws Exception in case of error
@@ -124,6 +165,180 @@ class HostLimitQueueTest {
                 "Expected duration between 4 and 6 seconds not met. Actual duration: " + (duration /1000));
     }
 
+    /**
+     * Check that the jobs are run by priority, and that the obsolete jobs are canceled
+     * @throws Exception in case of error
+     */
+    @Test
+    void testPriority() throws Exception {
+        HostLimitQueue queue = new HostLimitQueue(10);
+        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, "");
+        double[] priorities = {2, 0, Double.POSITIVE_INFINITY, 1, 0};
+        PriorityTask[] tasks = new PriorityTask[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            tasks[i] = new PriorityTask(cache, new URL("http://localhost/" + i), priorities[i]);
+            queue.offer(tasks[i]);
+        }
+        assertSame(tasks[1], queue.poll(1, TimeUnit.SECONDS));
+        assertSame(tasks[4], queue.poll(1, TimeUnit.SECONDS));
+        assertSame(tasks[3], queue.poll(1, TimeUnit.SECONDS));
+        assertSame(tasks[0], queue.poll(1, TimeUnit.SECONDS));
+        // the obsolete job is canceled instead of being run
+        assertNull(queue.poll(1, TimeUnit.SECONDS));
+        assertTrue(tasks[2].canceled);
+        assertTrue(queue.isEmpty());
+    }
+
+    private static TMSCachedTileLoaderJob newTileJob(ICacheAccess<String, BufferedImageCacheEntry> cache,
+            TileJobOptions options, Tile tile) {
+        return new TMSCachedTileLoaderJob(null, tile, cache, options, null) {
+            @Override
+            public URL getUrl() throws IOException {
+                return new URL("http://localhost/" + tile.getKey());
+            }
+        };
+    }
+
+    /**
+     * Check that the viewport only schedules the tiles downloaded to be displayed, and that the other downloads of the
+     * same tile source, such as the ones along a track, are run even if they are out of view
+     * @throws Exception in case of error
+     */
+    @Test
+    void testPrecacheOutsideViewport() throws Exception {
+        HostLimitQueue queue = new HostLimitQueue(10);
+        ICacheAccess<String, BufferedImageCacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, "");
+        TileJobOptions options = new TileJobOptions(1, 1, null, 10);
+        TileSource source = new TMSTileSource(new TileSourceInfo("test", "http://localhost/{zoom}/{x}/{y}.png", "test"));
+        TileViewport.update(source, 10, 100, 100, 103, 103);
+        try {
+            TMSCachedTileLoaderJob display = newTileJob(cache, options, new Tile(source, 200, 200, 10));
+            display.setForDisplay(true);
+            TMSCachedTileLoaderJob precache = newTileJob(cache, options, new Tile(source, 201, 201, 10));
+            queue.offer(display);
+            queue.offer(precache);
+            assertSame(precache, queue.poll(1, TimeUnit.SECONDS));
+            assertTrue(queue.isEmpty());
+        } finally {
+            TileViewport.remove(source);
+        }
+    }
+
+    /**
+     * Check that the threads waiting for a permit do not take the jobs in the order they were queued, when there are
+     * more threads than the host limit
+     * @throws Exception in case of error
+     */
+    @Test
+    void testPriorityWithMoreThreadsThanHostLimit() throws Exception {
+        ThreadPoolExecutor tpe = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 4, 1);
+        // all the jobs go through the queue
+        tpe.prestartAllCoreThreads();
+        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, "");
+        List<Double> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        tpe.execute(new PriorityTask(cache, new URL("http://localhost/blocking"), -1) {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    executionFinished();
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        double[] priorities = {3, 1, Double.POSITIVE_INFINITY, 2, 0};
+        PriorityTask[] tasks = new PriorityTask[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            double priority = priorities[i];
+            tasks[i] = new PriorityTask(cache, new URL("http://localhost/" + i), priority) {
+                @Override
+                public void run() {
+                    order.add(priority);
+                    executionFinished();
+                }
+            };
+            tpe.execute(tasks[i]);
+        }
+        // let the idle threads look for a job while the host limit is reached
+        Thread.sleep(500);
+        assertTrue(order.isEmpty());
+        release.countDown();
+        tpe.shutdown();
+        assertTrue(tpe.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0d, 1d, 2d, 3d), order);
+        assertTrue(tasks[2].canceled);
+    }
+
+    /**
+     * Check that no job leaves the queue without a permit when there are many more threads than the host limit, as
+     * with virtual threads: the jobs are run by priority, and at most as many as the host limit at a time
+     * @throws Exception in case of error
+     */
+    @Test
+    void testManyThreads() throws Exception {
+        // with one permit, the jobs are run one after the other, and their order is the one they leave the queue
+        int hostLimit = 1;
+        ThreadPoolExecutor tpe = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 32, hostLimit);
+        tpe.prestartAllCoreThreads();
+        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, "");
+        List<Double> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(hostLimit);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < hostLimit; i++) {
+            tpe.execute(new PriorityTask(cache, new URL("http://localhost/blocking" + i), -1) {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        executionFinished();
+                    }
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Double> priorities = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            priorities.add((double) (i * 7 % 40));
+        }
+        for (double priority : priorities) {
+            tpe.execute(new PriorityTask(cache, new URL("http://localhost/" + priority), priority) {
+                @Override
+                public void run() {
+                    order.add(priority);
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                        executionFinished();
+                    }
+                }
+            });
+        }
+        Thread.sleep(200);
+        assertTrue(order.isEmpty());
+        release.countDown();
+        tpe.shutdown();
+        assertTrue(tpe.awaitTermination(10, TimeUnit.SECONDS));
+        Collections.sort(priorities);
+        assertEquals(priorities, order);
+        assertTrue(maxRunning.get() <= hostLimit, () -> "Running jobs: " + maxRunning.get());
+    }
+
     /**
      * Check two hosts
      * @throws Exception in case of error
@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.data.cache;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -62,4 +63,15 @@ class JCSCacheManagerTest {
                     "BlockDiskCache use file size to calculate its size");
         }
     }
+
+    /**
+     * Tests that a region can use a {@link MappedTileStore} as disk cache.
+     */
+    @Test
+    void testUseMappedStore() {
+        CacheAccess<Object, Object> cache = JCSCacheManager.getCache("testUseMappedStore", 1, 100, "foobar", true);
+        assertTrue(cache.getCacheControl().getAuxCacheList().get(0) instanceof MappedTileStore);
+        assertEquals(100, ((MappedTileStoreAttributes) cache.getCacheControl().getAuxCacheList().get(0)
+                .getAuxiliaryCacheAttributes()).getMaxKeySize());
+    }
 }
@@ -0,0 +1,81 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for class {@link MappedTileIndex}.
+ */
+class MappedTileIndexTest {
+
+    /**
+     * Tests {@link MappedTileIndex#hash}.
+     */
+    @Test
+    void testHash() {
+        assertEquals(MappedTileIndex.hash("TMS:1/2/3".getBytes(StandardCharsets.UTF_8)),
+                MappedTileIndex.hash("TMS:1/2/3".getBytes(StandardCharsets.UTF_8)));
+        assertNotEquals(MappedTileIndex.hash("TMS:1/2/3".getBytes(StandardCharsets.UTF_8)),
+                MappedTileIndex.hash("TMS:1/3/2".getBytes(StandardCharsets.UTF_8)));
+        assertNotEquals(0, MappedTileIndex.hash(new byte[0]));
+    }
+
+    /**
+     * Tests adding, replacing and finding entries, including colliding slots and growing.
+     */
+    @Test
+    void testPutFind() {
+        MappedTileIndex index = new MappedTileIndex(4);
+        // hashes with the same low bits share their home slot
+        for (long i = 1; i <= 1000; i++) {
+            index.put(i << 32, (int) i, (int) i * 2, (int) i * 3, i);
+        }
+        assertEquals(1000, index.size());
+        assertTrue(index.capacity() >= 1000);
+        for (long i = 1; i <= 1000; i++) {
+            int slot = index.find(i << 32);
+            assertEquals(i, index.getSegment(slot));
+            assertEquals(i * 2, index.getOffset(slot));
+            assertEquals(i * 3, index.getLength(slot));
+            assertEquals(i, index.getTick(slot));
+        }
+        index.put(5L << 32, 7, 8, 9, 10);
+        assertEquals(1000, index.size());
+        assertEquals(7, index.getSegment(index.find(5L << 32)));
+        assertEquals(-1, index.find(1001L << 32));
+    }
+
+    /**
+     * Tests that removed entries are not found anymore, and that the other entries of their cluster are still found.
+     */
+    @Test
+    void testRemove() {
+        MappedTileIndex index = new MappedTileIndex(64);
+        for (long i = 1; i <= 40; i++) {
+            index.put(i % 2 == 0 ? i << 32 : i, (int) i, 0, 0, i);
+        }
+        for (long i = 1; i <= 40; i += 3) {
+            assertTrue(index.remove(i % 2 == 0 ? i << 32 : i));
+        }
+        assertFalse(index.remove(1));
+        for (long i = 1; i <= 40; i++) {
+            int slot = index.find(i % 2 == 0 ? i << 32 : i);
+            if ((i - 1) % 3 == 0) {
+                assertEquals(-1, slot);
+            } else {
+                assertEquals(i, index.getSegment(slot));
+            }
+        }
+        assertEquals(26, index.size());
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(-1, index.find(2L << 32));
+    }
+}
@@ -0,0 +1,283 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.jcs3.engine.CacheElement;
+import org.apache.commons.jcs3.engine.behavior.ICacheElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mockit.Invocation;
+import mockit.Mock;
+import mockit.MockUp;
+
+/**
+ * Unit tests for class {@link MappedTileStore}.
+ */
+class MappedTileStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    private MappedTileStoreAttributes attributes;
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    void setUp() {
+        attributes = new MappedTileStoreAttributes();
+        attributes.setDiskPath(tempDir.toFile());
+        attributes.setCacheName("test_MMAP_v1");
+        attributes.setSegmentSize(SEGMENT_SIZE);
+        attributes.setMaxKeySize(16);
+    }
+
+    private static ICacheElement<String, CacheEntry> element(String key, int size) {
+        byte[] content = new byte[size];
+        Arrays.fill(content, (byte) key.hashCode());
+        return new CacheElement<>("test", key, new CacheEntry(content));
+    }
+
+    private static void assertContent(MappedTileStore<String, CacheEntry> store, String key, int size) throws IOException {
+        ICacheElement<String, CacheEntry> element = store.processGet(key);
+        assertNotNull(element, key);
+        assertEquals(key, element.getKey());
+        assertArrayEquals(element(key, size).getVal().getContent(), element.getVal().getContent());
+    }
+
+    /**
+     * Tests storing, replacing and reading elements.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testUpdateGet() throws IOException {
+        MappedTileStore<String, CacheEntry> store = new MappedTileStore<>(attributes);
+        store.processUpdate(element("TMS:1/2/3", 100));
+        store.processUpdate(element("TMS:1/2/4", 200));
+        store.processUpdate(element("TMS:1/2/3", 300));
+        assertEquals(2, store.getSize());
+        assertContent(store, "TMS:1/2/3", 300);
+        assertContent(store, "TMS:1/2/4", 200);
+        assertNull(store.processGet("TMS:1/2/5"));
+        assertEquals(new HashSet<>(Arrays.asList("TMS:1/2/3", "TMS:1/2/4")), store.getKeySet());
+        // too large for a segment
+        store.processUpdate(element("TMS:1/2/6", SEGMENT_SIZE));
+        assertNull(store.processGet("TMS:1/2/6"));
+    }
+
+    /**
+     * Tests that the elements are restored when the store is opened again, without the removed ones.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testRecovery() throws IOException {
+        MappedTileStore<String, CacheEntry> store = new MappedTileStore<>(attributes);
+        for (int i = 0; i < 8; i++) {
+            store.processUpdate(element("TMS:" + i, 500));
+        }
+        assertTrue(store.processRemove("TMS:3"));
+        assertFalse(store.processRemove("TMS:3"));
+        store.processUpdate(element("TMS:4", 600));
+
+        MappedTileStore<String, CacheEntry> reopened = new MappedTileStore<>(attributes);
+        assertEquals(7, reopened.getSize());
+        assertEquals(store.getLiveSize(), reopened.getLiveSize());
+        assertNull(reopened.processGet("TMS:3"));
+        assertContent(reopened, "TMS:4", 600);
+        assertContent(reopened, "TMS:7", 500);
+    }
+
+    /**
+     * Tests that a partially written record at the end of the last segment is ignored, and overwritten.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testRecoveryPartialRecord() throws IOException {
+        MappedTileStore<String, CacheEntry> store = new MappedTileStore<>(attributes);
+        store.processUpdate(element("TMS:1", 500));
+        long end = store.getLiveSize();
+        store.processUpdate(element("TMS:2", 500));
+        long size = store.getLiveSize() - end;
+        store.processDispose();
+
+        File segment = tempDir.resolve("test_MMAP_v1").resolve("00000001.seg").toFile();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(end + size / 2);
+            file.write(~file.read());
+        }
+
+        MappedTileStore<String, CacheEntry> reopened = new MappedTileStore<>(attributes);
+        assertEquals(1, reopened.getSize());
+        assertContent(reopened, "TMS:1", 500);
+        assertNull(reopened.processGet("TMS:2"));
+        reopened.processUpdate(element("TMS:3", 100));
+        reopened.processDispose();
+
+        reopened = new MappedTileStore<>(attributes);
+        assertEquals(new HashSet<>(Arrays.asList("TMS:1", "TMS:3")), reopened.getKeySet());
+    }
+
+    /**
+     * Tests that a segment which cannot be read entirely is forgotten, with the elements already read from it.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testRecoveryFailure() throws IOException {
+        MappedTileStore<String, CacheEntry> store = new MappedTileStore<>(attributes);
+        File directory = tempDir.resolve("test_MMAP_v1").toFile();
+        Set<String> firstSegment = new HashSet<>();
+        long firstSegmentSize = 0;
+        // the element which does not fit in the first segment is written to the second one
+        for (int i = 0; directory.list().length < 2; i++) {
+            firstSegment = store.getKeySet();
+            firstSegmentSize = store.getLiveSize();
+            store.processUpdate(element("TMS:" + i, 500));
+        }
+        for (int i = 0; i < 3; i++) {
+            store.processUpdate(element("TMS:next" + i, 500));
+        }
+        store.processDispose();
+
+        new MockUp<MappedTileIndex>() {
+            @Mock
+            int put(Invocation invocation, long hash, int segment, int offset, int length, long tick) {
+                if (segment == 2 && offset > 0) {
+                    throw new IllegalStateException("test");
+                }
+                return invocation.proceed();
+            }
+        };
+        MappedTileStore<String, CacheEntry> reopened = new MappedTileStore<>(attributes);
+        assertEquals(firstSegment, reopened.getKeySet());
+        assertEquals(firstSegmentSize, reopened.getLiveSize());
+        assertEquals(1, directory.list().length);
+        reopened.processUpdate(element("TMS:new", 500));
+        assertContent(reopened, "TMS:new", 500);
+        assertContent(reopened, "TMS:0", 500);
+    }
+
+    /**
+     * Tests that the store does not grow beyond its size, and keeps the recently used elements.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testCompaction() throws IOException {
+        MappedTileStore<String, CacheEntry> store = new MappedTileStore<>(attributes);
+        store.processUpdate(element("TMS:hot", 500));
+        for (int i = 0; i < 200; i++) {
+            store.processUpdate(element("TMS:" + i, 500));
+            assertContent(store, "TMS:hot", 500);
+            assertTrue(store.getDataSize() <= 16 * 1024);
+        }
+        assertNull(store.processGet("TMS:0"));
+        assertContent(store, "TMS:199", 500);
+        assertTrue(store.getSize() < 40);
+
+        MappedTileStore<String, CacheEntry> reopened = new MappedTileStore<>(attributes);
+        assertEquals(store.getKeySet(), reopened.getKeySet());
+        assertContent(reopened, "TMS:hot", 500);
+    }
+
+    /**
+     * Tests removing all elements, and the elements of a tile source.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testRemove() throws IOException {
+        MappedTileStore<String, CacheEntry> store = new MappedTileStore<>(attributes);
+        store.processUpdate(element("A:1", 10));
+        store.processUpdate(element("A:2", 10));
+        store.processUpdate(element("B:1", 10));
+        assertTrue(store.processRemove("A:"));
+        assertEquals(Collections.singleton("B:1"), store.getKeySet());
+        store.processRemoveAll();
+        assertEquals(0, store.getSize());
+        assertEquals(0, store.getDataSize());
+        assertEquals(0, new MappedTileStore<>(attributes).getSize());
+    }
+
+    /**
+     * Creates a store whose segment files cannot be deleted, as on Windows while they are mapped.
+     * @param attempts the number of attempts to delete a file before it succeeds
+     * @return the store
+     * @throws IOException if an I/O error occurs
+     */
+    private MappedTileStore<String, CacheEntry> createStoreWithMappedFiles(int attempts) throws IOException {
+        Map<File, Integer> failures = new HashMap<>();
+        return new MappedTileStore<String, CacheEntry>(attributes) {
+            @Override
+            boolean deleteSegmentFile(File file) {
+                return failures.merge(file, 1, Integer::sum) > attempts && super.deleteSegmentFile(file);
+            }
+        };
+    }
+
+    /**
+     * Tests that the compaction does not restore the relocated elements, nor keep the files of the compacted segments,
+     * when they cannot be deleted at once.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testCompactionMappedFiles() throws IOException {
+        MappedTileStore<String, CacheEntry> store = createStoreWithMappedFiles(1);
+        store.processUpdate(element("TMS:hot", 500));
+        for (int i = 0; i < 200; i++) {
+            store.processUpdate(element("TMS:" + i, 500));
+            assertContent(store, "TMS:hot", 500);
+            // the file of the last compacted segment is deleted by the next compaction
+            assertTrue(store.getDataSize() <= 16 * 1024 + SEGMENT_SIZE);
+        }
+        assertTrue(store.processRemove("TMS:199"));
+
+        MappedTileStore<String, CacheEntry> reopened = new MappedTileStore<>(attributes);
+        assertEquals(store.getKeySet(), reopened.getKeySet());
+        assertNull(reopened.processGet("TMS:0"));
+        assertNull(reopened.processGet("TMS:199"));
+        assertContent(reopened, "TMS:hot", 500);
+    }
+
+    /**
+     * Tests that removing all elements does not restore them, when the segment files cannot be deleted.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testRemoveAllMappedFiles() throws IOException {
+        MappedTileStore<String, CacheEntry> store = createStoreWithMappedFiles(Integer.MAX_VALUE);
+        for (int i = 0; i < 20; i++) {
+            store.processUpdate(element("TMS:" + i, 500));
+        }
+        store.processRemoveAll();
+        assertEquals(0, store.getSize());
+        assertTrue(store.getDataSize() > 0);
+        store.processUpdate(element("TMS:new", 500));
+        store.processDispose();
+
+        File directory = tempDir.resolve("test_MMAP_v1").toFile();
+        assertTrue(directory.list().length > 1);
+        MappedTileStore<String, CacheEntry> reopened = new MappedTileStore<>(attributes);
+        assertEquals(Collections.singleton("TMS:new"), reopened.getKeySet());
+        // the files of the removed segments are deleted when the store is opened again
+        assertEquals(1, directory.list().length);
+    }
+}
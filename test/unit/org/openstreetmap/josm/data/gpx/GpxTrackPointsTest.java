@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests for class {@link GpxTrackPoints}.
+ */
+class GpxTrackPointsTest {
+
+    private static List<WayPoint> createWayPoints() {
+        WayPoint wpt1 = new WayPoint(new LatLon(47.0, 8.0));
+        wpt1.setInstant(Instant.parse("2021-01-01T12:00:00.123Z"));
+        wpt1.put(GpxConstants.PT_ELE, "432.5");
+        WayPoint wpt2 = new WayPoint(new LatLon(47.001, 8.001));
+        wpt2.setInstant(Instant.parse("2021-01-01T12:00:01.123456Z"));
+        wpt2.put(GpxConstants.PT_ELE, "433.0");
+        wpt2.put("hdop", 1.5f);
+        WayPoint wpt3 = new WayPoint(new LatLon(47.002, 8.0));
+        wpt3.put(GpxConstants.PT_ELE, "434");
+        return Arrays.asList(wpt1, wpt2, wpt3);
+    }
+
+    /**
+     * Tests the columns of way points.
+     */
+    @Test
+    void testColumns() {
+        GpxTrackPoints points = GpxTrackPoints.of(createWayPoints());
+        assertEquals(3, points.size());
+        assertEquals(47.001, points.lat(1));
+        assertEquals(8.001, points.lon(1));
+
+        assertTrue(points.hasTime(0));
+        assertEquals(Instant.parse("2021-01-01T12:00:00.123Z").toEpochMilli(), points.getTimeInMillis(0));
+        // time with sub-millisecond precision is kept as attribute
+        assertTrue(points.hasTime(1));
+        assertEquals(Instant.parse("2021-01-01T12:00:01.123Z").toEpochMilli(), points.getTimeInMillis(1));
+        assertFalse(points.hasTime(2));
+        assertEquals(0, points.getTimeInMillis(2));
+
+        assertEquals(432.5, points.getElevation(0));
+        // elevation which would not be written back identically is kept as attribute
+        assertEquals(433.0, points.getElevation(1));
+        assertEquals("433.0", points.getAttributes(1).get(GpxConstants.PT_ELE));
+        assertEquals(434.0, points.getElevation(2));
+
+        assertTrue(points.getAttributes(0).isEmpty());
+        assertEquals(1.5f, points.getAttributes(1).get("hdop"));
+        assertTrue(points.getAttributes(2).isEmpty());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> points.lat(3));
+    }
+
+    /**
+     * Tests {@link GpxTrackPoints#createWayPoint(int)}.
+     */
+    @Test
+    void testCreateWayPoint() {
+        List<WayPoint> wayPoints = createWayPoints();
+        GpxTrackPoints points = GpxTrackPoints.of(wayPoints);
+        for (int i = 0; i < wayPoints.size(); i++) {
+            assertEquals(wayPoints.get(i), points.createWayPoint(i));
+            assertEquals(wayPoints.get(i).attr, points.createWayPoint(i).attr);
+        }
+    }
+
+    /**
+     * Tests {@link GpxTrackPoints.Builder}.
+     */
+    @Test
+    void testBuilder() {
+        GpxTrackPoints.Builder builder = new GpxTrackPoints.Builder(1);
+        for (int i = 0; i < 100; i++) {
+            builder.add(i / 100.0, i / 50.0, null);
+        }
+        builder.add(1, 2, Collections.singletonMap(GpxConstants.PT_ELE, "invalid"));
+        assertEquals(101, builder.size());
+        GpxTrackPoints points = builder.build();
+        assertEquals(101, points.size());
+        assertEquals(0.99, points.lat(99));
+        assertEquals(1.98, points.lon(99));
+        assertTrue(Double.isNaN(points.getElevation(99)));
+        assertTrue(Double.isNaN(points.getElevation(100)));
+        assertEquals("invalid", points.createWayPoint(100).get(GpxConstants.PT_ELE));
+        assertNull(new GpxTrackPoints.Builder().build().getBounds());
+    }
+
+    /**
+     * Tests that a segment made of columns is equal to the segment made of the way points.
+     */
+    @Test
+    void testSegment() {
+        List<WayPoint> wayPoints = createWayPoints();
+        GpxTrackSegment expected = new GpxTrackSegment(wayPoints);
+        GpxTrackSegment segment = new GpxTrackSegment(GpxTrackPoints.of(wayPoints));
+        assertEquals(expected.getBounds(), segment.getBounds());
+        assertEquals(expected.length(), segment.length(), 1e-9);
+        assertEquals(expected, segment);
+        assertEquals(expected.hashCode(), segment.hashCode());
+        // the way points are created once
+        assertSame(new ArrayList<>(segment.getWayPoints()).get(0), segment.getWayPoints().iterator().next());
+        assertEquals(3, expected.getTrackPoints().size());
+    }
+
+    /**
+     * Tests that the columns of a segment are released when its way points are created, and that the columns of a
+     * segment follow the modifications of its way points.
+     */
+    @Test
+    void testSegmentTrackPoints() {
+        GpxTrackPoints points = GpxTrackPoints.of(createWayPoints());
+        GpxTrackSegment segment = new GpxTrackSegment(points);
+        assertSame(points, segment.getTrackPoints());
+
+        WayPoint first = segment.getWayPoints().iterator().next();
+        assertNotSame(points, segment.getTrackPoints());
+        assertEquals(432.5, segment.getTrackPoints().getElevation(0));
+        first.put(GpxConstants.PT_ELE, "500");
+        assertEquals(500.0, segment.getTrackPoints().getElevation(0));
+        assertEquals(3, segment.getWayPoints().size());
+    }
+}
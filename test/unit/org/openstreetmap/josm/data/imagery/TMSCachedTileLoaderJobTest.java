@@ -3,12 +3,15 @@ package org.openstreetmap.josm.data.imagery;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -24,6 +27,7 @@ import org.openstreetmap.gui.jmapviewer.tilesources.TMSTileSource;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
 import org.openstreetmap.josm.data.cache.CacheEntryAttributes;
+import org.openstreetmap.josm.data.cache.ICachedLoaderListener.LoadResult;
 import org.openstreetmap.josm.data.cache.JCSCacheManager;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.BasicWiremock;
@@ -295,6 +299,33 @@ class TMSCachedTileLoaderJobTest {
         assertArrayEquals("mock entry".getBytes(StandardCharsets.UTF_8), job.get().getContent());
     }
 
+    /**
+     * Checks that the image is decoded, and the listeners notified, by the decode executor when one is set, so that
+     * the download thread is released at once
+     * @throws IOException never
+     */
+    @Test
+    void testDecodeExecutor() throws IOException {
+        List<Runnable> decodeTasks = new ArrayList<>();
+        Listener listener = new Listener();
+        TestCachedTileLoaderJob job = new TestCachedTileLoaderJob(listener, new MockTile("http://localhost/decode"), "decode");
+        job.setDecodeExecutor(decodeTasks::add);
+        job.loadingFinished(null, new CacheEntryAttributes(), LoadResult.FAILURE);
+        assertEquals(1, decodeTasks.size());
+        assertFalse(listener.ready);
+        decodeTasks.get(0).run();
+        assertTrue(listener.ready);
+
+        // the canceled jobs have nothing to decode
+        Listener canceledListener = new Listener();
+        TestCachedTileLoaderJob canceled = new TestCachedTileLoaderJob(canceledListener, new MockTile("http://localhost/canceled"),
+                "canceled");
+        canceled.setDecodeExecutor(decodeTasks::add);
+        canceled.loadingFinished(null, null, LoadResult.CANCELED);
+        assertEquals(1, decodeTasks.size());
+        assertTrue(canceledListener.ready);
+    }
+
     private void assertExpirationAtLeast(long duration, TestCachedTileLoaderJob job) {
         assertTrue(job.getAttributes().getExpirationTime() >= duration, "Expiration time shorter by " +
                                 -1 * (job.getAttributes().getExpirationTime() - duration) +
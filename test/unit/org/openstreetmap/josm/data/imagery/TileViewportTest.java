@@ -0,0 +1,81 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.TMSTileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.TileSourceInfo;
+
+/**
+ * Unit tests of {@link TileViewport} class.
+ */
+class TileViewportTest {
+
+    private final TileSource source = new TMSTileSource(new TileSourceInfo("test", "http://localhost/{zoom}/{x}/{y}.png", "test"));
+
+    /**
+     * Tests {@link TileViewport#getPriority}.
+     */
+    @Test
+    void testPriority() {
+        TileViewport viewport = new TileViewport(10, 100, 100, 103, 103, 0, 0);
+        // the centre first, then the edges
+        assertTrue(viewport.getPriority(10, 101, 101) < viewport.getPriority(10, 100, 100));
+        assertTrue(viewport.getPriority(10, 100, 100) < viewport.getPriority(10, 99, 99));
+        // the tiles of a lower zoom level just after the visible tiles at the same distance
+        assertEquals(Math.sqrt(0.5), viewport.getPriority(10, 102, 102), 1e-9);
+        assertEquals(Math.sqrt(2) + 1, viewport.getPriority(9, 51, 51), 1e-9);
+        // the next zoom level after all the visible tiles
+        assertTrue(viewport.getPriority(11, 203, 203) > viewport.getPriority(10, 100, 100));
+        // the tiles ahead in the panning direction first
+        TileViewport panning = new TileViewport(10, 100, 100, 103, 103, 1, 0);
+        assertTrue(panning.getPriority(10, 104, 101) < panning.getPriority(10, 99, 101));
+        assertEquals(viewport.getPriority(10, 99, 101), panning.getPriority(10, 99, 101), 1e-9);
+    }
+
+    /**
+     * Tests {@link TileViewport#isObsolete}.
+     */
+    @Test
+    void testObsolete() {
+        TileViewport viewport = new TileViewport(10, 100, 100, 103, 103, 0, 0);
+        assertFalse(viewport.isObsolete(10, 100, 103));
+        assertFalse(viewport.isObsolete(10, 100 - TileViewport.MARGIN, 101));
+        assertTrue(viewport.isObsolete(10, 100 - TileViewport.MARGIN - 1, 101));
+        assertTrue(viewport.isObsolete(10, 101, 110));
+        assertFalse(viewport.isObsolete(11, 207, 207));
+        assertTrue(viewport.isObsolete(12, 404, 404));
+        assertFalse(viewport.isObsolete(5, 3, 3));
+        assertTrue(viewport.isObsolete(5, 4, 3));
+    }
+
+    /**
+     * Tests {@link TileViewport#update}.
+     */
+    @Test
+    void testUpdate() {
+        assertNull(TileViewport.get(source));
+        assertEquals(0, TileViewport.getPriority(new Tile(source, 1000, 1000, 10)));
+        assertFalse(TileViewport.isObsolete(new Tile(source, 1000, 1000, 10)));
+
+        TileViewport.update(source, 10, 100, 100, 103, 103);
+        TileViewport viewport = TileViewport.update(source, 10, 102, 100, 105, 103);
+        assertSame(viewport, TileViewport.get(source));
+        assertEquals(1, viewport.getPanX());
+        assertEquals(0, viewport.getPanY());
+        // the direction is kept on repaint, and reset on zoom
+        assertEquals(1, TileViewport.update(source, 10, 102, 100, 105, 103).getPanX());
+        assertEquals(0, TileViewport.update(source, 11, 204, 200, 211, 207).getPanX());
+        assertTrue(TileViewport.isObsolete(new Tile(source, 1000, 1000, 10)));
+
+        TileViewport.remove(source);
+        assertNull(TileViewport.get(source));
+    }
+}
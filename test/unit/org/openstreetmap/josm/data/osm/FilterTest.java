@@ -10,6 +10,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -192,6 +193,84 @@ class FilterTest {
         }
     }
 
+    private static FilterMatcher createMatcher(String text) throws SearchParseError {
+        Filter filter = new Filter();
+        filter.text = text;
+        filter.hiding = true;
+        return FilterMatcher.of(filter);
+    }
+
+    /**
+     * Unit test of {@link FilterWorker#getDependentPrimitives}.
+     * @throws SearchParseError never
+     */
+    @Test
+    void testDependentPrimitives() throws SearchParseError {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.NORTH_POLE);
+        Node n3 = new Node(LatLon.SOUTH_POLE);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        Relation r = new Relation();
+        r.addMember(new RelationMember("", w));
+        ds.addPrimitiveRecursive(r);
+        ds.addPrimitive(n3);
+
+        FilterMatcher local = createMatcher("highway");
+        assertEquals(0, local.getRelativesDepth());
+        assertEquals(Collections.singleton(n3), FilterWorker.getDependentPrimitives(Collections.singleton(n3), local));
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2, w, r)),
+                FilterWorker.getDependentPrimitives(Collections.singleton(n1), local));
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2, w, r)),
+                FilterWorker.getDependentPrimitives(Collections.singleton(w), local));
+
+        FilterMatcher relatives = createMatcher("child(parent(type:relation)) | highway");
+        assertEquals(2, relatives.getRelativesDepth());
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2, w, r)),
+                FilterWorker.getDependentPrimitives(Collections.singleton(r), relatives));
+    }
+
+    /**
+     * Checks that filtering the dependent primitives of a modification gives the same result as filtering all primitives.
+     * @throws SearchParseError never
+     */
+    @Test
+    void testIncrementalFiltering() throws SearchParseError {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.NORTH_POLE);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        Relation r = new Relation();
+        r.put("type", "route");
+        r.addMember(new RelationMember("", w));
+        ds.addPrimitiveRecursive(r);
+
+        FilterMatcher matcher = createMatcher("parent highway");
+        FilterWorker.executeFilters(ds.allPrimitives(), matcher);
+        assertTrue(r.isDisabledAndHidden());
+        assertFalse(w.isDisabled());
+        assertFalse(n1.isDisabled());
+
+        w.remove("highway");
+        assertTrue(FilterWorker.executeFilters(FilterWorker.getDependentPrimitives(Collections.singleton(w), matcher), matcher));
+        assertFalse(r.isDisabled());
+        assertFalse(FilterWorker.executeFilters(ds.allPrimitives(), matcher));
+
+        // the untagged nodes inherit the filter state of their way
+        matcher = createMatcher("highway");
+        w.put("highway", "residential");
+        FilterWorker.executeFilters(ds.allPrimitives(), matcher);
+        assertTrue(n1.isDisabledAndHidden());
+        w.remove("highway");
+        assertTrue(FilterWorker.executeFilters(FilterWorker.getDependentPrimitives(Collections.singleton(w), matcher), matcher));
+        assertFalse(n1.isDisabled());
+        assertFalse(FilterWorker.executeFilters(ds.allPrimitives(), matcher));
+    }
+
     /**
      * Unit tests of {@link Filter.FilterPreferenceEntry} class.
      */
@@ -10,6 +10,7 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -261,4 +262,49 @@ class QuadBucketsTest {
         }
         Assert.assertEquals(0, qb.size());
     }
+
+    /**
+     * Checks that bulk loading produces a tree equivalent to adding objects one by one.
+     */
+    @Test
+    void testBulkLoad() {
+        Random random = new Random(0);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Clusters force deep trees, the rest is spread over the world
+            nodes.add(i % 2 == 0
+                    ? new Node(new LatLon(50 + random.nextDouble() * 0.01, 8 + random.nextDouble() * 0.01))
+                    : new Node(new LatLon(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180)));
+        }
+        nodes.add(new Node());
+        QuadBuckets<Node> incremental = new QuadBuckets<>();
+        nodes.forEach(incremental::add);
+        QuadBuckets<Node> bulk = new QuadBuckets<>();
+        bulk.addAll(nodes);
+
+        Assert.assertEquals(incremental.size(), bulk.size());
+        checkIterator(bulk, nodes.size());
+        for (Node n : nodes) {
+            Assert.assertTrue(bulk.contains(n));
+        }
+        for (int i = 0; i < 100; i++) {
+            double lat = random.nextDouble() * 170 - 85;
+            double lon = random.nextDouble() * 360 - 180;
+            double size = i % 2 == 0 ? random.nextDouble() * 0.01 : random.nextDouble() * 20;
+            BBox bbox = i % 3 == 0 ? new BBox(8, 50, 8 + size / 1000, 50 + size / 1000) : new BBox(lon, lat, lon + size, lat + size);
+            Assert.assertEquals(new HashSet<>(incremental.search(bbox)), new HashSet<>(bulk.search(bbox)));
+        }
+
+        // a batch smaller than the content is added one by one
+        List<Node> more = Arrays.asList(new Node(new LatLon(1, 1)), new Node(new LatLon(2, 2)));
+        Assert.assertTrue(bulk.addAll(more));
+        Assert.assertEquals(nodes.size() + more.size(), bulk.size());
+        nodes.addAll(more);
+        int count = nodes.size();
+        for (Node n : nodes) {
+            Assert.assertTrue(bulk.remove(n));
+            Assert.assertEquals(--count, bulk.size());
+        }
+        Assert.assertTrue(bulk.isEmpty());
+    }
 }
@@ -0,0 +1,225 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of the {@link SnapshotSpatialIndex} and {@link PackedRTree} classes.
+ */
+@BasicPreferences
+class SnapshotSpatialIndexTest {
+
+    private static LatLon randomLatLon(Random random) {
+        return new LatLon(random.nextDouble() * 10, random.nextDouble() * 10);
+    }
+
+    private static BBox randomBBox(Random random) {
+        LatLon ll = randomLatLon(random);
+        return new BBox(ll.lon(), ll.lat(), ll.lon() + random.nextDouble() * 2, ll.lat() + random.nextDouble() * 2);
+    }
+
+    private static <T> void assertSameElements(List<T> expected, List<T> actual) {
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    private static void assertSearch(SnapshotSpatialIndex<Node> index, List<Node> nodes, Random random) {
+        for (int i = 0; i < 20; i++) {
+            BBox bbox = randomBBox(random);
+            assertSameElements(nodes.stream().filter(bbox::contains).collect(Collectors.toList()), index.search(bbox));
+        }
+    }
+
+    /**
+     * Adds, removes and moves nodes, recording the modifications in the index.
+     */
+    private static void modify(SnapshotSpatialIndex<Node> index, List<Node> nodes, Random random, int changes) {
+        for (int i = 0; i < changes; i++) {
+            Node n = nodes.get(random.nextInt(nodes.size()));
+            if (i % 3 == 0) {
+                nodes.remove(n);
+                index.remove(n);
+            } else if (i % 3 == 1) {
+                index.remove(n);
+                n.setCoorInternal(randomLatLon(random), null);
+                index.add(n);
+            } else {
+                Node added = new Node(randomLatLon(random));
+                nodes.add(added);
+                index.add(added);
+            }
+        }
+    }
+
+    /**
+     * Test of {@link PackedRTree#search}.
+     */
+    @Test
+    void testPackedRTree() {
+        Random random = new Random(42);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            nodes.add(new Node(randomLatLon(random)));
+        }
+        nodes.add(new Node());
+        PackedRTree<Node> tree = PackedRTree.build(nodes);
+        assertEquals(5000, tree.size());
+        for (int i = 0; i < 200; i++) {
+            BBox bbox = randomBBox(random);
+            List<Node> expected = nodes.stream().filter(n -> n.isLatLonKnown() && bbox.contains(n)).collect(Collectors.toList());
+            List<Node> result = new ArrayList<>();
+            tree.search(bbox, new HashSet<>(), result);
+            assertSameElements(expected, result);
+        }
+        List<Node> result = new ArrayList<>();
+        PackedRTree.<Node>build(nodes.subList(0, 1)).search(new BBox(nodes.get(0)), new HashSet<>(), result);
+        assertEquals(nodes.subList(0, 1), result);
+    }
+
+    /**
+     * Checks that searches in snapshots return the same results as searches in quad buckets.
+     */
+    @Test
+    void testSnapshots() {
+        Random random = new Random(1);
+        // the trees are built synchronously
+        QuadBucketPrimitiveStore<Node, Way, Relation> store = new QuadBucketPrimitiveStore<>(Runnable::run);
+        // The primitives also belong to a dataset, as reindexing requires their referrers
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Node n = new Node(randomLatLon(random));
+            nodes.add(n);
+            ds.addPrimitive(n);
+            store.addPrimitive(n);
+        }
+        Way way = new Way();
+        way.setNodes(nodes.subList(0, 10));
+        ds.addPrimitive(way);
+        store.addPrimitive(way);
+
+        BBox all = new BBox(-1, -1, 11, 11);
+        assertNull(store.searchNodesInSnapshot(all));
+        store.updateSnapshots();
+        assertSameElements(store.searchNodes(all), store.searchNodesInSnapshot(all));
+        assertSameElements(store.searchWays(all), store.searchWaysInSnapshot(all));
+
+        // Few modifications are published as a delta, many modifications rebuild the tree
+        for (int changes : new int[] {10, 2000}) {
+            for (int i = 0; i < changes; i++) {
+                Node n = nodes.get(random.nextInt(nodes.size()));
+                if (i % 3 == 0) {
+                    store.removePrimitive(n);
+                    nodes.remove(n);
+                } else {
+                    LatLon ll = randomLatLon(random);
+                    store.reindexNode(n, x -> x.setCoorInternal(ll, null), Way::updatePosition, r -> { });
+                }
+            }
+            assertNull(store.searchNodesInSnapshot(all));
+            store.updateSnapshots();
+            for (int i = 0; i < 100; i++) {
+                BBox bbox = randomBBox(random);
+                assertSameElements(store.searchNodes(bbox), store.searchNodesInSnapshot(bbox));
+                assertSameElements(store.searchWays(bbox), store.searchWaysInSnapshot(bbox));
+            }
+        }
+
+        store.clear();
+        assertEquals(0, store.searchNodesInSnapshot(all).size());
+        assertNull(new QuadBucketPrimitiveStore<>().searchNodesInSnapshot(all));
+    }
+
+    /**
+     * Checks that the tree is rebuilt in the background, the previous tree being searched with the modifications
+     * meanwhile, which are kept once the new tree is built.
+     */
+    @Test
+    void testBackgroundRebuild() {
+        Random random = new Random(2);
+        List<Runnable> tasks = new ArrayList<>();
+        List<Node> nodes = new ArrayList<>();
+        SnapshotSpatialIndex<Node> index = new SnapshotSpatialIndex<>(nodes, tasks::add);
+        for (int i = 0; i < 3000; i++) {
+            Node n = new Node(randomLatLon(random));
+            nodes.add(n);
+            index.add(n);
+        }
+
+        // no snapshot until the first tree is built
+        index.update();
+        assertNull(index.search(new BBox(-1, -1, 11, 11)));
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        index.update();
+        assertSearch(index, nodes, random);
+
+        // many modifications start a rebuild, until which the previous tree is searched with a delta
+        modify(index, nodes, random, 1500);
+        index.update();
+        assertEquals(1, tasks.size());
+        assertSearch(index, nodes, random);
+        modify(index, nodes, random, 100);
+        index.update();
+        assertEquals(1, tasks.size());
+        assertSearch(index, nodes, random);
+
+        // the modifications made during the rebuild are published on top of the new tree
+        tasks.remove(0).run();
+        assertSearch(index, nodes, random);
+        modify(index, nodes, random, 10);
+        index.update();
+        assertTrue(tasks.isEmpty());
+        assertSearch(index, nodes, random);
+
+        // an outdated rebuild is ignored
+        modify(index, nodes, random, 1500);
+        index.update();
+        assertEquals(1, tasks.size());
+        index.clear();
+        nodes.clear();
+        tasks.remove(0).run();
+        assertEquals(0, index.search(new BBox(-1, -1, 11, 11)).size());
+    }
+
+    /**
+     * Checks that {@link DataSet#searchNodes} sees modifications when snapshots are enabled.
+     */
+    @Test
+    void testDataSet() {
+        Config.getPref().putBoolean(DataSet.SNAPSHOT_SEARCH.getKey(), true);
+        try {
+            DataSet ds = new DataSet();
+            Node n = new Node(new LatLon(1, 1));
+            ds.addPrimitive(n);
+            BBox bbox = new BBox(0, 0, 2, 2);
+            assertEquals(1, ds.searchNodes(bbox).size());
+            n.setCoor(new LatLon(5, 5));
+            assertEquals(0, ds.searchNodes(bbox).size());
+            ds.update(() -> {
+                n.setCoor(new LatLon(1.5, 1.5));
+                assertEquals(1, ds.searchNodes(bbox).size());
+            });
+            assertEquals(1, ds.searchNodes(bbox).size());
+            ds.removePrimitive(n);
+            assertEquals(0, ds.searchNodes(bbox).size());
+        } finally {
+            Config.getPref().put(DataSet.SNAPSHOT_SEARCH.getKey(), null);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of the {@link TagIndex} class.
+ */
+@BasicPreferences
+class TagIndexTest {
+
+    /**
+     * Checks that the index is kept up to date when the dataset is modified.
+     */
+    @Test
+    void testUpdates() {
+        DataSet ds = new DataSet();
+        assertNull(ds.getTagIndex());
+        Config.getPref().putBoolean(DataSet.TAG_INDEX.getKey(), true);
+
+        Node n1 = new Node(LatLon.ZERO);
+        n1.put("amenity", "pharmacy");
+        ds.addPrimitive(n1);
+        TagIndex index = ds.getTagIndex();
+        assertNotNull(index);
+        assertSame(index, ds.getTagIndex());
+        assertEquals(Collections.singleton(n1), index.get("amenity", "pharmacy"));
+
+        Node n2 = new Node(LatLon.ZERO);
+        n2.put("amenity", "pharmacy");
+        Way w = new Way();
+        w.put("highway", "residential");
+        ds.addPrimitives(Arrays.asList(n2, w));
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), index.get("amenity", "pharmacy"));
+        assertEquals(Collections.singleton(w), index.find("highway"::equals, v -> true));
+
+        n1.put("amenity", "bank");
+        ds.update(() -> n2.put("name", "foo"));
+        assertEquals(Collections.singleton(n2), index.get("amenity", "pharmacy"));
+        assertEquals(Collections.singleton(n1), index.get("amenity", "bank"));
+        assertEquals(Collections.singleton(n2), index.get("name", "foo"));
+
+        n2.removeAll();
+        assertTrue(index.get("amenity", "pharmacy").isEmpty());
+        ds.removePrimitive(n1);
+        assertTrue(index.find(k -> true, v -> true).equals(Collections.singleton(w)));
+
+        ds.clear();
+        TagIndex newIndex = ds.getTagIndex();
+        assertTrue(newIndex.find(k -> true, v -> true).isEmpty());
+
+        Config.getPref().putBoolean(DataSet.TAG_INDEX.getKey(), false);
+        assertNull(ds.getTagIndex());
+    }
+}
@@ -0,0 +1,63 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of the {@link TagSetDictionary} class.
+ */
+@BasicPreferences
+class TagSetDictionaryTest {
+
+    /**
+     * Test of {@link TagSetDictionary#intern(String[])}.
+     */
+    @Test
+    void testIntern() {
+        assertNull(TagSetDictionary.intern(null));
+        String[] tags = {"building", "yes"};
+        String[] interned = TagSetDictionary.intern(tags);
+        assertSame(interned, TagSetDictionary.intern(new String[] {"building", "yes"}));
+        String[] large = new String[40];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = Integer.toString(i);
+        }
+        assertSame(large, TagSetDictionary.intern(large));
+        assertNotSame(large, TagSetDictionary.intern(large.clone()));
+    }
+
+    /**
+     * Checks that primitives with the same tags share them, and that modifying the tags of one primitive
+     * does not affect the others.
+     */
+    @Test
+    void testSharedTags() {
+        Node n1 = new Node(LatLon.ZERO);
+        n1.put("amenity", "bench");
+        n1.put("backrest", "no");
+        Node n2 = new Node(LatLon.ZERO);
+        n2.setKeys(new TagMap("amenity", "bench", "backrest", "no"));
+        assertSame(n1.keys, n2.keys);
+        assertTrue(n1.hasEqualSemanticAttributes(n2));
+        assertTrue(n1.getKeys().equals(n2.getKeys()));
+
+        n2.putAll(Collections.singletonMap("backrest", "yes"));
+        assertEquals("no", n1.get("backrest"));
+        assertEquals("yes", n2.get("backrest"));
+        n2.put("backrest", "no");
+        assertSame(n1.keys, n2.keys);
+        n2.remove("backrest");
+        assertEquals("no", n1.get("backrest"));
+        assertEquals(1, n2.getNumKeys());
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -16,6 +17,7 @@ import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -33,6 +35,7 @@ import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationData;
 import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.data.osm.Tag;
 import org.openstreetmap.josm.data.osm.User;
 import org.openstreetmap.josm.data.osm.Way;
@@ -44,6 +47,7 @@ import org.openstreetmap.josm.gui.tagging.presets.TaggingPresetMenu;
 import org.openstreetmap.josm.gui.tagging.presets.TaggingPresetType;
 import org.openstreetmap.josm.gui.tagging.presets.TaggingPresets;
 import org.openstreetmap.josm.gui.tagging.presets.items.Key;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.tools.Logging;
 
@@ -859,4 +863,82 @@ class SearchCompilerTest {
     void testNonRegression22156() {
         assertThrows(SearchParseError.class, () -> SearchCompiler.compile("nth%: 0"));
     }
+
+    /**
+     * Checks that the candidates found in the tag index contain all matching primitives.
+     * @param query the search query
+     * @throws SearchParseError never
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"amenity=pharmacy", "amenity=*", "*=pharmacy", "Amenity:pharm", "oneway?", "name:a",
+            "amenity=pharmacy name:a", "amenity=pharmacy OR shop=bakery", "amenity=pharmacy -name=a",
+            "type:node amenity=*", "regex:amenity=ph.*", "regex:am.*=*", "regex:*=.*cy", "regex:amen:ph"})
+    void testFindCandidates(String query) throws SearchParseError {
+        DataSet ds = new DataSet();
+        String[][] tags = {{"amenity", "pharmacy"}, {"amenity", "bank"}, {"shop", "bakery"}, {"name", "a"}, {"oneway", "yes"},
+            {"oneway", "no"}, {"Amenity", "pharmacy"}};
+        for (int i = 0; i < 200; i++) {
+            Node n = new Node(LatLon.ZERO);
+            n.put(tags[i % tags.length][0], tags[i % tags.length][1]);
+            if (i % 3 == 0) {
+                n.put(tags[i % 5][0] + "x", tags[i % 5][1]);
+                n.put("name", "a");
+            }
+            ds.addPrimitive(n);
+        }
+        SearchSetting setting = new SearchSetting();
+        setting.regexSearch = query.startsWith("regex:");
+        setting.text = query.replace("regex:", "");
+        Match m = SearchCompiler.compile(setting);
+        Config.getPref().putBoolean(DataSet.TAG_INDEX.getKey(), true);
+        Set<OsmPrimitive> candidates = m.findCandidates(ds.getTagIndex());
+        assertNotNull(candidates);
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            if (m.match(p)) {
+                assertTrue(candidates.contains(p), p::toString);
+            }
+        }
+        assertTrue(candidates.size() < ds.allPrimitives().size());
+    }
+
+    /**
+     * Checks that the queries which cannot be answered from the tag index fall back to scanning all primitives.
+     * @param query the search query
+     * @throws SearchParseError never
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"-name=a", "amenity=pharmacy OR -name=a", "untagged", "name=", "type:node", "timestamp:2020"})
+    void testFindCandidatesScan(String query) throws SearchParseError {
+        Config.getPref().putBoolean(DataSet.TAG_INDEX.getKey(), true);
+        assertNull(SearchCompiler.compile(query).findCandidates(new DataSet().getTagIndex()));
+    }
+
+    /**
+     * Checks that the operands of {@code And} and {@code Or} are evaluated cheapest first, without changing the expression.
+     * @throws SearchParseError never
+     */
+    @Test
+    void testEvaluationOrder() throws SearchParseError {
+        Match and = SearchCompiler.compile("child(highway=*) (amenity=bank type:way)");
+        assertEquals("child(highway=*) && amenity=bank && type=way", and.toString());
+        List<Match> order = ((SearchCompiler.And) and).getEvaluationOrder();
+        assertEquals(3, order.size());
+        assertTrue(order.get(0) instanceof SearchCompiler.ExactType);
+        assertTrue(order.get(1) instanceof SearchCompiler.ExactKeyValue);
+        assertTrue(order.get(2) instanceof SearchCompiler.Child);
+
+        Match or = SearchCompiler.compile("foo OR bar=*");
+        List<Match> orOrder = ((SearchCompiler.Or) or).getEvaluationOrder();
+        assertEquals("bar=*", orOrder.get(0).toString());
+        assertTrue(or.match(OsmUtils.createPrimitive("node bar=1")));
+        assertTrue(or.match(OsmUtils.createPrimitive("node name=foo")));
+        assertFalse(or.match(OsmUtils.createPrimitive("node name=baz")));
+
+        String[] explain = SearchCompiler.explain(and).split("\n");
+        assertEquals(5, explain.length);
+        assertTrue(explain[0].startsWith("AND (cost="), explain[0]);
+        assertTrue(explain[1].startsWith("  type=way (cost=0.50"), explain[1]);
+        assertTrue(explain[3].startsWith("  child (cost="), explain[3]);
+        assertTrue(explain[4].startsWith("    highway=* (cost="), explain[4]);
+    }
 }
@@ -0,0 +1,234 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of the {@link RenderTileCache} class.
+ */
+class RenderTileCacheTest {
+
+    /**
+     * We need the projection for coordinate conversions.
+     */
+    @RegisterExtension
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 400;
+
+    private NavigatableComponent nc;
+    private DataSet ds;
+    private final List<Bounds> rendered = new ArrayList<>();
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    public void setUp() {
+        nc = new NavigatableComponent() {
+            {
+                // qualified, as ImageObserver declares constants of the same names
+                setBounds(0, 0, RenderTileCacheTest.WIDTH, RenderTileCacheTest.HEIGHT);
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        nc.zoomTo(new LatLon(10, 10).getEastNorth(nc.getProjection()), 1);
+        ds = new DataSet();
+        for (int i = 0; i < 20; i++) {
+            ds.addPrimitive(new Node(nc.getLatLon(i * 30, i * 20)));
+        }
+        Config.getPref().putBoolean(RenderTileCache.PROP_INCREMENTAL.getKey(), true);
+    }
+
+    private void render(Graphics2D g, Bounds bounds) {
+        rendered.add(bounds);
+        g.setColor(Color.RED);
+        for (Node n : ds.searchNodes(bounds.toBBox())) {
+            Point2D p = nc.getPoint2D(n);
+            g.fillRect((int) p.getX() - 2, (int) p.getY() - 2, 5, 5);
+        }
+        for (Way w : ds.searchWays(bounds.toBBox())) {
+            for (int i = 1; i < w.getNodesCount(); i++) {
+                Point2D a = nc.getPoint2D(w.getNode(i - 1));
+                Point2D b = nc.getPoint2D(w.getNode(i));
+                g.draw(new Line2D.Double(a, b));
+            }
+        }
+    }
+
+    private BufferedImage paint(RenderTileCache cache) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        assertTrue(cache.paint(g, nc, "key", this::render));
+        g.dispose();
+        return image;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private void assertPaintedAsFullRendering(BufferedImage image) {
+        List<Bounds> before = new ArrayList<>(rendered);
+        assertArrayEquals(pixels(paint(new RenderTileCache())), pixels(image));
+        rendered.clear();
+        rendered.addAll(before);
+    }
+
+    private boolean coversView(Bounds bounds) {
+        return bounds.contains(nc.getLatLon(0, 0)) && bounds.contains(nc.getLatLon(WIDTH, HEIGHT));
+    }
+
+    /**
+     * Checks that nothing is painted when the incremental mode is disabled.
+     */
+    @Test
+    void testDisabled() {
+        Config.getPref().putBoolean(RenderTileCache.PROP_INCREMENTAL.getKey(), false);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        assertFalse(new RenderTileCache().paint(image.createGraphics(), nc, "key", this::render));
+        assertTrue(rendered.isEmpty());
+    }
+
+    /**
+     * Checks that the tiles are reused until they are invalidated.
+     */
+    @Test
+    void testReuse() {
+        RenderTileCache cache = new RenderTileCache();
+        BufferedImage first = paint(cache);
+        assertFalse(rendered.isEmpty());
+        rendered.clear();
+        assertArrayEquals(pixels(first), pixels(paint(cache)));
+        assertTrue(rendered.isEmpty());
+
+        assertTrue(cache.paint(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB).createGraphics(), nc, "other",
+                this::render));
+        assertFalse(rendered.isEmpty());
+        rendered.clear();
+        cache.invalidate();
+        paint(cache);
+        assertFalse(rendered.isEmpty());
+    }
+
+    /**
+     * Checks that only the tiles around a moved node are rendered again.
+     */
+    @Test
+    void testNodeMoved() {
+        RenderTileCache cache = new RenderTileCache();
+        ds.addDataSetListener(new DataSetListenerAdapter(cache::invalidate));
+        paint(cache);
+        rendered.clear();
+
+        Node n = ds.getNodes().stream().filter(x -> nc.getPoint(x).x == 30).findFirst().get();
+        n.setCoor(nc.getLatLon(40, 20));
+        BufferedImage image = paint(cache);
+        assertFalse(rendered.isEmpty());
+        assertFalse(rendered.stream().anyMatch(this::coversView));
+        assertPaintedAsFullRendering(image);
+    }
+
+    /**
+     * Checks that the segments from the old position of a node moved by more than one tile are erased.
+     */
+    @Test
+    void testNodeMovedFar() {
+        Node a = new Node(nc.getLatLon(20, 380));
+        Node m = new Node(nc.getLatLon(580, 20));
+        Node b = new Node(nc.getLatLon(560, 380));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(a, m, b));
+        ds.addPrimitiveRecursive(w);
+        RenderTileCache cache = new RenderTileCache();
+        ds.addDataSetListener(new DataSetListenerAdapter(cache::invalidate));
+        paint(cache);
+        rendered.clear();
+
+        // The old segments cross the middle of the view, far from the old position and the new extent of the way
+        m.setCoor(nc.getLatLon(20, 370));
+        BufferedImage image = paint(cache);
+        assertFalse(rendered.isEmpty());
+        assertPaintedAsFullRendering(image);
+    }
+
+    /**
+     * Checks that only the newly visible tiles are rendered when the map is panned.
+     */
+    @Test
+    void testPan() {
+        RenderTileCache cache = new RenderTileCache();
+        paint(cache);
+        rendered.clear();
+
+        nc.zoomTo(nc.getCenter().add(new EastNorth(100 * nc.getScale(), 0)));
+        BufferedImage image = paint(cache);
+        assertFalse(rendered.isEmpty());
+        assertFalse(rendered.stream().anyMatch(this::coversView));
+        assertPaintedAsFullRendering(image);
+
+        rendered.clear();
+        paint(cache);
+        assertEquals(0, rendered.size());
+    }
+
+    /**
+     * Checks that the tiles are painted far from the projected origin at a deep zoom level, where the device
+     * coordinates of the origin do not fit in an {@code int}.
+     */
+    @Test
+    void testFarFromOrigin() {
+        double scale = 0.005;
+        nc.zoomTo(new EastNorth((Integer.MAX_VALUE + 200.0) * scale, 0), scale);
+        ds = new DataSet();
+        for (int i = 0; i < 20; i++) {
+            ds.addPrimitive(new Node(nc.getLatLon(i * 30, i * 20)));
+        }
+        BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = expected.createGraphics();
+        render(g, nc.getRealBounds());
+        g.dispose();
+        assertArrayEquals(pixels(expected), pixels(paint(new RenderTileCache())));
+    }
+}
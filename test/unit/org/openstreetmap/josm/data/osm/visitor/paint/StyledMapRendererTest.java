@@ -1,12 +1,34 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm.visitor.paint;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
@@ -18,6 +40,13 @@ import nl.jqno.equalsverifier.Warning;
  */
 class StyledMapRendererTest {
 
+    /**
+     * We need the projection for coordinate conversions.
+     */
+    @RegisterExtension
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
     /**
      * Tests the floatToFixed function.
      */
@@ -90,4 +119,100 @@ class StyledMapRendererTest {
             .suppress(Warning.NONFINAL_FIELDS)
             .verify();
     }
+
+    private static NavigatableComponent newMapView() {
+        NavigatableComponent nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, 800, 600);
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        nc.zoomTo(new LatLon(10, 10).getEastNorth(nc.getProjection()), 1);
+        return nc;
+    }
+
+    private static DataSet newGrid(NavigatableComponent nc, String... wayTags) {
+        DataSet ds = new DataSet();
+        for (int row = 0; row < 40; row++) {
+            List<Node> nodes = new ArrayList<>();
+            for (int column = 0; column < 40; column++) {
+                Node n = new Node(nc.getLatLon(column * 21 - 10, row * 16 - 10 + column % 3));
+                ds.addPrimitive(n);
+                nodes.add(n);
+            }
+            Way w = new Way();
+            w.setNodes(nodes);
+            for (int i = 0; i + 1 < wayTags.length; i += 2) {
+                w.put(wayTags[i], wayTags[i + 1]);
+            }
+            ds.addPrimitive(w);
+        }
+        return ds;
+    }
+
+    private static void assertParallelDrawingEquals(DataSet ds, NavigatableComponent nc, ElemStyles styles) {
+        Config.getPref().putBoolean(StyledMapRenderer.PREFERENCE_PARALLEL_DRAWING.getKey(), false);
+        BufferedImage sequential = render(ds, nc, styles);
+        Config.getPref().putBoolean(StyledMapRenderer.PREFERENCE_PARALLEL_DRAWING.getKey(), true);
+        BufferedImage parallel = render(ds, nc, styles);
+        int[] pixels = sequential.getRGB(0, 0, 800, 600, null, 0, 800);
+        assertTrue(Arrays.stream(pixels).anyMatch(p -> p != 0));
+        assertArrayEquals(pixels, parallel.getRGB(0, 0, 800, 600, null, 0, 800));
+    }
+
+    /**
+     * Checks that drawing in parallel tiles gives the same result as drawing sequentially.
+     */
+    @Test
+    void testParallelDrawing() {
+        NavigatableComponent nc = newMapView();
+        assertParallelDrawingEquals(newGrid(nc), nc, MapPaintStyles.getStyles());
+    }
+
+    /**
+     * Checks that the labels and the wide lines crossing the borders of the parallel tiles are drawn completely.
+     */
+    @Test
+    void testParallelDrawingLabels() {
+        MapCSSStyleSource style = new MapCSSStyleSource(
+                "node[name] { symbol-shape: circle; symbol-size: 10; symbol-fill-color: #0000FF; text: name; font-size: 12; }"
+                + " way[name] { width: 6; color: #FF8000; casing-width: 3; casing-color: #000000; text: name; font-size: 14; }"
+                + " way[highway=motorway] { width: 1000; color: #8000FF80; }");
+        style.loadStyleSource();
+        assertTrue(style.getErrors().isEmpty());
+        NavigatableComponent nc = newMapView();
+        DataSet ds = newGrid(nc, "name", "Long street name");
+        for (int i = 0; i < 20; i++) {
+            Node n = new Node(nc.getLatLon(i * 41 + 5, i * 29 + 8));
+            n.put("name", "A point of interest with a very long name, which is wider than the tiles drawn in parallel");
+            ds.addPrimitive(n);
+        }
+        // covers the whole view, far beyond the tiles its nodes belong to
+        Way motorway = new Way();
+        motorway.setNodes(Arrays.asList(new Node(nc.getLatLon(100, 40)), new Node(nc.getLatLon(700, 40))));
+        motorway.getNodes().forEach(ds::addPrimitive);
+        motorway.put("highway", "motorway");
+        ds.addPrimitive(motorway);
+        assertParallelDrawingEquals(ds, nc, new ElemStyles(Collections.singleton(style)));
+    }
+
+    private static BufferedImage render(DataSet ds, NavigatableComponent nc, ElemStyles styles) {
+        BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        StyledMapRenderer renderer = new StyledMapRenderer(g, nc, false);
+        renderer.setStyles(styles);
+        renderer.render(ds, false, nc.getRealBounds());
+        g.dispose();
+        return image;
+    }
 }
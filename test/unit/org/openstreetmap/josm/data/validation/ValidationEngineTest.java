@@ -0,0 +1,95 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.tests.NameMismatch;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import net.trajano.commons.testing.UtilityClassTestUtil;
+
+/**
+ * Unit tests for class {@link ValidationEngine}.
+ */
+class ValidationEngineTest {
+
+    /**
+     * Setup test.
+     */
+    @RegisterExtension
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    /**
+     * Tests that {@code ValidationEngine} satisfies utility class criteria.
+     * @throws ReflectiveOperationException if an error occurs
+     */
+    @Test
+    void testUtilityClass() throws ReflectiveOperationException {
+        UtilityClassTestUtil.assertUtilityClassWellDefined(ValidationEngine.class);
+    }
+
+    private static List<String> describe(List<TestError> errors) {
+        return errors.stream()
+                .map(e -> e.getTester().getName() + ' ' + e.getCode() + ' ' + e.getPrimitives().iterator().next().getUniqueId())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that the parallel run returns the same errors, in the same order, as the sequential one.
+     */
+    @Test
+    void testParallelSameAsSequential() {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 5000; i++) {
+            Node n = new Node(new LatLon(i * 1e-4, 0));
+            if (i % 7 == 0) {
+                n.put("fixme", "check");
+            } else if (i % 11 == 0) {
+                n.put("name", "foo");
+                n.put("name:en", "bar");
+            }
+            ds.addPrimitive(n);
+        }
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives());
+
+        List<TestError> sequential = ValidationEngine.runTests(
+                Arrays.asList(new UntaggedNode(), new NameMismatch(), new UntaggedNode()), primitives, null, false);
+        assertFalse(sequential.isEmpty());
+
+        List<org.openstreetmap.josm.data.validation.Test> visitors = new ArrayList<>();
+        org.openstreetmap.josm.data.validation.Test nonConcurrent = new UntaggedNode() {
+            @Override
+            public boolean isConcurrent() {
+                return false;
+            }
+
+            @Override
+            public void visit(Node n) {
+                visitors.add(this);
+                super.visit(n);
+            }
+        };
+        List<TestError> parallel = ValidationEngine.runTests(
+                Arrays.asList(nonConcurrent, new NameMismatch(), new UntaggedNode()), primitives, null, true);
+        assertEquals(describe(sequential), describe(parallel));
+        // a subclass is not visitors by default
+        assertTrue(visitors.stream().allMatch(t -> t == nonConcurrent));
+        assertTrue(nonConcurrent.getErrors().isEmpty());
+    }
+}
@@ -0,0 +1,191 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link ValidationSession}.
+ */
+class ValidationSessionTest {
+
+    /**
+     * Setup test.
+     */
+    @RegisterExtension
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    /**
+     * Unit test of {@link ValidationSession#getCorePrimitives}.
+     */
+    @Test
+    void testCorePrimitives() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 1));
+        Node n3 = new Node(new LatLon(1, 1));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        Relation r = new Relation();
+        r.addMember(new RelationMember("", w));
+        ds.addPrimitiveRecursive(r);
+        ds.addPrimitive(n3);
+
+        assertEquals(new HashSet<>(Arrays.asList(n1, w, r)), ValidationSession.getCorePrimitives(Collections.singleton(n1)));
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2, w, r)), ValidationSession.getCorePrimitives(Collections.singleton(w)));
+        assertEquals(Collections.singleton(n3), ValidationSession.getCorePrimitives(Collections.singleton(n3)));
+    }
+
+    /**
+     * Checks that the errors are updated after modifications of the data set.
+     */
+    @Test
+    void testUpdate() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 0));
+        Node n3 = new Node(new LatLon(10, 10));
+        n1.put("amenity", "bench");
+        n2.put("amenity", "bench");
+        n3.put("fixme", "check");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        List<org.openstreetmap.josm.data.validation.Test> tests = Arrays.asList(new DuplicateNode(), new UntaggedNode());
+
+        List<TestError> initial = ValidationEngine.runTests(tests, ds.allPrimitives(), null);
+        assertEquals(2, initial.size());
+        AtomicInteger changes = new AtomicInteger();
+        ValidationSession session = new ValidationSession(ds, initial, changes::incrementAndGet);
+        ds.addDataSetListener(session);
+        assertFalse(session.isModified());
+
+        // move a duplicated node away, the error of the unmodified node n3 is kept
+        n2.setCoor(new LatLon(1, 1));
+        n2.put("name", "foo");
+        assertTrue(session.isModified());
+        assertEquals(1, changes.get());
+        List<TestError> errors = session.update(tests);
+        assertFalse(session.isModified());
+        assertEquals(1, errors.size());
+        assertEquals(Collections.singleton(n3), new HashSet<>(errors.get(0).getPrimitives()));
+
+        // move it back, the duplicate is found with its unmodified neighbour n1
+        n2.setCoor(new LatLon(0, 0));
+        n2.remove("name");
+        assertEquals(2, changes.get());
+        errors = session.update(tests);
+        assertEquals(2, errors.size());
+        assertTrue(errors.stream().anyMatch(e -> e.getPrimitives().containsAll(Arrays.asList(n1, n2))));
+
+        // removing a node removes its errors
+        ds.removePrimitive(n3);
+        errors = session.update(tests);
+        assertEquals(1, errors.size());
+        assertFalse(errors.get(0).getPrimitives().contains(n3));
+
+        // events of other data sets are ignored
+        DataSet other = new DataSet();
+        other.addDataSetListener(session);
+        other.addPrimitive(new Node(LatLon.ZERO));
+        assertFalse(session.isModified());
+        assertEquals(3, changes.get());
+    }
+
+    /**
+     * Checks that the results of a validation run outside of the session replace its errors.
+     */
+    @Test
+    void testReset() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 0));
+        n1.put("amenity", "bench");
+        n2.put("amenity", "bench");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        List<org.openstreetmap.josm.data.validation.Test> tests = Arrays.asList(new DuplicateNode(), new UntaggedNode());
+
+        ValidationSession session = new ValidationSession(ds, Collections.emptyList(), null);
+        ds.addDataSetListener(session);
+        List<TestError> validated = ValidationEngine.runTests(tests, ds.allPrimitives(), null);
+        assertEquals(1, validated.size());
+        session.reset(validated);
+        assertEquals(validated, session.getErrors());
+        assertFalse(session.isModified());
+
+        // the errors of the validation run are kept by the next update
+        Node n3 = new Node(new LatLon(10, 10));
+        n3.put("fixme", "check");
+        ds.addPrimitive(n3);
+        List<TestError> errors = session.update(tests);
+        assertEquals(2, errors.size());
+        assertTrue(errors.containsAll(validated));
+    }
+
+    /**
+     * Checks that the data set can be modified while the tests of an update run.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testModifiedWhileUpdating() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        ds.addPrimitive(n1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        org.openstreetmap.josm.data.validation.Test blocking = new org.openstreetmap.josm.data.validation.Test("blocking") {
+            @Override
+            public void visit(Node n) {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        ValidationSession session = new ValidationSession(ds, Collections.emptyList(), null);
+        ds.addDataSetListener(session);
+        n1.put("name", "foo");
+        Thread update = new Thread(() -> session.update(Collections.singleton(blocking)));
+        update.start();
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            n1.put("name", "bar");
+            session.reset(Collections.emptyList());
+            assertTrue(session.isModified());
+        });
+        release.countDown();
+        update.join();
+        // the modification made during the update is checked by the next one
+        assertTrue(session.isModified());
+    }
+}
@@ -176,6 +176,24 @@ class MapCSSTagCheckerTest {
         assertEquals(1, result.parseErrors.size());
     }
 
+    /**
+     * Unit test of {@link MapCSSTagChecker#initializeCopy}: the copy runs the rules of the original without parsing them.
+     * @throws ParseException if a parsing error occurs
+     */
+    @Test
+    void testInitializeCopy() throws ParseException {
+        final MapCSSTagChecker original = buildTagChecker("node[natural=marsh] {throwWarning: \"marsh\";}");
+        final MapCSSTagChecker copy = new MapCSSTagChecker();
+        copy.initializeCopy(original);
+        assertEquals(original.checks, copy.checks);
+        final OsmPrimitive n = OsmUtils.createPrimitive("node natural=marsh");
+        new DataSet(n);
+        assertEquals(1, copy.getErrorsForPrimitive(n, false).size());
+        // the rules reloaded in the original are not seen by the copy
+        original.checks.clear();
+        assertEquals(1, copy.getErrorsForPrimitive(n, false).size());
+    }
+
     /**
      * Unit test of {@code min-josm-version} processing.
      * @throws ParseException if a parsing error occurs
@@ -0,0 +1,110 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link SegmentGrid}.
+ */
+class SegmentGridTest {
+
+    /**
+     * Setup test.
+     */
+    @RegisterExtension
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    private static List<Way> createWays() {
+        Random random = new Random(42);
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Way w = new Way();
+            for (int j = 0; j < 20; j++) {
+                w.addNode(new Node(new LatLon(random.nextDouble() * 0.01, random.nextDouble() * 0.01)));
+            }
+            ways.add(w);
+        }
+        return ways;
+    }
+
+    /**
+     * Checks that the grid finds the same pairs of segments as the map of cells, in the same order.
+     */
+    @Test
+    void testSameAsCellMap() {
+        List<Way> ways = createWays();
+        double gridDetail = 0.1;
+
+        List<String> expected = new ArrayList<>();
+        Map<Point2D, List<WaySegment>> cellSegments = new HashMap<>();
+        for (Way w : ways) {
+            for (int i = 0; i < w.getNodesCount() - 1; i++) {
+                WaySegment es1 = new WaySegment(w, i);
+                for (Point2D cell : ValUtil.getSegmentCells(es1.getFirstNode().getEastNorth(),
+                        es1.getSecondNode().getEastNorth(), gridDetail)) {
+                    List<WaySegment> segments = cellSegments.computeIfAbsent(cell, k -> new ArrayList<>());
+                    segments.forEach(es2 -> expected.add(es1 + " " + es2));
+                    segments.add(es1);
+                }
+            }
+        }
+        assertFalse(expected.isEmpty());
+
+        List<String> incremental = new ArrayList<>();
+        SegmentGrid grid = new SegmentGrid(gridDetail);
+        for (Way w : ways) {
+            for (int i = 0; i < w.getNodesCount() - 1; i++) {
+                WaySegment es1 = new WaySegment(w, i);
+                grid.add(es1, es2 -> incremental.add(es1 + " " + es2));
+            }
+        }
+        assertEquals(expected, incremental);
+
+        List<String> built = new ArrayList<>();
+        SegmentGrid builtGrid = SegmentGrid.of(ways, gridDetail);
+        assertEquals(grid.size(), builtGrid.size());
+        for (int i = 0; i < builtGrid.size(); i++) {
+            WaySegment es1 = builtGrid.get(i);
+            builtGrid.forEachPreviousSegment(i, es2 -> built.add(es1 + " " + es2));
+        }
+        assertEquals(expected, built);
+    }
+
+    /**
+     * Checks that the crossings found with a grid built beforehand are the ones found incrementally.
+     */
+    @Test
+    void testFindIntersectingWays() {
+        List<Way> ways = createWays();
+        Map<List<Way>, List<WaySegment>> expected = new HashMap<>();
+        SegmentGrid grid = new SegmentGrid(0.1);
+        for (Way w : ways) {
+            CrossingWays.findIntersectingWay(w, grid, expected, false);
+        }
+        assertFalse(expected.isEmpty());
+
+        Map<List<Way>, List<WaySegment>> crossingWays = new HashMap<>();
+        CrossingWays.findIntersectingWays(SegmentGrid.of(ways, 0.1), crossingWays, false);
+        assertEquals(expected, crossingWays);
+    }
+}
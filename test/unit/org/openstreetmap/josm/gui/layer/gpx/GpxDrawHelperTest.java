@@ -2,9 +2,11 @@
 package org.openstreetmap.josm.gui.layer.gpx;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -15,6 +17,11 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.IGpxTrack;
+import org.openstreetmap.josm.data.gpx.IGpxTrackSegment;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
 import org.openstreetmap.josm.gui.layer.gpx.GpxDrawHelper.ColorMode;
 import org.openstreetmap.josm.io.GpxReaderTest;
@@ -34,7 +41,7 @@ class GpxDrawHelperTest {
      */
     @RegisterExtension
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
-    public JOSMTestRules test = new JOSMTestRules();
+    public JOSMTestRules test = new JOSMTestRules().main().projection();
 
     /**
      * Non-regression test for ticket <a href="https://josm.openstreetmap.de/ticket/12312">#12312</a>.
@@ -119,6 +126,36 @@ class GpxDrawHelperTest {
         assertEquals("[#000000, #FF0000, #FF0000, #FF0500, #FF0500, #FF0A00, #FF0A00, #FF1F00, #FF2E00, #FF3300]", colors.toString());
     }
 
+    /**
+     * Tests that the tracks read from files are colored and drawn from their columns, without creating their way points.
+     * @throws IOException if any I/O error occurs
+     * @throws SAXException if any SAX error occurs
+     */
+    @Test
+    void testColumns() throws IOException, SAXException {
+        final GpxData data = GpxReaderTest.parseGpxData("nodist/data/2094047.gpx");
+        data.getLayerPrefs().put("colormode", Integer.toString(ColorMode.VELOCITY.toIndex()));
+        final GpxLayer layer = new GpxLayer(data);
+        try {
+            MainApplication.getLayerManager().addLayer(layer);
+            final MapView mv = MainApplication.getMap().mapView;
+            final GpxDrawHelper gdh = new GpxDrawHelper(layer);
+            gdh.readPreferences();
+            // the colors are computed, then the points visible in the bounds are listed and drawn
+            gdh.drawAll(TestUtils.newGraphics(), mv, new ArrayList<>(), data.recalculateBounds());
+            for (IGpxTrack track : data.getTracks()) {
+                for (IGpxTrackSegment segment : track.getSegments()) {
+                    assertNotNull(((GpxTrackSegment) segment).getColumns());
+                }
+            }
+            // the way points created later get the computed colors
+            assertEquals(calculateColors("nodist/data/2094047.gpx", data.getLayerPrefs(), 10),
+                    data.getTrackPoints().limit(10).map(p -> ColorHelper.color2html(p.customColoring)).collect(Collectors.toList()));
+        } finally {
+            MainApplication.getLayerManager().removeLayer(layer);
+        }
+    }
+
     /**
      *
      * @param fileName the GPX filename to parse
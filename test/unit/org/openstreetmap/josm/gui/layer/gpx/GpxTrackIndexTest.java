@@ -0,0 +1,173 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackPoints;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.IGpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+
+/**
+ * Unit tests of {@link GpxTrackIndex} class.
+ */
+class GpxTrackIndexTest {
+
+    private static final int POINTS = 10_000;
+    private static final Bounds ALL = new Bounds(-1, -1, 1, 1);
+
+    private List<WayPoint> wayPoints;
+    private GpxData data;
+
+    /**
+     * Creates a track along a sine wave, with a point every 10 cm.
+     */
+    @BeforeEach
+    void setUp() {
+        wayPoints = new ArrayList<>(POINTS);
+        for (int i = 0; i < POINTS; i++) {
+            double lon = i * 1e-6;
+            WayPoint wpt = new WayPoint(new LatLon(1e-3 * Math.sin(lon * 1000), lon));
+            wpt.drawLine = i > 0;
+            wayPoints.add(wpt);
+        }
+        data = new GpxData();
+        data.addTrack(new GpxTrack(Collections.singleton(wayPoints), Collections.emptyMap()));
+    }
+
+    /**
+     * Tests {@link GpxTrackIndex#computeImportance}.
+     */
+    @Test
+    void testComputeImportance() {
+        WayPoint[] points = {
+            new WayPoint(new LatLon(0, 0)), new WayPoint(new LatLon(0.5, 1)), new WayPoint(new LatLon(1, 2)),
+            new WayPoint(new LatLon(0.5, 3)), new WayPoint(new LatLon(0, 4))};
+        float[] importance = GpxTrackIndex.computeImportance(GpxTrackPoints.of(Arrays.asList(points)));
+        assertEquals(Float.POSITIVE_INFINITY, importance[0]);
+        assertEquals(Float.POSITIVE_INFINITY, importance[4]);
+        assertEquals(1, importance[2], 1e-6);
+        // the points on a line are only kept by the first levels
+        assertEquals(0, importance[1], 1e-4);
+        assertEquals(0, importance[3], 1e-4);
+        assertEquals(0, GpxTrackIndex.computeImportance(GpxTrackPoints.of(Collections.emptyList())).length);
+    }
+
+    /**
+     * Tests {@link GpxTrackIndex#build}.
+     */
+    @Test
+    void testBuild() {
+        assertNull(GpxTrackIndex.build(data, POINTS + 1));
+        GpxTrackIndex index = GpxTrackIndex.build(data, POINTS);
+        assertNotNull(index);
+        assertEquals(0, index.getLevel(1e-9));
+        assertEquals(POINTS, index.getPointCount(0));
+        int level = index.getLevel(1e-4);
+        assertTrue(level > 0);
+        assertTrue(index.getPointCount(level) < POINTS / 10);
+        // the coarser the level, the less points
+        for (int i = 1; i <= level; i++) {
+            assertTrue(index.getPointCount(i) <= index.getPointCount(i - 1));
+        }
+    }
+
+    /**
+     * Tests that the index of segments read from files is built from their columns, without creating their way points.
+     */
+    @Test
+    void testBuildFromColumns() {
+        GpxTrackPoints points = GpxTrackPoints.of(wayPoints);
+        GpxTrackSegment segment = new GpxTrackSegment(points);
+        GpxData columns = new GpxData();
+        columns.addTrack(new GpxTrack(Collections.<IGpxTrackSegment>singletonList(segment), Collections.emptyMap()));
+        GpxTrackIndex index = GpxTrackIndex.build(columns, POINTS);
+        assertNotNull(index);
+        assertEquals(GpxTrackIndex.build(data, POINTS).getPointCount(5), index.getPointCount(5));
+        // the columns are released when the way points are created
+        assertSame(points, segment.getTrackPoints());
+
+        for (int i = 1; i < POINTS; i++) {
+            points.setDrawLine(i, true);
+        }
+        index.updateBreaks(0);
+        GpxVisiblePoints coarse = index.listVisibleSegments(ALL, 1e-4, null);
+        assertEquals(0, coarse.getIndex(0));
+        assertEquals(wayPoints.get(0).getCoor(), coarse.getCoor(0));
+        assertTrue(coarse.isDrawLine(1));
+        // the visible points are drawn from the columns as well
+        assertSame(points, segment.getTrackPoints());
+    }
+
+    /**
+     * Tests {@link GpxTrackIndex#listVisibleSegments}.
+     */
+    @Test
+    void testListVisibleSegments() {
+        GpxTrackIndex index = GpxTrackIndex.build(data, POINTS);
+        index.updateBreaks(0);
+
+        GpxVisiblePoints all = index.listVisibleSegments(ALL, 1e-9, null);
+        assertEquals(POINTS, all.size());
+        for (int i = 0; i < POINTS; i++) {
+            assertEquals(i, all.getIndex(i));
+            assertEquals(wayPoints.get(i).drawLine, all.isDrawLine(i));
+        }
+
+        GpxVisiblePoints coarse = index.listVisibleSegments(ALL, 1e-4, null);
+        assertTrue(coarse.size() < POINTS / 10);
+        assertEquals(0, coarse.getIndex(0));
+        assertEquals(POINTS - 1, coarse.getIndex(coarse.size() - 1));
+        for (int i = 1; i < coarse.size(); i++) {
+            assertTrue(coarse.isDrawLine(i));
+        }
+
+        // only the points near the box, starting with a point without line
+        GpxVisiblePoints part = index.listVisibleSegments(new Bounds(-1, 0.004, 1, 0.005), 1e-9, null);
+        assertTrue(part.size() > 1000 && part.size() < 1100);
+        assertFalse(part.isDrawLine(0));
+        assertTrue(wayPoints.get(part.getIndex(0)).drawLine);
+
+        assertTrue(index.listVisibleSegments(ALL, 1e-9, new boolean[] {false}).isEmpty());
+    }
+
+    /**
+     * Tests that a kept point is drawn without line to the previous kept point if a skipped point has no line.
+     */
+    @Test
+    void testBreaks() {
+        GpxTrackIndex index = GpxTrackIndex.build(data, POINTS);
+        index.updateBreaks(0);
+        GpxVisiblePoints coarse = index.listVisibleSegments(ALL, 1e-4, null);
+        int next = 1;
+        while (coarse.getIndex(next) < 2) {
+            next++;
+        }
+        int kept = coarse.getIndex(next);
+        assertTrue(coarse.isDrawLine(next));
+        wayPoints.get(kept - 1).drawLine = false;
+
+        index.updateBreaks(1);
+        GpxVisiblePoints withBreak = index.listVisibleSegments(ALL, 1e-4, null);
+        assertEquals(coarse.size(), withBreak.size());
+        assertEquals(kept, withBreak.getIndex(next));
+        assertFalse(withBreak.isDrawLine(next));
+        assertTrue(wayPoints.get(kept).drawLine);
+    }
+}
@@ -0,0 +1,147 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.imagery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.TMSTileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.TileSourceInfo;
+
+/**
+ * Unit tests of {@link TileImageCache} class.
+ */
+class TileImageCacheTest {
+
+    private static final int TILE_SIZE = 16;
+    private static final long TILE_BYTES = 4L * TILE_SIZE * TILE_SIZE;
+
+    private final TileSource source = new TMSTileSource(new TileSourceInfo("test", "http://localhost/{zoom}/{x}/{y}.png", "test"));
+
+    private Tile createLoadedTile(int x, int y, int zoom, Color color) {
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+        g.dispose();
+        Tile tile = new Tile(source, x, y, zoom, image);
+        tile.finishLoading();
+        return tile;
+    }
+
+    /**
+     * Tests that the cache is limited by the size of the images.
+     */
+    @Test
+    void testBudget() {
+        TileImageCache cache = new TileImageCache(10 * TILE_BYTES, TILE_SIZE);
+        assertEquals(10, cache.getCacheSize());
+        assertEquals(TILE_BYTES, TileImageCache.getImageBytes(createLoadedTile(0, 0, 1, Color.RED).getImage()));
+        for (int i = 0; i < 20; i++) {
+            cache.addTile(createLoadedTile(i, 0, 5, Color.RED));
+            assertTrue(cache.getMemoryUsage() <= 10 * TILE_BYTES);
+        }
+        assertTrue(cache.getTileCount() <= 10);
+        // the most recent tiles are kept
+        assertNotNull(cache.getTile(source, 19, 0, 5));
+        assertNull(cache.getTile(source, 0, 0, 5));
+        // tiles without image use less memory
+        cache.clear();
+        for (int i = 0; i < 40; i++) {
+            cache.addTile(new Tile(source, i, 0, 5));
+        }
+        assertEquals(40, cache.getTileCount());
+        assertEquals(0, cache.getMemoryUsage() - 40 * TILE_BYTES / 8);
+    }
+
+    /**
+     * Tests that the size of the tiles loaded after they were added is taken into account.
+     */
+    @Test
+    void testImageChange() {
+        TileImageCache cache = new TileImageCache(10 * TILE_BYTES, TILE_SIZE);
+        Tile[] tiles = new Tile[80];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new Tile(source, i, 0, 5);
+            cache.addTile(tiles[i]);
+        }
+        assertEquals(10 * TILE_BYTES, cache.getMemoryUsage());
+        for (Tile tile : tiles) {
+            tile.setImage(createLoadedTile(0, 0, 5, Color.RED).getImage());
+        }
+        // the loaded tiles are noticed when they are accessed
+        assertEquals(10 * TILE_BYTES, cache.getMemoryUsage());
+        assertSame(tiles[0], cache.getTile(source, 0, 0, 5));
+        assertEquals(10 * TILE_BYTES + TILE_BYTES - TILE_BYTES / 8, cache.getMemoryUsage());
+        // or when the cache is trimmed
+        cache.addTile(createLoadedTile(100, 0, 5, Color.RED));
+        assertTrue(cache.getMemoryUsage() <= 10 * TILE_BYTES);
+        assertTrue(cache.getTileCount() <= 10);
+        assertEquals(cache.getTileCount() * TILE_BYTES, cache.getMemoryUsage());
+    }
+
+    /**
+     * Tests that the tiles far from the viewport are removed first.
+     */
+    @Test
+    void testViewport() {
+        TileImageCache cache = new TileImageCache(10 * TILE_BYTES, TILE_SIZE);
+        cache.setViewport(5, 0, 0, 3, 1);
+        assertEquals(0, cache.getViewportDistance(5, 2, 1));
+        assertEquals(2, cache.getViewportDistance(5, 6, 0));
+        assertEquals(0, cache.getViewportDistance(4, 1, 0));
+        assertEquals(4, cache.getViewportDistance(6, 16, 0));
+        for (int i = 0; i < 8; i++) {
+            cache.addTile(createLoadedTile(i % 4, i / 4, 5, Color.RED));
+        }
+        for (int i = 0; i < 8; i++) {
+            cache.addTile(createLoadedTile(100 + i, 0, 5, Color.RED));
+        }
+        // the visible tiles, which are the least recently used, are kept
+        for (int i = 0; i < 8; i++) {
+            assertNotNull(cache.getTile(source, i % 4, i / 4, 5));
+        }
+    }
+
+    /**
+     * Tests {@link TileImageCache#getMip}.
+     */
+    @Test
+    void testMip() {
+        TileImageCache cache = new TileImageCache(100 * TILE_BYTES, TILE_SIZE);
+        Color[] colors = {Color.RED, Color.GREEN, Color.BLUE, Color.WHITE};
+        for (int i = 0; i < 3; i++) {
+            cache.addTile(createLoadedTile(2 + (i & 1), 4 + (i >> 1), 6, colors[i]));
+        }
+        assertNull(cache.getMip(source, 1, 2, 5, 1));
+        cache.addTile(createLoadedTile(3, 5, 6, colors[3]));
+
+        BufferedImage mip = cache.getMip(source, 1, 2, 5, 1);
+        assertNotNull(mip);
+        assertEquals(TILE_SIZE, mip.getWidth());
+        assertEquals(Color.RED.getRGB(), mip.getRGB(1, 1));
+        assertEquals(Color.GREEN.getRGB(), mip.getRGB(TILE_SIZE - 2, 1));
+        assertEquals(Color.BLUE.getRGB(), mip.getRGB(1, TILE_SIZE - 2));
+        assertEquals(Color.WHITE.getRGB(), mip.getRGB(TILE_SIZE - 2, TILE_SIZE - 2));
+        // the image is created once, until a child changes
+        assertSame(mip, cache.getMip(source, 1, 2, 5, 1));
+        cache.addTile(createLoadedTile(3, 5, 6, Color.BLACK));
+        BufferedImage updated = cache.getMip(source, 1, 2, 5, 1);
+        assertNotSame(mip, updated);
+        assertEquals(Color.BLACK.getRGB(), updated.getRGB(TILE_SIZE - 2, TILE_SIZE - 2));
+
+        // two levels need all the 16 tiles
+        assertNull(cache.getMip(source, 0, 1, 4, 2));
+        assertNull(cache.getMip(source, 0, 1, 4, TileImageCache.MAX_MIP_LEVELS + 1));
+    }
+}
@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of the {@link ElemStyles} class.
+ */
+@BasicPreferences
+class ElemStylesTest {
+
+    private static final double SCALE_Z10 = GeneralSelector.level2scale(10) * 0.9;
+    private static final double SCALE_Z14 = GeneralSelector.level2scale(14) * 0.9;
+    private static final double SCALE_Z18 = GeneralSelector.level2scale(18) * 0.9;
+
+    private static ElemStyles createStyles() {
+        MapCSSStyleSource source = new MapCSSStyleSource(
+                "way|z-12[highway] { color: red; width: 1; }\n" +
+                "way|z13-16[highway] { color: green; width: 2; }\n" +
+                "way|z17-[highway] { color: blue; width: 3; }\n");
+        source.loadStyleSource();
+        return new ElemStyles(Collections.singleton(source));
+    }
+
+    private static Way createWay() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(1, 1));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Checks that by default, only the requested scale range is cached.
+     */
+    @Test
+    void testCacheOneScale() {
+        Way w = createWay();
+        createStyles().get(w, SCALE_Z14, null);
+        assertNotNull(w.getCachedStyle().getWithRange(SCALE_Z14, false).a);
+        assertNull(w.getCachedStyle().getWithRange(SCALE_Z10, false).a);
+        assertNull(w.getCachedStyle().getWithRange(SCALE_Z18, false).a);
+    }
+
+    /**
+     * Checks that all the scale ranges are cached if {@link ElemStyles#PREFERENCE_CACHE_ALL_SCALES} is set,
+     * and that they match the styles computed on demand.
+     */
+    @Test
+    void testCacheAllScales() {
+        Config.getPref().putBoolean(ElemStyles.PREFERENCE_CACHE_ALL_SCALES.getKey(), true);
+        Way w = createWay();
+        ElemStyles styles = createStyles();
+        StyleElementList z14 = styles.get(w, SCALE_Z14, null);
+        StyleCache cache = w.getCachedStyle();
+        StyleElementList z10 = cache.getWithRange(SCALE_Z10, false).a;
+        StyleElementList z18 = cache.getWithRange(SCALE_Z18, false).a;
+        assertNotNull(z10);
+        assertNotNull(z18);
+
+        // Zooming does not change the cache any more
+        assertSame(z10, styles.get(w, SCALE_Z10, null));
+        assertSame(z18, styles.get(w, SCALE_Z18, null));
+        assertSame(cache, w.getCachedStyle());
+
+        Config.getPref().putBoolean(ElemStyles.PREFERENCE_CACHE_ALL_SCALES.getKey(), false);
+        Way other = createWay();
+        ElemStyles onDemand = createStyles();
+        assertEquals(z10, onDemand.get(other, SCALE_Z10, null));
+        assertEquals(z14, onDemand.get(other, SCALE_Z14, null));
+        assertEquals(z18, onDemand.get(other, SCALE_Z18, null));
+
+        // Changing the tags clears the cache of the primitive only
+        w.put("name", "foo");
+        assertNull(w.getCachedStyle());
+        assertNotNull(other.getCachedStyle());
+    }
+}
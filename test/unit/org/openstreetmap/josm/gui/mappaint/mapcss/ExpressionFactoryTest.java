@@ -1,8 +1,15 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ConstantExpression;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -10,6 +17,8 @@ import net.trajano.commons.testing.UtilityClassTestUtil;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
 
 /**
  * Unit tests of {@link ExpressionFactory}.
@@ -45,4 +54,37 @@ class ExpressionFactoryTest {
             }
         }
     }
+
+    /**
+     * Tests that pure functions with constant arguments are evaluated when the expression is created.
+     */
+    @Test
+    void testConstantFolding() {
+        Expression one = new LiteralExpression(1);
+        Expression sum = ExpressionFactory.createFunctionExpression("plus", Arrays.asList(one, one));
+        assertTrue(sum instanceof ConstantExpression);
+        assertEquals(2.0, sum.evaluate(null));
+        Expression nested = ExpressionFactory.createFunctionExpression("times", Arrays.asList(sum, sum));
+        assertTrue(nested instanceof ConstantExpression);
+        assertEquals(4.0, nested.evaluate(null));
+
+        Expression tag = ExpressionFactory.createFunctionExpression("tag", Collections.singletonList(new LiteralExpression("x")));
+        assertFalse(tag instanceof ConstantExpression);
+        assertFalse(ExpressionFactory.createFunctionExpression("plus", Arrays.asList(one, tag)) instanceof ConstantExpression);
+        assertFalse(ExpressionFactory.createFunctionExpression("list", Collections.singletonList(one)) instanceof ConstantExpression);
+        assertFalse(ExpressionFactory.createFunctionExpression("print", Collections.singletonList(one)) instanceof ConstantExpression);
+    }
+
+    /**
+     * Tests that a folded expression is still a static text and not a tag key for {@code text: eval("...")}.
+     */
+    @Test
+    void testConstantFoldingText() {
+        MapCSSStyleSource css = new MapCSSStyleSource("node { text: eval(concat(\"na\", \"me\")); }");
+        css.loadStyleSource();
+        assertTrue(css.getErrors().isEmpty());
+        MultiCascade mc = new MultiCascade();
+        css.apply(mc, OsmUtils.createPrimitive("node name=foo"), 1, false);
+        assertEquals("name", mc.getCascade(null).get("text", null, String.class));
+    }
 }
@@ -0,0 +1,216 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link OsmPbfReader} and {@link OsmPbfWriter} classes.
+ */
+@BasicPreferences
+class OsmPbfReaderTest {
+
+    private static DataSet roundTrip(DataSet ds) throws IOException, IllegalDataException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmPbfWriter writer = new OsmPbfWriter(out)) {
+            writer.write(ds);
+        }
+        return OsmPbfReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), null);
+    }
+
+    /**
+     * Checks that data written by {@link OsmPbfWriter} is read back identically.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testRoundTrip() throws Exception {
+        String osm = "<osm version=\"0.6\">\n" +
+                "<bounds minlat=\"51.0\" minlon=\"7.0\" maxlat=\"52.0\" maxlon=\"8.0\" origin=\"test\"/>\n" +
+                "<node id=\"1\" version=\"3\" changeset=\"42\" uid=\"7\" user=\"mapper\" timestamp=\"2020-01-02T03:04:05Z\"" +
+                " lat=\"51.1234567\" lon=\"7.7654321\"><tag k=\"amenity\" v=\"bench\"/></node>\n" +
+                "<node id=\"2\" version=\"1\" lat=\"-51.5\" lon=\"-7.25\"/>\n" +
+                "<node id=\"5\" version=\"1\" lat=\"51.2\" lon=\"7.3\"><tag k=\"name\" v=\"Ünïcode\"/><tag k=\"ref\" v=\"A\"/></node>\n" +
+                "<way id=\"10\" version=\"2\"><nd ref=\"5\"/><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"highway\" v=\"path\"/></way>\n" +
+                "<relation id=\"20\" version=\"1\"><member type=\"way\" ref=\"10\" role=\"outer\"/>" +
+                "<member type=\"node\" ref=\"1\" role=\"\"/><member type=\"relation\" ref=\"21\" role=\"sub\"/></relation>\n" +
+                "<relation id=\"21\" version=\"1\"><tag k=\"type\" v=\"route\"/></relation>\n" +
+                "</osm>";
+        DataSet expected = OsmReader.parseDataSet(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)), null);
+        DataSet ds = roundTrip(expected);
+
+        assertEquals(3, ds.getNodes().size());
+        assertEquals(1, ds.getWays().size());
+        assertEquals(2, ds.getRelations().size());
+        assertEquals(1, ds.getDataSources().size());
+        assertEquals(expected.getDataSourceBounds(), ds.getDataSourceBounds());
+
+        Node n1 = (Node) ds.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        Node e1 = (Node) expected.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        assertEquals(e1.getCoor(), n1.getCoor());
+        assertEquals(51.1234567, n1.lat());
+        assertEquals(7.7654321, n1.lon());
+        assertEquals(3, n1.getVersion());
+        assertEquals(42, n1.getChangesetId());
+        assertEquals(e1.getRawTimestamp(), n1.getRawTimestamp());
+        assertEquals(7, n1.getUser().getId());
+        assertEquals("mapper", n1.getUser().getName());
+        assertEquals("bench", n1.get("amenity"));
+        assertEquals(new LatLon(-51.5, -7.25), ((Node) ds.getPrimitiveById(2, OsmPrimitiveType.NODE)).getCoor());
+        assertEquals("Ünïcode", ds.getPrimitiveById(5, OsmPrimitiveType.NODE).get("name"));
+
+        Way w = (Way) ds.getPrimitiveById(10, OsmPrimitiveType.WAY);
+        assertEquals(2, w.getVersion());
+        assertEquals(3, w.getNodesCount());
+        assertEquals(5, w.getNodeId(0));
+        assertEquals(1, w.getNodeId(1));
+        assertEquals(2, w.getNodeId(2));
+        assertEquals("path", w.get("highway"));
+
+        Relation r = (Relation) ds.getPrimitiveById(20, OsmPrimitiveType.RELATION);
+        assertEquals(3, r.getMembersCount());
+        assertEquals("outer", r.getMember(0).getRole());
+        assertEquals(w, r.getMember(0).getMember());
+        assertEquals(n1, r.getMember(1).getMember());
+        assertEquals("sub", r.getMember(2).getRole());
+        assertEquals(ds.getPrimitiveById(21, OsmPrimitiveType.RELATION), r.getMember(2).getMember());
+        assertFalse(r.getMember(2).getMember().isIncomplete());
+    }
+
+    /**
+     * Checks that data spanning several blocks, including new primitives, is read correctly.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testSeveralBlocks() throws Exception {
+        DataSet expected = new DataSet();
+        int count = 2 * OsmPbfWriter.MAX_ENTITIES_PER_BLOCK + 10;
+        Way way = new Way();
+        for (int i = 0; i < count; i++) {
+            Node n = new Node(new LatLon(i * 0.0001, -i * 0.0001));
+            n.put("index", Integer.toString(i));
+            expected.addPrimitive(n);
+            way.addNode(n);
+        }
+        expected.addPrimitive(way);
+        Relation relation = new Relation();
+        relation.addMember(new RelationMember("", way));
+        expected.addPrimitive(relation);
+
+        DataSet ds = roundTrip(expected);
+        assertEquals(count, ds.getNodes().size());
+        Way w = ds.getWays().iterator().next();
+        assertTrue(w.isNew());
+        assertEquals(count, w.getNodesCount());
+        for (int i = 0; i < count; i += 997) {
+            Node n = w.getNode(i);
+            assertEquals(Integer.toString(i), n.get("index"));
+            assertTrue(new LatLon(i * 0.0001, -i * 0.0001).equalsEpsilon(n.getCoor()));
+        }
+        assertEquals(w, ds.getRelations().iterator().next().getMember(0).getMember());
+    }
+
+    /**
+     * Checks that a file not written by {@link OsmPbfWriter} is read correctly. {@code sample.osm.pbf} has been encoded
+     * by hand from the PBF specification: uncompressed header blob, zlib data blob, dense and plain nodes, non-default
+     * granularity and coordinate offsets, and a relation member missing from the file.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testSampleFile() throws Exception {
+        DataSet ds;
+        try (InputStream in = Files.newInputStream(Paths.get(TestUtils.getTestDataRoot(), "pbf", "sample.osm.pbf"))) {
+            ds = OsmPbfReader.parseDataSet(in, null);
+        }
+        assertEquals(4, ds.getNodes().size());
+        assertEquals(1, ds.getWays().size());
+        assertEquals(2, ds.getRelations().size());
+        assertEquals(new Bounds(51.4, -0.2, 51.6, -0.1), ds.getDataSourceBounds().get(0));
+
+        Node n1 = (Node) ds.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        assertEquals(51.5, n1.lat());
+        assertEquals(-0.125, n1.lon());
+        assertEquals(1, n1.getVersion());
+        assertEquals(100, n1.getChangesetId());
+        assertEquals(Instant.parse("2020-01-02T03:04:05Z"), n1.getInstant());
+        assertEquals(11, n1.getUser().getId());
+        assertEquals("alice", n1.getUser().getName());
+        assertEquals("cafe", n1.get("amenity"));
+        assertEquals("Café", n1.get("name"));
+
+        Node n2 = (Node) ds.getPrimitiveById(2, OsmPrimitiveType.NODE);
+        assertEquals(new LatLon(51.501, -0.124), n2.getCoor());
+        assertEquals(2, n2.getVersion());
+        assertFalse(n2.hasKeys());
+
+        Node n3 = (Node) ds.getPrimitiveById(3, OsmPrimitiveType.NODE);
+        assertEquals(new LatLon(51.502, -0.126), n3.getCoor());
+        assertEquals(Instant.parse("2021-01-01T00:00:00Z"), n3.getInstant());
+        assertEquals(101, n3.getChangesetId());
+        assertEquals("bob", n3.getUser().getName());
+        assertEquals("crossing", n3.get("highway"));
+
+        Node n4 = (Node) ds.getPrimitiveById(4, OsmPrimitiveType.NODE);
+        assertEquals(new LatLon(51.45, -0.15), n4.getCoor());
+        assertEquals(5, n4.getVersion());
+        assertEquals(102, n4.getChangesetId());
+        assertEquals(12, n4.getUser().getId());
+        assertEquals("bus_stop", n4.get("highway"));
+
+        Way w = (Way) ds.getPrimitiveById(10, OsmPrimitiveType.WAY);
+        assertEquals(3, w.getVersion());
+        assertEquals("footway", w.get("highway"));
+        assertEquals(3, w.getNodesCount());
+        assertEquals(n1, w.getNode(0));
+        assertEquals(n2, w.getNode(1));
+        assertEquals(n3, w.getNode(2));
+
+        Relation r = (Relation) ds.getPrimitiveById(20, OsmPrimitiveType.RELATION);
+        assertEquals("route", r.get("type"));
+        assertEquals(3, r.getMembersCount());
+        assertEquals(w, r.getMember(0).getMember());
+        assertEquals("", r.getMember(0).getRole());
+        assertEquals(n4, r.getMember(1).getMember());
+        assertEquals("stop", r.getMember(1).getRole());
+        assertEquals(21, r.getMember(2).getUniqueId());
+        assertEquals("sub", r.getMember(2).getRole());
+        assertTrue(r.getMember(2).getMember().isIncomplete());
+    }
+
+    /**
+     * Checks that invalid data is rejected.
+     */
+    @Test
+    void testInvalidData() {
+        byte[] data = {0, 0, 0, 4, 1, 2, 3, 4};
+        assertThrows(IllegalDataException.class,
+                () -> OsmPbfReader.parseDataSet(new ByteArrayInputStream(data), null));
+        byte[] tooLarge = {0x7F, 0, 0, 0};
+        IllegalDataException e = assertThrows(IllegalDataException.class,
+                () -> OsmPbfReader.parseDataSet(new ByteArrayInputStream(tooLarge), null));
+        assertNotNull(e.getMessage());
+    }
+}
@@ -15,11 +15,17 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -404,4 +410,77 @@ class OsmReaderTest {
             }
         }
     }
+
+    /**
+     * Checks that the pipelined mode gives the same result as the sequential one, with several construction batches.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testPipelined() throws Exception {
+        StringBuilder sb = new StringBuilder("<osm version='0.6'>");
+        int count = 5000;
+        for (int i = 1; i <= count; i++) {
+            sb.append("<node id='").append(i).append("' version='1' lat='").append(i / 1000.0).append("' lon='1.5'>")
+              .append("<tag k='ref' v='").append(i).append("'/></node>");
+        }
+        // The relation refers to a way which is not part of the data
+        sb.append("<relation id='1' version='1'><member type='way' ref='2' role=''/></relation>");
+        for (int i = 1; i < count; i += 2) {
+            sb.append("<way id='").append(i).append("' version='1'><nd ref='").append(i).append("'/><nd ref='")
+              .append(i + 1).append("'/></way>");
+        }
+        sb.append("</osm>");
+        DataSet[] results = new DataSet[2];
+        try {
+            for (int i = 0; i < results.length; i++) {
+                OsmReader.PIPELINED.put(i == 0);
+                results[i] = testValidData(sb.toString(), new Options[0]);
+            }
+        } finally {
+            OsmReader.PIPELINED.remove();
+        }
+        for (DataSet ds : results) {
+            assertEquals(count, ds.getNodes().size());
+            // Including the incomplete way member of the relation
+            assertEquals(count / 2 + 1, ds.getWays().size());
+            Node n = (Node) ds.getPrimitiveById(1234, OsmPrimitiveType.NODE);
+            assertEquals("1234", n.get("ref"));
+            assertEquals(1.234, n.lat());
+            Way w = (Way) ds.getPrimitiveById(1233, OsmPrimitiveType.WAY);
+            assertEquals(n, w.lastNode());
+            Relation r = (Relation) ds.getPrimitiveById(1, OsmPrimitiveType.RELATION);
+            assertTrue(r.getMember(0).getMember().isIncomplete());
+        }
+    }
+
+    /**
+     * Checks that the subclasses overriding {@link OsmReader#parseNode()} get the parsed nodes, even in pipelined mode.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testPipelinedSubclass() throws Exception {
+        class NodeCollector extends OsmReader {
+            private final List<Node> nodes = new ArrayList<>();
+
+            @Override
+            protected Node parseNode() throws XMLStreamException {
+                Node n = super.parseNode();
+                nodes.add(n);
+                return n;
+            }
+        }
+        assertFalse(OsmReader.overridesParseMethods(OsmReader.class));
+        assertTrue(OsmReader.overridesParseMethods(NodeCollector.class));
+        String osm = "<osm version='0.6'><node id='1' version='1' lat='1' lon='2'/><node id='2' version='1' lat='3' lon='4'/></osm>";
+        try {
+            OsmReader.PIPELINED.put(true);
+            NodeCollector reader = new NodeCollector();
+            DataSet ds = reader.doParseDataSet(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)), null);
+            assertEquals(2, reader.nodes.size());
+            assertEquals(ds.getPrimitiveById(1, OsmPrimitiveType.NODE), reader.nodes.get(0));
+            assertEquals(ds.getPrimitiveById(2, OsmPrimitiveType.NODE), reader.nodes.get(1));
+        } finally {
+            OsmReader.PIPELINED.remove();
+        }
+    }
 }
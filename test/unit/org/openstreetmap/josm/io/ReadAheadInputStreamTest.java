@@ -0,0 +1,85 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link ReadAheadInputStream} class.
+ */
+class ReadAheadInputStreamTest {
+
+    /**
+     * Checks that the data is read unchanged, across several chunks.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testRead() throws IOException {
+        byte[] data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), 999, 2)) {
+            assertEquals(0, in.read());
+            assertEquals(1, in.read());
+            byte[] buffer = new byte[123];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            assertEquals(-1, in.read());
+        }
+        byte[] result = out.toByteArray();
+        assertEquals(data.length - 2, result.length);
+        assertEquals((byte) 2, result[0]);
+        assertEquals((byte) 9999, result[result.length - 1]);
+    }
+
+    /**
+     * Checks that an empty source gives an empty stream.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testEmpty() throws IOException {
+        try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(new byte[0]))) {
+            assertEquals(-1, in.read(new byte[10]));
+        }
+    }
+
+    /**
+     * Checks that errors of the source are reported to the reader, after the data read before the error.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testError() throws IOException {
+        InputStream failing = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count == 3) {
+                    throw new IOException("test");
+                }
+                return count++;
+            }
+        };
+        try (InputStream in = new ReadAheadInputStream(failing, 2, 1)) {
+            byte[] buffer = new byte[2];
+            assertEquals(2, in.read(buffer));
+            assertArrayEquals(new byte[] {0, 1}, buffer);
+            assertEquals(2, in.read());
+            IOException e = assertThrows(IOException.class, () -> in.read(buffer));
+            assertEquals("test", e.getMessage());
+            assertThrows(IOException.class, in::read);
+        }
+    }
+}
@@ -99,6 +99,8 @@ public @interface BasicWiremock {
                                     .getConstructor(parameterMapping.a);
                             transformers.add(constructor.newInstance(parameterMapping.b));
                             break;
+                        } catch (NoSuchMethodException e) {
+                            Logging.trace(e);
                         } catch (ReflectiveOperationException e) {
                             fail(e);
                         }
@@ -0,0 +1,279 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.BasicWiremock;
+import org.openstreetmap.josm.tools.HttpClient.HttpClientFactory;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+
+/**
+ * Unit tests of the HTTP/2 client returned by {@link HttpClient#getHttp2Factory()}.
+ * <p>
+ * The client is only available on Java 11 and later, it is created through its factory as it cannot be compiled with the tests.
+ */
+@BasicWiremock(responseTransformers = Http2ClientTest.StalledBody.class)
+@BasicPreferences
+class Http2ClientTest {
+    /** Ends the stall of the bodies served by {@link StalledBody} */
+    private static volatile CountDownLatch stallEnd;
+
+    /**
+     * mocked server
+     */
+    @BasicWiremock
+    WireMockServer server;
+
+    private HttpClientFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        factory = HttpClient.getHttp2Factory();
+        assumeTrue(factory != null, "Http2Client is not available");
+        stallEnd = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stallEnd.countDown();
+    }
+
+    private HttpClient create(String path) throws IOException {
+        return factory.create(new URL(server.url(path)), "GET");
+    }
+
+    /**
+     * Test that the factory creates HTTP/2 clients
+     * @throws IOException never
+     */
+    @Test
+    void testGetHttp2Factory() throws IOException {
+        assertNotNull(HttpClient.getHttp2Factory());
+        assertEquals("Http2Client", create("/").getClass().getSimpleName());
+    }
+
+    /**
+     * Test that the headers are passed to the server and back, except the ones the client sets itself
+     * @throws IOException never
+     */
+    @Test
+    void testHeaders() throws IOException {
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/headers"))
+                .willReturn(WireMock.aResponse()
+                        .withHeader("Content-Type", "text/plain")
+                        .withHeader("X-Response", "response")
+                        .withBody("content")));
+
+        HttpClient client = create("/headers")
+                .setHeader("X-Request", "request")
+                .setHeader("Host", "example.org")
+                .setHeader("Connection", "close");
+        HttpClient.Response response = client.connect();
+        assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+        assertEquals("text/plain", response.getContentType());
+        assertEquals("response", response.getHeaderField("x-response"));
+        assertEquals("response", response.getHeaderFields().get("X-RESPONSE").get(0));
+        assertEquals("content", response.fetchContent());
+
+        server.verify(WireMock.getRequestedFor(WireMock.urlEqualTo("/headers"))
+                .withHeader("X-Request", WireMock.equalTo("request"))
+                .withHeader("Host", WireMock.equalTo("localhost:" + server.port()))
+                .withHeader("User-Agent", WireMock.matching(".+")));
+        // the server accepted the upgrade of the plain HTTP request to HTTP/2
+        assertTrue(HttpClient.isMultiplexed("localhost"));
+        assertFalse(HttpClient.isMultiplexed("example.org"));
+    }
+
+    /**
+     * Test that {@code If-Modified-Since} is sent and that the {@code 304} response is returned as is
+     * @throws IOException never
+     */
+    @Test
+    void testIfModifiedSince() throws IOException {
+        long lastModified = 1_600_000_000_000L;
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneOffset.UTC));
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/modified"))
+                .withHeader("If-Modified-Since", WireMock.equalTo(date))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpURLConnection.HTTP_NOT_MODIFIED)
+                        .withHeader("Last-Modified", date)));
+
+        HttpClient client = create("/modified");
+        client.setIfModifiedSince(lastModified);
+        HttpClient.Response response = client.connect();
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, response.getResponseCode());
+        assertEquals(lastModified, response.getLastModified());
+        assertEquals(0, response.getExpiration());
+        response.disconnect();
+    }
+
+    /**
+     * Test that a response whose headers stall for longer than the read timeout fails as with {@link HttpURLConnection}
+     * @throws IOException never
+     */
+    @Test
+    void testReadTimeoutBeforeResponse() throws IOException {
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/delayed"))
+                .willReturn(WireMock.aResponse()
+                        .withBody("content")
+                        .withFixedDelay(20_000)));
+
+        HttpClient client = create("/delayed");
+        client.setReadTimeout(500);
+        long start = System.nanoTime();
+        assertThrows(SocketTimeoutException.class, client::connect);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 10_000);
+    }
+
+    /**
+     * Test that a body which stalls for longer than the read timeout fails the read
+     * @throws IOException never
+     */
+    @Test
+    void testReadTimeout() throws IOException {
+        HttpClient client = createStalled();
+        client.setReadTimeout(1000);
+        HttpClient.Response response = client.connect();
+        assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+        long start = System.nanoTime();
+        // not fetchContent(), whose scanner ignores the exceptions
+        assertThrows(SocketTimeoutException.class, () -> Utils.readBytesFromStream(response.getContent()));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 10_000);
+    }
+
+    /**
+     * Test that {@link HttpClient#disconnect()} wakes up the thread waiting for the response
+     * @throws Exception if the test fails
+     */
+    @Test
+    void testDisconnectBeforeResponse() throws Exception {
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/delayed"))
+                .willReturn(WireMock.aResponse()
+                        .withBody("content")
+                        .withFixedDelay(20_000)));
+
+        HttpClient client = create("/delayed");
+        client.setReadTimeout(0);
+        CompletableFuture<HttpClient.Response> connect = CompletableFuture.supplyAsync(() -> {
+            try {
+                return client.connect();
+            } catch (IOException e) {
+                throw new JosmRuntimeException(e);
+            }
+        });
+        // the request may not have been sent yet
+        long start = System.nanoTime();
+        while (!connect.isDone() && TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10) {
+            client.disconnect();
+            Thread.sleep(50);
+        }
+        ExecutionException e = assertThrows(ExecutionException.class, () -> connect.get(0, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getCause() instanceof IOException);
+    }
+
+    /**
+     * Test that {@link HttpClient#disconnect()} wakes up the thread reading the response
+     * @throws Exception if the test fails
+     */
+    @Test
+    void testDisconnectWhileReading() throws Exception {
+        HttpClient client = createStalled();
+        client.setReadTimeout(0);
+        HttpClient.Response response = client.connect();
+        InputStream in = response.getContent();
+        CompletableFuture<Void> read = CompletableFuture.runAsync(() -> {
+            try {
+                Utils.readBytesFromStream(in);
+            } catch (IOException e) {
+                throw new JosmRuntimeException(e);
+            }
+        });
+        Thread.sleep(200);
+        client.disconnect();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> read.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getCause() instanceof IOException);
+    }
+
+    private HttpClient createStalled() throws IOException {
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/stalled"))
+                .willReturn(WireMock.aResponse()
+                        // otherwise the server reads the whole body to compute it before sending the headers
+                        .withHeader("Content-Length", Integer.toString(2 * StalledBody.LENGTH))
+                        .withTransformers(StalledBody.NAME)));
+        // the stall must not be buffered by the compression of the server
+        return create("/stalled").setHeader("Accept-Encoding", "identity");
+    }
+
+    /**
+     * Serves a body which stalls once its beginning, larger than the buffers of the server, has been sent.
+     * The stall lasts until the end of the test.
+     */
+    public static class StalledBody extends ResponseTransformer {
+        static final String NAME = "stalled-body";
+        static final int LENGTH = 1 << 20;
+
+        @Override
+        public Response transform(Request request, Response response, FileSource files, Parameters parameters) {
+            InputStream stall = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    try {
+                        stallEnd.await(20, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return -1;
+                }
+            };
+            // the first stream is read entirely by the request journal of the server, before the response is sent
+            AtomicBoolean logged = new AtomicBoolean();
+            return Response.Builder.like(response).but()
+                    .body(() -> new SequenceInputStream(new ByteArrayInputStream(new byte[LENGTH]),
+                            logged.getAndSet(true) ? stall : new ByteArrayInputStream(new byte[0])))
+                    .build();
+        }
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public boolean applyGlobally() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import net.trajano.commons.testing.UtilityClassTestUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests of {@link Metrics} class.
+ */
+class MetricsTest {
+    /**
+     * Tests that {@code Metrics} satisfies utility class criteria.
+     * @throws ReflectiveOperationException if an error occurs
+     */
+    @Test
+    void testUtilityClass() throws ReflectiveOperationException {
+        UtilityClassTestUtil.assertUtilityClassWellDefined(Metrics.class);
+    }
+
+    /**
+     * Tests {@link Metrics#counter(String)}.
+     */
+    @Test
+    void testCounter() {
+        Metrics.Counter counter = Metrics.counter("test.counter");
+        assertSame(counter, Metrics.counter("test.counter"));
+        counter.increment();
+        counter.add(2);
+        assertEquals(3, counter.getCount());
+        assertEquals(3, Metrics.toJson().getJsonObject("test.counter").getInt("count"));
+        assertThrows(IllegalArgumentException.class, () -> Metrics.timer("test.counter"));
+    }
+
+    /**
+     * Tests {@link Metrics.Histogram}.
+     */
+    @Test
+    void testHistogram() {
+        Metrics.Histogram histogram = Metrics.histogram("test.histogram");
+        for (int i = 1; i <= 100; i++) {
+            histogram.update(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        // 50 is in the bucket [32, 63], 95 and 99 in [64, 127] bounded by the maximum
+        assertEquals(63, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(0.95));
+        assertEquals(0, Metrics.histogram("test.histogram.empty").getPercentile(0.5));
+
+        JsonObject json = Metrics.toJson().getJsonObject("test.histogram");
+        assertEquals("histogram", json.getString("type"));
+        assertEquals(1, json.getJsonNumber("min").intValue());
+        assertEquals(100, json.getJsonNumber("max").intValue());
+        assertEquals(50.5, json.getJsonNumber("mean").doubleValue(), 1e-9);
+        assertFalse(Metrics.toJson().getJsonObject("test.histogram.empty").containsKey("mean"));
+    }
+
+    /**
+     * Tests {@link Metrics.Timer}.
+     */
+    @Test
+    void testTimer() {
+        Metrics.Timer timer = Metrics.timer("test.timer");
+        assertEquals("result", timer.time(() -> "result"));
+        timer.update(2_000_000);
+        assertEquals(2, timer.getCount());
+        JsonObject json = Metrics.toJson().getJsonObject("test.timer");
+        assertEquals("ms", json.getString("unit"));
+        assertTrue(json.getJsonNumber("max").doubleValue() >= 2.0);
+    }
+
+    /**
+     * Tests {@link Metrics#reset()}.
+     */
+    @Test
+    void testReset() {
+        Metrics.Counter counter = Metrics.counter("test.reset");
+        counter.increment();
+        Metrics.reset();
+        assertEquals(0, counter.getCount());
+        assertSame(counter, Metrics.counter("test.reset"));
+    }
+
+    /**
+     * Tests {@link Metrics#write(Path)}.
+     * @param tempDir temporary directory
+     * @throws IOException in case of I/O error
+     */
+    @Test
+    void testWrite(@TempDir Path tempDir) throws IOException {
+        Metrics.counter("test.write").increment();
+        Path file = tempDir.resolve("metrics.json");
+        Metrics.write(file);
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             JsonReader json = Json.createReader(reader)) {
+            assertTrue(json.readObject().containsKey("test.write"));
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Pattern;
 
 import net.trajano.commons.testing.UtilityClassTestUtil;
@@ -531,4 +532,20 @@ class UtilsTest {
         final String output = Utils.execOutput(Arrays.asList("echo", "Hello", "World"));
         assertEquals("Hello World", output);
     }
+
+    /**
+     * Test of {@link Utils#newVirtualThreadFactory} and {@link Utils#isVirtualThread}
+     */
+    @Test
+    void testVirtualThreads() {
+        assertFalse(Utils.isVirtualThread(Thread.currentThread()));
+        ThreadFactory factory = Utils.newVirtualThreadFactory("test-%d");
+        if (Utils.getJavaVersion() < 21) {
+            assertNull(factory);
+        } else {
+            Thread thread = factory.newThread(() -> { });
+            assertEquals("test-0", thread.getName());
+            assertTrue(Utils.isVirtualThread(thread));
+        }
+    }
 }